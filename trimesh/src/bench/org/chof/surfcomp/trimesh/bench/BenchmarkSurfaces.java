@@ -0,0 +1,207 @@
+package org.chof.surfcomp.trimesh.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.Formatter;
+import java.util.Locale;
+
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.Point;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.io.MSMSReader;
+import org.chof.surfcomp.trimesh.io.test.IOTestCase;
+
+/**
+ * Fixed surfaces of the benchmarks
+ * <p>
+ * The synthetic surfaces are tori with a given number of faces, built from
+ * a regular grid over the two angles. The same number of faces always gives
+ * the same mesh, thus results of different versions can be compared. The
+ * MSMS fixtures are the files of the unit tests.</p>
+ *
+ * @author chof
+ */
+public class BenchmarkSurfaces {
+
+	/** major and minor radius of the synthetic tori */
+	public static final double MAJOR_RADIUS = 20.0;
+	public static final double MINOR_RADIUS = 8.0;
+
+	/**
+	 * The synthetic surface as flat arrays
+	 */
+	public static class Grid {
+		public final double[] coordinates;
+		public final double[] normals;
+		public final int[] triangles;
+
+		Grid(double[] coordinates, double[] normals, int[] triangles) {
+			this.coordinates = coordinates;
+			this.normals = normals;
+			this.triangles = triangles;
+		}
+
+		public int sizePoints() {
+			return coordinates.length / 3;
+		}
+	}
+
+	/**
+	 * Builds the grid of a torus with at least the given number of faces
+	 *
+	 * @param faces the number of faces, rounded up to the grid
+	 * @return the coordinates, normals and triangles of the torus
+	 */
+	public static Grid torusGrid(int faces) {
+		// the minor circle gets about 2/5 of the major circle's segments,
+		// which keeps the triangles close to equilateral
+		int major = (int) Math.ceil(Math.sqrt(faces / 0.8));
+		int minor = Math.max(3, (int) Math.ceil(faces / (2.0 * major)));
+
+		int n = major * minor;
+		double[] coordinates = new double[3 * n];
+		double[] normals = new double[3 * n];
+		for (int i = 0; i < major; ++i) {
+			double u = 2 * Math.PI * i / major;
+			for (int j = 0; j < minor; ++j) {
+				double v = 2 * Math.PI * j / minor;
+				int p = 3 * (i * minor + j);
+				normals[p] = Math.cos(v) * Math.cos(u);
+				normals[p + 1] = Math.cos(v) * Math.sin(u);
+				normals[p + 2] = Math.sin(v);
+				double r = MAJOR_RADIUS + MINOR_RADIUS * Math.cos(v);
+				coordinates[p] = r * Math.cos(u);
+				coordinates[p + 1] = r * Math.sin(u);
+				coordinates[p + 2] = MINOR_RADIUS * Math.sin(v);
+			}
+		}
+
+		int[] triangles = new int[6 * n];
+		int t = 0;
+		for (int i = 0; i < major; ++i) {
+			int i1 = (i + 1) % major;
+			for (int j = 0; j < minor; ++j) {
+				int j1 = (j + 1) % minor;
+				int a = i * minor + j, b = i1 * minor + j;
+				int c = i1 * minor + j1, d = i * minor + j1;
+				triangles[t++] = a;
+				triangles[t++] = b;
+				triangles[t++] = c;
+				triangles[t++] = a;
+				triangles[t++] = c;
+				triangles[t++] = d;
+			}
+		}
+		return new Grid(coordinates, normals, triangles);
+	}
+
+	/**
+	 * Builds a mesh from the flat arrays
+	 */
+	public static Mesh build(Grid grid) throws TrimeshException {
+		Mesh mesh = new Mesh();
+		double[] c = grid.coordinates;
+		double[] n = grid.normals;
+		for (int p = 0; p < c.length; p += 3) {
+			mesh.addPoint(new Point(new Point3d(c[p], c[p + 1], c[p + 2]),
+					new Vector3d(n[p], n[p + 1], n[p + 2])));
+		}
+		int[] t = grid.triangles;
+		for (int f = 0; f < t.length; f += 3) {
+			mesh.addTriangle(t[f], t[f + 1], t[f + 2]);
+		}
+		return mesh;
+	}
+
+	/**
+	 * @return the torus with at least the given number of faces as mesh
+	 */
+	public static Mesh torus(int faces) throws TrimeshException {
+		return build(torusGrid(faces));
+	}
+
+	/**
+	 * Writes the synthetic surface in the MSMS format. The fixed columns of
+	 * the format limit the surface to 999999 points.
+	 *
+	 * @return the content of an MSMS file
+	 */
+	public static String msms(Grid grid) {
+		int n = grid.sizePoints();
+		int faces = grid.triangles.length / 3;
+		if (n > 999999) {
+			throw new IllegalArgumentException("MSMS holds at most 999999 points");
+		}
+
+		StringBuilder text = new StringBuilder(80 * n + 32 * faces);
+		Formatter out = new Formatter(text, Locale.ROOT);
+		out.format("# MSMS solvent excluded surface vertices for torus%n");
+		out.format("#vertex #sphere density probe_r%n");
+		out.format("%7d %7d %5.2f %5.2f%n", n, 1, 1.0, 1.5);
+		double[] c = grid.coordinates;
+		double[] m = grid.normals;
+		for (int p = 0; p < c.length; p += 3) {
+			out.format("%9.3f %9.3f %9.3f %9.3f %9.3f %9.3f %7d %7d %2d %n",
+					c[p], c[p + 1], c[p + 2], m[p], m[p + 1], m[p + 2], 0, 1, 2);
+		}
+		out.format("# MSMS solvent excluded surface faces for torus%n");
+		out.format("#faces  #sphere density probe_r%n");
+		out.format("%7d %7d %5.2f %5.2f%n", faces, 1, 1.0, 1.5);
+		int[] t = grid.triangles;
+		for (int f = 0; f < t.length; f += 3) {
+			out.format("%6d %6d %6d %2d %6d%n", t[f] + 1, t[f + 1] + 1, t[f + 2] + 1, 2, 1);
+		}
+		out.flush();
+		return text.toString();
+	}
+
+	/**
+	 * Loads an MSMS fixture of the unit tests
+	 *
+	 * @param name the name of the file without extension, e.g. 1crn
+	 * @return the content of the file
+	 */
+	public static String msmsFixture(String name) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				IOTestCase.loadTestFile("data/msms/" + name + ".msms")));
+		try {
+			StringBuilder text = new StringBuilder();
+			String line;
+			while ((line = in.readLine()) != null) {
+				text.append(line).append('\n');
+			}
+			return text.toString();
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * @return true if the benchmark parameter is a number of faces rather
+	 *         than the name of a fixture like 1crn
+	 */
+	public static boolean isFaceCount(String parameter) {
+		return parameter.matches("[0-9]+");
+	}
+
+	/**
+	 * Provides the surface of a benchmark parameter, a number of faces or
+	 * the name of an MSMS fixture
+	 */
+	public static Mesh surface(String parameter) throws TrimeshException, IOException {
+		if (isFaceCount(parameter)) {
+			return torus(Integer.parseInt(parameter));
+		}
+		MSMSReader reader = new MSMSReader(new StringReader(msmsFixture(parameter)));
+		try {
+			return reader.read(new Mesh());
+		} finally {
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package org.chof.surfcomp.trimesh.bench;
+
+import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.chof.surfcomp.trimesh.calculator.ICalculator;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.tools.Parallel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Calculation of all points by the curvature calculators
+ * <p>
+ * The threads parameter sets the executor of {@link Parallel}, which shows
+ * how the calculators scale. The caches of the mesh are dropped before each
+ * call, thus the operators built on demand are part of the measurement. The
+ * properties are not stored.</p>
+ * <p>
+ * The canonical curvature runs one small dense solve per point and takes
+ * minutes on the largest surfaces, restrict the parameters with
+ * <code>-p</code> if needed.</p>
+ *
+ * @author chof
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx12g" })
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CalculatorBenchmark {
+
+	@Param({ "GaussianCurvature", "CanonicalCurvature", "MeanCurvature", "CurvatureTensor" })
+	public String calculator;
+
+	@Param({ "1crn", "10000", "100000", "1000000", "5000000" })
+	public String surface;
+
+	@Param({ "1", "2", "4", "8" })
+	public int threads;
+
+	private Mesh mesh;
+	private ICalculator instance;
+	private ExecutorService executor;
+
+	@Setup
+	public void setup() throws Exception {
+		mesh = BenchmarkSurfaces.surface(surface);
+		instance = (ICalculator) Class.forName(
+				"org.chof.surfcomp.trimesh.calculator." + calculator).newInstance();
+		instance.setParameter("StoreProperty", false);
+
+		executor = Executors.newFixedThreadPool(threads);
+		Parallel.setExecutor(executor, threads);
+	}
+
+	@Setup(Level.Invocation)
+	public void dropCaches() {
+		mesh.markModified(0);
+	}
+
+	@TearDown
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Benchmark
+	public Vector<Object> calculate() {
+		return instance.calculate(mesh);
+	}
+}
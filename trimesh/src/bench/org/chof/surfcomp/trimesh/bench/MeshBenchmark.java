@@ -0,0 +1,62 @@
+package org.chof.surfcomp.trimesh.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building meshes by {@link Mesh#addPoint} and {@link Mesh#addTriangle}
+ * from prepared arrays, and the caches built on first request
+ *
+ * @author chof
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx12g" })
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MeshBenchmark {
+
+	@Param({ "10000", "100000", "1000000", "5000000" })
+	public int faces;
+
+	private BenchmarkSurfaces.Grid grid;
+	private Mesh mesh;
+
+	@Setup
+	public void setup() throws TrimeshException {
+		grid = BenchmarkSurfaces.torusGrid(faces);
+		mesh = BenchmarkSurfaces.build(grid);
+	}
+
+	@Benchmark
+	public Mesh build() throws TrimeshException {
+		return BenchmarkSurfaces.build(grid);
+	}
+
+	@Benchmark
+	public Object edgeGraph() {
+		// moving a point in place drops the caches of the mesh
+		mesh.markModified(0);
+		return mesh.getEdgeGraph();
+	}
+
+	@Benchmark
+	public Object laplaceBeltrami() {
+		mesh.markModified(0);
+		return mesh.getLaplaceBeltrami();
+	}
+}
@@ -0,0 +1,57 @@
+package org.chof.surfcomp.trimesh.bench;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.io.MSMSReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading MSMS files held in memory, thus without disk access
+ * <p>
+ * The synthetic surfaces stop at 1M faces since the fixed columns of the
+ * format hold at most 999999 points.</p>
+ *
+ * @author chof
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx12g" })
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ReaderBenchmark {
+
+	@Param({ "1crn", "10000", "100000", "1000000" })
+	public String surface;
+
+	private String text;
+
+	@Setup
+	public void setup() throws Exception {
+		if (BenchmarkSurfaces.isFaceCount(surface)) {
+			text = BenchmarkSurfaces.msms(
+					BenchmarkSurfaces.torusGrid(Integer.parseInt(surface)));
+		} else {
+			text = BenchmarkSurfaces.msmsFixture(surface);
+		}
+	}
+
+	@Benchmark
+	public Mesh read() throws TrimeshException {
+		MSMSReader reader = new MSMSReader(new StringReader(text));
+		return reader.read(new Mesh());
+	}
+}
@@ -0,0 +1,75 @@
+package org.chof.surfcomp.trimesh.bench;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.io.OffWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writing OFF files into a writer which drops the characters, thus the
+ * formatting is measured without disk access
+ *
+ * @author chof
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx12g" })
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class WriterBenchmark {
+
+	@Param({ "1crn", "10000", "100000", "1000000", "5000000" })
+	public String surface;
+
+	private Mesh mesh;
+
+	/**
+	 * Counts the characters instead of keeping them
+	 */
+	private static class CountingWriter extends Writer {
+		long count = 0;
+
+		@Override
+		public void write(char[] buffer, int offset, int length) {
+			count += length;
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	@Setup
+	public void setup() throws Exception {
+		mesh = BenchmarkSurfaces.surface(surface);
+	}
+
+	@Benchmark
+	public long write() throws TrimeshException, IOException {
+		CountingWriter out = new CountingWriter();
+		OffWriter writer = new OffWriter();
+		writer.setWriter(out);
+		writer.write(mesh);
+		writer.close();
+		return out.count;
+	}
+}
@@ -0,0 +1,55 @@
+package org.chof.surfcomp.trimesh.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One call of a calculator
+ *
+ * @author chof
+ */
+@Name("org.chof.surfcomp.trimesh.Calculation")
+@Label("Calculation")
+@Category({ "Trimesh", "Calculator" })
+@Description("Calculation of a property for the points of a mesh")
+class CalculationEvent extends TraceEvent {
+
+	@Label("Calculator")
+	String calculator;
+
+	@Label("Parameters")
+	String parameters;
+
+	@Label("Points")
+	@Description("The number of points of the mesh")
+	long points;
+
+	@Label("Triangles")
+	long triangles;
+
+	@Label("Selected Points")
+	@Description("The number of points calculated")
+	long selected;
+
+	@Override
+	void set(String attribute, String value) {
+		if ("calculator".equals(attribute)) {
+			calculator = value;
+		} else if ("parameters".equals(attribute)) {
+			parameters = value;
+		}
+	}
+
+	@Override
+	void set(String attribute, long value) {
+		if ("points".equals(attribute)) {
+			points = value;
+		} else if ("triangles".equals(attribute)) {
+			triangles = value;
+		} else if ("selected".equals(attribute)) {
+			selected = value;
+		}
+	}
+}
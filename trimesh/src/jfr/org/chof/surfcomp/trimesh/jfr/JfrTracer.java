@@ -0,0 +1,81 @@
+package org.chof.surfcomp.trimesh.jfr;
+
+import org.chof.surfcomp.trimesh.metrics.ISpan;
+import org.chof.surfcomp.trimesh.metrics.ITracer;
+import org.chof.surfcomp.trimesh.metrics.Metrics;
+
+/**
+ * Emits the traced operations as Java Flight Recorder events
+ * <p>
+ * The events are in the category <code>Trimesh</code>:
+ * <code>org.chof.surfcomp.trimesh.SurfaceRead</code>,
+ * <code>org.chof.surfcomp.trimesh.TopologyBuild</code> and
+ * <code>org.chof.surfcomp.trimesh.Calculation</code>. They are enabled and
+ * thresholded by the settings of a recording like any JDK event, e.g.</p>
+ * <pre>
+ * -XX:StartFlightRecording:settings=profile,filename=run.jfr
+ * </pre>
+ * <p>
+ * Operations of disabled events cost one check and are not traced. Install
+ * the tracer once at startup:</p>
+ * <pre>
+ * Metrics.setTracer(new JfrTracer());
+ * </pre>
+ * <p>
+ * The bridge needs JDK 11 or later and is therefore kept out of the main
+ * sources, see <code>jfr.xml</code>.</p>
+ *
+ * @author chof
+ */
+public class JfrTracer implements ITracer {
+
+	@Override
+	public ISpan begin(String operation) {
+		TraceEvent event;
+		if (Metrics.SURFACE_READ.equals(operation)) {
+			event = new SurfaceReadEvent();
+		} else if (Metrics.TOPOLOGY_BUILD.equals(operation)) {
+			event = new TopologyBuildEvent();
+		} else if (Metrics.CALCULATION.equals(operation)) {
+			event = new CalculationEvent();
+		} else {
+			return null;
+		}
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.begin();
+		return new Span(event);
+	}
+
+	private static class Span implements ISpan {
+		private final TraceEvent event;
+
+		Span(TraceEvent event) {
+			this.event = event;
+		}
+
+		@Override
+		public boolean isRecording() {
+			return true;
+		}
+
+		@Override
+		public void set(String attribute, String value) {
+			event.set(attribute, value);
+		}
+
+		@Override
+		public void set(String attribute, long value) {
+			event.set(attribute, value);
+		}
+
+		@Override
+		public void end() {
+			event.end();
+			if (event.shouldCommit()) {
+				event.commit();
+			}
+		}
+	}
+}
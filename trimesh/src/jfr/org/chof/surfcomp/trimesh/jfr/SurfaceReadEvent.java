@@ -0,0 +1,51 @@
+package org.chof.surfcomp.trimesh.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A surface read by a reader
+ *
+ * @author chof
+ */
+@Name("org.chof.surfcomp.trimesh.SurfaceRead")
+@Label("Surface Read")
+@Category({ "Trimesh", "I/O" })
+@Description("Reading of a surface file into a mesh")
+class SurfaceReadEvent extends TraceEvent {
+
+	@Label("Format")
+	String format;
+
+	@Label("Size")
+	@Description("The number of characters read, bytes for ASCII files")
+	@DataAmount
+	long characters;
+
+	@Label("Vertices")
+	long vertices;
+
+	@Label("Faces")
+	long faces;
+
+	@Override
+	void set(String attribute, String value) {
+		if ("format".equals(attribute)) {
+			format = value;
+		}
+	}
+
+	@Override
+	void set(String attribute, long value) {
+		if ("characters".equals(attribute)) {
+			characters = value;
+		} else if ("vertices".equals(attribute)) {
+			vertices = value;
+		} else if ("faces".equals(attribute)) {
+			faces = value;
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package org.chof.surfcomp.trimesh.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The triangles and edges of a mesh built while reading
+ *
+ * @author chof
+ */
+@Name("org.chof.surfcomp.trimesh.TopologyBuild")
+@Label("Topology Build")
+@Category({ "Trimesh", "Mesh" })
+@Description("Adding the triangles and edges of a surface to a mesh")
+class TopologyBuildEvent extends TraceEvent {
+
+	@Label("Faces")
+	long faces;
+
+	@Override
+	void set(String attribute, long value) {
+		if ("faces".equals(attribute)) {
+			faces = value;
+		}
+	}
+}
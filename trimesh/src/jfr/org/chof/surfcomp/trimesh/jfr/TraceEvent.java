@@ -0,0 +1,18 @@
+package org.chof.surfcomp.trimesh.jfr;
+
+import jdk.jfr.Event;
+
+/**
+ * Base class of the events taking the attributes of a span by name, unknown
+ * attributes are ignored
+ *
+ * @author chof
+ */
+abstract class TraceEvent extends Event {
+
+	void set(String attribute, String value) {
+	}
+
+	void set(String attribute, long value) {
+	}
+}
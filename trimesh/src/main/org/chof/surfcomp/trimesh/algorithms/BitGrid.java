@@ -0,0 +1,191 @@
+package org.chof.surfcomp.trimesh.algorithms;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.vecmath.Point3d;
+
+import org.chof.surfcomp.trimesh.tools.Parallel;
+
+/**
+ * Regular grid of voxels storing one bit per voxel
+ * <p>
+ * The bits are packed into a long array with x running fastest. Each row of
+ * voxels along x starts at a new long value, thus rows never share a word and
+ * different rows can be written from different threads.</p>
+ * <p>
+ * Voxel (i, j, k) is the cube of edge length <code>spacing</code> centered at
+ * <code>origin + (i, j, k) * spacing</code>.</p>
+ *
+ * @author chof
+ */
+public class BitGrid {
+
+	private final int nx, ny, nz;
+	private final int wordsPerRow;
+	private final double ox, oy, oz;
+	private final double spacing;
+	private final long[] bits;
+
+	/**
+	 * Constructs an empty grid
+	 *
+	 * @param origin the center of voxel (0, 0, 0)
+	 * @param spacing the edge length of a voxel
+	 * @param nx number of voxels along x
+	 * @param ny number of voxels along y
+	 * @param nz number of voxels along z
+	 */
+	public BitGrid(Point3d origin, double spacing, int nx, int ny, int nz) {
+		if ((spacing <= 0) || (nx <= 0) || (ny <= 0) || (nz <= 0)) {
+			throw new IllegalArgumentException("spacing and grid dimensions must be positive");
+		}
+		this.wordsPerRow = (nx + 63) >>> 6;
+		if ((long) wordsPerRow * ny * nz > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The grid is too large");
+		}
+
+		this.ox = origin.x;
+		this.oy = origin.y;
+		this.oz = origin.z;
+		this.spacing = spacing;
+		this.nx = nx;
+		this.ny = ny;
+		this.nz = nz;
+		this.bits = new long[wordsPerRow * ny * nz];
+	}
+
+	/**
+	 * @return true if voxel (i, j, k) is set
+	 */
+	public boolean get(int i, int j, int k) {
+		return (bits[rowOffset(j, k) + (i >>> 6)] & (1L << i)) != 0;
+	}
+
+	/**
+	 * Sets voxel (i, j, k)
+	 */
+	public void set(int i, int j, int k) {
+		bits[rowOffset(j, k) + (i >>> 6)] |= 1L << i;
+	}
+
+	/**
+	 * Clears voxel (i, j, k)
+	 */
+	public void clear(int i, int j, int k) {
+		bits[rowOffset(j, k) + (i >>> 6)] &= ~(1L << i);
+	}
+
+	/**
+	 * Sets the voxels <code>from</code> (inclusive) to <code>to</code>
+	 * (exclusive) of row (j, k)
+	 */
+	public void setRange(int from, int to, int j, int k) {
+		from = Math.max(from, 0);
+		to = Math.min(to, nx);
+		if (from >= to) {
+			return;
+		}
+
+		int row = rowOffset(j, k);
+		int first = from >>> 6;
+		int last = (to - 1) >>> 6;
+		long firstMask = -1L << from;
+		long lastMask = -1L >>> -to;
+
+		if (first == last) {
+			bits[row + first] |= firstMask & lastMask;
+		} else {
+			bits[row + first] |= firstMask;
+			for (int w = first + 1; w < last; ++w) {
+				bits[row + w] = -1L;
+			}
+			bits[row + last] |= lastMask;
+		}
+	}
+
+	private int rowOffset(int j, int k) {
+		return (k * ny + j) * wordsPerRow;
+	}
+
+	/**
+	 * @return the number of voxels set, counted in parallel over the z slabs
+	 */
+	public long cardinality() {
+		final AtomicLong total = new AtomicLong();
+		final int slab = wordsPerRow * ny;
+
+		Parallel.forRange(nz, 16, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				long count = 0;
+				for (int w = from * slab; w < to * slab; ++w) {
+					count += Long.bitCount(bits[w]);
+				}
+				total.addAndGet(count);
+			}
+		});
+
+		return total.get();
+	}
+
+	/**
+	 * @return the volume of all voxels set
+	 */
+	public double getVolume() {
+		return cardinality() * spacing * spacing * spacing;
+	}
+
+	/**
+	 * Retrieves the center of a voxel
+	 * @param position array receiving x, y and z
+	 */
+	public void getCenter(int i, int j, int k, double[] position) {
+		position[0] = ox + i * spacing;
+		position[1] = oy + j * spacing;
+		position[2] = oz + k * spacing;
+	}
+
+	/**
+	 * @return the center of voxel (0, 0, 0)
+	 */
+	public Point3d getOrigin() {
+		return new Point3d(ox, oy, oz);
+	}
+
+	/**
+	 * @return the edge length of a voxel
+	 */
+	public double getSpacing() {
+		return spacing;
+	}
+
+	public int getSizeX() {
+		return nx;
+	}
+
+	public int getSizeY() {
+		return ny;
+	}
+
+	public int getSizeZ() {
+		return nz;
+	}
+
+	/**
+	 * @return the number of long values used for each row along x
+	 */
+	public int getWordsPerRow() {
+		return wordsPerRow;
+	}
+
+	/**
+	 * Provides direct access to the packed bits. The bits of row (j, k) start
+	 * at <code>(k * ny + j) * wordsPerRow</code>, bits beyond nx in the last
+	 * word of a row are always zero.
+	 *
+	 * @return the packed bits
+	 */
+	public long[] getBits() {
+		return bits;
+	}
+}
@@ -0,0 +1,178 @@
+package org.chof.surfcomp.trimesh.algorithms;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.tools.DoubleHeap;
+import org.chof.surfcomp.trimesh.tools.IntList;
+import org.chof.surfcomp.trimesh.tools.SparseMatrix;
+
+/**
+ * The edges of a mesh as compact adjacency arrays with the edge lengths
+ * <p>
+ * The neighbors of point i are stored at the positions
+ * <code>start[i] .. start[i+1]</code> of the neighbor and length arrays. The
+ * graph is a snapshot of the coordinates and triangles at construction.
+ * Shortest paths along the edges approximate geodesic distances on the
+ * surface.</p>
+ *
+ * @author chof
+ */
+public class EdgeGraph {
+
+	private final int[] start;
+	private final int[] neighbors;
+	private final double[] lengths;
+
+	/**
+	 * Builds the graph of the edges of the triangles of a mesh
+	 */
+	public EdgeGraph(Mesh mesh) {
+		this(PointGridIndex.coordinatesOf(mesh), mesh.getTriangleIndices());
+	}
+
+	/**
+	 * Builds the graph of the edges of triangles given as flat arrays
+	 *
+	 * @param coordinates x, y and z of each point
+	 * @param triangles the point indices of the three corners of each triangle
+	 */
+	public EdgeGraph(double[] coordinates, int[] triangles) {
+		int n = coordinates.length / 3;
+		int count = 2 * triangles.length;
+		int[] rows = new int[count];
+		int[] columns = new int[count];
+		for (int t = 0; t < triangles.length; t += 3) {
+			for (int c = 0; c < 3; ++c) {
+				int a = triangles[t + c];
+				int b = triangles[t + (c + 1) % 3];
+				rows[2 * (t + c)] = a;
+				columns[2 * (t + c)] = b;
+				rows[2 * (t + c) + 1] = b;
+				columns[2 * (t + c) + 1] = a;
+			}
+		}
+		SparseMatrix pattern = SparseMatrix.fromTriplets(n, n, rows, columns,
+				new double[count], count);
+
+		start = pattern.getRowStart();
+		neighbors = pattern.getColumns();
+		lengths = new double[neighbors.length];
+		for (int i = 0; i < n; ++i) {
+			for (int p = start[i]; p < start[i + 1]; ++p) {
+				int j = neighbors[p];
+				double dx = coordinates[3 * i] - coordinates[3 * j];
+				double dy = coordinates[3 * i + 1] - coordinates[3 * j + 1];
+				double dz = coordinates[3 * i + 2] - coordinates[3 * j + 2];
+				lengths[p] = Math.sqrt(dx * dx + dy * dy + dz * dz);
+			}
+		}
+	}
+
+	//**************************************************************************
+	// Getters
+	//**************************************************************************
+
+	/**
+	 * @return the number of points
+	 */
+	public int size() {
+		return start.length - 1;
+	}
+
+	public int[] getStart() {
+		return start;
+	}
+
+	public int[] getNeighbors() {
+		return neighbors;
+	}
+
+	public double[] getLengths() {
+		return lengths;
+	}
+
+	//**************************************************************************
+	// Shortest paths
+	//**************************************************************************
+
+	/**
+	 * Spreads the distance from a new source into a distance map of earlier
+	 * sources. Only points which come closer to the new source than to any
+	 * earlier one are visited, thus adding sources one by one costs about as
+	 * much as a single search over the whole graph.
+	 *
+	 * @param source the new source point
+	 * @param label the label given to the points closest to the new source
+	 * @param limit points beyond this distance from the source are not updated
+	 * @param distance the distance of each point to the closest source so far,
+	 *        positive infinity if no source has reached it
+	 * @param nearest the label of the closest source of each point
+	 * @param heap work space of the search
+	 * @param changed receives the points whose distance changed, may be null
+	 */
+	public void spread(int source, int label, double limit, double[] distance,
+			int[] nearest, DoubleHeap heap, IntList changed) {
+		heap.clear();
+		if (!(0 < distance[source]) || (limit < 0)) {
+			return;
+		}
+		distance[source] = 0;
+		nearest[source] = label;
+		heap.push(0, source);
+
+		while (!heap.isEmpty()) {
+			double d = heap.peekKey();
+			int v = heap.pop();
+			if (d > distance[v]) continue;
+			if (changed != null) {
+				changed.add(v);
+			}
+			for (int p = start[v]; p < start[v + 1]; ++p) {
+				int w = neighbors[p];
+				double next = d + lengths[p];
+				if ((next < distance[w]) && (next <= limit)) {
+					distance[w] = next;
+					nearest[w] = label;
+					heap.push(next, w);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Grows a set of points by all points within a distance along the edges
+	 * and by the direct neighbors of those
+	 *
+	 * @param points the points to grow as set bits
+	 * @param radius the distance, zero or below adds the direct neighbors only
+	 * @return the grown set
+	 */
+	public BitSet dilate(BitSet points, double radius) {
+		BitSet region = (BitSet) points.clone();
+		double[] distance = new double[size()];
+		Arrays.fill(distance, Double.POSITIVE_INFINITY);
+		DoubleHeap heap = new DoubleHeap();
+		for (int i = points.nextSetBit(0); i >= 0; i = points.nextSetBit(i + 1)) {
+			distance[i] = 0;
+			heap.push(0, i);
+		}
+
+		while (!heap.isEmpty()) {
+			double d = heap.peekKey();
+			int v = heap.pop();
+			if (d > distance[v]) continue;
+			for (int p = start[v]; p < start[v + 1]; ++p) {
+				int w = neighbors[p];
+				region.set(w);
+				double next = d + lengths[p];
+				if ((next < distance[w]) && (next <= radius)) {
+					distance[w] = next;
+					heap.push(next, w);
+				}
+			}
+		}
+		return region;
+	}
+}
@@ -0,0 +1,342 @@
+package org.chof.surfcomp.trimesh.algorithms;
+
+import java.util.Arrays;
+
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.tools.Parallel;
+import org.chof.surfcomp.trimesh.tools.SparseCholesky;
+import org.chof.surfcomp.trimesh.tools.SparseMatrix;
+
+/**
+ * Geodesic distances on a triangle mesh by the heat method (Crane et al. 2013)
+ * <p>
+ * The distance from a set of source points is found in three steps:</p>
+ * <ol>
+ * <li>heat is diffused from the sources for a short time t by one implicit
+ * Euler step <code>(M - t L) u = delta</code></li>
+ * <li>the normalized negative gradient <code>X = -grad u / |grad u|</code> is
+ * evaluated on each triangle</li>
+ * <li>the distance solves the Poisson equation <code>L phi = div X</code></li>
+ * </ol>
+ * <p>
+ * L and M are the cotangent matrix and the mass matrix of
+ * {@link LaplaceBeltrami}. Both systems are factored once by
+ * {@link SparseCholesky} when the engine is constructed, thus each query
+ * costs two pairs of triangular solves and a parallel pass over the
+ * triangles. The time step defaults to the square of the mean edge
+ * length.</p>
+ * <p>
+ * The distances are shifted such that the closest source is at zero in each
+ * connected part of the surface. Parts without a source and points which do
+ * not belong to a triangle with area are at infinite distance.</p>
+ *
+ * @author chof
+ */
+public class HeatGeodesics {
+
+	private final int n;
+	private final int[] triangles;
+	private final double[] cotangents;
+	private final double[] gradients;
+	private final double[] edges;
+	private final int[] component;
+	private final double time;
+
+	private final SparseCholesky heat;
+	private final SparseCholesky poisson;
+
+	/**
+	 * Prepares the distance calculation on a mesh with the default time step
+	 */
+	public HeatGeodesics(Mesh mesh) {
+		this(mesh, 1.0);
+	}
+
+	/**
+	 * Prepares the distance calculation on a mesh
+	 *
+	 * @param timeFactor the time step in units of the squared mean edge length,
+	 *        larger values give smoother distances
+	 */
+	public HeatGeodesics(Mesh mesh, double timeFactor) {
+		this(PointGridIndex.coordinatesOf(mesh), mesh.getTriangleIndices(),
+				mesh.getLaplaceBeltrami(), timeFactor);
+	}
+
+	/**
+	 * Prepares the distance calculation on a mesh given as flat arrays
+	 *
+	 * @param coordinates x, y and z of each point
+	 * @param triangles the point indices of the three corners of each triangle
+	 * @param timeFactor the time step in units of the squared mean edge length
+	 */
+	public HeatGeodesics(double[] coordinates, int[] triangles, double timeFactor) {
+		this(coordinates, triangles, new LaplaceBeltrami(coordinates, triangles), timeFactor);
+	}
+
+	private HeatGeodesics(final double[] coordinates, final int[] triangles,
+			LaplaceBeltrami operator, double timeFactor) {
+		if (!(timeFactor > 0)) {
+			throw new IllegalArgumentException("The time factor must be positive");
+		}
+		this.n = coordinates.length / 3;
+		this.triangles = triangles;
+
+		final int size = triangles.length / 3;
+		cotangents = new double[3 * size];
+		gradients = new double[9 * size];
+		edges = new double[9 * size];
+		final double[] lengths = new double[size];
+
+		Parallel.forRange(size, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				for (int t = from; t < to; ++t) {
+					lengths[t] = prepare(coordinates, t);
+				}
+			}
+		});
+
+		double sum = 0;
+		int count = 0;
+		for (int t = 0; t < size; ++t) {
+			if (lengths[t] > 0) {
+				sum += lengths[t];
+				count += 3;
+			}
+		}
+		double h = (count > 0) ? sum / count : 1.0;
+		time = timeFactor * h * h;
+
+		component = components(lengths);
+
+		// every point needs some mass to keep the systems definite
+		double[] areas = operator.getAreas();
+		double meanArea = 0;
+		for (double a : areas) {
+			meanArea += a;
+		}
+		meanArea = (n > 0) ? meanArea / n : 0;
+		if (!(meanArea > 0)) {
+			meanArea = 1.0;
+		}
+		double[] mass = new double[n];
+		for (int i = 0; i < n; ++i) {
+			mass[i] = areas[i] + 1e-10 * meanArea;
+		}
+
+		SparseMatrix laplacian = operator.getLaplacian();
+		SparseMatrix massMatrix = SparseMatrix.diagonal(mass);
+		heat = new SparseCholesky(massMatrix.combine(1.0, laplacian, -time));
+
+		// the Poisson system is singular on each connected part, a slight
+		// screening makes it definite without changing the gradient of phi
+		double epsilon = 1e-8 / time;
+		poisson = new SparseCholesky(laplacian.combine(-1.0, massMatrix, epsilon));
+	}
+
+	/**
+	 * Precomputes the cotangents, the edge vectors and the gradient of the
+	 * linear basis functions of a triangle
+	 *
+	 * @return the total length of the edges or zero if the triangle has no area
+	 */
+	private double prepare(double[] coordinates, int t) {
+		int[] p = { 3 * triangles[3 * t], 3 * triangles[3 * t + 1], 3 * triangles[3 * t + 2] };
+
+		// edge c runs from corner c + 1 to corner c + 2, opposite to corner c
+		double length = 0;
+		for (int c = 0; c < 3; ++c) {
+			int from = p[(c + 1) % 3];
+			int to = p[(c + 2) % 3];
+			for (int a = 0; a < 3; ++a) {
+				edges[9 * t + 3 * c + a] = coordinates[to + a] - coordinates[from + a];
+			}
+			length += Math.sqrt(dot(edges, 9 * t + 3 * c, edges, 9 * t + 3 * c));
+		}
+
+		// normal scaled by twice the area
+		int e0 = 9 * t, e1 = 9 * t + 3;
+		double nx = edges[e0 + 1] * edges[e1 + 2] - edges[e0 + 2] * edges[e1 + 1];
+		double ny = edges[e0 + 2] * edges[e1] - edges[e0] * edges[e1 + 2];
+		double nz = edges[e0] * edges[e1 + 1] - edges[e0 + 1] * edges[e1];
+		double twiceArea2 = nx * nx + ny * ny + nz * nz;
+		if (!(twiceArea2 > 0)) {
+			return 0;
+		}
+
+		for (int c = 0; c < 3; ++c) {
+			int e = 9 * t + 3 * c;
+			// grad of the basis function of corner c is N x e_c / (2 A)
+			gradients[e] = (ny * edges[e + 2] - nz * edges[e + 1]) / twiceArea2;
+			gradients[e + 1] = (nz * edges[e] - nx * edges[e + 2]) / twiceArea2;
+			gradients[e + 2] = (nx * edges[e + 1] - ny * edges[e]) / twiceArea2;
+
+			// the angle at corner c lies between -e_(c+1) and e_(c+2)
+			int u = 9 * t + 3 * ((c + 1) % 3);
+			int v = 9 * t + 3 * ((c + 2) % 3);
+			cotangents[3 * t + c] = -dot(edges, u, edges, v) / Math.sqrt(twiceArea2);
+		}
+		return length;
+	}
+
+	private static double dot(double[] a, int i, double[] b, int j) {
+		return a[i] * b[j] + a[i + 1] * b[j + 1] + a[i + 2] * b[j + 2];
+	}
+
+	/**
+	 * Labels the connected parts of the surface formed by the triangles with
+	 * area, points outside of such triangles are labelled -1
+	 */
+	private int[] components(double[] lengths) {
+		int[] parent = new int[n];
+		for (int i = 0; i < n; ++i) {
+			parent[i] = i;
+		}
+		boolean[] covered = new boolean[n];
+		for (int t = 0; t < lengths.length; ++t) {
+			if (!(lengths[t] > 0)) continue;
+			int a = triangles[3 * t];
+			covered[a] = true;
+			for (int c = 1; c < 3; ++c) {
+				int b = triangles[3 * t + c];
+				covered[b] = true;
+				int ra = root(parent, a);
+				int rb = root(parent, b);
+				if (ra != rb) parent[rb] = ra;
+			}
+		}
+
+		int[] labels = new int[n];
+		for (int i = 0; i < n; ++i) {
+			labels[i] = covered[i] ? root(parent, i) : -1;
+		}
+		return labels;
+	}
+
+	private static int root(int[] parent, int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	//**************************************************************************
+	// Getters
+	//**************************************************************************
+
+	/**
+	 * @return the number of points
+	 */
+	public int size() {
+		return n;
+	}
+
+	/**
+	 * @return the time step of the heat diffusion
+	 */
+	public double getTime() {
+		return time;
+	}
+
+	//**************************************************************************
+	// Distances
+	//**************************************************************************
+
+	/**
+	 * Computes the geodesic distance of all points from a set of sources
+	 *
+	 * @param sources the indices of the source points
+	 * @return the distance of each point to the closest source
+	 */
+	public double[] distances(int... sources) {
+		if (sources.length == 0) {
+			throw new IllegalArgumentException("At least one source is needed");
+		}
+
+		double[] delta = new double[n];
+		for (int s : sources) {
+			if ((s < 0) || (s >= n)) {
+				throw new IndexOutOfBoundsException("Source " + s + " is not a point of the mesh");
+			}
+			delta[s] = 1.0;
+		}
+		final double[] u = heat.solve(delta);
+
+		// divergence of the normalized gradient field, per corner
+		final int size = triangles.length / 3;
+		final double[] parts = new double[3 * size];
+		Parallel.forRange(size, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				double[] x = new double[3];
+				for (int t = from; t < to; ++t) {
+					divergence(u, t, x, parts);
+				}
+			}
+		});
+		double[] b = new double[n];
+		for (int i = 0; i < parts.length; ++i) {
+			b[triangles[i]] -= parts[i];
+		}
+
+		double[] phi = poisson.solve(b);
+
+		// move the closest source of each part to zero
+		double[] shift = new double[n];
+		Arrays.fill(shift, Double.NaN);
+		for (int s : sources) {
+			int label = component[s];
+			if ((label >= 0) && !(phi[s] >= shift[label])) {
+				shift[label] = phi[s];
+			}
+		}
+		for (int i = 0; i < n; ++i) {
+			int label = component[i];
+			if ((label < 0) || Double.isNaN(shift[label])) {
+				phi[i] = Double.POSITIVE_INFINITY;
+			} else {
+				phi[i] = Math.max(0.0, phi[i] - shift[label]);
+			}
+		}
+		for (int s : sources) {
+			phi[s] = 0.0;
+		}
+		return phi;
+	}
+
+	/**
+	 * Evaluates the normalized negative gradient of u on a triangle and
+	 * integrates its divergence over the corners
+	 */
+	private void divergence(double[] u, int t, double[] x, double[] parts) {
+		x[0] = x[1] = x[2] = 0;
+		for (int c = 0; c < 3; ++c) {
+			double value = u[triangles[3 * t + c]];
+			int g = 9 * t + 3 * c;
+			x[0] -= value * gradients[g];
+			x[1] -= value * gradients[g + 1];
+			x[2] -= value * gradients[g + 2];
+		}
+		double norm = Math.sqrt(x[0] * x[0] + x[1] * x[1] + x[2] * x[2]);
+		if (!(norm > 0)) {
+			parts[3 * t] = parts[3 * t + 1] = parts[3 * t + 2] = 0;
+			return;
+		}
+		x[0] /= norm;
+		x[1] /= norm;
+		x[2] /= norm;
+
+		for (int c = 0; c < 3; ++c) {
+			int next = (c + 1) % 3;
+			int prev = (c + 2) % 3;
+			// the edge to the next corner is e_prev, the edge to the previous
+			// corner is -e_next, each weighted by the cotangent opposite to it
+			double toNext = dot(edges, 9 * t + 3 * prev, x, 0);
+			double toPrev = -dot(edges, 9 * t + 3 * next, x, 0);
+			parts[3 * t + c] = (cotangents[3 * t + prev] * toNext
+					+ cotangents[3 * t + next] * toPrev) / 2;
+		}
+	}
+}
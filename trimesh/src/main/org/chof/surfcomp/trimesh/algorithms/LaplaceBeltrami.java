@@ -0,0 +1,238 @@
+package org.chof.surfcomp.trimesh.algorithms;
+
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.tools.Parallel;
+import org.chof.surfcomp.trimesh.tools.SparseMatrix;
+
+/**
+ * Discrete Laplace-Beltrami operator of a triangle mesh
+ * <p>
+ * The operator consists of the cotangent matrix L and the mixed Voronoi area
+ * A of each point (Meyer et al. 2003). The off diagonal entries are</p>
+ * <p><code>
+ * L_ij = (cot alpha_ij + cot beta_ij) / 2</code></p>
+ * <p>
+ * with alpha_ij and beta_ij the angles opposite the edge ij, the diagonal
+ * entries are <code>L_ii = -SUM_j L_ij</code>. Thus L is symmetric, negative
+ * semi definite and <code>(L f)_i / A_i</code> approximates the Laplace-Beltrami
+ * operator of a function f at point i.</p>
+ * <p>
+ * The mixed area of a point sums the Voronoi area within each adjacent non
+ * obtuse triangle. For an obtuse triangle half of its area is given to the
+ * obtuse corner and a quarter to each of the other corners.</p>
+ * <p>
+ * The angles and areas are computed in parallel over the triangles from the
+ * coordinates directly. Triangles without area do not contribute.</p>
+ *
+ * @author chof
+ */
+public class LaplaceBeltrami {
+
+	private final SparseMatrix laplacian;
+	private final double[] areas;
+
+	/**
+	 * Assembles the operator of a mesh
+	 */
+	public LaplaceBeltrami(Mesh mesh) {
+		this(PointGridIndex.coordinatesOf(mesh), mesh.getTriangleIndices());
+	}
+
+	/**
+	 * Assembles the operator of a mesh given as flat arrays
+	 *
+	 * @param coordinates x, y and z of each point
+	 * @param triangles the point indices of the three corners of each triangle
+	 */
+	public LaplaceBeltrami(final double[] coordinates, final int[] triangles) {
+		final int n = coordinates.length / 3;
+		final int size = triangles.length / 3;
+		final int[] rows = new int[12 * size];
+		final int[] columns = new int[12 * size];
+		final double[] values = new double[12 * size];
+		final double[] parts = new double[3 * size];
+
+		Parallel.forRange(size, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				double[] cot = new double[3];
+				double[] length2 = new double[3];
+				for (int t = from; t < to; ++t) {
+					double area = cotangents(coordinates, triangles, t, cot, length2);
+
+					for (int c = 0; c < 3; ++c) {
+						int a = triangles[3 * t + (c + 1) % 3];
+						int b = triangles[3 * t + (c + 2) % 3];
+						double w = (area > 0) ? cot[c] / 2 : 0;
+						int e = 12 * t + 4 * c;
+						set(rows, columns, values, e, a, b, w);
+						set(rows, columns, values, e + 1, b, a, w);
+						set(rows, columns, values, e + 2, a, a, -w);
+						set(rows, columns, values, e + 3, b, b, -w);
+					}
+
+					mixedAreas(area, cot, length2, parts, 3 * t);
+				}
+			}
+		});
+
+		laplacian = SparseMatrix.fromTriplets(n, n, rows, columns, values, values.length);
+		areas = new double[n];
+		for (int i = 0; i < parts.length; ++i) {
+			areas[triangles[i]] += parts[i];
+		}
+	}
+
+	/**
+	 * Computes the mixed Voronoi area of each corner of the triangles, i.e.
+	 * the share of each triangle in the area of its corner points
+	 *
+	 * @param coordinates x, y and z of each point
+	 * @param triangles the point indices of the three corners of each triangle
+	 * @return the area of corner c of triangle t at index 3 t + c
+	 */
+	public static double[] cornerAreas(double[] coordinates, int[] triangles) {
+		int[] all = new int[triangles.length / 3];
+		for (int t = 0; t < all.length; ++t) {
+			all[t] = t;
+		}
+		return cornerAreas(coordinates, triangles, all);
+	}
+
+	/**
+	 * Computes the mixed Voronoi area of each corner of selected triangles
+	 *
+	 * @param selected the indices of the triangles
+	 * @return the area of corner c of the k-th selected triangle at index
+	 *         3 k + c
+	 * @see #cornerAreas(double[], int[])
+	 */
+	public static double[] cornerAreas(final double[] coordinates,
+			final int[] triangles, final int[] selected) {
+		final double[] parts = new double[3 * selected.length];
+		Parallel.forRange(selected.length, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				double[] cot = new double[3];
+				double[] length2 = new double[3];
+				for (int k = from; k < to; ++k) {
+					double area = cotangents(coordinates, triangles, selected[k], cot, length2);
+					mixedAreas(area, cot, length2, parts, 3 * k);
+				}
+			}
+		});
+		return parts;
+	}
+
+	private static void set(int[] rows, int[] columns, double[] values, int e,
+			int r, int c, double v) {
+		rows[e] = r;
+		columns[e] = c;
+		values[e] = v;
+	}
+
+	/**
+	 * Computes the cotangents of the angles of a triangle and the squared
+	 * lengths of the sides opposite the corners
+	 *
+	 * @return the area of the triangle
+	 */
+	private static double cotangents(double[] coordinates, int[] triangles,
+			int t, double[] cot, double[] length2) {
+		double twiceArea = 0;
+		for (int c = 0; c < 3; ++c) {
+			int p = 3 * triangles[3 * t + c];
+			int q = 3 * triangles[3 * t + (c + 1) % 3];
+			int r = 3 * triangles[3 * t + (c + 2) % 3];
+			double ux = coordinates[q] - coordinates[p];
+			double uy = coordinates[q + 1] - coordinates[p + 1];
+			double uz = coordinates[q + 2] - coordinates[p + 2];
+			double vx = coordinates[r] - coordinates[p];
+			double vy = coordinates[r + 1] - coordinates[p + 1];
+			double vz = coordinates[r + 2] - coordinates[p + 2];
+
+			double cx = uy * vz - uz * vy;
+			double cy = uz * vx - ux * vz;
+			double cz = ux * vy - uy * vx;
+			double cross = Math.sqrt(cx * cx + cy * cy + cz * cz);
+			double dot = ux * vx + uy * vy + uz * vz;
+
+			cot[c] = (cross > 0) ? dot / cross : 0;
+			twiceArea = Math.max(twiceArea, cross);
+
+			double wx = vx - ux, wy = vy - uy, wz = vz - uz;
+			length2[c] = wx * wx + wy * wy + wz * wz;
+		}
+		return twiceArea / 2;
+	}
+
+	/**
+	 * Distributes the area of a triangle to its corners
+	 */
+	private static void mixedAreas(double area, double[] cot, double[] length2,
+			double[] parts, int offset) {
+		int obtuse = -1;
+		for (int c = 0; c < 3; ++c) {
+			if (cot[c] < 0) obtuse = c;
+		}
+
+		for (int c = 0; c < 3; ++c) {
+			if (area <= 0) {
+				parts[offset + c] = 0;
+			} else if (obtuse < 0) {
+				// Voronoi region: the sides at c weighted by the opposite cotangents
+				int next = (c + 1) % 3;
+				int prev = (c + 2) % 3;
+				parts[offset + c] = (length2[prev] * cot[prev] + length2[next] * cot[next]) / 8;
+			} else {
+				parts[offset + c] = (c == obtuse) ? area / 2 : area / 4;
+			}
+		}
+	}
+
+	//**************************************************************************
+	// Getters
+	//**************************************************************************
+
+	/**
+	 * @return the cotangent matrix L
+	 */
+	public SparseMatrix getLaplacian() {
+		return laplacian;
+	}
+
+	/**
+	 * @return the mixed Voronoi area of each point, shared with the caller and
+	 *         not to be modified
+	 */
+	public double[] getAreas() {
+		return areas;
+	}
+
+	/**
+	 * @return the lumped mass matrix, i.e. the diagonal matrix of the areas
+	 */
+	public SparseMatrix getMassMatrix() {
+		return SparseMatrix.diagonal(areas);
+	}
+
+	/**
+	 * Applies the Laplace-Beltrami operator to a function over the points
+	 *
+	 * @param f the value at each point
+	 * @return <code>(L f)_i / A_i</code> for each point, zero for points
+	 *         without area
+	 */
+	public double[] apply(double[] f) {
+		final double[] result = laplacian.multiply(f);
+		Parallel.forRange(result.length, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				for (int i = from; i < to; ++i) {
+					result[i] = (areas[i] > 0) ? result[i] / areas[i] : 0;
+				}
+			}
+		});
+		return result;
+	}
+}
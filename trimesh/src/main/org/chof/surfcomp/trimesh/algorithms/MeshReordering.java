@@ -0,0 +1,360 @@
+package org.chof.surfcomp.trimesh.algorithms;
+
+import java.util.Arrays;
+
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.Point;
+import org.chof.surfcomp.trimesh.domain.Triangle;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.tools.IntList;
+
+/**
+ * Reorders the points and triangles of a mesh for locality of memory
+ * <p>
+ * Surface programs like MSMS write the points in the order of the analytic
+ * surface, thus the neighbors of a point are scattered over the whole point
+ * list. After reordering, points close on the surface get close indices and
+ * the walks over neighborhoods touch memory mostly in sequence. Two orders
+ * are available:</p>
+ * <ul>
+ * <li>{@link Method#HILBERT} sorts the points along a Hilbert curve through
+ * the bounding box of the coordinates, at a cost of a sort.</li>
+ * <li>{@link Method#REVERSE_CUTHILL_MCKEE} numbers the points breadth first
+ * along the edges, which minimizes the bandwidth of the adjacency and thus
+ * also of the Laplacian.</li>
+ * </ul>
+ * <p>
+ * The triangles are sorted by their smallest new point index. The reordered
+ * copy of a mesh keeps the properties of all points and triangles and adds
+ * the original index to each of them as property {@link #ORIGINAL_INDEX},
+ * unless they already carry one from an earlier operation.</p>
+ *
+ * @author chof
+ */
+public class MeshReordering {
+
+	/**
+	 * The order of the points
+	 */
+	public enum Method {
+		/** along a space filling curve through the coordinates */
+		HILBERT,
+		/** breadth first along the edges, reversed */
+		REVERSE_CUTHILL_MCKEE
+	}
+
+	/**
+	 * The property holding the index of a point or triangle before the
+	 * reordering
+	 */
+	public static final String ORIGINAL_INDEX = "OriginalIndex";
+
+	/** bits per axis of the Hilbert curve, leaving 31 bits for the index */
+	private static final int HILBERT_BITS = 10;
+
+	private final int[] order;
+	private final int[] inverse;
+	private final int[] triangleOrder;
+
+	/**
+	 * Determines the new order of the points and triangles of a mesh
+	 */
+	public MeshReordering(Mesh mesh, Method method) {
+		this(PointGridIndex.coordinatesOf(mesh), mesh.getTriangleIndices(), method);
+	}
+
+	/**
+	 * Determines the new order of points and triangles given as flat arrays
+	 *
+	 * @param coordinates x, y and z of each point
+	 * @param triangles the point indices of the three corners of each triangle
+	 * @param method the order of the points
+	 */
+	public MeshReordering(double[] coordinates, int[] triangles, Method method) {
+		int n = coordinates.length / 3;
+		switch (method) {
+		case HILBERT:
+			order = hilbertOrder(coordinates);
+			break;
+		case REVERSE_CUTHILL_MCKEE:
+			order = cuthillMcKeeOrder(new EdgeGraph(coordinates, triangles));
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown method " + method);
+		}
+
+		inverse = new int[n];
+		for (int k = 0; k < n; ++k) {
+			inverse[order[k]] = k;
+		}
+
+		int count = triangles.length / 3;
+		long[] keys = new long[count];
+		for (int t = 0; t < count; ++t) {
+			long first = Math.min(inverse[triangles[3 * t]],
+					Math.min(inverse[triangles[3 * t + 1]], inverse[triangles[3 * t + 2]]));
+			keys[t] = (first << 31) | t;
+		}
+		Arrays.sort(keys);
+		triangleOrder = new int[count];
+		for (int k = 0; k < count; ++k) {
+			triangleOrder[k] = (int) (keys[k] & Integer.MAX_VALUE);
+		}
+	}
+
+	//**************************************************************************
+	// Getters
+	//**************************************************************************
+
+	/**
+	 * @return the original index of the point at each new index
+	 */
+	public int[] getOrder() {
+		return order;
+	}
+
+	/**
+	 * @return the new index of each original point
+	 */
+	public int[] getInverse() {
+		return inverse;
+	}
+
+	/**
+	 * @return the original index of the triangle at each new index
+	 */
+	public int[] getTriangleOrder() {
+		return triangleOrder;
+	}
+
+	//**************************************************************************
+	// Reordering
+	//**************************************************************************
+
+	/**
+	 * Copies the points and triangles of a mesh in the new order
+	 *
+	 * @param source the mesh the order was determined for
+	 * @param target an empty mesh receiving the copies
+	 * @return the target
+	 * @throws IllegalArgumentException if the source does not match the order
+	 */
+	public <M extends Mesh> M apply(Mesh source, M target) throws TrimeshException {
+		if ((source.sizePoints() != order.length)
+				|| (source.sizeTriangles() != triangleOrder.length)) {
+			throw new IllegalArgumentException("The mesh does not match the order");
+		}
+		for (int k = 0; k < order.length; ++k) {
+			Point point = new Point(source.getPoint(order[k]));
+			if (point.getProperty(ORIGINAL_INDEX) == null) {
+				point.setProperty(ORIGINAL_INDEX, order[k]);
+			}
+			target.addPoint(point);
+		}
+
+		int[] corners = source.getTriangleIndices();
+		for (int t : triangleOrder) {
+			int index = target.addTriangle(inverse[corners[3 * t]],
+					inverse[corners[3 * t + 1]], inverse[corners[3 * t + 2]]);
+			if (index >= 0) {
+				Triangle triangle = target.getTriangle(index);
+				triangle.setProperties(source.getTriangle(t).getProperties());
+				if (triangle.getProperty(ORIGINAL_INDEX) == null) {
+					triangle.setProperty(ORIGINAL_INDEX, t);
+				}
+			}
+		}
+		return target;
+	}
+
+	/**
+	 * Sorts the points by their position along a Hilbert curve through the
+	 * bounding box, equal positions in their original order
+	 */
+	private static int[] hilbertOrder(double[] coordinates) {
+		int n = coordinates.length / 3;
+		double[] min = { Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE };
+		double[] max = { -Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE };
+		for (int i = 0; i < n; ++i) {
+			for (int a = 0; a < 3; ++a) {
+				min[a] = Math.min(min[a], coordinates[3 * i + a]);
+				max[a] = Math.max(max[a], coordinates[3 * i + a]);
+			}
+		}
+		double extent = 0;
+		for (int a = 0; a < 3; ++a) {
+			extent = Math.max(extent, max[a] - min[a]);
+		}
+		int cells = 1 << HILBERT_BITS;
+		double scale = (extent > 0) ? (cells - 1) / extent : 0;
+
+		long[] keys = new long[n];
+		int[] cell = new int[3];
+		for (int i = 0; i < n; ++i) {
+			for (int a = 0; a < 3; ++a) {
+				cell[a] = (int) ((coordinates[3 * i + a] - min[a]) * scale);
+			}
+			keys[i] = (hilbertIndex(cell, HILBERT_BITS) << 31) | i;
+		}
+		Arrays.sort(keys);
+		int[] order = new int[n];
+		for (int k = 0; k < n; ++k) {
+			order[k] = (int) (keys[k] & Integer.MAX_VALUE);
+		}
+		return order;
+	}
+
+	/**
+	 * The distance along the Hilbert curve of a cell, by the transposition
+	 * of J. Skilling (2004)
+	 *
+	 * @param cell the cell coordinates, overwritten
+	 * @param bits the bits per coordinate
+	 */
+	private static long hilbertIndex(int[] cell, int bits) {
+		int m = 1 << (bits - 1);
+		// inverse undo of the rotations
+		for (int q = m; q > 1; q >>= 1) {
+			int p = q - 1;
+			for (int i = 0; i < 3; ++i) {
+				if ((cell[i] & q) != 0) {
+					cell[0] ^= p;
+				} else {
+					int t = (cell[0] ^ cell[i]) & p;
+					cell[0] ^= t;
+					cell[i] ^= t;
+				}
+			}
+		}
+		// Gray encode
+		cell[1] ^= cell[0];
+		cell[2] ^= cell[1];
+		int t = 0;
+		for (int q = m; q > 1; q >>= 1) {
+			if ((cell[2] & q) != 0) {
+				t ^= q - 1;
+			}
+		}
+		for (int i = 0; i < 3; ++i) {
+			cell[i] ^= t;
+		}
+
+		long index = 0;
+		for (int b = bits - 1; b >= 0; --b) {
+			for (int i = 0; i < 3; ++i) {
+				index = (index << 1) | ((cell[i] >> b) & 1);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Numbers the points breadth first, starting each connected part at a
+	 * point of low degree far from the others, visiting the neighbors by
+	 * increasing degree, and reverses the numbering
+	 */
+	private static int[] cuthillMcKeeOrder(EdgeGraph graph) {
+		int n = graph.size();
+		int[] start = graph.getStart();
+		int[] neighbors = graph.getNeighbors();
+		int[] order = new int[n];
+		int[] level = new int[n];
+		Arrays.fill(level, -1);
+		boolean[] visited = new boolean[n];
+		IntList candidates = new IntList();
+
+		int count = 0;
+		for (int seed = 0; seed < n; ++seed) {
+			if (visited[seed]) continue;
+
+			// a pseudo peripheral point: the point of the last level of a
+			// breadth first search with the lowest degree
+			int root = seed;
+			int depth = -1;
+			for (int pass = 0; pass < 4; ++pass) {
+				int last = breadthFirst(root, start, neighbors, level, candidates);
+				int far = root;
+				for (int k = candidates.size() - 1; k >= 0; --k) {
+					int i = candidates.get(k);
+					if (level[i] < last) break;
+					if (degree(i, start) < degree(far, start) || (far == root)) {
+						far = i;
+					}
+				}
+				if (last <= depth) break;
+				depth = last;
+				root = far;
+			}
+
+			int first = count;
+			order[count++] = root;
+			visited[root] = true;
+			for (int head = first; head < count; ++head) {
+				int i = order[head];
+				int from = count;
+				for (int p = start[i]; p < start[i + 1]; ++p) {
+					int j = neighbors[p];
+					if (!visited[j]) {
+						visited[j] = true;
+						order[count++] = j;
+					}
+				}
+				sortByDegree(order, from, count, start);
+			}
+		}
+
+		for (int a = 0, b = n - 1; a < b; ++a, --b) {
+			int t = order[a];
+			order[a] = order[b];
+			order[b] = t;
+		}
+		return order;
+	}
+
+	/**
+	 * Collects the points reachable from a root in breadth first order
+	 *
+	 * @param level the level of each point, -1 for points not reached, the
+	 *        points reached by the previous search are reset first
+	 * @param reached the points reached by the previous search, replaced by
+	 *        the points reached from the root
+	 * @return the level of the last point
+	 */
+	private static int breadthFirst(int root, int[] start, int[] neighbors,
+			int[] level, IntList reached) {
+		for (int k = 0; k < reached.size(); ++k) {
+			level[reached.get(k)] = -1;
+		}
+		reached.clear();
+		reached.add(root);
+		level[root] = 0;
+		for (int head = 0; head < reached.size(); ++head) {
+			int i = reached.get(head);
+			for (int p = start[i]; p < start[i + 1]; ++p) {
+				int j = neighbors[p];
+				if (level[j] < 0) {
+					level[j] = level[i] + 1;
+					reached.add(j);
+				}
+			}
+		}
+		return level[reached.get(reached.size() - 1)];
+	}
+
+	private static int degree(int i, int[] start) {
+		return start[i + 1] - start[i];
+	}
+
+	private static void sortByDegree(int[] points, int from, int to, int[] start) {
+		for (int k = from + 1; k < to; ++k) {
+			int i = points[k];
+			int d = degree(i, start);
+			int l = k - 1;
+			while ((l >= from) && (degree(points[l], start) > d)) {
+				points[l + 1] = points[l];
+				--l;
+			}
+			points[l + 1] = i;
+		}
+	}
+}
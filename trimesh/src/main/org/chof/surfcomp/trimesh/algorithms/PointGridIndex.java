@@ -0,0 +1,566 @@
+package org.chof.surfcomp.trimesh.algorithms;
+
+import java.util.Arrays;
+
+import javax.vecmath.Point3d;
+
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.Point;
+import org.chof.surfcomp.trimesh.tools.IntList;
+import org.chof.surfcomp.trimesh.tools.Parallel;
+
+/**
+ * Uniform grid spatial index over a set of points in 3D
+ * <p>
+ * The points are bucketed into the cells of a regular grid spanning their
+ * bounding box. The cells are stored in compressed sparse row form:
+ * <code>cellStart[c] .. cellStart[c+1]</code> delimits the points of cell c
+ * inside the <code>cellPoints</code> array. The coordinates are copied in cell
+ * order, so that scanning a cell reads consecutive memory.</p>
+ * <p>
+ * The index answers euclidean radius and k-nearest-neighbor queries. The
+ * indices returned are the indices of the points as they were provided, i.e.
+ * for an index built from a mesh the index of the point in the mesh.</p>
+ * <p>
+ * <b>Note</b>: The index is a snapshot of the coordinates at construction
+ * time. It has to be rebuilt if points move.</p>
+ *
+ * @author chof
+ */
+public class PointGridIndex {
+
+	/**
+	 * average number of points aimed at for a non empty cell
+	 */
+	private static final double POINTS_PER_CELL = 2.0;
+
+	/**
+	 * upper bound for the number of cells relative to the number of points
+	 */
+	private static final int MAX_CELLS_PER_POINT = 4;
+
+	private double minX, minY, minZ;
+	private double cellSize;
+	private double inverseCellSize;
+	private int nx, ny, nz;
+
+	private int[] cellStart;
+	private int[] cellPoints;
+	private int[] slots;
+	private double[] cellCoordinates;
+	private int size;
+
+	/**
+	 * Builds the index over all points of the mesh with a cell size derived
+	 * from the bounding box and the point density
+	 *
+	 * @param mesh the mesh to index
+	 */
+	public PointGridIndex(Mesh mesh) {
+		this(coordinatesOf(mesh), -1.0);
+	}
+
+	/**
+	 * Builds the index over the points given as a flat array of
+	 * <code>x0, y0, z0, x1, y1, z1, ...</code> with a cell size derived from the
+	 * bounding box and the point density
+	 *
+	 * @param coordinates the flat coordinate array
+	 */
+	public PointGridIndex(double[] coordinates) {
+		this(coordinates, -1.0);
+	}
+
+	/**
+	 * Builds the index over the points given as a flat coordinate array with a
+	 * fixed cell size. A cell size close to the typical query radius gives the
+	 * best radius query performance.
+	 *
+	 * @param coordinates the flat coordinate array
+	 * @param cellSize the edge length of a grid cell, values <= 0 select the
+	 *        cell size automatically
+	 */
+	public PointGridIndex(double[] coordinates, double cellSize) {
+		if (coordinates.length % 3 != 0) {
+			throw new IllegalArgumentException("The coordinate array must contain three values per point");
+		}
+		size = coordinates.length / 3;
+		build(coordinates, cellSize);
+	}
+
+	/**
+	 * Copies the coordinates of all mesh points into a flat array
+	 *
+	 * @param mesh the source mesh
+	 * @return an array containing x, y, z of each point in order of the points
+	 */
+	public static double[] coordinatesOf(Mesh mesh) {
+		double[] coordinates = new double[3 * mesh.sizePoints()];
+		int i = 0;
+		for (Point p : mesh.getPoints()) {
+			Point3d c = p.getCoordinates();
+			coordinates[i++] = c.x;
+			coordinates[i++] = c.y;
+			coordinates[i++] = c.z;
+		}
+		return coordinates;
+	}
+
+	//**************************************************************************
+	// Construction
+	//**************************************************************************
+
+	private void build(double[] coordinates, double requestedCellSize) {
+		double maxX, maxY, maxZ;
+		minX = minY = minZ = Double.POSITIVE_INFINITY;
+		maxX = maxY = maxZ = Double.NEGATIVE_INFINITY;
+
+		for (int i = 0; i < coordinates.length; i += 3) {
+			minX = Math.min(minX, coordinates[i]);
+			minY = Math.min(minY, coordinates[i + 1]);
+			minZ = Math.min(minZ, coordinates[i + 2]);
+			maxX = Math.max(maxX, coordinates[i]);
+			maxY = Math.max(maxY, coordinates[i + 1]);
+			maxZ = Math.max(maxZ, coordinates[i + 2]);
+		}
+
+		if (size == 0) {
+			minX = minY = minZ = maxX = maxY = maxZ = 0;
+		}
+
+		double ex = maxX - minX;
+		double ey = maxY - minY;
+		double ez = maxZ - minZ;
+
+		cellSize = (requestedCellSize > 0)
+				? requestedCellSize
+				: estimateCellSize(ex, ey, ez);
+
+		// never exceed the cell limit, even for an explicitly requested size
+		double limit = (double) MAX_CELLS_PER_POINT * Math.max(size, 1) + 64;
+		while (cells(ex) * cells(ey) * cells(ez) > limit) {
+			cellSize *= 1.25;
+		}
+
+		inverseCellSize = 1.0 / cellSize;
+		nx = (int) cells(ex);
+		ny = (int) cells(ey);
+		nz = (int) cells(ez);
+
+		int ncells = nx * ny * nz;
+		cellStart = new int[ncells + 1];
+		int[] cellOf = new int[size];
+
+		for (int i = 0; i < size; ++i) {
+			int c = cellIndex(coordinates[3 * i], coordinates[3 * i + 1],
+					          coordinates[3 * i + 2]);
+			cellOf[i] = c;
+			cellStart[c + 1]++;
+		}
+
+		for (int c = 0; c < ncells; ++c) {
+			cellStart[c + 1] += cellStart[c];
+		}
+
+		int[] fill = Arrays.copyOf(cellStart, ncells);
+		cellPoints = new int[size];
+		slots = new int[size];
+		cellCoordinates = new double[3 * size];
+
+		for (int i = 0; i < size; ++i) {
+			int slot = fill[cellOf[i]]++;
+			cellPoints[slot] = i;
+			slots[i] = slot;
+			cellCoordinates[3 * slot] = coordinates[3 * i];
+			cellCoordinates[3 * slot + 1] = coordinates[3 * i + 1];
+			cellCoordinates[3 * slot + 2] = coordinates[3 * i + 2];
+		}
+	}
+
+	private double cells(double extent) {
+		return Math.floor(extent / cellSize) + 1;
+	}
+
+	/**
+	 * Estimates the cell size from the bounding box assuming the points are
+	 * sampled from a surface, i.e. the number of points scales with the area
+	 * of the bounding box rather than with its volume.
+	 */
+	private double estimateCellSize(double ex, double ey, double ez) {
+		double area = 2 * (ex * ey + ey * ez + ez * ex);
+		double extent = Math.max(ex, Math.max(ey, ez));
+
+		if ((size <= 1) || (extent <= 0)) {
+			return 1.0;
+		} else if (area <= 0) {
+			// all points on a line
+			return Math.max(extent * POINTS_PER_CELL / size, extent * 1e-6);
+		} else {
+			return Math.max(Math.sqrt(area * POINTS_PER_CELL / size), extent * 1e-6);
+		}
+	}
+
+	private int cellCoordinate(double value, double min, int n) {
+		double c = Math.floor((value - min) * inverseCellSize);
+		return (c < 0) ? 0 : (c >= n) ? n - 1 : (int) c;
+	}
+
+	private int cellIndex(double x, double y, double z) {
+		return (cellCoordinate(z, minZ, nz) * ny + cellCoordinate(y, minY, ny)) * nx
+				+ cellCoordinate(x, minX, nx);
+	}
+
+	//**************************************************************************
+	// Getters
+	//**************************************************************************
+
+	/**
+	 * @return the number of indexed points
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the edge length of a grid cell
+	 */
+	public double getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * @return the number of cells of the grid
+	 */
+	public int sizeCells() {
+		return nx * ny * nz;
+	}
+
+	/**
+	 * Retrieves the coordinates of an indexed point
+	 *
+	 * @param index the index of the point as provided on construction
+	 * @param coordinates array receiving x, y and z
+	 */
+	public void getCoordinates(int index, double[] coordinates) {
+		int slot = slots[index];
+		coordinates[0] = cellCoordinates[3 * slot];
+		coordinates[1] = cellCoordinates[3 * slot + 1];
+		coordinates[2] = cellCoordinates[3 * slot + 2];
+	}
+
+	//**************************************************************************
+	// Radius queries
+	//**************************************************************************
+
+	/**
+	 * Retrieves all points within the radius around the given position
+	 *
+	 * @param position the center of the query
+	 * @param radius the query radius
+	 * @return the indices of the points within the radius in no specific order
+	 */
+	public int[] withinRadius(Point3d position, double radius) {
+		return withinRadius(position.x, position.y, position.z, radius);
+	}
+
+	/**
+	 * Retrieves all points within the radius around the given position
+	 * @see #withinRadius(Point3d, double)
+	 */
+	public int[] withinRadius(double x, double y, double z, double radius) {
+		IntList result = new IntList();
+		withinRadius(x, y, z, radius, -1, result);
+		return result.toArray();
+	}
+
+	/**
+	 * Collects all points within the radius around the given position into
+	 * the provided list, which allows to reuse the list for many queries.
+	 *
+	 * @param x x coordinate of the query center
+	 * @param y y coordinate of the query center
+	 * @param z z coordinate of the query center
+	 * @param radius the query radius
+	 * @param exclude the index of a point to be skipped or -1
+	 * @param result the list receiving the indices (it is not cleared)
+	 * @return the number of points added to the list
+	 */
+	public int withinRadius(double x, double y, double z, double radius,
+			int exclude, IntList result) {
+		if ((size == 0) || (radius < 0)) {
+			return 0;
+		}
+
+		int x0 = cellCoordinate(x - radius, minX, nx);
+		int x1 = cellCoordinate(x + radius, minX, nx);
+		int y0 = cellCoordinate(y - radius, minY, ny);
+		int y1 = cellCoordinate(y + radius, minY, ny);
+		int z0 = cellCoordinate(z - radius, minZ, nz);
+		int z1 = cellCoordinate(z + radius, minZ, nz);
+
+		double r2 = radius * radius;
+		int found = 0;
+
+		for (int cz = z0; cz <= z1; ++cz) {
+			for (int cy = y0; cy <= y1; ++cy) {
+				int row = (cz * ny + cy) * nx;
+				int end = cellStart[row + x1 + 1];
+				for (int s = cellStart[row + x0]; s < end; ++s) {
+					double dx = cellCoordinates[3 * s] - x;
+					double dy = cellCoordinates[3 * s + 1] - y;
+					double dz = cellCoordinates[3 * s + 2] - z;
+					if ((dx * dx + dy * dy + dz * dz <= r2) && (cellPoints[s] != exclude)) {
+						result.add(cellPoints[s]);
+						found++;
+					}
+				}
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * Checks whether any point lies within the radius around the position
+	 *
+	 * @return true if at least one point lies within the radius
+	 */
+	public boolean anyWithinRadius(double x, double y, double z, double radius) {
+		return nearest(x, y, z, radius) >= 0;
+	}
+
+	//**************************************************************************
+	// Nearest neighbor queries
+	//**************************************************************************
+
+	/**
+	 * @param position the query position
+	 * @return the index of the point closest to the position or -1 if the
+	 *         index is empty
+	 */
+	public int nearest(Point3d position) {
+		return nearest(position.x, position.y, position.z, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Retrieves the point closest to the given position, but only if it lies
+	 * within the maximum distance
+	 *
+	 * @param maxDistance the maximum distance of the nearest point
+	 * @return the index of the nearest point or -1 if no point lies within
+	 *         the maximum distance
+	 */
+	public int nearest(double x, double y, double z, double maxDistance) {
+		int[] best = new int[] { -1 };
+		double[] bestDistance = new double[] { maxDistance * maxDistance };
+		nearest(x, y, z, 1, -1, best, bestDistance);
+		return best[0];
+	}
+
+	/**
+	 * Retrieves the k points closest to the position
+	 *
+	 * @param position the query position
+	 * @param k the number of neighbors requested
+	 * @return the indices of the nearest points ordered by increasing distance.
+	 *         The array is shorter than k if the index contains less points.
+	 */
+	public int[] nearest(Point3d position, int k) {
+		return nearest(position.x, position.y, position.z, k, -1);
+	}
+
+	/**
+	 * Retrieves the k points closest to the position skipping the excluded
+	 * point
+	 * @see #nearest(Point3d, int)
+	 */
+	public int[] nearest(double x, double y, double z, int k, int exclude) {
+		if (k <= 0) {
+			return new int[0];
+		}
+
+		int[] heap = new int[k];
+		double[] heapDistance = new double[k];
+		Arrays.fill(heapDistance, Double.POSITIVE_INFINITY);
+		int found = nearest(x, y, z, k, exclude, heap, heapDistance);
+
+		// heap sort the max heap to ascending distances
+		int[] result = new int[found];
+		for (int n = found; n > 0; --n) {
+			result[n - 1] = heap[0];
+			heap[0] = heap[n - 1];
+			heapDistance[0] = heapDistance[n - 1];
+			siftDown(heap, heapDistance, 0, n - 1);
+		}
+		return result;
+	}
+
+	/**
+	 * Ring search around the cell of the query. The heap is a max heap on the
+	 * squared distances. It is initialized by the caller with infinite
+	 * distances or a distance bound.
+	 *
+	 * @return the number of points in the heap
+	 */
+	private int nearest(double x, double y, double z, int k, int exclude,
+			int[] heap, double[] heapDistance) {
+		if (size == 0) {
+			return 0;
+		}
+
+		int cx = ringCenter(x, minX, nx);
+		int cy = ringCenter(y, minY, ny);
+		int cz = ringCenter(z, minZ, nz);
+
+		int maxRing = Math.max(Math.max(Math.max(cx, nx - 1 - cx),
+				                        Math.max(cy, ny - 1 - cy)),
+		                       Math.max(cz, nz - 1 - cz));
+		int found = 0;
+		double bound = heapDistance[0];
+
+		for (int r = 0; r <= maxRing; ++r) {
+			for (int dz = -r; dz <= r; ++dz) {
+				int z0 = cz + dz;
+				if ((z0 < 0) || (z0 >= nz)) continue;
+				for (int dy = -r; dy <= r; ++dy) {
+					int y0 = cy + dy;
+					if ((y0 < 0) || (y0 >= ny)) continue;
+					int row = (z0 * ny + y0) * nx;
+					boolean fullRow = (Math.abs(dz) == r) || (Math.abs(dy) == r);
+					int step = (fullRow || (r == 0)) ? 1 : 2 * r;
+					for (int x0 = cx - r; x0 <= cx + r; x0 += step) {
+						if ((x0 < 0) || (x0 >= nx)) continue;
+						int end = cellStart[row + x0 + 1];
+						for (int s = cellStart[row + x0]; s < end; ++s) {
+							double ddx = cellCoordinates[3 * s] - x;
+							double ddy = cellCoordinates[3 * s + 1] - y;
+							double ddz = cellCoordinates[3 * s + 2] - z;
+							double d2 = ddx * ddx + ddy * ddy + ddz * ddz;
+							boolean closer = (d2 < bound) || ((found < k) && (d2 <= bound));
+							if (closer && (cellPoints[s] != exclude)) {
+								if (found < k) {
+									heap[found] = cellPoints[s];
+									heapDistance[found] = d2;
+									siftUp(heap, heapDistance, found);
+									found++;
+									if (found == k) {
+										bound = heapDistance[0];
+									}
+								} else {
+									heap[0] = cellPoints[s];
+									heapDistance[0] = d2;
+									siftDown(heap, heapDistance, 0, k);
+									bound = heapDistance[0];
+								}
+							}
+						}
+					}
+				}
+			}
+
+			// all cells of the next ring are at least r cells away
+			double ringDistance = r * cellSize;
+			if (ringDistance * ringDistance >= bound) {
+				break;
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * The cell of a query position, clamped to one cell outside the grid.
+	 * Keeping the query at most one cell outside keeps the ring distance a
+	 * valid lower bound.
+	 */
+	private int ringCenter(double value, double min, int n) {
+		double c = Math.floor((value - min) * inverseCellSize);
+		return (c < -1) ? -1 : (c > n) ? n : (int) c;
+	}
+
+	private static void siftUp(int[] heap, double[] distance, int i) {
+		while (i > 0) {
+			int parent = (i - 1) >> 1;
+			if (distance[parent] >= distance[i]) break;
+			swap(heap, distance, parent, i);
+			i = parent;
+		}
+	}
+
+	private static void siftDown(int[] heap, double[] distance, int i, int n) {
+		while (true) {
+			int largest = i;
+			int l = 2 * i + 1;
+			int r = l + 1;
+			if ((l < n) && (distance[l] > distance[largest])) largest = l;
+			if ((r < n) && (distance[r] > distance[largest])) largest = r;
+			if (largest == i) break;
+			swap(heap, distance, largest, i);
+			i = largest;
+		}
+	}
+
+	private static void swap(int[] heap, double[] distance, int a, int b) {
+		int h = heap[a];
+		heap[a] = heap[b];
+		heap[b] = h;
+		double d = distance[a];
+		distance[a] = distance[b];
+		distance[b] = d;
+	}
+
+	//**************************************************************************
+	// Batch queries
+	//**************************************************************************
+
+	/**
+	 * Retrieves the radius neighborhood of every indexed point in parallel
+	 *
+	 * @param radius the query radius
+	 * @return for each point the indices of the other points within the
+	 *         radius (the point itself is not contained)
+	 */
+	public int[][] withinRadiusOfAll(final double radius) {
+		final int[][] result = new int[size][];
+
+		Parallel.forRange(size, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				IntList buffer = new IntList();
+				double[] p = new double[3];
+				for (int i = from; i < to; ++i) {
+					buffer.clear();
+					getCoordinates(i, p);
+					withinRadius(p[0], p[1], p[2], radius, i, buffer);
+					result[i] = buffer.toArray();
+				}
+			}
+		});
+
+		return result;
+	}
+
+	/**
+	 * Retrieves the k nearest neighbors of every indexed point in parallel
+	 *
+	 * @param k the number of neighbors per point
+	 * @return for each point the indices of its k nearest other points ordered
+	 *         by increasing distance
+	 */
+	public int[][] nearestOfAll(final int k) {
+		final int[][] result = new int[size][];
+
+		Parallel.forRange(size, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				double[] p = new double[3];
+				for (int i = from; i < to; ++i) {
+					getCoordinates(i, p);
+					result[i] = nearest(p[0], p[1], p[2], k, i);
+				}
+			}
+		});
+
+		return result;
+	}
+}
@@ -0,0 +1,658 @@
+package org.chof.surfcomp.trimesh.algorithms;
+
+import java.util.Arrays;
+
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.Point;
+import org.chof.surfcomp.trimesh.domain.Triangle;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.metrics.Metrics;
+import org.chof.surfcomp.trimesh.tools.DoubleHeap;
+import org.chof.surfcomp.trimesh.tools.IntList;
+
+/**
+ * Reduces the triangles of a mesh by collapsing edges in the order of their
+ * quadric error
+ * <p>
+ * The decimation follows Garland and Heckbert (1997). Each point carries the
+ * sum of the squared distance functions to the planes of its triangles. An
+ * edge collapses to the position minimizing the sum of the quadrics of its
+ * two ends, and the merged point inherits the summed quadric. The quadrics
+ * are not weighted by area, thus the square root of the error of a merged
+ * point bounds its distance to each original plane it was merged from.</p>
+ * <p>
+ * The collapses stop when the triangle count reaches the target or the
+ * cheapest collapse exceeds the maximal error. A collapse is skipped if it
+ * would make the surface non manifold or flip a triangle. Border edges get
+ * an additional plane perpendicular to their triangle, which keeps the
+ * border of open surfaces in place.</p>
+ * <p>
+ * The decimated copy of a mesh keeps the properties of the surviving points
+ * and triangles and adds their index in the source as property
+ * {@link MeshReordering#ORIGINAL_INDEX}. The normal of a surviving point is
+ * the average of the normals of the points merged into it. Values on the
+ * decimated mesh can be mapped back to the source by
+ * {@link #getRepresentatives()}.</p>
+ *
+ * @author chof
+ */
+public class QuadricDecimator {
+
+	/** the weight of the planes keeping the borders in place */
+	private static final double BORDER_WEIGHT = 1000.0;
+
+	/** the minimal cosine between the normals of a triangle before and after a collapse */
+	private static final double MIN_NORMAL_COSINE = 0.2;
+
+	private final int sizePoints;
+	private final double[] coordinates;
+	private final int[] triangles;
+	private int targetTriangles = 0;
+	private double maxError = Double.POSITIVE_INFINITY;
+
+	private double[] quadrics;
+	private IntList[] incident;
+	private boolean[] removed;
+	private int[] version;
+	private int[] merged;
+	private int[] stamp;
+	private int currentStamp = 0;
+	private double[] position = new double[3];
+	private final double[] sum = new double[10];
+	private final double[] candidate = new double[3];
+
+	private DoubleHeap heap;
+	private IntList edgeStart;
+	private IntList edgeEnd;
+	private IntList edgeVersion;
+
+	private int[] representatives = null;
+	private int[] points = null;
+	private int[] kept = null;
+	private double error = 0;
+
+	/**
+	 * Prepares the decimation of a mesh
+	 */
+	public QuadricDecimator(Mesh mesh) {
+		this(PointGridIndex.coordinatesOf(mesh), mesh.getTriangleIndices());
+	}
+
+	/**
+	 * Prepares the decimation of points and triangles given as flat arrays
+	 *
+	 * @param coordinates x, y and z of each point, not modified
+	 * @param triangles the point indices of the three corners of each
+	 *        triangle, not modified
+	 */
+	public QuadricDecimator(double[] coordinates, int[] triangles) {
+		this.sizePoints = coordinates.length / 3;
+		this.coordinates = coordinates;
+		this.triangles = triangles;
+	}
+
+	//**************************************************************************
+	// Settings
+	//**************************************************************************
+
+	/**
+	 * @param targetTriangles the number of triangles at which the decimation
+	 *        stops, 0 by default
+	 */
+	public void setTargetTriangles(int targetTriangles) {
+		if (targetTriangles < 0) {
+			throw new IllegalArgumentException("The target must not be negative");
+		}
+		this.targetTriangles = targetTriangles;
+	}
+
+	public int getTargetTriangles() {
+		return targetTriangles;
+	}
+
+	/**
+	 * @param maxError the distance to the original planes at which the
+	 *        decimation stops, unbounded by default
+	 */
+	public void setMaxError(double maxError) {
+		if (!(maxError >= 0)) {
+			throw new IllegalArgumentException("The error must not be negative");
+		}
+		this.maxError = maxError;
+	}
+
+	public double getMaxError() {
+		return maxError;
+	}
+
+	//**************************************************************************
+	// Results
+	//**************************************************************************
+
+	/**
+	 * @return the source index of each point of the decimated mesh
+	 */
+	public int[] getPoints() {
+		checkDecimated();
+		return points;
+	}
+
+	/**
+	 * @return the source index of each triangle of the decimated mesh
+	 */
+	public int[] getTriangles() {
+		checkDecimated();
+		return kept;
+	}
+
+	/**
+	 * @return the index in the decimated mesh of the point each source point
+	 *         was merged into
+	 */
+	public int[] getRepresentatives() {
+		checkDecimated();
+		return representatives;
+	}
+
+	/**
+	 * @return the largest error of a performed collapse as a distance
+	 */
+	public double getError() {
+		checkDecimated();
+		return error;
+	}
+
+	/**
+	 * @return the x, y and z of each point of the decimated mesh
+	 */
+	public double[] getCoordinates() {
+		checkDecimated();
+		double[] result = new double[3 * points.length];
+		for (int k = 0; k < points.length; ++k) {
+			System.arraycopy(position, 3 * points[k], result, 3 * k, 3);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the point indices of the three corners of each triangle of the
+	 *         decimated mesh
+	 */
+	public int[] getTriangleIndices() {
+		checkDecimated();
+		int[] result = new int[3 * kept.length];
+		for (int k = 0; k < kept.length; ++k) {
+			for (int c = 0; c < 3; ++c) {
+				result[3 * k + c] = representatives[triangles[3 * kept[k] + c]];
+			}
+		}
+		return result;
+	}
+
+	private void checkDecimated() {
+		if (representatives == null) {
+			throw new IllegalStateException("The mesh is not decimated yet");
+		}
+	}
+
+	//**************************************************************************
+	// Decimation
+	//**************************************************************************
+
+	/**
+	 * Collapses edges until the target or the maximal error is reached
+	 *
+	 * @return the number of remaining triangles
+	 */
+	public int decimate() {
+		long start = Metrics.start();
+		int count = triangles.length / 3;
+		int[] corners = Arrays.copyOf(triangles, triangles.length);
+		position = Arrays.copyOf(coordinates, coordinates.length);
+		removed = new boolean[count];
+		version = new int[sizePoints];
+		merged = new int[sizePoints];
+		for (int i = 0; i < sizePoints; ++i) {
+			merged[i] = i;
+		}
+		stamp = new int[sizePoints];
+		currentStamp = 0;
+		error = 0;
+		initializeQuadrics(corners);
+
+		heap = new DoubleHeap(3 * count);
+		edgeStart = new IntList(3 * count);
+		edgeEnd = new IntList(3 * count);
+		edgeVersion = new IntList(3 * count);
+		int remaining = 0;
+		for (int t = 0; t < count; ++t) {
+			if (removed[t]) continue;
+			++remaining;
+			for (int c = 0; c < 3; ++c) {
+				int a = corners[3 * t + c];
+				int b = corners[3 * t + (c + 1) % 3];
+				if (a < b) {
+					pushEdge(a, b);
+				} else if (!hasEdge(corners, b, a)) {
+					// border edge seen only from this side
+					pushEdge(b, a);
+				}
+			}
+		}
+
+		double limit = maxError * maxError;
+		double[] target = new double[3];
+		while ((remaining > targetTriangles) && !heap.isEmpty()) {
+			double cost = heap.peekKey();
+			int edge = heap.pop();
+			int a = edgeStart.get(edge);
+			int b = edgeEnd.get(edge);
+			if ((merged[a] != a) || (merged[b] != b)
+					|| (edgeVersion.get(edge) != version[a] + version[b])) {
+				continue;
+			}
+			if (cost > limit) break;
+			optimalPosition(a, b, target);
+			if (!isCollapsible(corners, a, b, target)) continue;
+
+			remaining -= collapse(corners, a, b, target);
+			error = Math.max(error, cost);
+		}
+		error = Math.sqrt(Math.max(0, error));
+
+		collectResult(corners, count);
+		quadrics = null;
+		incident = null;
+		heap = null;
+		edgeStart = edgeEnd = edgeVersion = null;
+		Metrics.stop("decimator.decimate", start);
+		Metrics.count("decimator.triangles.removed", count - kept.length);
+		return kept.length;
+	}
+
+	/**
+	 * Copies the surviving points and triangles of a mesh
+	 *
+	 * @param source the decimated mesh
+	 * @param target an empty mesh receiving the copies
+	 * @return the target
+	 * @throws IllegalArgumentException if the source does not match the decimation
+	 */
+	public <M extends Mesh> M apply(Mesh source, M target) throws TrimeshException {
+		checkDecimated();
+		if ((source.sizePoints() != sizePoints)
+				|| (source.sizeTriangles() != triangles.length / 3)) {
+			throw new IllegalArgumentException("The mesh does not match the decimation");
+		}
+		Vector3d[] normals = new Vector3d[points.length];
+		for (int k = 0; k < points.length; ++k) {
+			normals[k] = new Vector3d();
+		}
+		for (int i = 0; i < sizePoints; ++i) {
+			Vector3d normal = source.getPoint(i).getNormale();
+			if ((normal != null) && (representatives[i] >= 0)) {
+				normals[representatives[i]].add(normal);
+			}
+		}
+
+		for (int k = 0; k < points.length; ++k) {
+			int i = points[k];
+			Point point = new Point(source.getPoint(i));
+			point.setCoordinates(new Point3d(position[3 * i], position[3 * i + 1],
+					position[3 * i + 2]));
+			if (normals[k].lengthSquared() > 0) {
+				normals[k].normalize();
+				point.setNormale(normals[k]);
+			}
+			point.setProperty(MeshReordering.ORIGINAL_INDEX, i);
+			target.addPoint(point);
+		}
+
+		for (int t : kept) {
+			int index = target.addTriangle(representatives[triangles[3 * t]],
+					representatives[triangles[3 * t + 1]],
+					representatives[triangles[3 * t + 2]]);
+			if (index >= 0) {
+				Triangle triangle = target.getTriangle(index);
+				triangle.setProperties(source.getTriangle(t).getProperties());
+				triangle.setProperty(MeshReordering.ORIGINAL_INDEX, t);
+			}
+		}
+		return target;
+	}
+
+	/**
+	 * Sums the plane quadrics of the triangles at each point and collects the
+	 * triangles of each point
+	 * <p>
+	 * A quadric is stored as the ten coefficients <code>aa ab ac ad bb bc bd
+	 * cc cd dd</code> of the plane <code>ax + by + cz + d = 0</code>.</p>
+	 */
+	private void initializeQuadrics(int[] corners) {
+		int count = corners.length / 3;
+		quadrics = new double[10 * sizePoints];
+		incident = new IntList[sizePoints];
+		for (int i = 0; i < sizePoints; ++i) {
+			incident[i] = new IntList(8);
+		}
+		double[] normal = new double[3];
+		for (int t = 0; t < count; ++t) {
+			int a = corners[3 * t];
+			int b = corners[3 * t + 1];
+			int c = corners[3 * t + 2];
+			if ((a == b) || (b == c) || (c == a)) {
+				removed[t] = true;
+				continue;
+			}
+			incident[a].add(t);
+			incident[b].add(t);
+			incident[c].add(t);
+			if (!unitNormal(position, a, b, c, normal)) continue;
+			double d = -dot(normal, position, a);
+			addPlane(a, normal, d, 1);
+			addPlane(b, normal, d, 1);
+			addPlane(c, normal, d, 1);
+		}
+
+		// planes through the border edges perpendicular to their triangle
+		double[] border = new double[3];
+		for (int t = 0; t < count; ++t) {
+			if (removed[t] || !unitNormal(position, corners[3 * t], corners[3 * t + 1],
+					corners[3 * t + 2], normal)) continue;
+			for (int c = 0; c < 3; ++c) {
+				int a = corners[3 * t + c];
+				int b = corners[3 * t + (c + 1) % 3];
+				if (hasEdge(corners, b, a)) continue;
+				double ex = position[3 * b] - position[3 * a];
+				double ey = position[3 * b + 1] - position[3 * a + 1];
+				double ez = position[3 * b + 2] - position[3 * a + 2];
+				border[0] = ey * normal[2] - ez * normal[1];
+				border[1] = ez * normal[0] - ex * normal[2];
+				border[2] = ex * normal[1] - ey * normal[0];
+				double length = Math.sqrt(dot(border, border, 0));
+				if (length == 0) continue;
+				for (int k = 0; k < 3; ++k) {
+					border[k] /= length;
+				}
+				double d = -dot(border, position, a);
+				addPlane(a, border, d, BORDER_WEIGHT);
+				addPlane(b, border, d, BORDER_WEIGHT);
+			}
+		}
+	}
+
+	private void addPlane(int i, double[] n, double d, double weight) {
+		int q = 10 * i;
+		quadrics[q] += weight * n[0] * n[0];
+		quadrics[q + 1] += weight * n[0] * n[1];
+		quadrics[q + 2] += weight * n[0] * n[2];
+		quadrics[q + 3] += weight * n[0] * d;
+		quadrics[q + 4] += weight * n[1] * n[1];
+		quadrics[q + 5] += weight * n[1] * n[2];
+		quadrics[q + 6] += weight * n[1] * d;
+		quadrics[q + 7] += weight * n[2] * n[2];
+		quadrics[q + 8] += weight * n[2] * d;
+		quadrics[q + 9] += weight * d * d;
+	}
+
+	/**
+	 * @return true if a triangle has the directed edge from a to b
+	 */
+	private boolean hasEdge(int[] corners, int a, int b) {
+		IntList list = incident[a];
+		for (int k = 0; k < list.size(); ++k) {
+			int t = 3 * list.get(k);
+			for (int c = 0; c < 3; ++c) {
+				if ((corners[t + c] == a) && (corners[t + (c + 1) % 3] == b)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Queues the collapse of an edge with the error at its optimal position
+	 */
+	private void pushEdge(int a, int b) {
+		double cost = optimalPosition(a, b, candidate);
+		heap.push(cost, edgeStart.size());
+		edgeStart.add(a);
+		edgeEnd.add(b);
+		edgeVersion.add(version[a] + version[b]);
+	}
+
+	/**
+	 * Determines the position minimizing the summed quadric of two points,
+	 * falling back to the best of the ends and the midpoint if the quadric
+	 * is singular
+	 *
+	 * @return the error at the position
+	 */
+	private double optimalPosition(int a, int b, double[] target) {
+		double[] q = sum;
+		for (int k = 0; k < 10; ++k) {
+			q[k] = quadrics[10 * a + k] + quadrics[10 * b + k];
+		}
+		// Cramer's rule on the upper 3x3 block
+		double c00 = q[4] * q[7] - q[5] * q[5];
+		double c01 = q[2] * q[5] - q[1] * q[7];
+		double c02 = q[1] * q[5] - q[2] * q[4];
+		double det = q[0] * c00 + q[1] * c01 + q[2] * c02;
+		double scale = q[0] + q[4] + q[7];
+		if (Math.abs(det) > 1e-9 * scale * scale * scale) {
+			double c11 = q[0] * q[7] - q[2] * q[2];
+			double c12 = q[1] * q[2] - q[0] * q[5];
+			double c22 = q[0] * q[4] - q[1] * q[1];
+			target[0] = -(c00 * q[3] + c01 * q[6] + c02 * q[8]) / det;
+			target[1] = -(c01 * q[3] + c11 * q[6] + c12 * q[8]) / det;
+			target[2] = -(c02 * q[3] + c12 * q[6] + c22 * q[8]) / det;
+			return Math.max(0, evaluate(q, target[0], target[1], target[2]));
+		}
+
+		double best = Double.POSITIVE_INFINITY;
+		for (int k = 0; k <= 2; ++k) {
+			double s = 0.5 * k;
+			double x = (1 - s) * position[3 * a] + s * position[3 * b];
+			double y = (1 - s) * position[3 * a + 1] + s * position[3 * b + 1];
+			double z = (1 - s) * position[3 * a + 2] + s * position[3 * b + 2];
+			double cost = evaluate(q, x, y, z);
+			if (cost < best) {
+				best = cost;
+				target[0] = x;
+				target[1] = y;
+				target[2] = z;
+			}
+		}
+		return Math.max(0, best);
+	}
+
+	private static double evaluate(double[] q, double x, double y, double z) {
+		return q[0] * x * x + 2 * q[1] * x * y + 2 * q[2] * x * z + 2 * q[3] * x
+				+ q[4] * y * y + 2 * q[5] * y * z + 2 * q[6] * y
+				+ q[7] * z * z + 2 * q[8] * z + q[9];
+	}
+
+	/**
+	 * Checks that the neighbors shared by the two ends are exactly the third
+	 * corners of the triangles at the edge, that at least three triangles
+	 * remain at the merged point and that no other triangle at the ends flips
+	 */
+	private boolean isCollapsible(int[] corners, int a, int b, double[] target) {
+		++currentStamp;
+		int shared = 0;
+		int around = 0;
+		IntList list = incident[a];
+		for (int k = 0; k < list.size(); ++k) {
+			int t = list.get(k);
+			if (removed[t]) continue;
+			++around;
+			for (int c = 0; c < 3; ++c) {
+				stamp[corners[3 * t + c]] = currentStamp;
+			}
+			if (contains(corners, t, b)) {
+				++shared;
+			}
+		}
+		if (shared == 0) return false;
+
+		int common = 0;
+		++currentStamp;
+		list = incident[b];
+		for (int k = 0; k < list.size(); ++k) {
+			int t = list.get(k);
+			if (removed[t]) continue;
+			++around;
+			for (int c = 0; c < 3; ++c) {
+				int i = corners[3 * t + c];
+				if ((i != a) && (i != b) && (stamp[i] == currentStamp - 1)) {
+					stamp[i] = currentStamp;
+					++common;
+				}
+			}
+		}
+		// a closed part as small as a tetrahedron would fold onto itself
+		if ((common != shared) || (around - 2 * shared < 3)) return false;
+
+		return !flips(corners, a, b, target) && !flips(corners, b, a, target);
+	}
+
+	/**
+	 * @return true if a triangle at point a without point b turns by moving a
+	 *         to the target
+	 */
+	private boolean flips(int[] corners, int a, int b, double[] target) {
+		double[] before = new double[3];
+		double[] after = new double[3];
+		IntList list = incident[a];
+		for (int k = 0; k < list.size(); ++k) {
+			int t = list.get(k);
+			if (removed[t] || contains(corners, t, b)) continue;
+			int c = 0;
+			while (corners[3 * t + c] != a) ++c;
+			int u = corners[3 * t + (c + 1) % 3];
+			int v = corners[3 * t + (c + 2) % 3];
+			cross(position, 3 * a, position, 3 * u, position, 3 * v, before);
+			cross(target, 0, position, 3 * u, position, 3 * v, after);
+			double lb = Math.sqrt(dot(before, before, 0));
+			double la = Math.sqrt(dot(after, after, 0));
+			if (la == 0) return true;
+			if ((lb > 0) && (dot(before, after, 0) < MIN_NORMAL_COSINE * lb * la)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Merges point b into point a at the target position
+	 *
+	 * @return the number of removed triangles
+	 */
+	private int collapse(int[] corners, int a, int b, double[] target) {
+		int count = 0;
+		IntList list = incident[b];
+		for (int k = 0; k < list.size(); ++k) {
+			int t = list.get(k);
+			if (removed[t]) continue;
+			if (contains(corners, t, a)) {
+				removed[t] = true;
+				++count;
+			} else {
+				for (int c = 0; c < 3; ++c) {
+					if (corners[3 * t + c] == b) corners[3 * t + c] = a;
+				}
+				incident[a].add(t);
+			}
+		}
+		incident[b] = null;
+
+		IntList compact = new IntList(incident[a].size());
+		for (int k = 0; k < incident[a].size(); ++k) {
+			int t = incident[a].get(k);
+			if (!removed[t]) compact.add(t);
+		}
+		incident[a] = compact;
+
+		for (int k = 0; k < 10; ++k) {
+			quadrics[10 * a + k] += quadrics[10 * b + k];
+		}
+		System.arraycopy(target, 0, position, 3 * a, 3);
+		merged[b] = a;
+		version[a]++;
+
+		++currentStamp;
+		stamp[a] = currentStamp;
+		for (int k = 0; k < compact.size(); ++k) {
+			int t = compact.get(k);
+			for (int c = 0; c < 3; ++c) {
+				int i = corners[3 * t + c];
+				if (stamp[i] != currentStamp) {
+					stamp[i] = currentStamp;
+					pushEdge(a, i);
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Numbers the surviving points in source order and maps every source
+	 * point to the point it was merged into
+	 */
+	private void collectResult(int[] corners, int count) {
+		representatives = new int[sizePoints];
+		IntList survivors = new IntList();
+		for (int i = 0; i < sizePoints; ++i) {
+			if (merged[i] == i) {
+				representatives[i] = survivors.size();
+				survivors.add(i);
+			}
+		}
+		for (int i = 0; i < sizePoints; ++i) {
+			int root = i;
+			while (merged[root] != root) {
+				root = merged[root];
+			}
+			representatives[i] = representatives[root];
+		}
+		points = survivors.toArray();
+
+		IntList triangleList = new IntList();
+		for (int t = 0; t < count; ++t) {
+			if (!removed[t]) triangleList.add(t);
+		}
+		kept = triangleList.toArray();
+	}
+
+	private static boolean contains(int[] corners, int t, int i) {
+		return (corners[3 * t] == i) || (corners[3 * t + 1] == i) || (corners[3 * t + 2] == i);
+	}
+
+	private static double dot(double[] n, double[] p, int i) {
+		return n[0] * p[3 * i] + n[1] * p[3 * i + 1] + n[2] * p[3 * i + 2];
+	}
+
+	private static void cross(double[] p, int a, double[] q, int b, double[] r, int c,
+			double[] result) {
+		double ux = q[b] - p[a], uy = q[b + 1] - p[a + 1], uz = q[b + 2] - p[a + 2];
+		double vx = r[c] - p[a], vy = r[c + 1] - p[a + 1], vz = r[c + 2] - p[a + 2];
+		result[0] = uy * vz - uz * vy;
+		result[1] = uz * vx - ux * vz;
+		result[2] = ux * vy - uy * vx;
+	}
+
+	private static boolean unitNormal(double[] p, int a, int b, int c, double[] normal) {
+		cross(p, 3 * a, p, 3 * b, p, 3 * c, normal);
+		double length = Math.sqrt(normal[0] * normal[0] + normal[1] * normal[1]
+				+ normal[2] * normal[2]);
+		if (length == 0) return false;
+		for (int k = 0; k < 3; ++k) {
+			normal[k] /= length;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,433 @@
+package org.chof.surfcomp.trimesh.algorithms;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.MeshEdge;
+import org.chof.surfcomp.trimesh.domain.Triangle;
+import org.chof.surfcomp.trimesh.domain.Triangle.Corner;
+import org.chof.surfcomp.trimesh.tools.Parallel;
+
+/**
+ * Signed distance field of a closed mesh sampled on a regular grid
+ * <p>
+ * The value at each grid point is the euclidean distance to the closest point
+ * on the surface, positive outside and negative inside. The closest point is
+ * found with the {@link TriangleBVH} of the mesh, the sign is taken from the
+ * pseudo normal of the feature the closest point lies on:</p>
+ * <ul>
+ * <li>the triangle normal ({@link Triangle#getNormale()}) for points inside
+ * a face,</li>
+ * <li>the sum of the normals of both adjacent triangles for points on an
+ * edge and</li>
+ * <li>the sum of the normals of the adjacent triangles weighted by their
+ * angle at the corner for corner points.</li>
+ * </ul>
+ * <p>
+ * The values are stored in x fastest order, i.e. the value of grid point
+ * (i, j, k) is stored at <code>(k * ny + j) * nx + i</code>. The field is
+ * either held in a float array or in a memory mapped grid file. The file
+ * starts with a header of 48 bytes (the magic <code>TSDF</code>, nx, ny, nz
+ * as int and the origin and the spacing as double) followed by the float
+ * values, all in little endian byte order.</p>
+ * <p>
+ * The computation runs in parallel over the z slabs of the grid.</p>
+ *
+ * @author chof
+ */
+public class SignedDistanceField {
+
+	private static final int MAGIC = 0x46445354; // "TSDF" in little endian
+	private static final int HEADER_SIZE = 48;
+	private static final double FEATURE_EPSILON = 1e-9;
+
+	private final int nx, ny, nz;
+	private final double ox, oy, oz;
+	private final double spacing;
+
+	private final float[] values;
+	private final FloatBuffer buffer;
+	private final MappedByteBuffer mapping;
+
+	/**
+	 * Constructs an empty field held in memory
+	 *
+	 * @param origin the position of grid point (0, 0, 0)
+	 * @param spacing the distance between neighboring grid points
+	 * @param nx number of grid points along x
+	 * @param ny number of grid points along y
+	 * @param nz number of grid points along z
+	 */
+	public SignedDistanceField(Point3d origin, double spacing, int nx, int ny, int nz) {
+		this(origin, spacing, nx, ny, nz, null);
+	}
+
+	private SignedDistanceField(Point3d origin, double spacing, int nx, int ny,
+			int nz, MappedByteBuffer mapping) {
+		checkGeometry(spacing, nx, ny, nz, mapping != null);
+
+		this.ox = origin.x;
+		this.oy = origin.y;
+		this.oz = origin.z;
+		this.spacing = spacing;
+		this.nx = nx;
+		this.ny = ny;
+		this.nz = nz;
+
+		this.mapping = mapping;
+		if (mapping == null) {
+			values = new float[nx * ny * nz];
+			buffer = FloatBuffer.wrap(values);
+		} else {
+			values = null;
+			mapping.position(HEADER_SIZE);
+			buffer = mapping.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+		}
+	}
+
+	/**
+	 * Checks the geometry of a grid before anything is allocated or created
+	 *
+	 * @param mapped true for a grid in a memory mapped file, which is
+	 *        limited to a mapping of 2 GB including the header
+	 * @throws IllegalArgumentException if the grid is empty or too large
+	 */
+	private static void checkGeometry(double spacing, int nx, int ny, int nz,
+			boolean mapped) {
+		if ((spacing <= 0) || (nx <= 0) || (ny <= 0) || (nz <= 0)) {
+			throw new IllegalArgumentException("spacing and grid dimensions must be positive");
+		}
+		long count = (long) nx * ny * nz;
+		long limit = mapped
+				? (Integer.MAX_VALUE - HEADER_SIZE) / 4 : Integer.MAX_VALUE - HEADER_SIZE;
+		if (count > limit) {
+			throw new IllegalArgumentException("The grid is too large");
+		}
+	}
+
+	/**
+	 * Constructs an empty field held in memory covering the bounding box of
+	 * the mesh enlarged by the margin
+	 *
+	 * @param mesh the mesh
+	 * @param spacing the distance between neighboring grid points
+	 * @param margin the distance the grid extends beyond the bounding box
+	 * @return the new field
+	 */
+	public static SignedDistanceField enclosing(Mesh mesh, double spacing,
+			double margin) {
+		double[] box = new double[6];
+		mesh.getTriangleBVH().getBounds(box);
+		int[] dimensions = new int[3];
+		for (int axis = 0; axis < 3; ++axis) {
+			box[axis] -= margin;
+			dimensions[axis] = (int) Math.ceil((box[axis + 3] + margin - box[axis]) / spacing) + 1;
+		}
+		return new SignedDistanceField(new Point3d(box[0], box[1], box[2]),
+				spacing, dimensions[0], dimensions[1], dimensions[2]);
+	}
+
+	/**
+	 * Creates a grid file of the given geometry and constructs a field which
+	 * writes its values directly into the memory mapped file
+	 *
+	 * @param file the grid file, which is created or overwritten
+	 * @see #SignedDistanceField(Point3d, double, int, int, int)
+	 * @return the field backed by the file
+	 * @throws IOException if the file cannot be created or mapped
+	 * @throws IllegalArgumentException if the grid exceeds a mapping of 2 GB
+	 */
+	public static SignedDistanceField create(File file, Point3d origin,
+			double spacing, int nx, int ny, int nz) throws IOException {
+		checkGeometry(spacing, nx, ny, nz, true);
+		long size = HEADER_SIZE + 4L * nx * ny * nz;
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(size);
+			MappedByteBuffer map = raf.getChannel().map(MapMode.READ_WRITE, 0, size);
+			map.order(ByteOrder.LITTLE_ENDIAN);
+			map.putInt(MAGIC);
+			map.putInt(nx);
+			map.putInt(ny);
+			map.putInt(nz);
+			map.putDouble(origin.x);
+			map.putDouble(origin.y);
+			map.putDouble(origin.z);
+			map.putDouble(spacing);
+			return new SignedDistanceField(origin, spacing, nx, ny, nz, map);
+		} finally {
+			// the mapping stays valid after closing the channel
+			raf.close();
+		}
+	}
+
+	/**
+	 * Opens a grid file written by {@link #create(File, Point3d, double, int, int, int)}
+	 * or {@link #write(File)} as a read only memory mapped field
+	 *
+	 * @param file the grid file
+	 * @return the field backed by the file
+	 * @throws IOException if the file cannot be read or is not a grid file
+	 */
+	public static SignedDistanceField open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			if (raf.length() > Integer.MAX_VALUE) {
+				throw new IOException("The grid file exceeds 2 GB: " + file);
+			}
+			MappedByteBuffer map = raf.getChannel().map(MapMode.READ_ONLY, 0, raf.length());
+			map.order(ByteOrder.LITTLE_ENDIAN);
+			if ((raf.length() < HEADER_SIZE) || (map.getInt() != MAGIC)) {
+				throw new IOException("Not a signed distance field file: " + file);
+			}
+			int nx = map.getInt();
+			int ny = map.getInt();
+			int nz = map.getInt();
+			Point3d origin = new Point3d(map.getDouble(), map.getDouble(), map.getDouble());
+			double spacing = map.getDouble();
+			if (!(spacing > 0) || (nx <= 0) || (ny <= 0) || (nz <= 0)) {
+				throw new IOException("Corrupt signed distance field header: " + file);
+			}
+			if (raf.length() != HEADER_SIZE + 4L * nx * ny * nz) {
+				throw new IOException("Truncated signed distance field file: " + file);
+			}
+			return new SignedDistanceField(origin, spacing, nx, ny, nz, map);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Writes the field into a grid file through a memory mapping
+	 *
+	 * @param file the grid file, which is created or overwritten
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(File file) throws IOException {
+		SignedDistanceField target = create(file, getOrigin(), spacing, nx, ny, nz);
+		FloatBuffer source = buffer.duplicate();
+		source.rewind();
+		target.buffer.put(source);
+		target.flush();
+	}
+
+	/**
+	 * Forces the values of a memory mapped field to be written to the file.
+	 * Does nothing for a field held in memory.
+	 */
+	public void flush() {
+		if (mapping != null) {
+			mapping.force();
+		}
+	}
+
+	//**************************************************************************
+	// Computation
+	//**************************************************************************
+
+	/**
+	 * Computes the signed distances of all grid points to the surface of the
+	 * mesh
+	 *
+	 * @param mesh a closed, consistently oriented mesh
+	 */
+	public void compute(Mesh mesh) {
+		final TriangleBVH bvh = mesh.getTriangleBVH();
+		if (bvh.size() == 0) {
+			throw new IllegalArgumentException("The mesh does not contain any triangle");
+		}
+		final float[][] normals = pseudoNormals(mesh);
+		final int[] indices = mesh.getTriangleIndices();
+
+		Parallel.forRange(nz, 1, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				TriangleHit hit = new TriangleHit();
+				for (int k = from; k < to; ++k) {
+					double z = oz + k * spacing;
+					for (int j = 0; j < ny; ++j) {
+						double y = oy + j * spacing;
+						double previous = Double.POSITIVE_INFINITY;
+						for (int i = 0; i < nx; ++i) {
+							double x = ox + i * spacing;
+
+							// the distance changes at most by the spacing between neighbors
+							if (!bvh.closestPoint(x, y, z, previous + spacing, hit)) {
+								bvh.closestPoint(x, y, z, Double.POSITIVE_INFINITY, hit);
+							}
+							previous = hit.getDistance();
+
+							float sign = sign(x, y, z, hit, normals, indices);
+							buffer.put((k * ny + j) * nx + i, sign * (float) previous);
+						}
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Collects the vertex normals, triangle normals and edge pseudo normals
+	 * into flat arrays
+	 */
+	private float[][] pseudoNormals(Mesh mesh) {
+		int[] indices = mesh.getTriangleIndices();
+		float[] vertexNormals = new float[3 * mesh.sizePoints()];
+		float[] faceNormals = new float[3 * mesh.sizeTriangles()];
+		float[] edgeNormals = new float[9 * mesh.sizeTriangles()];
+
+		int t = 0;
+		for (Triangle triangle : mesh.getTriangles()) {
+			Vector3d n = normaleOf(triangle);
+			faceNormals[3 * t] = (float) n.x;
+			faceNormals[3 * t + 1] = (float) n.y;
+			faceNormals[3 * t + 2] = (float) n.z;
+
+			// only the angle weighted normal tells inside from outside at a corner
+			if (n.lengthSquared() > 0) {
+				for (Corner corner : Corner.values()) {
+					int v = 3 * indices[3 * t + corner.ordinal()];
+					float angle = (float) triangle.getAngle(corner);
+					vertexNormals[v] += angle * (float) n.x;
+					vertexNormals[v + 1] += angle * (float) n.y;
+					vertexNormals[v + 2] += angle * (float) n.z;
+				}
+			}
+
+			for (Corner corner : Corner.values()) {
+				Vector3d edgeNormal = new Vector3d(n);
+				MeshEdge twin = mesh.getEdge(triangle.getCorner(corner.getNext()),
+						triangle.getCorner(corner));
+				if (twin != null) {
+					edgeNormal.add(normaleOf(twin.getTriangle()));
+				}
+				int o = 9 * t + 3 * corner.ordinal();
+				edgeNormals[o] = (float) edgeNormal.x;
+				edgeNormals[o + 1] = (float) edgeNormal.y;
+				edgeNormals[o + 2] = (float) edgeNormal.z;
+			}
+			t++;
+		}
+
+		return new float[][] { vertexNormals, faceNormals, edgeNormals };
+	}
+
+	/**
+	 * @return the normal of the triangle or the zero vector for triangles
+	 *         without area, which have no defined normal
+	 */
+	private static Vector3d normaleOf(Triangle triangle) {
+		Vector3d n = triangle.getNormale();
+		if (Double.isNaN(n.x) || Double.isNaN(n.y) || Double.isNaN(n.z)) {
+			return new Vector3d();
+		}
+		return n;
+	}
+
+	private float sign(double x, double y, double z, TriangleHit hit,
+			float[][] normals, int[] indices) {
+		int t = hit.getTriangle();
+		double[] weights = { hit.getWeightA(), hit.getWeightB(), hit.getWeightC() };
+
+		int zero = -1;
+		int one = -1;
+		int features = 0;
+		for (int c = 0; c < 3; ++c) {
+			if (weights[c] > FEATURE_EPSILON) {
+				features++;
+				if (weights[c] > 1 - FEATURE_EPSILON) one = c;
+			} else {
+				zero = c;
+			}
+		}
+
+		float[] n;
+		int o;
+		if (one >= 0) {
+			n = normals[0];
+			o = 3 * indices[3 * t + one];
+		} else if (features == 2) {
+			// the edge opposite the corner with zero weight starts at the next corner
+			n = normals[2];
+			o = 9 * t + 3 * ((zero + 1) % 3);
+		} else {
+			n = normals[1];
+			o = 3 * t;
+		}
+
+		double dot = (x - hit.x) * n[o] + (y - hit.y) * n[o + 1] + (z - hit.z) * n[o + 2];
+		return (dot < 0) ? -1.0f : 1.0f;
+	}
+
+	//**************************************************************************
+	// Getters
+	//**************************************************************************
+
+	/**
+	 * @return the value at grid point (i, j, k)
+	 */
+	public float get(int i, int j, int k) {
+		return buffer.get((k * ny + j) * nx + i);
+	}
+
+	/**
+	 * Retrieves the position of a grid point
+	 * @param position array receiving x, y and z
+	 */
+	public void getGridPoint(int i, int j, int k, double[] position) {
+		position[0] = ox + i * spacing;
+		position[1] = oy + j * spacing;
+		position[2] = oz + k * spacing;
+	}
+
+	/**
+	 * @return the flat value array of a field held in memory or null for a
+	 *         memory mapped field
+	 */
+	public float[] getValues() {
+		return values;
+	}
+
+	/**
+	 * @return the values as a float buffer, which is backed by the array or
+	 *         the memory mapped file
+	 */
+	public FloatBuffer getBuffer() {
+		return buffer.duplicate();
+	}
+
+	/**
+	 * @return the position of grid point (0, 0, 0)
+	 */
+	public Point3d getOrigin() {
+		return new Point3d(ox, oy, oz);
+	}
+
+	/**
+	 * @return the distance between neighboring grid points
+	 */
+	public double getSpacing() {
+		return spacing;
+	}
+
+	public int getSizeX() {
+		return nx;
+	}
+
+	public int getSizeY() {
+		return ny;
+	}
+
+	public int getSizeZ() {
+		return nz;
+	}
+}
@@ -0,0 +1,794 @@
+package org.chof.surfcomp.trimesh.algorithms;
+
+import java.util.Arrays;
+
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.Triangle;
+import org.chof.surfcomp.trimesh.domain.Triangle.Corner;
+import org.chof.surfcomp.trimesh.tools.Parallel;
+
+/**
+ * Bounding volume hierarchy over the triangles of a mesh
+ * <p>
+ * The hierarchy is built top down with a binned surface area heuristic (SAH)
+ * and stored in flat arrays: six bounds per node, the index of the first
+ * child or first triangle and the number of triangles of a leaf. The corner
+ * coordinates of the triangles are copied in leaf order, so that a leaf is
+ * intersected by reading consecutive memory.</p>
+ * <p>
+ * The hierarchy answers closest point, first hit and any hit ray queries.
+ * Triangles are identified by their index in the mesh. The results are
+ * reported as {@link TriangleHit}.</p>
+ * <p>
+ * <b>Note</b>: The hierarchy is a snapshot of the coordinates at
+ * construction time. It has to be rebuilt if points move.</p>
+ *
+ * @author chof
+ */
+public class TriangleBVH {
+
+	private static final int BINS = 16;
+	private static final int MAX_LEAF_SIZE = 4;
+
+	/**
+	 * cost of visiting a node relative to the cost of a triangle test
+	 */
+	private static final double TRAVERSAL_COST = 1.0;
+
+	private static final double EPSILON = 1e-12;
+
+	private double[] vertices;
+	private int[] triangleIndex;
+
+	private double[] bounds;
+	private int[] nodeStart;
+	private int[] nodeCount;
+	private int nodes;
+	private int size;
+
+	/**
+	 * Builds the hierarchy over all triangles of the mesh
+	 *
+	 * @param mesh the mesh
+	 */
+	public TriangleBVH(Mesh mesh) {
+		this(coordinatesOf(mesh));
+	}
+
+	/**
+	 * Builds the hierarchy over triangles given as a flat array containing
+	 * the coordinates of corner A, B and C for each triangle, i.e. nine values
+	 * per triangle
+	 *
+	 * @param triangleCoordinates the flat array of corner coordinates
+	 */
+	public TriangleBVH(double[] triangleCoordinates) {
+		if (triangleCoordinates.length % 9 != 0) {
+			throw new IllegalArgumentException("The coordinate array must contain nine values per triangle");
+		}
+		size = triangleCoordinates.length / 9;
+		build(triangleCoordinates);
+	}
+
+	/**
+	 * Copies the corner coordinates of all triangles into a flat array
+	 *
+	 * @param mesh the mesh
+	 * @return an array with the coordinates of corner A, B and C for each
+	 *         triangle in order of the triangles
+	 */
+	public static double[] coordinatesOf(Mesh mesh) {
+		double[] coordinates = new double[9 * mesh.sizeTriangles()];
+		int i = 0;
+		for (Triangle t : mesh.getTriangles()) {
+			for (Corner corner : Corner.values()) {
+				Point3d p = t.getCorner(corner).getCoordinates();
+				coordinates[i++] = p.x;
+				coordinates[i++] = p.y;
+				coordinates[i++] = p.z;
+			}
+		}
+		return coordinates;
+	}
+
+	//**************************************************************************
+	// Construction
+	//**************************************************************************
+
+	private void build(double[] coordinates) {
+		int maxNodes = Math.max(1, 2 * size - 1);
+		bounds = new double[6 * maxNodes];
+		nodeStart = new int[maxNodes];
+		nodeCount = new int[maxNodes];
+
+		double[] centroids = new double[3 * size];
+		double[] triangleBounds = new double[6 * size];
+		int[] order = new int[size];
+
+		for (int t = 0; t < size; ++t) {
+			order[t] = t;
+			for (int axis = 0; axis < 3; ++axis) {
+				double v0 = coordinates[9 * t + axis];
+				double v1 = coordinates[9 * t + 3 + axis];
+				double v2 = coordinates[9 * t + 6 + axis];
+				double min = Math.min(v0, Math.min(v1, v2));
+				double max = Math.max(v0, Math.max(v1, v2));
+				triangleBounds[6 * t + axis] = min;
+				triangleBounds[6 * t + 3 + axis] = max;
+				centroids[3 * t + axis] = (v0 + v1 + v2) / 3.0;
+			}
+		}
+
+		// leaf ranges of nodes not yet processed
+		int[] first = new int[maxNodes];
+		int[] count = new int[maxNodes];
+		int[] stack = new int[64];
+		int top = 0;
+
+		nodes = 1;
+		first[0] = 0;
+		count[0] = size;
+		stack[top++] = 0;
+
+		int[] binCount = new int[BINS];
+		double[] binBounds = new double[6 * BINS];
+		double[] rightArea = new double[BINS];
+		int[] rightCount = new int[BINS];
+		double[] box = new double[6];
+		double[] centroidBox = new double[6];
+
+		while (top > 0) {
+			int node = stack[--top];
+			int start = first[node];
+			int n = count[node];
+
+			// node bounds and centroid bounds
+			emptyBox(box, 0);
+			emptyBox(centroidBox, 0);
+			for (int i = start; i < start + n; ++i) {
+				int t = order[i];
+				for (int axis = 0; axis < 3; ++axis) {
+					box[axis] = Math.min(box[axis], triangleBounds[6 * t + axis]);
+					box[axis + 3] = Math.max(box[axis + 3], triangleBounds[6 * t + 3 + axis]);
+					centroidBox[axis] = Math.min(centroidBox[axis], centroids[3 * t + axis]);
+					centroidBox[axis + 3] = Math.max(centroidBox[axis + 3], centroids[3 * t + axis]);
+				}
+			}
+			System.arraycopy(box, 0, bounds, 6 * node, 6);
+
+			int split = -1;
+			if (n > 1) {
+				int axis = 0;
+				for (int a = 1; a < 3; ++a) {
+					if (centroidBox[a + 3] - centroidBox[a] > centroidBox[axis + 3] - centroidBox[axis]) {
+						axis = a;
+					}
+				}
+				double cmin = centroidBox[axis];
+				double extent = centroidBox[axis + 3] - cmin;
+
+				if (extent > 0) {
+					double scale = BINS / extent;
+
+					Arrays.fill(binCount, 0);
+					for (int b = 0; b < BINS; ++b) {
+						emptyBox(binBounds, 6 * b);
+					}
+					for (int i = start; i < start + n; ++i) {
+						int t = order[i];
+						int b = bin(centroids[3 * t + axis], cmin, scale);
+						binCount[b]++;
+						growBox(binBounds, 6 * b, triangleBounds, 6 * t);
+					}
+
+					// sweep from the right to collect the areas of the right parts
+					emptyBox(box, 0);
+					int accumulated = 0;
+					for (int b = BINS - 1; b > 0; --b) {
+						growBox(box, 0, binBounds, 6 * b);
+						accumulated += binCount[b];
+						rightCount[b] = accumulated;
+						rightArea[b] = area(box, 0);
+					}
+
+					// sweep from the left and evaluate the split costs
+					double bestCost = Double.POSITIVE_INFINITY;
+					int bestBin = -1;
+					emptyBox(box, 0);
+					accumulated = 0;
+					for (int b = 1; b < BINS; ++b) {
+						growBox(box, 0, binBounds, 6 * (b - 1));
+						accumulated += binCount[b - 1];
+						if ((accumulated == 0) || (rightCount[b] == 0)) continue;
+						double cost = area(box, 0) * accumulated + rightArea[b] * rightCount[b];
+						if (cost < bestCost) {
+							bestCost = cost;
+							bestBin = b;
+						}
+					}
+
+					double nodeArea = area(bounds, 6 * node);
+					double leafCost = n;
+					double splitCost = TRAVERSAL_COST
+							+ ((nodeArea > 0) ? bestCost / nodeArea : n);
+
+					if ((bestBin > 0) && ((n > MAX_LEAF_SIZE) || (splitCost < leafCost))) {
+						// partition the range by bin
+						int i = start;
+						int j = start + n - 1;
+						while (i <= j) {
+							if (bin(centroids[3 * order[i] + axis], cmin, scale) < bestBin) {
+								i++;
+							} else {
+								int tmp = order[i];
+								order[i] = order[j];
+								order[j] = tmp;
+								j--;
+							}
+						}
+						split = i;
+					}
+				} else if (n > MAX_LEAF_SIZE) {
+					// all centroids coincide, split by count to keep leaves small
+					split = start + n / 2;
+				}
+			}
+
+			if ((split > start) && (split < start + n)) {
+				int left = nodes;
+				nodes += 2;
+				nodeStart[node] = left;
+				nodeCount[node] = 0;
+
+				first[left] = start;
+				count[left] = split - start;
+				first[left + 1] = split;
+				count[left + 1] = start + n - split;
+
+				if (top + 2 > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				}
+				stack[top++] = left + 1;
+				stack[top++] = left;
+			} else {
+				nodeStart[node] = start;
+				nodeCount[node] = Math.max(n, 1);
+				if (n == 0) {
+					// only the root of an empty hierarchy
+					nodeCount[node] = 0;
+					nodeStart[node] = -1;
+				}
+			}
+		}
+
+		vertices = new double[9 * size];
+		triangleIndex = new int[size];
+		for (int slot = 0; slot < size; ++slot) {
+			int t = order[slot];
+			triangleIndex[slot] = t;
+			System.arraycopy(coordinates, 9 * t, vertices, 9 * slot, 9);
+		}
+	}
+
+	private static int bin(double value, double min, double scale) {
+		int b = (int) ((value - min) * scale);
+		return (b >= BINS) ? BINS - 1 : (b < 0) ? 0 : b;
+	}
+
+	private static void emptyBox(double[] box, int offset) {
+		for (int axis = 0; axis < 3; ++axis) {
+			box[offset + axis] = Double.POSITIVE_INFINITY;
+			box[offset + axis + 3] = Double.NEGATIVE_INFINITY;
+		}
+	}
+
+	private static void growBox(double[] box, int offset, double[] other, int otherOffset) {
+		for (int axis = 0; axis < 3; ++axis) {
+			box[offset + axis] = Math.min(box[offset + axis], other[otherOffset + axis]);
+			box[offset + axis + 3] = Math.max(box[offset + axis + 3], other[otherOffset + axis + 3]);
+		}
+	}
+
+	private static double area(double[] box, int offset) {
+		double dx = box[offset + 3] - box[offset];
+		double dy = box[offset + 4] - box[offset + 1];
+		double dz = box[offset + 5] - box[offset + 2];
+		if ((dx < 0) || (dy < 0) || (dz < 0)) {
+			return 0;
+		}
+		return 2 * (dx * dy + dy * dz + dz * dx);
+	}
+
+	private boolean isLeaf(int node) {
+		return nodeCount[node] > 0;
+	}
+
+	//**************************************************************************
+	// Getters
+	//**************************************************************************
+
+	/**
+	 * @return the number of triangles in the hierarchy
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of nodes of the hierarchy
+	 */
+	public int sizeNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Retrieves the bounding box of all triangles
+	 * @param box array receiving minimum x, y, z followed by maximum x, y, z
+	 */
+	public void getBounds(double[] box) {
+		System.arraycopy(bounds, 0, box, 0, 6);
+	}
+
+	//**************************************************************************
+	// Closest point queries
+	//**************************************************************************
+
+	/**
+	 * Retrieves the point on the surface closest to the position
+	 *
+	 * @param position the query position
+	 * @return the hit describing the closest point
+	 */
+	public TriangleHit closestPoint(Point3d position) {
+		TriangleHit hit = new TriangleHit();
+		closestPoint(position.x, position.y, position.z,
+				Double.POSITIVE_INFINITY, hit);
+		return hit;
+	}
+
+	/**
+	 * Retrieves the point on the surface closest to the position, but only if
+	 * it lies within the maximum distance
+	 *
+	 * @param maxDistance the maximum distance of the closest point
+	 * @param hit the hit receiving the result
+	 * @return true if a point within the maximum distance was found
+	 */
+	public boolean closestPoint(double x, double y, double z,
+			double maxDistance, TriangleHit hit) {
+		hit.clear();
+		if (size == 0) {
+			return false;
+		}
+
+		double best = maxDistance * maxDistance;
+		double[] candidate = new double[6];
+		int[] stack = new int[64];
+		int top = 0;
+		stack[top++] = 0;
+
+		while (top > 0) {
+			int node = stack[--top];
+			if (boxDistance2(node, x, y, z) > best) continue;
+
+			if (isLeaf(node)) {
+				int end = nodeStart[node] + nodeCount[node];
+				for (int slot = nodeStart[node]; slot < end; ++slot) {
+					double d2 = closestOnTriangle(slot, x, y, z, candidate);
+					if ((d2 < best) || (!hit.isHit() && (d2 <= best))) {
+						best = d2;
+						hit.triangle = triangleIndex[slot];
+						hit.x = candidate[0];
+						hit.y = candidate[1];
+						hit.z = candidate[2];
+						hit.a = candidate[3];
+						hit.b = candidate[4];
+						hit.c = candidate[5];
+					}
+				}
+			} else {
+				int left = nodeStart[node];
+				int right = left + 1;
+				double dl = boxDistance2(left, x, y, z);
+				double dr = boxDistance2(right, x, y, z);
+
+				if (top + 2 > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				}
+				// push the farther child first to visit the nearer one first
+				if (dl <= dr) {
+					if (dr <= best) stack[top++] = right;
+					if (dl <= best) stack[top++] = left;
+				} else {
+					if (dl <= best) stack[top++] = left;
+					if (dr <= best) stack[top++] = right;
+				}
+			}
+		}
+
+		if (hit.isHit()) {
+			hit.distance = Math.sqrt(best);
+		}
+		return hit.isHit();
+	}
+
+	private double boxDistance2(int node, double x, double y, double z) {
+		int o = 6 * node;
+		double dx = Math.max(Math.max(bounds[o] - x, x - bounds[o + 3]), 0);
+		double dy = Math.max(Math.max(bounds[o + 1] - y, y - bounds[o + 4]), 0);
+		double dz = Math.max(Math.max(bounds[o + 2] - z, z - bounds[o + 5]), 0);
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * Closest point on a triangle after Ericson, Real-Time Collision
+	 * Detection, 5.1.5
+	 *
+	 * @param out receives the location followed by the barycentric weights
+	 * @return the squared distance between the query and the location
+	 */
+	private double closestOnTriangle(int slot, double px, double py, double pz,
+			double[] out) {
+		int o = 9 * slot;
+		double ax = vertices[o],     ay = vertices[o + 1], az = vertices[o + 2];
+		double bx = vertices[o + 3], by = vertices[o + 4], bz = vertices[o + 5];
+		double cx = vertices[o + 6], cy = vertices[o + 7], cz = vertices[o + 8];
+
+		double abx = bx - ax, aby = by - ay, abz = bz - az;
+		double acx = cx - ax, acy = cy - ay, acz = cz - az;
+		double apx = px - ax, apy = py - ay, apz = pz - az;
+
+		double d1 = abx * apx + aby * apy + abz * apz;
+		double d2 = acx * apx + acy * apy + acz * apz;
+		double u, v, w;
+
+		if ((d1 <= 0) && (d2 <= 0)) {
+			u = 1; v = 0; w = 0;
+		} else {
+			double bpx = px - bx, bpy = py - by, bpz = pz - bz;
+			double d3 = abx * bpx + aby * bpy + abz * bpz;
+			double d4 = acx * bpx + acy * bpy + acz * bpz;
+
+			double cpx = px - cx, cpy = py - cy, cpz = pz - cz;
+			double d5 = abx * cpx + aby * cpy + abz * cpz;
+			double d6 = acx * cpx + acy * cpy + acz * cpz;
+
+			double vc = d1 * d4 - d3 * d2;
+			double vb = d5 * d2 - d1 * d6;
+			double va = d3 * d6 - d5 * d4;
+
+			if ((d3 >= 0) && (d4 <= d3)) {
+				u = 0; v = 1; w = 0;
+			} else if ((vc <= 0) && (d1 >= 0) && (d3 <= 0)) {
+				v = d1 / (d1 - d3);
+				u = 1 - v; w = 0;
+			} else if ((d6 >= 0) && (d5 <= d6)) {
+				u = 0; v = 0; w = 1;
+			} else if ((vb <= 0) && (d2 >= 0) && (d6 <= 0)) {
+				w = d2 / (d2 - d6);
+				u = 1 - w; v = 0;
+			} else if ((va <= 0) && ((d4 - d3) >= 0) && ((d5 - d6) >= 0)) {
+				w = (d4 - d3) / ((d4 - d3) + (d5 - d6));
+				u = 0; v = 1 - w;
+			} else if (va + vb + vc > 0) {
+				double denominator = 1.0 / (va + vb + vc);
+				v = vb * denominator;
+				w = vc * denominator;
+				u = 1 - v - w;
+			} else {
+				// degenerate triangle: use the closest corner
+				double da = apx * apx + apy * apy + apz * apz;
+				double db = bpx * bpx + bpy * bpy + bpz * bpz;
+				double dc = cpx * cpx + cpy * cpy + cpz * cpz;
+				u = 0; v = 0; w = 0;
+				if ((da <= db) && (da <= dc)) u = 1;
+				else if (db <= dc) v = 1;
+				else w = 1;
+			}
+		}
+
+		double qx = u * ax + v * bx + w * cx;
+		double qy = u * ay + v * by + w * cy;
+		double qz = u * az + v * bz + w * cz;
+		out[0] = qx;
+		out[1] = qy;
+		out[2] = qz;
+		out[3] = u;
+		out[4] = v;
+		out[5] = w;
+
+		double dx = px - qx, dy = py - qy, dz = pz - qz;
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	//**************************************************************************
+	// Ray queries
+	//**************************************************************************
+
+	/**
+	 * Retrieves the first intersection of the ray with the surface
+	 *
+	 * @param origin the origin of the ray
+	 * @param direction the direction of the ray
+	 * @return the hit describing the first intersection, the distance is the
+	 *         ray parameter, i.e. the multiple of the direction vector
+	 */
+	public TriangleHit intersectRay(Point3d origin, Vector3d direction) {
+		TriangleHit hit = new TriangleHit();
+		intersectRay(origin.x, origin.y, origin.z,
+				direction.x, direction.y, direction.z,
+				Double.POSITIVE_INFINITY, hit);
+		return hit;
+	}
+
+	/**
+	 * Retrieves the first intersection of the ray with the surface within
+	 * the ray parameter range <code>(0, maxT]</code>
+	 *
+	 * @param hit the hit receiving the result
+	 * @return true if the ray intersects the surface
+	 */
+	public boolean intersectRay(double ox, double oy, double oz,
+			double dx, double dy, double dz, double maxT, TriangleHit hit) {
+		hit.clear();
+		traceRay(ox, oy, oz, dx, dy, dz, maxT, false, hit);
+		return hit.isHit();
+	}
+
+	/**
+	 * Checks whether the ray intersects the surface within the ray parameter
+	 * range <code>(0, maxT]</code>. The traversal stops at the first
+	 * intersection found, which is not necessarily the closest one.
+	 *
+	 * @param origin the origin of the ray
+	 * @param direction the direction of the ray
+	 * @param maxT the maximum ray parameter
+	 * @return true if the ray intersects any triangle
+	 */
+	public boolean intersectsRay(Point3d origin, Vector3d direction, double maxT) {
+		return intersectsRay(origin.x, origin.y, origin.z,
+				direction.x, direction.y, direction.z, maxT);
+	}
+
+	/**
+	 * @see #intersectsRay(Point3d, Vector3d, double)
+	 */
+	public boolean intersectsRay(double ox, double oy, double oz,
+			double dx, double dy, double dz, double maxT) {
+		TriangleHit hit = new TriangleHit();
+		traceRay(ox, oy, oz, dx, dy, dz, maxT, true, hit);
+		return hit.isHit();
+	}
+
+	private void traceRay(double ox, double oy, double oz,
+			double dx, double dy, double dz, double maxT, boolean anyHit,
+			TriangleHit hit) {
+		if (size == 0) {
+			return;
+		}
+
+		double ix = 1.0 / dx, iy = 1.0 / dy, iz = 1.0 / dz;
+		double best = maxT;
+		int[] stack = new int[64];
+		int top = 0;
+		stack[top++] = 0;
+
+		while (top > 0) {
+			int node = stack[--top];
+			if (slab(node, ox, oy, oz, ix, iy, iz, best) == Double.POSITIVE_INFINITY) continue;
+
+			if (isLeaf(node)) {
+				int end = nodeStart[node] + nodeCount[node];
+				for (int slot = nodeStart[node]; slot < end; ++slot) {
+					if (intersectTriangle(slot, ox, oy, oz, dx, dy, dz, best, hit)) {
+						best = hit.distance;
+						if (anyHit) {
+							return;
+						}
+					}
+				}
+			} else {
+				int left = nodeStart[node];
+				int right = left + 1;
+				double tl = slab(left, ox, oy, oz, ix, iy, iz, best);
+				double tr = slab(right, ox, oy, oz, ix, iy, iz, best);
+
+				if (top + 2 > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				}
+				if (tl <= tr) {
+					if (tr != Double.POSITIVE_INFINITY) stack[top++] = right;
+					if (tl != Double.POSITIVE_INFINITY) stack[top++] = left;
+				} else {
+					if (tl != Double.POSITIVE_INFINITY) stack[top++] = left;
+					if (tr != Double.POSITIVE_INFINITY) stack[top++] = right;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Slab test of the ray against the bounds of the node
+	 *
+	 * @return the entry parameter of the ray or positive infinity if the box
+	 *         is missed within <code>[0, maxT]</code>
+	 */
+	private double slab(int node, double ox, double oy, double oz,
+			double ix, double iy, double iz, double maxT) {
+		int o = 6 * node;
+		double tmin = 0;
+		double tmax = maxT;
+		double t0, t1;
+
+		if (Double.isInfinite(ix)) {
+			// ray parallel to the slab
+			if ((ox < bounds[o]) || (ox > bounds[o + 3])) return Double.POSITIVE_INFINITY;
+		} else {
+			t0 = (bounds[o] - ox) * ix;
+			t1 = (bounds[o + 3] - ox) * ix;
+			tmin = Math.max(tmin, Math.min(t0, t1));
+			tmax = Math.min(tmax, Math.max(t0, t1));
+		}
+
+		if (Double.isInfinite(iy)) {
+			if ((oy < bounds[o + 1]) || (oy > bounds[o + 4])) return Double.POSITIVE_INFINITY;
+		} else {
+			t0 = (bounds[o + 1] - oy) * iy;
+			t1 = (bounds[o + 4] - oy) * iy;
+			tmin = Math.max(tmin, Math.min(t0, t1));
+			tmax = Math.min(tmax, Math.max(t0, t1));
+		}
+
+		if (Double.isInfinite(iz)) {
+			if ((oz < bounds[o + 2]) || (oz > bounds[o + 5])) return Double.POSITIVE_INFINITY;
+		} else {
+			t0 = (bounds[o + 2] - oz) * iz;
+			t1 = (bounds[o + 5] - oz) * iz;
+			tmin = Math.max(tmin, Math.min(t0, t1));
+			tmax = Math.min(tmax, Math.max(t0, t1));
+		}
+
+		return (tmin <= tmax) ? tmin : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Moeller-Trumbore ray triangle intersection. The hit is only updated if
+	 * the intersection lies within <code>(0, maxT]</code>
+	 */
+	private boolean intersectTriangle(int slot, double ox, double oy, double oz,
+			double dx, double dy, double dz, double maxT, TriangleHit hit) {
+		int o = 9 * slot;
+		double ax = vertices[o],     ay = vertices[o + 1], az = vertices[o + 2];
+		double e1x = vertices[o + 3] - ax, e1y = vertices[o + 4] - ay, e1z = vertices[o + 5] - az;
+		double e2x = vertices[o + 6] - ax, e2y = vertices[o + 7] - ay, e2z = vertices[o + 8] - az;
+
+		double px = dy * e2z - dz * e2y;
+		double py = dz * e2x - dx * e2z;
+		double pz = dx * e2y - dy * e2x;
+		double det = e1x * px + e1y * py + e1z * pz;
+		if (Math.abs(det) < EPSILON) {
+			return false;
+		}
+		double inverse = 1.0 / det;
+
+		double tx = ox - ax, ty = oy - ay, tz = oz - az;
+		double v = (tx * px + ty * py + tz * pz) * inverse;
+		if ((v < 0) || (v > 1)) {
+			return false;
+		}
+
+		double qx = ty * e1z - tz * e1y;
+		double qy = tz * e1x - tx * e1z;
+		double qz = tx * e1y - ty * e1x;
+		double w = (dx * qx + dy * qy + dz * qz) * inverse;
+		if ((w < 0) || (v + w > 1)) {
+			return false;
+		}
+
+		double t = (e2x * qx + e2y * qy + e2z * qz) * inverse;
+		if ((t <= 0) || (t > maxT)) {
+			return false;
+		}
+
+		hit.triangle = triangleIndex[slot];
+		hit.distance = t;
+		hit.x = ox + t * dx;
+		hit.y = oy + t * dy;
+		hit.z = oz + t * dz;
+		hit.a = 1 - v - w;
+		hit.b = v;
+		hit.c = w;
+		return true;
+	}
+
+	//**************************************************************************
+	// Batch queries
+	//**************************************************************************
+
+	/**
+	 * Retrieves the closest surface points for many query positions in
+	 * parallel
+	 *
+	 * @param positions flat array with x, y, z of each query position
+	 * @param maxDistance the maximum distance of interest
+	 * @return one hit per query position, hits for positions without a
+	 *         surface point within the maximum distance are cleared
+	 */
+	public TriangleHit[] closestPoints(final double[] positions,
+			final double maxDistance) {
+		final TriangleHit[] hits = new TriangleHit[positions.length / 3];
+
+		Parallel.forRange(hits.length, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				for (int i = from; i < to; ++i) {
+					hits[i] = new TriangleHit();
+					closestPoint(positions[3 * i], positions[3 * i + 1],
+							positions[3 * i + 2], maxDistance, hits[i]);
+				}
+			}
+		});
+
+		return hits;
+	}
+
+	/**
+	 * Retrieves the first intersections of many rays in parallel
+	 *
+	 * @param origins flat array with x, y, z of each ray origin
+	 * @param directions flat array with x, y, z of each ray direction
+	 * @return one hit per ray, the hits of rays missing the surface are cleared
+	 */
+	public TriangleHit[] intersectRays(final double[] origins,
+			final double[] directions) {
+		if (origins.length != directions.length) {
+			throw new IllegalArgumentException("origins and directions must have the same length");
+		}
+		final TriangleHit[] hits = new TriangleHit[origins.length / 3];
+
+		Parallel.forRange(hits.length, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				for (int i = from; i < to; ++i) {
+					hits[i] = new TriangleHit();
+					intersectRay(origins[3 * i], origins[3 * i + 1], origins[3 * i + 2],
+							directions[3 * i], directions[3 * i + 1], directions[3 * i + 2],
+							Double.POSITIVE_INFINITY, hits[i]);
+				}
+			}
+		});
+
+		return hits;
+	}
+
+	/**
+	 * Checks many rays for any intersection in parallel
+	 *
+	 * @param origins flat array with x, y, z of each ray origin
+	 * @param directions flat array with x, y, z of each ray direction
+	 * @param maxT the maximum ray parameter
+	 * @return for each ray true if it intersects the surface
+	 */
+	public boolean[] intersectsRays(final double[] origins,
+			final double[] directions, final double maxT) {
+		if (origins.length != directions.length) {
+			throw new IllegalArgumentException("origins and directions must have the same length");
+		}
+		final boolean[] result = new boolean[origins.length / 3];
+
+		Parallel.forRange(result.length, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				for (int i = from; i < to; ++i) {
+					result[i] = intersectsRay(origins[3 * i], origins[3 * i + 1], origins[3 * i + 2],
+							directions[3 * i], directions[3 * i + 1], directions[3 * i + 2], maxT);
+				}
+			}
+		});
+
+		return result;
+	}
+}
@@ -0,0 +1,107 @@
+package org.chof.surfcomp.trimesh.algorithms;
+
+import javax.vecmath.Point3d;
+
+/**
+ * Result of a closest point or ray query against a {@link TriangleBVH}
+ * <p>
+ * The hit describes the triangle found, the location on the triangle and its
+ * barycentric weights with respect to the corners A, B and C, i.e.
+ * <code>location = a * A + b * B + c * C</code>.</p>
+ * <p>
+ * For closest point queries the distance is the euclidean distance between
+ * the query position and the location, for ray queries it is the ray
+ * parameter of the intersection.</p>
+ *
+ * @author chof
+ */
+public class TriangleHit {
+
+	int triangle = -1;
+	double distance = Double.POSITIVE_INFINITY;
+	double x, y, z;
+	double a, b, c;
+
+	/**
+	 * @return true if a triangle was found by the query
+	 */
+	public boolean isHit() {
+		return triangle >= 0;
+	}
+
+	/**
+	 * @return the index of the triangle in the mesh or -1 for no hit
+	 */
+	public int getTriangle() {
+		return triangle;
+	}
+
+	/**
+	 * @return the distance to the closest point or the ray parameter of the
+	 *         intersection
+	 */
+	public double getDistance() {
+		return distance;
+	}
+
+	/**
+	 * @return the location of the hit on the triangle
+	 */
+	public Point3d getLocation() {
+		return new Point3d(x, y, z);
+	}
+
+	/**
+	 * Retrieves the location of the hit on the triangle into the given array
+	 * @param location array receiving x, y and z
+	 */
+	public void getLocation(double[] location) {
+		location[0] = x;
+		location[1] = y;
+		location[2] = z;
+	}
+
+	/**
+	 * @return the barycentric weight of corner A
+	 */
+	public double getWeightA() {
+		return a;
+	}
+
+	/**
+	 * @return the barycentric weight of corner B
+	 */
+	public double getWeightB() {
+		return b;
+	}
+
+	/**
+	 * @return the barycentric weight of corner C
+	 */
+	public double getWeightC() {
+		return c;
+	}
+
+	/**
+	 * Resets the hit to the state of no triangle found
+	 */
+	public void clear() {
+		triangle = -1;
+		distance = Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Copies the contents of another hit into this hit
+	 * @param source the source hit
+	 */
+	public void set(TriangleHit source) {
+		triangle = source.triangle;
+		distance = source.distance;
+		x = source.x;
+		y = source.y;
+		z = source.z;
+		a = source.a;
+		b = source.b;
+		c = source.c;
+	}
+}
@@ -0,0 +1,219 @@
+package org.chof.surfcomp.trimesh.algorithms;
+
+import java.util.Arrays;
+
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.tools.DoubleHeap;
+import org.chof.surfcomp.trimesh.tools.IntList;
+import org.chof.surfcomp.trimesh.tools.Parallel;
+import org.chof.surfcomp.trimesh.tools.ValueInterpolation;
+
+/**
+ * Selects a subset of the points of a mesh with a given spacing and
+ * interpolates values from the selected points back to all points
+ * <p>
+ * Distances are measured as shortest paths along the edges. Both sampling
+ * methods guarantee that every point lies within the spacing of a sample and
+ * that every connected part of the surface has a sample:</p>
+ * <ul>
+ * <li>{@link Method#POISSON_DISK} walks over the points in index order and
+ * takes each point not yet within the spacing of a sample. Its cost is
+ * linear in the number of points.</li>
+ * <li>{@link Method#FARTHEST_POINT} repeatedly takes the point farthest from
+ * all samples until all points are within the spacing. The samples are
+ * spread more evenly at a somewhat higher cost.</li>
+ * </ul>
+ * <p>
+ * After sampling each point knows its closest sample. A value at a point is
+ * interpolated from the closest samples of the point itself and of its
+ * direct neighbors, weighted by the inverse square of the path length to
+ * each sample. This blends the values smoothly across the borders of the
+ * sample regions.</p>
+ *
+ * @author chof
+ */
+public class VertexSampler {
+
+	/**
+	 * The strategy to select the samples
+	 */
+	public enum Method {
+		/** first come first served within the spacing */
+		POISSON_DISK,
+		/** greedy farthest point sampling */
+		FARTHEST_POINT
+	}
+
+	private final EdgeGraph graph;
+	private int[] samples = null;
+	private double[] distance = null;
+	private int[] nearest = null;
+
+	/**
+	 * Constructs a sampler over the points of a mesh
+	 */
+	public VertexSampler(Mesh mesh) {
+		this(mesh.getEdgeGraph());
+	}
+
+	/**
+	 * Constructs a sampler over the points of an edge graph
+	 */
+	public VertexSampler(EdgeGraph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * Selects the samples
+	 *
+	 * @param method the sampling method
+	 * @param spacing the distance along the surface below which each point
+	 *        has a sample
+	 * @return the indices of the sample points in the order of selection
+	 */
+	public int[] sample(Method method, double spacing) {
+		if (!(spacing > 0)) {
+			throw new IllegalArgumentException("The spacing must be positive");
+		}
+		int n = graph.size();
+		distance = new double[n];
+		nearest = new int[n];
+		Arrays.fill(distance, Double.POSITIVE_INFINITY);
+		Arrays.fill(nearest, -1);
+
+		IntList selected = new IntList();
+		DoubleHeap heap = new DoubleHeap();
+		if (method == Method.POISSON_DISK) {
+			for (int i = 0; i < n; ++i) {
+				if (distance[i] > spacing) {
+					graph.spread(i, selected.size(), spacing, distance, nearest, heap, null);
+					selected.add(i);
+				}
+			}
+		} else {
+			// max heap of the distances by negated keys, outdated entries are
+			// skipped when they come up
+			DoubleHeap farthest = new DoubleHeap(n);
+			IntList changed = new IntList();
+			for (int i = 0; i < n; ++i) {
+				farthest.push(Double.NEGATIVE_INFINITY, i);
+			}
+			while (!farthest.isEmpty()) {
+				double d = -farthest.peekKey();
+				int v = farthest.pop();
+				if (d != distance[v]) continue;
+				if (d <= spacing) break;
+
+				changed.clear();
+				graph.spread(v, selected.size(), Double.POSITIVE_INFINITY, distance,
+						nearest, heap, changed);
+				selected.add(v);
+				for (int k = 0; k < changed.size(); ++k) {
+					int w = changed.get(k);
+					farthest.push(-distance[w], w);
+				}
+			}
+		}
+
+		samples = selected.toArray();
+		return samples.clone();
+	}
+
+	/**
+	 * @return the distance of each point to its closest sample, shared with
+	 *         the caller and not to be modified
+	 */
+	public double[] getDistances() {
+		checkSampled();
+		return distance;
+	}
+
+	/**
+	 * @return the position in the sample array of the closest sample of each
+	 *         point, shared with the caller and not to be modified
+	 */
+	public int[] getNearestSamples() {
+		checkSampled();
+		return nearest;
+	}
+
+	private void checkSampled() {
+		if (samples == null) {
+			throw new IllegalStateException("No samples have been selected");
+		}
+	}
+
+	/**
+	 * Interpolates values given at the samples to all points
+	 *
+	 * @param values the value of each sample in the order of the samples
+	 * @return the interpolated value of each point, the value of the sample
+	 *         itself at the sample points
+	 */
+	public Object[] interpolate(final Object[] values) {
+		checkSampled();
+		if (values.length != samples.length) {
+			throw new IllegalArgumentException("Expected " + samples.length
+					+ " values but got " + values.length);
+		}
+
+		final int[] start = graph.getStart();
+		final int[] neighbors = graph.getNeighbors();
+		final double[] lengths = graph.getLengths();
+		final Object[] result = new Object[graph.size()];
+
+		Parallel.forRange(result.length, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				int[] candidates = new int[16];
+				double[] paths = new double[16];
+				Object[] picked = new Object[16];
+				for (int i = from; i < to; ++i) {
+					if (nearest[i] < 0) continue;
+					if (distance[i] == 0) {
+						result[i] = values[nearest[i]];
+						continue;
+					}
+
+					int degree = start[i + 1] - start[i];
+					if (candidates.length <= degree) {
+						candidates = new int[2 * (degree + 1)];
+						paths = new double[candidates.length];
+						picked = new Object[candidates.length];
+					}
+
+					// closest sample of the point and its neighbors, each once
+					int count = 0;
+					count = addCandidate(candidates, paths, count, nearest[i], distance[i]);
+					for (int p = start[i]; p < start[i + 1]; ++p) {
+						int j = neighbors[p];
+						if (nearest[j] >= 0) {
+							count = addCandidate(candidates, paths, count, nearest[j],
+									distance[j] + lengths[p]);
+						}
+					}
+
+					for (int c = 0; c < count; ++c) {
+						picked[c] = values[candidates[c]];
+						paths[c] = 1.0 / (paths[c] * paths[c]);
+					}
+					result[i] = ValueInterpolation.interpolate(picked, paths, count);
+				}
+			}
+		});
+		return result;
+	}
+
+	private static int addCandidate(int[] candidates, double[] paths, int count,
+			int sample, double path) {
+		for (int c = 0; c < count; ++c) {
+			if (candidates[c] == sample) {
+				paths[c] = Math.min(paths[c], path);
+				return count;
+			}
+		}
+		candidates[count] = sample;
+		paths[count] = path;
+		return count + 1;
+	}
+}
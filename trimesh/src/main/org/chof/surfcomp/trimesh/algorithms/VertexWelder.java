@@ -0,0 +1,296 @@
+package org.chof.surfcomp.trimesh.algorithms;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.Point;
+import org.chof.surfcomp.trimesh.domain.Triangle;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.metrics.Metrics;
+import org.chof.surfcomp.trimesh.tools.IntList;
+import org.chof.surfcomp.trimesh.tools.Parallel;
+
+/**
+ * Merges coincident points of a mesh
+ * <p>
+ * Surface programs like MSMS write the points on the seams between patches
+ * of the analytic surface several times. The copies split the surface into
+ * unconnected patches and triangles referring to different copies of an
+ * edge are rejected by the mesh. The welder joins each point with the point
+ * of the lowest index within the welding distance, found in parallel over a
+ * {@link PointGridIndex}, which takes expected linear time. Points joined
+ * this way form a welded point, which is numbered in the order of its first
+ * point.</p>
+ * <p>
+ * The welded copy of a mesh adds the index of the first point as property
+ * {@link MeshReordering#ORIGINAL_INDEX} if the point does not carry one yet,
+ * thus the index in the file survives welding and reordering. The
+ * corners of the triangles are mapped to the welded points, triangles with
+ * two corners on the same welded point are dropped.</p>
+ *
+ * @author chof
+ */
+public class VertexWelder {
+
+	/**
+	 * How the welded point is derived from the points merged into it
+	 */
+	public enum Policy {
+		/** coordinates, normal and properties of the first point */
+		FIRST,
+		/**
+		 * averaged coordinates, normals and double valued properties, other
+		 * properties of the first point
+		 */
+		AVERAGE
+	}
+
+	private final int[] representatives;
+	private final int[] points;
+
+	/**
+	 * Determines the welded points of a mesh
+	 *
+	 * @param distance the distance up to which points are merged
+	 */
+	public VertexWelder(Mesh mesh, double distance) {
+		this(PointGridIndex.coordinatesOf(mesh), distance);
+	}
+
+	/**
+	 * Determines the welded points given as flat coordinate array
+	 *
+	 * @param coordinates x, y and z of each point
+	 * @param distance the distance up to which points are merged
+	 */
+	public VertexWelder(double[] coordinates, final double distance) {
+		if (!(distance >= 0)) {
+			throw new IllegalArgumentException("The distance must not be negative");
+		}
+		long start = Metrics.start();
+		final int n = coordinates.length / 3;
+		final PointGridIndex index = new PointGridIndex(coordinates);
+
+		// the point of lowest index within the distance, at most the point itself
+		final int[] first = new int[n];
+		Parallel.forRange(n, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				IntList buffer = new IntList();
+				double[] p = new double[3];
+				for (int i = from; i < to; ++i) {
+					buffer.clear();
+					index.getCoordinates(i, p);
+					index.withinRadius(p[0], p[1], p[2], distance, -1, buffer);
+					int lowest = i;
+					for (int k = 0; k < buffer.size(); ++k) {
+						lowest = Math.min(lowest, buffer.get(k));
+					}
+					first[i] = lowest;
+				}
+			}
+		});
+
+		representatives = new int[n];
+		IntList welded = new IntList();
+		for (int i = 0; i < n; ++i) {
+			if (first[i] == i) {
+				representatives[i] = welded.size();
+				welded.add(i);
+			} else {
+				representatives[i] = representatives[first[i]];
+			}
+		}
+		points = welded.toArray();
+		Metrics.stop("welder.weld", start);
+		Metrics.count("welder.points.merged", n - points.length);
+	}
+
+	//**************************************************************************
+	// Getters
+	//**************************************************************************
+
+	/**
+	 * @return the index of the welded point of each source point
+	 */
+	public int[] getRepresentatives() {
+		return representatives;
+	}
+
+	/**
+	 * @return the index of the first source point of each welded point
+	 */
+	public int[] getPoints() {
+		return points;
+	}
+
+	/**
+	 * @return the number of points merged into others
+	 */
+	public int sizeMerged() {
+		return representatives.length - points.length;
+	}
+
+	/**
+	 * Maps the corners of triangles to the welded points
+	 *
+	 * @param triangles the point indices of the three corners of each triangle
+	 * @return the welded corners of the triangles still having three
+	 *         different corners
+	 */
+	public int[] weldTriangles(int[] triangles) {
+		IntList result = new IntList(triangles.length);
+		for (int t = 0; t < triangles.length; t += 3) {
+			int a = representatives[triangles[t]];
+			int b = representatives[triangles[t + 1]];
+			int c = representatives[triangles[t + 2]];
+			if ((a != b) && (b != c) && (c != a)) {
+				result.add(a);
+				result.add(b);
+				result.add(c);
+			}
+		}
+		return result.toArray();
+	}
+
+	//**************************************************************************
+	// Welding
+	//**************************************************************************
+
+	/**
+	 * Copies the welded points and the remaining triangles of a mesh
+	 *
+	 * @param source the mesh the welding was determined for
+	 * @param target an empty mesh receiving the copies
+	 * @param policy how the welded points are derived
+	 * @return the target
+	 * @throws IllegalArgumentException if the source does not match the welding
+	 */
+	public <M extends Mesh> M apply(Mesh source, M target, Policy policy)
+			throws TrimeshException {
+		addPoints(source, target, policy);
+		int[] corners = source.getTriangleIndices();
+		for (int t = 0; t < source.sizeTriangles(); ++t) {
+			int index = addTriangle(target, corners[3 * t], corners[3 * t + 1],
+					corners[3 * t + 2]);
+			if (index >= 0) {
+				Triangle triangle = target.getTriangle(index);
+				triangle.setProperties(source.getTriangle(t).getProperties());
+				if (triangle.getProperty(MeshReordering.ORIGINAL_INDEX) == null) {
+					triangle.setProperty(MeshReordering.ORIGINAL_INDEX, t);
+				}
+			}
+		}
+		return target;
+	}
+
+	/**
+	 * Copies the welded points of a mesh without the triangles
+	 *
+	 * @param source the mesh the welding was determined for
+	 * @param target an empty mesh receiving the welded points
+	 * @param policy how the welded points are derived
+	 * @return the target
+	 * @see #addTriangle(Mesh, int, int, int)
+	 */
+	public <M extends Mesh> M addPoints(Mesh source, M target, Policy policy)
+			throws TrimeshException {
+		if (source.sizePoints() != representatives.length) {
+			throw new IllegalArgumentException("The mesh does not match the welding");
+		}
+		Point[] welded = new Point[points.length];
+		for (int k = 0; k < points.length; ++k) {
+			welded[k] = new Point(source.getPoint(points[k]));
+			if (welded[k].getProperty(MeshReordering.ORIGINAL_INDEX) == null) {
+				welded[k].setProperty(MeshReordering.ORIGINAL_INDEX, points[k]);
+			}
+		}
+
+		if (policy == Policy.AVERAGE) {
+			average(source, welded);
+		}
+
+		for (Point point : welded) {
+			target.addPoint(point);
+		}
+		return target;
+	}
+
+	/**
+	 * Adds a triangle of the source to a target filled by
+	 * {@link #addPoints(Mesh, Mesh, Policy)}
+	 *
+	 * @param a the source index of the first corner
+	 * @param b the source index of the second corner
+	 * @param c the source index of the third corner
+	 * @return the index of the triangle or -1 if it has two corners on the
+	 *         same welded point or was rejected by the target
+	 */
+	public int addTriangle(Mesh target, int a, int b, int c) throws TrimeshException {
+		a = representatives[a];
+		b = representatives[b];
+		c = representatives[c];
+		if ((a == b) || (b == c) || (c == a)) {
+			Metrics.count("welder.triangles.degenerate", 1);
+			return -1;
+		}
+		return target.addTriangle(a, b, c);
+	}
+
+	/**
+	 * Replaces coordinates, normals and double valued properties of the
+	 * welded points by the averages over their source points, a property is
+	 * averaged over the source points carrying it
+	 */
+	private void average(Mesh source, Point[] welded) {
+		// the source points of each welded point in compressed rows
+		int[] start = new int[points.length + 1];
+		for (int k : representatives) {
+			start[k + 1]++;
+		}
+		for (int k = 0; k < points.length; ++k) {
+			start[k + 1] += start[k];
+		}
+		int[] fill = Arrays.copyOf(start, points.length);
+		int[] members = new int[representatives.length];
+		for (int i = 0; i < representatives.length; ++i) {
+			members[fill[representatives[i]]++] = i;
+		}
+
+		for (int k = 0; k < points.length; ++k) {
+			int count = start[k + 1] - start[k];
+			if (count == 1) continue;
+			Point3d coordinates = new Point3d();
+			Vector3d normal = new Vector3d();
+			for (int m = start[k]; m < start[k + 1]; ++m) {
+				Point p = source.getPoint(members[m]);
+				coordinates.add(p.getCoordinates());
+				normal.add(p.getNormale());
+			}
+			coordinates.scale(1.0 / count);
+			welded[k].setCoordinates(coordinates);
+			if (normal.lengthSquared() > 0) {
+				normal.normalize();
+				welded[k].setNormale(normal);
+			}
+
+			for (Map.Entry<Object, Object> entry : welded[k].getProperties().entrySet()) {
+				if (!(entry.getValue() instanceof Double)) continue;
+				double sum = 0;
+				int carrying = 0;
+				for (int m = start[k]; m < start[k + 1]; ++m) {
+					Object value = source.getPoint(members[m]).getProperty(entry.getKey());
+					if (value instanceof Double) {
+						sum += (Double) value;
+						carrying++;
+					}
+				}
+				entry.setValue(sum / carrying);
+			}
+		}
+	}
+}
@@ -0,0 +1,399 @@
+package org.chof.surfcomp.trimesh.algorithms;
+
+import java.util.Arrays;
+
+import javax.vecmath.Point3d;
+
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.tools.IntList;
+import org.chof.surfcomp.trimesh.tools.Parallel;
+
+/**
+ * Rasterizes the triangles of a mesh into a {@link BitGrid}
+ * <p>
+ * In {@link Mode#SOLID} mode every voxel whose center lies inside the closed
+ * surface is set. Each z slab is filled independently: the rows of the slab
+ * are intersected with the triangles spanning the slab and the voxels between
+ * pairs of crossings are set word by word. Crossings exactly on shared edges
+ * or vertices are counted once by a top-left rule on the projected triangles,
+ * thus the parity stays correct for rows touching the tessellation.</p>
+ * <p>
+ * In {@link Mode#SURFACE} mode every voxel touched by a triangle is set. The
+ * test is conservative, voxels just touching a triangle in a point or along an
+ * edge are set, too. Besides the bounding box of the triangle the plane of the
+ * triangle and the projections of the triangle onto the xy, yz and zx planes
+ * are tested against the voxel.</p>
+ *
+ * @author chof
+ */
+public class Voxelizer {
+
+	/**
+	 * The kind of occupancy written into the grid
+	 */
+	public enum Mode {
+		/** voxels with their center inside the surface */
+		SOLID,
+		/** voxels touched by the surface */
+		SURFACE
+	}
+
+	private final double[] vertices;
+	private final int size;
+
+	/**
+	 * Constructs a voxelizer for the triangles of the mesh
+	 */
+	public Voxelizer(Mesh mesh) {
+		this(TriangleBVH.coordinatesOf(mesh));
+	}
+
+	/**
+	 * Constructs a voxelizer for triangles given by their coordinates
+	 *
+	 * @param coordinates x, y and z of corner A, B and C for each triangle
+	 */
+	public Voxelizer(double[] coordinates) {
+		if (coordinates.length % 9 != 0) {
+			throw new IllegalArgumentException("Nine coordinates per triangle expected");
+		}
+		this.vertices = coordinates;
+		this.size = coordinates.length / 9;
+	}
+
+	/**
+	 * Voxelizes the triangles into a new grid enclosing all triangles with a
+	 * margin of one voxel
+	 *
+	 * @param spacing the edge length of the voxels
+	 * @param mode solid or surface occupancy
+	 * @return the new grid
+	 */
+	public BitGrid voxelize(double spacing, Mode mode) {
+		if (size == 0) {
+			throw new IllegalArgumentException("There are no triangles to voxelize");
+		}
+
+		double[] box = new double[6];
+		Arrays.fill(box, 0, 3, Double.POSITIVE_INFINITY);
+		Arrays.fill(box, 3, 6, Double.NEGATIVE_INFINITY);
+		for (int i = 0; i < vertices.length; ++i) {
+			int axis = i % 3;
+			box[axis] = Math.min(box[axis], vertices[i]);
+			box[axis + 3] = Math.max(box[axis + 3], vertices[i]);
+		}
+
+		int[] dimensions = new int[3];
+		for (int axis = 0; axis < 3; ++axis) {
+			box[axis] -= spacing;
+			dimensions[axis] = (int) Math.ceil((box[axis + 3] + spacing - box[axis]) / spacing) + 1;
+		}
+
+		BitGrid grid = new BitGrid(new Point3d(box[0], box[1], box[2]), spacing,
+				dimensions[0], dimensions[1], dimensions[2]);
+		voxelize(grid, mode);
+		return grid;
+	}
+
+	/**
+	 * Voxelizes the triangles into an existing grid. Voxels are only set, never
+	 * cleared, thus several meshes can be combined in one grid.
+	 *
+	 * @param grid the grid receiving the occupancy
+	 * @param mode solid or surface occupancy
+	 */
+	public void voxelize(BitGrid grid, Mode mode) {
+		if (mode == Mode.SOLID) {
+			fillSolid(grid);
+		} else {
+			fillSurface(grid);
+		}
+	}
+
+	//**************************************************************************
+	// Slab assignment
+	//**************************************************************************
+
+	/**
+	 * Assigns the triangles to the z slabs of the grid they reach
+	 *
+	 * @param extent how far a triangle may be from the center plane of a slab
+	 * @return the start offsets of the slabs (nz + 1 entries) and the triangle
+	 *         indices ordered by slab
+	 */
+	private int[][] slabs(BitGrid grid, double extent) {
+		int nz = grid.getSizeZ();
+		double oz = grid.getOrigin().z;
+		double spacing = grid.getSpacing();
+
+		int[] first = new int[size];
+		int[] last = new int[size];
+		int[] start = new int[nz + 1];
+
+		for (int t = 0; t < size; ++t) {
+			double z0 = vertices[9 * t + 2], z1 = vertices[9 * t + 5], z2 = vertices[9 * t + 8];
+			double zmin = Math.min(z0, Math.min(z1, z2)) - extent;
+			double zmax = Math.max(z0, Math.max(z1, z2)) + extent;
+			first[t] = (int) Math.max(0, Math.ceil((zmin - oz) / spacing));
+			last[t] = (int) Math.min(nz - 1, Math.floor((zmax - oz) / spacing));
+			for (int k = first[t]; k <= last[t]; ++k) {
+				start[k + 1]++;
+			}
+		}
+
+		for (int k = 0; k < nz; ++k) {
+			start[k + 1] += start[k];
+		}
+
+		int[] fill = Arrays.copyOf(start, nz);
+		int[] triangles = new int[start[nz]];
+		for (int t = 0; t < size; ++t) {
+			for (int k = first[t]; k <= last[t]; ++k) {
+				triangles[fill[k]++] = t;
+			}
+		}
+
+		return new int[][] { start, triangles };
+	}
+
+	//**************************************************************************
+	// Solid filling
+	//**************************************************************************
+
+	private void fillSolid(final BitGrid grid) {
+		final int[][] slabs = slabs(grid, 0);
+		final int ny = grid.getSizeY();
+		final Point3d origin = grid.getOrigin();
+		final double spacing = grid.getSpacing();
+
+		Parallel.forRange(grid.getSizeZ(), 1, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				IntList rows = new IntList();
+				double[] xs = new double[64];
+				int[] rowStart = new int[ny + 1];
+				double[] sorted = new double[64];
+
+				for (int k = from; k < to; ++k) {
+					double z = origin.z + k * spacing;
+					rows.clear();
+
+					for (int s = slabs[0][k]; s < slabs[0][k + 1]; ++s) {
+						xs = crossings(slabs[1][s], origin.y, z, spacing, ny, rows, xs);
+					}
+
+					// sort the crossings by row and along x within each row
+					int count = rows.size();
+					Arrays.fill(rowStart, 0);
+					for (int c = 0; c < count; ++c) {
+						rowStart[rows.get(c) + 1]++;
+					}
+					for (int j = 0; j < ny; ++j) {
+						rowStart[j + 1] += rowStart[j];
+					}
+					if (sorted.length < count) {
+						sorted = new double[xs.length];
+					}
+					int[] fill = Arrays.copyOf(rowStart, ny);
+					for (int c = 0; c < count; ++c) {
+						sorted[fill[rows.get(c)]++] = xs[c];
+					}
+
+					for (int j = 0; j < ny; ++j) {
+						int begin = rowStart[j];
+						int end = rowStart[j + 1];
+						Arrays.sort(sorted, begin, end);
+						for (int c = begin; c + 1 < end; c += 2) {
+							int i0 = (int) Math.ceil((sorted[c] - origin.x) / spacing);
+							int i1 = (int) Math.ceil((sorted[c + 1] - origin.x) / spacing);
+							grid.setRange(i0, i1, j, k);
+						}
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Intersects the rows along x of one slab with a triangle and appends the
+	 * row index and x coordinate of each crossing
+	 *
+	 * @return the array of x coordinates, grown if necessary
+	 */
+	private double[] crossings(int t, double oy, double z, double spacing,
+			int ny, IntList rows, double[] xs) {
+		int v = 9 * t;
+		double x0 = vertices[v], y0 = vertices[v + 1], z0 = vertices[v + 2];
+		double x1 = vertices[v + 3], y1 = vertices[v + 4], z1 = vertices[v + 5];
+		double x2 = vertices[v + 6], y2 = vertices[v + 7], z2 = vertices[v + 8];
+
+		double area = (y1 - y0) * (z2 - z0) - (z1 - z0) * (y2 - y0);
+		if (area == 0) {
+			// parallel to the rows
+			return xs;
+		}
+		double orientation = (area > 0) ? 1 : -1;
+
+		double ymin = Math.min(y0, Math.min(y1, y2));
+		double ymax = Math.max(y0, Math.max(y1, y2));
+		int j0 = (int) Math.max(0, Math.ceil((ymin - oy) / spacing));
+		int j1 = (int) Math.min(ny - 1, Math.floor((ymax - oy) / spacing));
+
+		for (int j = j0; j <= j1; ++j) {
+			double y = oy + j * spacing;
+
+			double w0 = orientation * edge(y1, z1, y2, z2, y, z);
+			if ((w0 < 0) || ((w0 == 0) && !topLeft(orientation, y1, z1, y2, z2))) {
+				continue;
+			}
+			double w1 = orientation * edge(y2, z2, y0, z0, y, z);
+			if ((w1 < 0) || ((w1 == 0) && !topLeft(orientation, y2, z2, y0, z0))) {
+				continue;
+			}
+			double w2 = orientation * edge(y0, z0, y1, z1, y, z);
+			if ((w2 < 0) || ((w2 == 0) && !topLeft(orientation, y0, z0, y1, z1))) {
+				continue;
+			}
+
+			int index = rows.size();
+			if (index == xs.length) {
+				xs = Arrays.copyOf(xs, 2 * xs.length);
+			}
+			rows.add(j);
+			xs[index] = (w0 * x0 + w1 * x1 + w2 * x2) / (w0 + w1 + w2);
+		}
+
+		return xs;
+	}
+
+	/**
+	 * Evaluates the edge function of the edge from a to b at p in the (y, z)
+	 * plane. The edge is always evaluated from its lexicographically smaller
+	 * end, so both triangles sharing it get exactly opposite values.
+	 */
+	private static double edge(double ay, double az, double by, double bz,
+			double py, double pz) {
+		if ((ay < by) || ((ay == by) && (az < bz))) {
+			return (by - ay) * (pz - az) - (bz - az) * (py - ay);
+		} else {
+			return -((ay - by) * (pz - bz) - (az - bz) * (py - by));
+		}
+	}
+
+	/**
+	 * Decides whether points exactly on the oriented edge belong to the
+	 * triangle. Of the two triangles sharing an edge exactly one owns it.
+	 */
+	private static boolean topLeft(double orientation, double ay, double az,
+			double by, double bz) {
+		double dy = orientation * (by - ay);
+		double dz = orientation * (bz - az);
+		return (dz < 0) || ((dz == 0) && (dy > 0));
+	}
+
+	//**************************************************************************
+	// Surface marking
+	//**************************************************************************
+
+	private void fillSurface(final BitGrid grid) {
+		final double spacing = grid.getSpacing();
+		final double half = spacing / 2;
+		final int[][] slabs = slabs(grid, half);
+		final Point3d origin = grid.getOrigin();
+		final int nx = grid.getSizeX();
+		final int ny = grid.getSizeY();
+
+		Parallel.forRange(grid.getSizeZ(), 1, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				double[] tests = new double[27];
+
+				for (int k = from; k < to; ++k) {
+					double z = origin.z + k * spacing;
+
+					for (int s = slabs[0][k]; s < slabs[0][k + 1]; ++s) {
+						int v = 9 * slabs[1][s];
+						double x0 = vertices[v], y0 = vertices[v + 1], z0 = vertices[v + 2];
+						double ux = vertices[v + 3] - x0, uy = vertices[v + 4] - y0, uz = vertices[v + 5] - z0;
+						double vx = vertices[v + 6] - x0, vy = vertices[v + 7] - y0, vz = vertices[v + 8] - z0;
+
+						// plane of the triangle against the voxel box
+						double normalX = uy * vz - uz * vy;
+						double normalY = uz * vx - ux * vz;
+						double normalZ = ux * vy - uy * vx;
+						double radius = half * (Math.abs(normalX) + Math.abs(normalY) + Math.abs(normalZ));
+						double offset = normalZ * (z - z0);
+						edgeTests(v, normalX, normalY, normalZ, spacing, tests);
+
+						int i0 = (int) Math.max(0, Math.ceil((x0 + Math.min(0, Math.min(ux, vx)) - half - origin.x) / spacing));
+						int i1 = (int) Math.min(nx - 1, Math.floor((x0 + Math.max(0, Math.max(ux, vx)) + half - origin.x) / spacing));
+						int j0 = (int) Math.max(0, Math.ceil((y0 + Math.min(0, Math.min(uy, vy)) - half - origin.y) / spacing));
+						int j1 = (int) Math.min(ny - 1, Math.floor((y0 + Math.max(0, Math.max(uy, vy)) + half - origin.y) / spacing));
+
+						for (int j = j0; j <= j1; ++j) {
+							double y = origin.y + j * spacing;
+							double rowOffset = offset + normalY * (y - y0);
+							if (!passes(tests, 1, y - half, z - half)) {
+								continue;
+							}
+							for (int i = i0; i <= i1; ++i) {
+								double x = origin.x + i * spacing;
+								double distance = rowOffset + normalX * (x - x0);
+								if ((Math.abs(distance) <= radius)
+										&& passes(tests, 0, x - half, y - half)
+										&& passes(tests, 2, z - half, x - half)) {
+									grid.set(i, j, k);
+								}
+							}
+						}
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Prepares the edge tests of a triangle in the xy, yz and zx plane. Each
+	 * test consists of the inward edge normal and an offset shifted to the
+	 * corner of the box which is most inside, so a box given by its minimum
+	 * corner overlaps the projected triangle if all three tests of a plane are
+	 * not negative.
+	 *
+	 * @param v offset of the triangle in the vertex array
+	 * @param size the edge length of the boxes
+	 * @param tests receives normal u, normal v and offset for the three edges
+	 *        of each of the three planes
+	 */
+	private void edgeTests(int v, double normalX, double normalY,
+			double normalZ, double size, double[] tests) {
+		double[] signs = { (normalZ < 0) ? -1 : 1, (normalX < 0) ? -1 : 1, (normalY < 0) ? -1 : 1 };
+
+		for (int plane = 0; plane < 3; ++plane) {
+			int u = plane;
+			int w = (plane + 1) % 3;
+			for (int edge = 0; edge < 3; ++edge) {
+				int a = v + 3 * edge;
+				int b = v + 3 * ((edge + 1) % 3);
+				double eu = vertices[b + u] - vertices[a + u];
+				double ew = vertices[b + w] - vertices[a + w];
+				double nu = -ew * signs[plane];
+				double nw = eu * signs[plane];
+
+				int t = 3 * (3 * plane + edge);
+				tests[t] = nu;
+				tests[t + 1] = nw;
+				tests[t + 2] = -(nu * vertices[a + u] + nw * vertices[a + w])
+						+ Math.max(0, size * nu) + Math.max(0, size * nw);
+			}
+		}
+	}
+
+	private static boolean passes(double[] tests, int plane, double u, double w) {
+		for (int t = 9 * plane; t < 9 * plane + 9; t += 3) {
+			if (tests[t] * u + tests[t + 1] * w + tests[t + 2] < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
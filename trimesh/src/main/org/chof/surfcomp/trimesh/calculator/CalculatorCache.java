@@ -0,0 +1,229 @@
+package org.chof.surfcomp.trimesh.calculator;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.tools.ParameterDefinition;
+
+/**
+ * Keeps the results of calculations for repeated requests
+ * <p>
+ * A result is identified by the mesh and its version, the class of the
+ * calculator and its parameters written in a canonical form. The parameter
+ * <code>StoreProperty</code> does not change the values and is left out.
+ * Since every change of the mesh increases its version, a result is never
+ * served for a changed mesh. Results are kept as {@link ResultColumn} and
+ * the least recently used ones are dropped when the total size exceeds the
+ * capacity.</p>
+ * <p>
+ * A hit neither runs the calculator nor stores properties at the points.
+ * Two concurrent requests for the same missing result may both calculate
+ * it.</p>
+ * <p>
+ * Calculators with {@link ICalculator#getInputProperties() input properties}
+ * are always run and their results are not kept. They read their inputs
+ * from the point properties, which may have been recalculated with other
+ * parameters without changing the mesh version, thus the key cannot tell
+ * whether a kept result is still valid.</p>
+ *
+ * @author chof
+ */
+public class CalculatorCache {
+
+	private final long capacity;
+	private long sizeBytes = 0;
+	private long hits = 0;
+	private long misses = 0;
+
+	private final LinkedHashMap<Key, ResultColumn> results =
+		new LinkedHashMap<Key, ResultColumn>(16, 0.75f, true);
+
+	/**
+	 * @param capacity the maximal total size of the kept results in bytes
+	 */
+	public CalculatorCache(long capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("The capacity must not be negative");
+		}
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Provides the values of a calculator for all points of a mesh, calculated
+	 * by the calculator only if no result is kept for the mesh in its current
+	 * version and the current parameters. Results of calculators with input
+	 * properties are calculated on every request and not kept.
+	 *
+	 * @param calculator the calculator
+	 * @param mesh the mesh
+	 * @return the values of all points, shared with other callers
+	 */
+	public ResultColumn calculate(ICalculator calculator, Mesh mesh) {
+		if (!calculator.getInputProperties().isEmpty()) {
+			synchronized (this) {
+				misses++;
+			}
+			return new ResultColumn(calculator.calculate(mesh));
+		}
+
+		Key key = new Key(mesh, mesh.getVersion(), calculator.getClass(),
+				canonicalParameters(calculator));
+		synchronized (this) {
+			ResultColumn result = results.get(key);
+			if (result != null) {
+				hits++;
+				return result;
+			}
+			misses++;
+		}
+
+		ResultColumn result = new ResultColumn(calculator.calculate(mesh));
+		put(key, result);
+		return result;
+	}
+
+	private synchronized void put(Key key, ResultColumn result) {
+		long bytes = result.sizeBytes();
+		if (bytes > capacity) {
+			return;
+		}
+		ResultColumn previous = results.put(key, result);
+		if (previous != null) {
+			sizeBytes -= previous.sizeBytes();
+		}
+		sizeBytes += bytes;
+
+		Iterator<Map.Entry<Key, ResultColumn>> eldest = results.entrySet().iterator();
+		while (sizeBytes > capacity) {
+			Map.Entry<Key, ResultColumn> entry = eldest.next();
+			sizeBytes -= entry.getValue().sizeBytes();
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * Writes the parameters of a calculator in a canonical form, sorted by
+	 * name with arrays written element by element
+	 *
+	 * @param calculator the calculator
+	 * @return the parameters except <code>StoreProperty</code>
+	 */
+	public static String canonicalParameters(ICalculator calculator) {
+		List<ParameterDefinition> definitions =
+			new ArrayList<ParameterDefinition>(calculator.getParameterDefinitions());
+		Collections.sort(definitions, new Comparator<ParameterDefinition>() {
+			@Override
+			public int compare(ParameterDefinition a, ParameterDefinition b) {
+				return a.getDefinition().compareTo(b.getDefinition());
+			}
+		});
+
+		StringBuilder canonical = new StringBuilder();
+		for (ParameterDefinition definition : definitions) {
+			String name = definition.getDefinition();
+			if ("StoreProperty".equals(name)) continue;
+			Object value = calculator.getParameter(name);
+			canonical.append(name).append('=');
+			if (value instanceof Object[]) {
+				canonical.append(Arrays.deepToString((Object[]) value));
+			} else {
+				canonical.append(value);
+			}
+			canonical.append(';');
+		}
+		return canonical.toString();
+	}
+
+	//**************************************************************************
+	// Getters
+	//**************************************************************************
+
+	/**
+	 * @return the number of kept results
+	 */
+	public synchronized int size() {
+		return results.size();
+	}
+
+	/**
+	 * @return the total size of the kept results in bytes
+	 */
+	public synchronized long sizeBytes() {
+		return sizeBytes;
+	}
+
+	public long getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the number of requests served from the cache
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of requests which had to be calculated
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Drops all kept results
+	 */
+	public synchronized void clear() {
+		results.clear();
+		sizeBytes = 0;
+	}
+
+	/**
+	 * Identifies a result, the mesh is compared by identity and not kept
+	 * alive by the cache
+	 */
+	private static class Key {
+		private final WeakReference<Mesh> mesh;
+		private final int meshHash;
+		private final long version;
+		private final Class<?> calculator;
+		private final String parameters;
+
+		Key(Mesh mesh, long version, Class<?> calculator, String parameters) {
+			this.mesh = new WeakReference<Mesh>(mesh);
+			this.meshHash = System.identityHashCode(mesh);
+			this.version = version;
+			this.calculator = calculator;
+			this.parameters = parameters;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			Mesh m = mesh.get();
+			return (m != null) && (m == other.mesh.get())
+					&& (version == other.version)
+					&& (calculator == other.calculator)
+					&& parameters.equals(other.parameters);
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = meshHash;
+			hash = 31 * hash + (int) (version ^ (version >>> 32));
+			hash = 31 * hash + calculator.hashCode();
+			return 31 * hash + parameters.hashCode();
+		}
+	}
+}
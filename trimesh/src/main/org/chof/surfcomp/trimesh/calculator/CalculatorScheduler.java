@@ -0,0 +1,232 @@
+package org.chof.surfcomp.trimesh.calculator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.tools.Parallel;
+
+/**
+ * Runs calculators in the order given by the properties they read and write
+ * <p>
+ * Each registered calculator provides the property of its
+ * {@link ICalculator#getPropertyDefinition()} and reads the properties of
+ * its {@link ICalculator#getInputProperties()}. For the requested properties
+ * the scheduler collects the providers and, recursively, the providers of
+ * their inputs. Inputs without a registered provider are expected to be
+ * present at the points already.</p>
+ * <p>
+ * Every collected calculator runs once on the executor as soon as all its
+ * inputs are calculated, thus independent calculators run concurrently and
+ * the whole run takes about the time of the longest chain. The calculators
+ * themselves run their loops by {@link Parallel}, which lets the calling
+ * thread take part and therefore shares one executor without
+ * deadlocks.</p>
+ *
+ * @author chof
+ */
+public class CalculatorScheduler {
+
+	private final ExecutorService executor;
+	private final Map<Object, ICalculator> providers = new LinkedHashMap<Object, ICalculator>();
+
+	/**
+	 * Constructs a scheduler on the shared executor of {@link Parallel}
+	 */
+	public CalculatorScheduler() {
+		this(Parallel.getExecutor());
+	}
+
+	/**
+	 * @param executor the executor running the calculators
+	 */
+	public CalculatorScheduler(ExecutorService executor) {
+		if (executor == null) {
+			throw new IllegalArgumentException("executor must not be null");
+		}
+		this.executor = executor;
+	}
+
+	/**
+	 * Registers a calculator as provider of its property, replacing an
+	 * earlier provider of the same property
+	 */
+	public synchronized void register(ICalculator calculator) {
+		providers.put(calculator.getPropertyDefinition(), calculator);
+	}
+
+	/**
+	 * @return the provider of a property or null if none is registered
+	 */
+	public synchronized ICalculator getProvider(Object property) {
+		return providers.get(property);
+	}
+
+	/**
+	 * Collects the calculators needed for the requested properties
+	 *
+	 * @param properties the requested properties
+	 * @return the calculators in an order where each calculator comes after
+	 *         the providers of its inputs
+	 * @throws IllegalArgumentException if a requested property has no
+	 *         provider, the inputs form a cycle or a provider of an input
+	 *         does not store its property
+	 */
+	public synchronized List<ICalculator> plan(Object... properties) {
+		List<ICalculator> order = new ArrayList<ICalculator>();
+		Map<Object, Boolean> visited = new HashMap<Object, Boolean>();
+		for (Object property : properties) {
+			if (!providers.containsKey(property)) {
+				throw new IllegalArgumentException("No calculator provides " + property);
+			}
+			visit(property, visited, order);
+		}
+
+		for (ICalculator calculator : order) {
+			for (Object input : calculator.getInputProperties()) {
+				ICalculator provider = providers.get(input);
+				if ((provider != null)
+						&& Boolean.FALSE.equals(provider.getParameter("StoreProperty"))) {
+					throw new IllegalArgumentException("The provider of " + input
+							+ " has to store its property for "
+							+ calculator.getPropertyDefinition());
+				}
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * Depth first visit adding the providers of the inputs before the
+	 * provider of the property, visited maps to false while the property is
+	 * on the current path
+	 */
+	private void visit(Object property, Map<Object, Boolean> visited,
+			List<ICalculator> order) {
+		ICalculator calculator = providers.get(property);
+		if (calculator == null) {
+			return;
+		}
+		Boolean done = visited.get(property);
+		if (done != null) {
+			if (!done) {
+				throw new IllegalArgumentException("The inputs of " + property
+						+ " depend on the property itself");
+			}
+			return;
+		}
+		visited.put(property, false);
+		for (Object input : calculator.getInputProperties()) {
+			visit(input, visited, order);
+		}
+		visited.put(property, true);
+		order.add(calculator);
+	}
+
+	/**
+	 * Calculates the requested properties together with all properties they
+	 * depend on
+	 *
+	 * @param mesh the mesh
+	 * @param properties the requested properties
+	 * @return the values of all calculated properties by property
+	 * @throws TrimeshException if a calculator fails or the calling thread is
+	 *         interrupted, the calculators still running are cancelled
+	 * @see #plan(Object...)
+	 */
+	public Map<Object, Vector<?>> calculate(final Mesh mesh, Object... properties)
+			throws TrimeshException {
+		List<ICalculator> order = plan(properties);
+
+		// remaining inputs of each calculator and the calculators reading
+		// each property
+		Map<ICalculator, Integer> pending = new IdentityHashMap<ICalculator, Integer>();
+		Map<Object, List<ICalculator>> readers = new HashMap<Object, List<ICalculator>>();
+		Set<Object> planned = new HashSet<Object>();
+		for (ICalculator calculator : order) {
+			planned.add(calculator.getPropertyDefinition());
+		}
+		for (ICalculator calculator : order) {
+			int count = 0;
+			for (Object input : new HashSet<Object>(calculator.getInputProperties())) {
+				if (planned.contains(input)) {
+					count++;
+					List<ICalculator> list = readers.get(input);
+					if (list == null) {
+						list = new ArrayList<ICalculator>();
+						readers.put(input, list);
+					}
+					list.add(calculator);
+				}
+			}
+			pending.put(calculator, count);
+		}
+
+		CompletionService<Vector<?>> completion = new ExecutorCompletionService<Vector<?>>(executor);
+		Map<Future<Vector<?>>, ICalculator> running = new HashMap<Future<Vector<?>>, ICalculator>();
+		for (ICalculator calculator : order) {
+			if (pending.get(calculator) == 0) {
+				running.put(submit(completion, calculator, mesh), calculator);
+			}
+		}
+
+		Map<Object, Vector<?>> results = new LinkedHashMap<Object, Vector<?>>();
+		try {
+			while (!running.isEmpty()) {
+				Future<Vector<?>> done = completion.take();
+				ICalculator calculator = running.remove(done);
+				Object property = calculator.getPropertyDefinition();
+				try {
+					results.put(property, done.get());
+				} catch (ExecutionException e) {
+					throw new TrimeshException("Calculation of " + property + " failed", e.getCause());
+				}
+
+				List<ICalculator> next = readers.get(property);
+				if (next != null) {
+					for (ICalculator reader : next) {
+						int count = pending.get(reader) - 1;
+						pending.put(reader, count);
+						if (count == 0) {
+							running.put(submit(completion, reader, mesh), reader);
+						}
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new TrimeshException("Calculation of " + Arrays.toString(properties)
+					+ " was interrupted", e);
+		} finally {
+			for (Future<Vector<?>> f : running.keySet()) {
+				f.cancel(true);
+			}
+		}
+		return results;
+	}
+
+	private static Future<Vector<?>> submit(CompletionService<Vector<?>> completion,
+			final ICalculator calculator, final Mesh mesh) {
+		return completion.submit(new Callable<Vector<?>>() {
+			@Override
+			public Vector<?> call() {
+				return calculator.calculate(mesh);
+			}
+		});
+	}
+}
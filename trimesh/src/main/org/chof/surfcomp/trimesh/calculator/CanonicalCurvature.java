@@ -1,7 +1,6 @@
 package org.chof.surfcomp.trimesh.calculator;
 
 import java.util.Set;
-import java.util.Vector;
 
 import javax.vecmath.Vector3d;
 
@@ -9,6 +8,7 @@ import org.chof.surfcomp.trimesh.algorithms.LimitedDepthFirstIterator;
 import org.chof.surfcomp.trimesh.domain.Mesh;
 import org.chof.surfcomp.trimesh.domain.MeshEdge;
 import org.chof.surfcomp.trimesh.domain.Point;
+import org.chof.surfcomp.trimesh.metrics.Metrics;
 import org.chof.surfcomp.trimesh.tools.LUSolve;
 import org.chof.surfcomp.trimesh.tools.ParameterDefinition;
 import org.jblas.Decompose;
@@ -61,53 +61,75 @@ public class CanonicalCurvature extends DefaultCalculator {
 		return Vector3d.class;
 	}
 
-	@SuppressWarnings("unchecked")
-	public <T> Vector<T> calculate(Mesh mesh) {
-		Vector<Vector3d> result = new Vector<Vector3d>(mesh.sizePoints());
+	@Override
+	protected double getInfluenceRadius() {
+		return Math.max(0.0, (Double) getParameter("CutOff"));
+	}
+
+	@Override
+	protected Object[] calculatePoints(Mesh mesh, int[] points) {
+		Object[] result = new Object[points.length];
 		double cutoff = (Double) getParameter("CutOff"); 
+		String neighborhood = metricName("neighborhood");
+		String fit = metricName("fit");
+		String solve = metricName("solve");
+		String rimSize = metricName("rim");
+		String failures = metricName("solver.failures");
 
-		for(int i=0;i<mesh.sizePoints();++i) {
-			Point p = mesh.getPoint(i);
+		for(int k=0;k<points.length;++k) {
+			Point p = mesh.getPoint(points[k]);
 
+			long start = Metrics.start();
 			Set<Point> rim = getParaboloidRim(mesh, cutoff, p);			
+			Metrics.stop(neighborhood, start);
+			Metrics.observe(rimSize, rim.size());
+
+			start = Metrics.start();
 			setupCoordinateSystem(p, rim);
-			
 			setupEquations(transformCoordinates(rim, p));
-			Vector3d curvatures = 
-				determineCurvatures(LUSolve.solve(Decompose.lu(matrixA), vectorB));
-					
-			result.add(curvatures);			
-			storePropertyInContainer(p, curvatures);
-			
-			//System.out.println(i + " " + curvatures.toString());
+			Metrics.stop(fit, start);
+
+			start = Metrics.start();
+			DoubleMatrix solution = LUSolve.solve(Decompose.lu(matrixA), vectorB);
+			Metrics.stop(solve, start);
+			if (Double.isNaN(solution.get(0) + solution.get(1) + solution.get(2))) {
+				Metrics.count(failures, 1);
+			}
+			result[k] = determineCurvatures(solution);
+
+			if ((k + 1) % PROGRESS_BLOCK == 0) {
+				worked(PROGRESS_BLOCK);
+			}
 		}
-		return (Vector<T>) result;
+		worked(points.length % PROGRESS_BLOCK);
+		return result;
 	}
 
 	private Vector3d determineCurvatures(DoubleMatrix solution) {
+		return determineCurvatures(solution.get(0), solution.get(1), solution.get(2));
+	}
+
+	/**
+	 * Determines the canonical curvatures and the shape index from the
+	 * coefficients of the paraboloid <code>n = a u^2 + 2 b uv + c v^2</code>
+	 */
+	static Vector3d determineCurvatures(double a, double b, double c) {
 		Vector3d curvatures = new Vector3d();
-		curvatures.x = eigenvalue(solution, 1);
-		curvatures.y = eigenvalue(solution, -1);
+		curvatures.x = eigenvalue(a, b, c, 1);
+		curvatures.y = eigenvalue(a, b, c, -1);
 		curvatures.z = calculateSTI(curvatures.x, curvatures.y);
 		return curvatures;
 	}
 	
-	private double eigenvalue(DoubleMatrix matrix, double sign) {
-		  double diff02 = matrix.get(0) - matrix.get(2);
+	private static double eigenvalue(double a, double b, double c, double sign) {
+		  double diff02 = a - c;
 	
-			if ((matrix.get(0)==Double.NaN) ||
-			    (matrix.get(1)==Double.NaN) ||
-		        (matrix.get(2)==Double.NaN))
-			{
-				return 0;
-			}
-			
-		  return ((matrix.get(0) + matrix.get(2)) +
-							sign * Math.sqrt(4*matrix.get(1)*matrix.get(1) + diff02*diff02));
+		  // coefficients of a singular fit are NaN and stay NaN
+		  return ((a + c) + sign * Math.sqrt(4*b*b + diff02*diff02));
 	
 	}
 
-	private double calculateSTI(double cc1, double cc2) {
+	private static double calculateSTI(double cc1, double cc2) {
 		if (((cc1>0) && (cc2>0)) || 
 				((cc1>0) && (cc2<Double.MIN_VALUE) && (Math.abs(cc1)>Math.abs(cc2))))
 			return (cc1-cc2)/cc1;
@@ -0,0 +1,356 @@
+package org.chof.surfcomp.trimesh.calculator;
+
+import java.util.Arrays;
+
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.algorithms.LaplaceBeltrami;
+import org.chof.surfcomp.trimesh.algorithms.PointGridIndex;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.metrics.Metrics;
+import org.chof.surfcomp.trimesh.tools.IntList;
+import org.chof.surfcomp.trimesh.tools.Parallel;
+
+/**
+ * Calculates the principal curvatures and directions of each point from a
+ * per triangle estimate of the curvature tensor (Rusinkiewicz 2004)
+ * <p>
+ * The second fundamental form of each triangle follows from the change of
+ * the point normals along its three edges by a small least squares fit. The
+ * form is rotated into the tangent frame of each corner point and summed up
+ * with the mixed Voronoi area of the corner as weight. The eigenvalues and
+ * eigenvectors of the averaged form are the principal curvatures and
+ * directions of the point.</p>
+ * <p>
+ * Both steps are linear in the number of triangles and run in parallel, thus
+ * the calculator is a fast alternative to the paraboloid fit of
+ * {@link CanonicalCurvature}. A selection of points only visits the
+ * triangles around the selected points. The point normals are used, the
+ * curvatures are positive where the surface bends away from the normal.
+ * Points without adjacent triangle area get zero curvatures.</p>
+ *
+ * @author chof
+ */
+public class CurvatureTensor extends DefaultCalculator {
+
+	@Override
+	public Object getPropertyDefinition() {
+		return "PrincipalCurvature";
+	}
+
+	@Override
+	public Class<? extends Object> getPropertyType() {
+		return PrincipalCurvature.class;
+	}
+
+	@Override
+	protected Object[] calculatePoints(final Mesh mesh, final int[] points) {
+		long start = Metrics.start();
+		final int n = mesh.sizePoints();
+		final double[] coordinates = PointGridIndex.coordinatesOf(mesh);
+		final int[] triangles = mesh.getTriangleIndices();
+
+		// only the triangles around the requested points and their corners
+		// are needed, the corners get compact local indices
+		final int[] local = new int[n];
+		Arrays.fill(local, -1);
+		for (int i : points) {
+			local[i] = 0;
+		}
+		IntList selected = new IntList();
+		for (int t = 0; t < triangles.length; t += 3) {
+			if ((local[triangles[t]] == 0) || (local[triangles[t + 1]] == 0)
+					|| (local[triangles[t + 2]] == 0)) {
+				selected.add(t / 3);
+			}
+		}
+		final int[] faces = selected.toArray();
+		final IntList corners = new IntList();
+		for (int i : points) {
+			if (local[i] == 0) {
+				local[i] = -2 - corners.size();
+				corners.add(i);
+			}
+		}
+		for (int f : faces) {
+			for (int c = 0; c < 3; ++c) {
+				int i = triangles[3 * f + c];
+				if (local[i] == -1) {
+					local[i] = -2 - corners.size();
+					corners.add(i);
+				}
+			}
+		}
+		for (int k = 0; k < corners.size(); ++k) {
+			local[corners.get(k)] = k;
+		}
+		final double[] weights = LaplaceBeltrami.cornerAreas(coordinates, triangles, faces);
+		Metrics.stop(metricName("neighborhood"), start);
+		worked(0);
+		start = Metrics.start();
+
+		// tangent frame of each corner: u, v and the normal
+		final double[] frames = new double[9 * corners.size()];
+		Parallel.forRange(corners.size(), new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				for (int k = from; k < to; ++k) {
+					Vector3d normal = mesh.getPoint(corners.get(k)).getNormale();
+					frames[9 * k + 6] = normal.x;
+					frames[9 * k + 7] = normal.y;
+					frames[9 * k + 8] = normal.z;
+					tangentFrame(frames, 9 * k);
+				}
+			}
+		});
+
+		// the form of each triangle expressed in the frames of its corners
+		final double[] forms = new double[9 * faces.length];
+		Parallel.forRange(faces.length, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				double[] face = new double[9];
+				double[] form = new double[3];
+				double[] corner = new double[6];
+				for (int k = from; k < to; ++k) {
+					int t = faces[k];
+					if (!faceForm(coordinates, frames, local, triangles, t, face, form)) {
+						continue;
+					}
+					for (int c = 0; c < 3; ++c) {
+						double w = weights[3 * k + c];
+						int p = 9 * local[triangles[3 * t + c]];
+						rotateFrame(frames, p, face, corner);
+						int f = 3 * (3 * k + c);
+						project(form, face, corner, forms, f);
+						forms[f] *= w;
+						forms[f + 1] *= w;
+						forms[f + 2] *= w;
+					}
+				}
+			}
+		});
+
+		final double[] sums = new double[4 * points.length];
+		for (int k = 0; k < 3 * faces.length; ++k) {
+			int i = local[triangles[3 * faces[k / 3] + k % 3]];
+			if (i < points.length) {
+				sums[4 * i] += forms[3 * k];
+				sums[4 * i + 1] += forms[3 * k + 1];
+				sums[4 * i + 2] += forms[3 * k + 2];
+				sums[4 * i + 3] += weights[k];
+			}
+		}
+
+		Metrics.stop(metricName("fit"), start);
+		worked(0);
+		start = Metrics.start();
+		final Object[] curvatures = new Object[points.length];
+		Parallel.forRange(points.length, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				for (int k = from; k < to; ++k) {
+					int i = local[points[k]];
+					curvatures[k] = principal(frames, 9 * i, sums, 4 * i);
+				}
+				worked(to - from);
+			}
+		});
+		Metrics.stop(metricName("solve"), start);
+		return curvatures;
+	}
+
+	/**
+	 * Completes a frame given by its normal at offset + 6 with two
+	 * perpendicular tangents
+	 */
+	private static void tangentFrame(double[] frames, int offset) {
+		double nx = frames[offset + 6], ny = frames[offset + 7], nz = frames[offset + 8];
+		double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+		if (!(length > 0)) {
+			nx = 0;
+			ny = 0;
+			nz = 1;
+		} else {
+			nx /= length;
+			ny /= length;
+			nz /= length;
+		}
+
+		// cross the normal with the axis it is least aligned with
+		double ux, uy, uz;
+		if ((Math.abs(nx) <= Math.abs(ny)) && (Math.abs(nx) <= Math.abs(nz))) {
+			ux = 0; uy = nz; uz = -ny;
+		} else if (Math.abs(ny) <= Math.abs(nz)) {
+			ux = -nz; uy = 0; uz = nx;
+		} else {
+			ux = ny; uy = -nx; uz = 0;
+		}
+		length = Math.sqrt(ux * ux + uy * uy + uz * uz);
+		ux /= length;
+		uy /= length;
+		uz /= length;
+
+		frames[offset] = ux;
+		frames[offset + 1] = uy;
+		frames[offset + 2] = uz;
+		frames[offset + 3] = ny * uz - nz * uy;
+		frames[offset + 4] = nz * ux - nx * uz;
+		frames[offset + 5] = nx * uy - ny * ux;
+		frames[offset + 6] = nx;
+		frames[offset + 7] = ny;
+		frames[offset + 8] = nz;
+	}
+
+	/**
+	 * Fits the second fundamental form of a triangle to the change of the
+	 * normals along its edges
+	 *
+	 * @param face receives the frame of the triangle
+	 * @param form receives the entries uu, uv and vv of the form
+	 * @return false for a triangle without area
+	 */
+	private static boolean faceForm(double[] coordinates, double[] frames,
+			int[] local, int[] triangles, int t, double[] face, double[] form) {
+		int a = triangles[3 * t], b = triangles[3 * t + 1], c = triangles[3 * t + 2];
+		double e0x = coordinates[3 * c] - coordinates[3 * b];
+		double e0y = coordinates[3 * c + 1] - coordinates[3 * b + 1];
+		double e0z = coordinates[3 * c + 2] - coordinates[3 * b + 2];
+		double e1x = coordinates[3 * a] - coordinates[3 * c];
+		double e1y = coordinates[3 * a + 1] - coordinates[3 * c + 1];
+		double e1z = coordinates[3 * a + 2] - coordinates[3 * c + 2];
+
+		double nx = e0y * e1z - e0z * e1y;
+		double ny = e0z * e1x - e0x * e1z;
+		double nz = e0x * e1y - e0y * e1x;
+		double nLength = Math.sqrt(nx * nx + ny * ny + nz * nz);
+		double eLength = Math.sqrt(e0x * e0x + e0y * e0y + e0z * e0z);
+		if (!(nLength > 0) || !(eLength > 0)) {
+			return false;
+		}
+
+		face[0] = e0x / eLength;
+		face[1] = e0y / eLength;
+		face[2] = e0z / eLength;
+		face[6] = nx / nLength;
+		face[7] = ny / nLength;
+		face[8] = nz / nLength;
+		face[3] = face[7] * face[2] - face[8] * face[1];
+		face[4] = face[8] * face[0] - face[6] * face[2];
+		face[5] = face[6] * face[1] - face[7] * face[0];
+
+		// normal equations of u dn_u + v dn_v over the three edges
+		double[] m = new double[6];
+		double[] r = new double[3];
+		for (int k = 0; k < 3; ++k) {
+			int from = triangles[3 * t + (k + 1) % 3];
+			int to = triangles[3 * t + (k + 2) % 3];
+			double u = 0, v = 0, du = 0, dv = 0;
+			for (int x = 0; x < 3; ++x) {
+				double e = coordinates[3 * to + x] - coordinates[3 * from + x];
+				double dn = frames[9 * local[to] + 6 + x] - frames[9 * local[from] + 6 + x];
+				u += e * face[x];
+				v += e * face[3 + x];
+				du += dn * face[x];
+				dv += dn * face[3 + x];
+			}
+			m[0] += u * u;
+			m[1] += u * v;
+			m[3] += u * u + v * v;
+			m[4] += u * v;
+			m[5] += v * v;
+			r[0] += du * u;
+			r[1] += du * v + dv * u;
+			r[2] += dv * v;
+		}
+
+		// symmetric 3x3 system with m[2] = 0, solved by Cramer's rule
+		double a00 = m[0], a01 = m[1], a11 = m[3], a12 = m[4], a22 = m[5];
+		double det = a00 * (a11 * a22 - a12 * a12) - a01 * a01 * a22;
+		if (!(Math.abs(det) > 0)) {
+			return false;
+		}
+		form[0] = (r[0] * (a11 * a22 - a12 * a12) - a01 * (r[1] * a22 - a12 * r[2])) / det;
+		form[1] = (a00 * (r[1] * a22 - a12 * r[2]) - r[0] * a01 * a22) / det;
+		form[2] = (a00 * (a11 * r[2] - a12 * r[1]) - a01 * (a01 * r[2]) + r[0] * a01 * a12) / det;
+		return true;
+	}
+
+	/**
+	 * Rotates the tangents of a point frame into the plane of a triangle
+	 *
+	 * @param corner receives the rotated u and v
+	 */
+	private static void rotateFrame(double[] frames, int p, double[] face, double[] corner) {
+		double dot = frames[p + 6] * face[6] + frames[p + 7] * face[7] + frames[p + 8] * face[8];
+		if (dot <= -1) {
+			for (int x = 0; x < 6; ++x) {
+				corner[x] = -frames[p + x];
+			}
+			return;
+		}
+		// rotation around the common perpendicular of both normals
+		for (int axis = 0; axis < 2; ++axis) {
+			double perp = 0, dperp = 0;
+			for (int x = 0; x < 3; ++x) {
+				double perpOld = face[6 + x] - dot * frames[p + 6 + x];
+				perp += perpOld * frames[p + 3 * axis + x];
+			}
+			for (int x = 0; x < 3; ++x) {
+				dperp = (frames[p + 6 + x] + face[6 + x]) / (1 + dot);
+				corner[3 * axis + x] = frames[p + 3 * axis + x] - dperp * perp;
+			}
+		}
+	}
+
+	/**
+	 * Expresses the form of a triangle in the rotated frame of a corner
+	 */
+	private static void project(double[] form, double[] face, double[] corner,
+			double[] forms, int offset) {
+		double u1 = 0, v1 = 0, u2 = 0, v2 = 0;
+		for (int x = 0; x < 3; ++x) {
+			u1 += corner[x] * face[x];
+			v1 += corner[x] * face[3 + x];
+			u2 += corner[3 + x] * face[x];
+			v2 += corner[3 + x] * face[3 + x];
+		}
+		forms[offset] = form[0] * u1 * u1 + form[1] * 2 * u1 * v1 + form[2] * v1 * v1;
+		forms[offset + 1] = form[0] * u1 * u2 + form[1] * (u1 * v2 + u2 * v1) + form[2] * v1 * v2;
+		forms[offset + 2] = form[0] * u2 * u2 + form[1] * 2 * u2 * v2 + form[2] * v2 * v2;
+	}
+
+	/**
+	 * Determines the principal curvatures of a point from the weighted sum of
+	 * the forms
+	 */
+	private static PrincipalCurvature principal(double[] frames, int p,
+			double[] sums, int s) {
+		Vector3d u = new Vector3d(frames[p], frames[p + 1], frames[p + 2]);
+		Vector3d v = new Vector3d(frames[p + 3], frames[p + 4], frames[p + 5]);
+		double weight = sums[s + 3];
+		if (!(weight > 0)) {
+			return new PrincipalCurvature(0, 0, u, v);
+		}
+
+		double kuu = sums[s] / weight;
+		double kuv = sums[s + 1] / weight;
+		double kvv = sums[s + 2] / weight;
+
+		double mean = (kuu + kvv) / 2;
+		double half = (kuu - kvv) / 2;
+		double radius = Math.sqrt(half * half + kuv * kuv);
+		double angle = Math.atan2(kuv, half) / 2;
+		double cos = Math.cos(angle);
+		double sin = Math.sin(angle);
+
+		Vector3d maximal = new Vector3d();
+		maximal.scaleAdd(cos, u, maximal);
+		maximal.scaleAdd(sin, v, maximal);
+		Vector3d minimal = new Vector3d();
+		minimal.scaleAdd(-sin, u, minimal);
+		minimal.scaleAdd(cos, v, minimal);
+
+		return new PrincipalCurvature(mean + radius, mean - radius, maximal, minimal);
+	}
+}
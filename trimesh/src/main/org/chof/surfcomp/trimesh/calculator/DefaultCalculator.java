@@ -1,17 +1,79 @@
 package org.chof.surfcomp.trimesh.calculator;
 
+import java.lang.ref.WeakReference;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Vector;
+import java.util.concurrent.CancellationException;
 
+import javax.vecmath.Tuple3d;
+
+import org.chof.surfcomp.trimesh.algorithms.EdgeGraph;
+import org.chof.surfcomp.trimesh.algorithms.VertexSampler;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.interfaces.IProgressMonitor;
 import org.chof.surfcomp.trimesh.interfaces.IPropertyContainer;
+import org.chof.surfcomp.trimesh.metrics.ISpan;
+import org.chof.surfcomp.trimesh.metrics.Metrics;
 import org.chof.surfcomp.trimesh.tools.ParameterDefinition;
 
+/**
+ * Base class of the calculators
+ * <p>
+ * The calculation of all points is driven by {@link #calculate(Mesh)}, the
+ * subclasses only provide {@link #calculatePoints(Mesh, int[])} for a given
+ * set of points. Besides <code>StoreProperty</code> the base class defines
+ * two parameters for screening large surfaces:</p>
+ * <p>
+ * <code>SampleSpacing</code> if positive, the calculation runs only on a
+ * sample of the points with about this spacing along the surface and the
+ * values are interpolated to all other points by {@link VertexSampler}. The
+ * default 0.0 calculates every point.</p>
+ * <p>
+ * <code>SamplingMethod</code> the {@link VertexSampler.Method} selecting the
+ * samples, default Poisson disk.</p>
+ * <p>
+ * After a calculation of all points the calculator remembers the version
+ * of the mesh. {@link #recalculate(Mesh)} then recalculates only the points
+ * within {@link #getInfluenceRadius()} of the points moved since and of
+ * their direct neighbors, measured along the edges of the moved mesh. Only
+ * the recalculation needs the edge graph, calculations of all points do not
+ * build it. This requires
+ * stored properties and no sampling, otherwise all points are calculated
+ * again.</p>
+ * <p>
+ * Each calculation reports the timers <code>calculate</code> and
+ * <code>store</code> and the counters <code>points</code> and
+ * <code>nan</code> to {@link Metrics}, named by {@link #metricName(String)},
+ * and is traced as {@link Metrics#CALCULATION}.</p>
+ * <p>
+ * The subclasses report their progress by {@link #worked(int)} in blocks
+ * of points, {@link #PROGRESS_BLOCK} or the blocks of their parallel loops,
+ * which also stops a canceled calculation.</p>
+ * 
+ * @author chof
+ */
 public abstract class DefaultCalculator implements ICalculator {
 
 	protected HashMap<String, ParameterDefinition> parameterDefinitions;
 	protected HashMap<ParameterDefinition, Object> parameters;
 	
+	/**
+	 * The number of points after which the subclasses report their progress
+	 */
+	protected static final int PROGRESS_BLOCK = 256;
+
 	private boolean storeProperties = true;
+	private volatile IProgressMonitor progressMonitor = null;
+	
+	/**
+	 * The mesh, its version and its edges at the last calculation of all 
+	 * points, if the values are stored as properties
+	 */
+	private WeakReference<Mesh> calculatedMesh = null;
+	private long calculatedVersion;
 
 	public DefaultCalculator() {
 		super();
@@ -28,6 +90,20 @@ public abstract class DefaultCalculator implements ICalculator {
 				true);
 		parameterDefinitions.put(storeProperty.getDefinition(), storeProperty);
 		parameters.put(storeProperty, storeProperty.getDefaultValue());
+
+		ParameterDefinition spacingProperty = new ParameterDefinition(
+				"SampleSpacing", Double.class, true,
+				"Defines the spacing of the sampled points, 0 calculates all points",
+				0.0);
+		parameterDefinitions.put(spacingProperty.getDefinition(), spacingProperty);
+		parameters.put(spacingProperty, spacingProperty.getDefaultValue());
+
+		ParameterDefinition methodProperty = new ParameterDefinition(
+				"SamplingMethod", VertexSampler.Method.class, true,
+				"Defines the method to select the sampled points",
+				VertexSampler.Method.POISSON_DISK);
+		parameterDefinitions.put(methodProperty.getDefinition(), methodProperty);
+		parameters.put(methodProperty, methodProperty.getDefaultValue());
 	}
 	
 	/**
@@ -36,6 +112,288 @@ public abstract class DefaultCalculator implements ICalculator {
 	@Override
 	public abstract Object getPropertyDefinition();
 
+	/**
+	 * @return no input properties, the calculators read the geometry of the 
+	 *         mesh only
+	 * @see ICalculator#getInputProperties()
+	 */
+	@Override
+	public Collection<Object> getInputProperties() {
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Calculates the values of the given points. The points use the full
+	 * mesh for their neighborhoods.
+	 * 
+	 * @param mesh the mesh
+	 * @param points the indices of the points to calculate
+	 * @return the value of each point in the order of the indices
+	 */
+	protected abstract Object[] calculatePoints(Mesh mesh, int[] points);
+
+	/**
+	 * The distance along the surface within which the values of a point
+	 * depend on other points. The values may also depend on the direct
+	 * neighbors of the points within the distance, thus a moved point
+	 * changes the values of the points within the distance of its neighbors.
+	 * 
+	 * @return the radius of influence, 0.0 for values depending on the 
+	 *         direct neighbors only
+	 */
+	protected double getInfluenceRadius() {
+		return 0.0;
+	}
+
+	/**
+	 * Calculates the values of all points, or of a sample of the points if
+	 * <code>SampleSpacing</code> is positive, and stores them as property
+	 * 
+	 * @see ICalculator#calculate(Mesh)
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> Vector<T> calculate(Mesh mesh) {
+		long start = Metrics.start();
+		int n = mesh.sizePoints();
+		ISpan span = beginCalculation(mesh, n);
+		Vector<T> result;
+		try {
+			Double spacing = (Double) getParameter("SampleSpacing");
+			forget();
+
+			Object[] values;
+			if ((spacing != null) && (spacing > 0)) {
+				VertexSampler sampler = new VertexSampler(mesh);
+				int[] samples = sampler.sample(
+						(VertexSampler.Method) getParameter("SamplingMethod"), spacing);
+				values = sampler.interpolate(calculateObserved(mesh, samples));
+			} else {
+				int[] points = new int[n];
+				for (int i = 0; i < n; ++i) {
+					points[i] = i;
+				}
+				long version = mesh.getVersion();
+				values = calculateObserved(mesh, points);
+				if (storeProperties) {
+					remember(mesh, version);
+				}
+			}
+
+			long store = Metrics.start();
+			result = new Vector<T>(n);
+			for (int i = 0; i < n; ++i) {
+				result.add((T) values[i]);
+				if (values[i] != null) {
+					storePropertyInContainer(mesh.getPoint(i), values[i]);
+				}
+			}
+			if (Metrics.isEnabled()) {
+				Metrics.stop(metricName("store"), store);
+				countResults(values);
+				Metrics.stop(metricName("calculate"), start);
+			}
+		} finally {
+			span.end();
+		}
+		return result;
+	}
+
+	/**
+	 * Calculates the values of the selected points and stores them as
+	 * property. The selection is calculated point by point, sampling does
+	 * not apply.
+	 * 
+	 * @see ICalculator#calculate(Mesh, int[])
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> Vector<T> calculate(Mesh mesh, int[] points) {
+		int n = mesh.sizePoints();
+		for (int i : points) {
+			if ((i < 0) || (i >= n)) {
+				throw new IndexOutOfBoundsException("Point " + i + " is not part of the mesh");
+			}
+		}
+
+		long start = Metrics.start();
+		ISpan span = beginCalculation(mesh, points.length);
+		Vector<T> result;
+		try {
+			Object[] values = calculateObserved(mesh, points);
+			long store = Metrics.start();
+			result = new Vector<T>(points.length);
+			for (int k = 0; k < points.length; ++k) {
+				result.add((T) values[k]);
+				if (values[k] != null) {
+					storePropertyInContainer(mesh.getPoint(points[k]), values[k]);
+				}
+			}
+			if (Metrics.isEnabled()) {
+				Metrics.stop(metricName("store"), store);
+				countResults(values);
+				Metrics.stop(metricName("calculate"), start);
+			}
+		} finally {
+			span.end();
+		}
+		return result;
+	}
+
+	/**
+	 * @see ICalculator#calculate(Mesh, BitSet)
+	 */
+	@Override
+	public <T> Vector<T> calculate(Mesh mesh, BitSet points) {
+		int[] indices = new int[points.cardinality()];
+		int k = 0;
+		for (int i = points.nextSetBit(0); i >= 0; i = points.nextSetBit(i + 1)) {
+			indices[k++] = i;
+		}
+		return calculate(mesh, indices);
+	}
+
+	/**
+	 * Recalculates the points around the points moved since the last 
+	 * calculation of all points
+	 * 
+	 * @see ICalculator#recalculate(Mesh)
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> Vector<T> recalculate(Mesh mesh) {
+		BitSet modified = null;
+		synchronized (this) {
+			if ((calculatedMesh != null) && (calculatedMesh.get() == mesh)) {
+				modified = mesh.getModifiedPoints(calculatedVersion);
+			}
+		}
+		if (modified == null) {
+			return calculate(mesh);
+		}
+
+		if (!modified.isEmpty()) {
+			long version = mesh.getVersion();
+			EdgeGraph graph = mesh.getEdgeGraph();
+			// a value depends on the points within the radius and on their
+			// direct neighbors, thus the search starts at the neighbors of
+			// the moved points. Only edges at moved points change their
+			// length and a path up to the first of these neighbors it meets
+			// has no such edge, thus the distances measured after the moves
+			// also cover the points which were in reach before.
+			BitSet region = graph.dilate(modified, 0.0);
+			double radius = getInfluenceRadius();
+			if (radius > 0) {
+				region = graph.dilate(region, radius);
+			}
+			calculate(mesh, region);
+			remember(mesh, version);
+		}
+
+		int n = mesh.sizePoints();
+		Vector<T> result = new Vector<T>(n);
+		for (int i = 0; i < n; ++i) {
+			result.add((T) mesh.getPoint(i).getProperty(getPropertyDefinition()));
+		}
+		return result;
+	}
+
+	/**
+	 * @return the name of a metric of this calculator, 
+	 *         <code>calculator.&lt;Class&gt;.name</code>
+	 * @see Metrics
+	 */
+	protected String metricName(String name) {
+		return "calculator." + getClass().getSimpleName() + "." + name;
+	}
+
+	@Override
+	public void setProgressMonitor(IProgressMonitor monitor) {
+		this.progressMonitor = monitor;
+	}
+
+	/**
+	 * Reports processed points to the progress monitor
+	 * 
+	 * @param points the number of points processed since the last report
+	 * @throws CancellationException if the monitor is canceled
+	 */
+	protected void worked(int points) {
+		IProgressMonitor monitor = progressMonitor;
+		if (monitor != null) {
+			if (monitor.isCanceled()) {
+				throw new CancellationException("Calculation of "
+						+ getPropertyDefinition() + " was canceled");
+			}
+			monitor.worked(points);
+		}
+	}
+
+	private Object[] calculateObserved(Mesh mesh, int[] points) {
+		IProgressMonitor monitor = progressMonitor;
+		if (monitor == null) {
+			return calculatePoints(mesh, points);
+		}
+		monitor.begin(String.valueOf(getPropertyDefinition()), points.length);
+		try {
+			worked(0);
+			return calculatePoints(mesh, points);
+		} finally {
+			monitor.done();
+		}
+	}
+
+	private ISpan beginCalculation(Mesh mesh, int selected) {
+		ISpan span = Metrics.begin(Metrics.CALCULATION);
+		if (span.isRecording()) {
+			span.set("calculator", getClass().getName());
+			span.set("parameters", CalculatorCache.canonicalParameters(this));
+			span.set("points", mesh.sizePoints());
+			span.set("triangles", mesh.sizeTriangles());
+			span.set("selected", selected);
+		}
+		return span;
+	}
+
+	private void countResults(Object[] values) {
+		int nan = 0;
+		for (Object value : values) {
+			if (isNaN(value)) {
+				nan++;
+			}
+		}
+		Metrics.count(metricName("points"), values.length);
+		Metrics.count(metricName("nan"), nan);
+	}
+
+	private static boolean isNaN(Object value) {
+		if (value instanceof Number) {
+			return Double.isNaN(((Number) value).doubleValue());
+		} else if (value instanceof Tuple3d) {
+			Tuple3d t = (Tuple3d) value;
+			return Double.isNaN(t.x) || Double.isNaN(t.y) || Double.isNaN(t.z);
+		} else if (value instanceof Tuple3d[]) {
+			for (Tuple3d t : (Tuple3d[]) value) {
+				if (isNaN(t)) {
+					return true;
+				}
+			}
+		} else if (value instanceof PrincipalCurvature) {
+			PrincipalCurvature c = (PrincipalCurvature) value;
+			return Double.isNaN(c.getMaximal()) || Double.isNaN(c.getMinimal());
+		}
+		return false;
+	}
+
+	private synchronized void remember(Mesh mesh, long version) {
+		calculatedMesh = new WeakReference<Mesh>(mesh);
+		calculatedVersion = version;
+	}
+
+	private synchronized void forget() {
+		calculatedMesh = null;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -49,6 +407,7 @@ public abstract class DefaultCalculator implements ICalculator {
 		if (paramDef != null) {
 			parameters.put(paramDef, parameter);
 			cacheStoreProperties();
+			forget();
 			return true;
 		} else {
 			return false;
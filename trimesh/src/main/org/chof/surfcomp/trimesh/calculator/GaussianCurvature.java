@@ -1,7 +1,6 @@
 package org.chof.surfcomp.trimesh.calculator;
 
 import java.util.Set;
-import java.util.Vector;
 
 import org.chof.surfcomp.trimesh.domain.Mesh;
 import org.chof.surfcomp.trimesh.domain.MeshEdge;
@@ -28,26 +27,27 @@ public class GaussianCurvature extends DefaultCalculator {
 	}
 
 	
-	@SuppressWarnings("unchecked")
 	@Override
-	public <T> Vector<T> calculate(Mesh mesh) {
+	protected Object[] calculatePoints(Mesh mesh, int[] points) {
 		
-		Vector<Double> result = new Vector<Double>(mesh.sizePoints());
+		Object[] result = new Object[points.length];
 		
-		for(int i=0;i<mesh.sizePoints();++i) {
-			Set<MeshEdge> edges = mesh.getEdgesOf(i);
+		for(int k=0;k<points.length;++k) {
+			Set<MeshEdge> edges = mesh.getEdgesOf(points[k]);
 		    double anglesum = 0;
 		    
 		    for(MeshEdge edge : edges) {
 		    	anglesum += edge.getTriangle().getAngle(edge.getStart());
 		    }
 		    
-		    double curvature = 2 * Math.PI - anglesum; 
-		    result.add(curvature);
-		    storePropertyInContainer(mesh.getPoint(i), curvature);
+		    result[k] = 2 * Math.PI - anglesum; 
+		    if ((k + 1) % PROGRESS_BLOCK == 0) {
+		    	worked(PROGRESS_BLOCK);
+		    }
 		}
+		worked(points.length % PROGRESS_BLOCK);
 		
-		return (Vector<T>) result;
+		return result;
 	}
 
 }
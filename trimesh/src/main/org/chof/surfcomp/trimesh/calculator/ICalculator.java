@@ -1,9 +1,11 @@
 package org.chof.surfcomp.trimesh.calculator;
 
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Vector;
 
 import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.interfaces.IProgressMonitor;
 import org.chof.surfcomp.trimesh.tools.ParameterDefinition;
 
 public interface ICalculator {
@@ -15,6 +17,53 @@ public interface ICalculator {
 	public Object getPropertyDefinition();
 	public Class<? extends Object> getPropertyType();
 	
+	/**
+	 * @return the property definitions of the point properties read by the
+	 *         calculator, which have to be present before it runs
+	 * @see CalculatorScheduler
+	 */
+	public Collection<Object> getInputProperties();
+	
 	public<T> Vector<T> calculate(Mesh mesh);
 	
+	/**
+	 * Calculates the values of a selection of points only, the neighborhoods
+	 * of the points still cover the whole mesh
+	 * 
+	 * @param mesh the mesh
+	 * @param points the indices of the selected points
+	 * @return the value of each selected point in the order of the indices
+	 */
+	public<T> Vector<T> calculate(Mesh mesh, int[] points);
+	
+	/**
+	 * @param points the selected points as set bits
+	 * @return the value of each selected point in ascending index order
+	 * @see #calculate(Mesh, int[])
+	 */
+	public<T> Vector<T> calculate(Mesh mesh, BitSet points);
+	
+	/**
+	 * Brings the values of all points up to date after points of the mesh 
+	 * were moved. Only the points whose neighborhood contains a moved point
+	 * are calculated, the values of all other points are taken from their
+	 * properties. Without a previous calculation of the mesh by this 
+	 * calculator, all points are calculated.
+	 * 
+	 * @param mesh the mesh
+	 * @return the value of each point
+	 * @see Mesh#movePoint(int, javax.vecmath.Point3d, javax.vecmath.Vector3d)
+	 */
+	public<T> Vector<T> recalculate(Mesh mesh);
+	
+	/**
+	 * Sets the monitor observing the following calculations. The
+	 * calculations report the processed points and throw a
+	 * {@link java.util.concurrent.CancellationException} once the monitor
+	 * is canceled.
+	 * 
+	 * @param monitor the monitor or null to calculate unobserved
+	 */
+	public void setProgressMonitor(IProgressMonitor monitor);
+	
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+package org.chof.surfcomp.trimesh.calculator;
+
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.algorithms.LaplaceBeltrami;
+import org.chof.surfcomp.trimesh.algorithms.PointGridIndex;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.tools.Parallel;
+
+/**
+ * Calculates the mean curvature of a point on the surface
+ * <p>
+ * The Laplace-Beltrami operator applied to the coordinates yields the mean
+ * curvature normal (Meyer et al. 2003):</p>
+ * <p>
+ * K = (L x)_i / A_i = -2 H n</p>
+ * <p>
+ * The cotangent matrix L and the mixed areas A are taken from
+ * {@link Mesh#getLaplaceBeltrami()}, so the calculation of a point is one
+ * sparse row of L times the coordinates of its neighbors. The mean curvature
+ * is |K| / 2 with the sign chosen by the point normal, i.e. positive for
+ * convex regions like a sphere with outward normals.</p>
+ *
+ * @author chof
+ */
+public class MeanCurvature extends DefaultCalculator {
+
+	/**
+	 * Selections of at least this fraction (1/n) of the mesh are calculated
+	 * on a flat copy of the coordinates
+	 */
+	private static final int FLAT_SELECTION = 8;
+
+	@Override
+	public Object getPropertyDefinition() {
+		return "MeanCurvature";
+	}
+
+	@Override
+	public Class<? extends Object> getPropertyType() {
+		return Double.class;
+	}
+
+	@Override
+	protected Object[] calculatePoints(final Mesh mesh, final int[] points) {
+		LaplaceBeltrami operator = mesh.getLaplaceBeltrami();
+		final int[] rowStart = operator.getLaplacian().getRowStart();
+		final int[] columns = operator.getLaplacian().getColumns();
+		final double[] values = operator.getLaplacian().getValues();
+		final double[] areas = operator.getAreas();
+		final Object[] result = new Object[points.length];
+
+		// only the rows of L x belonging to the points are needed, thus a
+		// small selection does not touch the rest of the mesh. A larger one
+		// reads a flat copy of the coordinates instead of the shared point
+		// list, the copy pays off once the neighbors of the selection make up
+		// a noticeable part of the mesh.
+		final double[] coordinates = (points.length >= mesh.sizePoints() / FLAT_SELECTION)
+				? PointGridIndex.coordinatesOf(mesh) : null;
+		Parallel.forRange(points.length, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				for (int k = from; k < to; ++k) {
+					int i = points[k];
+					double kx = 0, ky = 0, kz = 0;
+					if (areas[i] > 0) {
+						for (int p = rowStart[i]; p < rowStart[i + 1]; ++p) {
+							if (coordinates != null) {
+								int j = 3 * columns[p];
+								kx += values[p] * coordinates[j];
+								ky += values[p] * coordinates[j + 1];
+								kz += values[p] * coordinates[j + 2];
+							} else {
+								Point3d q = mesh.getPoint(columns[p]).getCoordinates();
+								kx += values[p] * q.x;
+								ky += values[p] * q.y;
+								kz += values[p] * q.z;
+							}
+						}
+						kx /= areas[i];
+						ky /= areas[i];
+						kz /= areas[i];
+					}
+
+					Vector3d normal = mesh.getPoint(i).getNormale();
+					double magnitude = Math.sqrt(kx * kx + ky * ky + kz * kz) / 2;
+					double direction = kx * normal.x + ky * normal.y + kz * normal.z;
+					result[k] = (direction > 0) ? -magnitude : magnitude;
+				}
+				worked(to - from);
+			}
+		});
+
+		return result;
+	}
+}
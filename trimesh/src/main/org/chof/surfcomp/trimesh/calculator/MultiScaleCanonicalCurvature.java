@@ -0,0 +1,324 @@
+package org.chof.surfcomp.trimesh.calculator;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.algorithms.EdgeGraph;
+import org.chof.surfcomp.trimesh.algorithms.PointGridIndex;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.tools.DoubleHeap;
+import org.chof.surfcomp.trimesh.tools.Parallel;
+import org.chof.surfcomp.trimesh.tools.ParameterDefinition;
+
+/**
+ * Calculates the canonical curvatures of {@link CanonicalCurvature} for
+ * several cutoff radii in one sweep
+ * <p>
+ * The neighborhood of each point is grown by a Dijkstra search along the
+ * edges of the mesh. Each point reached adds its terms to the moment sums
+ * (u^4, u^3 v, ...) of the paraboloid fit in the tangent frame of the center
+ * point. Whenever the search passes the next cutoff the 3x3 system is solved
+ * from the current sums, thus all scales cost about as much as the largest
+ * one alone. The points are processed in parallel.</p>
+ * <p>
+ * Unlike {@link CanonicalCurvature}, which fits the paraboloid to the points
+ * at the border of the cutoff, the fit uses all points within the cutoff,
+ * measured as shortest path along the edges. A cutoff of zero or below uses
+ * the direct neighbors of the point. A cutoff with too few points for the
+ * fit yields NaN, as a singular fit of {@link CanonicalCurvature} does.</p>
+ * <p>
+ * The calculator has one specific parameter:</p>
+ * <p>
+ * <code>CutOffs</code> the cutoff radii as array of Double, default 1.5, 3, 5
+ * and 8. The property of each point is an array of Vector3d with the
+ * curvatures and the shape index for each cutoff in ascending order.</p>
+ *
+ * @author chof
+ */
+public class MultiScaleCanonicalCurvature extends DefaultCalculator {
+
+	public MultiScaleCanonicalCurvature() {
+		super();
+		initializeParameters();
+	}
+
+	private void initializeParameters() {
+		Double[] cutoffs = { 1.5, 3.0, 5.0, 8.0 };
+		ParameterDefinition cutOffsProperty = new ParameterDefinition(
+				"CutOffs", Double[].class, true,
+				"Defines the cutoff radii for the determination of the calculating paraboloids",
+				cutoffs);
+		parameterDefinitions.put(cutOffsProperty.getDefinition(), cutOffsProperty);
+		parameters.put(cutOffsProperty, cutoffs);
+	}
+
+	@Override
+	public Object getPropertyDefinition() {
+		return "MultiScaleCanonicalCurvature";
+	}
+
+	@Override
+	public Class<? extends Object> getPropertyType() {
+		return Vector3d[].class;
+	}
+
+	/**
+	 * @return the cutoffs of the parameter in ascending order
+	 */
+	public double[] getCutOffs() {
+		Double[] parameter = (Double[]) getParameter("CutOffs");
+		if ((parameter == null) || (parameter.length == 0)) {
+			throw new IllegalArgumentException("At least one cutoff is needed");
+		}
+		double[] cutoffs = new double[parameter.length];
+		for (int i = 0; i < cutoffs.length; ++i) {
+			cutoffs[i] = parameter[i];
+		}
+		Arrays.sort(cutoffs);
+		return cutoffs;
+	}
+
+	@Override
+	protected double getInfluenceRadius() {
+		double[] cutoffs = getCutOffs();
+		return Math.max(0.0, cutoffs[cutoffs.length - 1]);
+	}
+
+	@Override
+	protected Object[] calculatePoints(Mesh mesh, final int[] points) {
+		final double[] cutoffs = getCutOffs();
+		final int n = mesh.sizePoints();
+		final double[] coordinates = PointGridIndex.coordinatesOf(mesh);
+		final double[] normals = new double[3 * n];
+		for (int i = 0; i < n; ++i) {
+			Vector3d normal = mesh.getPoint(i).getNormale();
+			normals[3 * i] = normal.x;
+			normals[3 * i + 1] = normal.y;
+			normals[3 * i + 2] = normal.z;
+		}
+		final EdgeGraph graph = mesh.getEdgeGraph();
+		final Object[] curvatures = new Object[points.length];
+
+		// a sweep allocates arrays over the whole mesh, thus the blocks reuse
+		// the sweeps released by earlier blocks and at most one sweep per
+		// running thread is created
+		final ConcurrentLinkedQueue<Sweep> sweeps = new ConcurrentLinkedQueue<Sweep>();
+		Parallel.forRange(points.length, 64, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				Sweep sweep = sweeps.poll();
+				if (sweep == null) {
+					sweep = new Sweep(coordinates, normals, graph);
+				}
+				for (int k = from; k < to; ++k) {
+					curvatures[k] = sweep.run(points[k], cutoffs);
+				}
+				sweeps.offer(sweep);
+				worked(to - from);
+			}
+		});
+		return curvatures;
+	}
+
+	/**
+	 * Work space of the neighborhood sweep of one thread
+	 */
+	private static class Sweep {
+		private final double[] coordinates;
+		private final double[] normals;
+		private final int[] rowStart;
+		private final int[] columns;
+		private final double[] lengths;
+
+		private final double[] distance;
+		private final boolean[] settled;
+		private int[] touched;
+		private int sizeTouched;
+
+		private final DoubleHeap heap = new DoubleHeap();
+
+		private final double[] frame = new double[9];
+		private final double[] moments = new double[8];
+
+		Sweep(double[] coordinates, double[] normals, EdgeGraph graph) {
+			this.coordinates = coordinates;
+			this.normals = normals;
+			this.rowStart = graph.getStart();
+			this.columns = graph.getNeighbors();
+			this.lengths = graph.getLengths();
+			int n = coordinates.length / 3;
+			distance = new double[n];
+			settled = new boolean[n];
+			Arrays.fill(distance, Double.POSITIVE_INFINITY);
+			touched = new int[64];
+		}
+
+		Vector3d[] run(int center, double[] cutoffs) {
+			Vector3d[] curvatures = new Vector3d[cutoffs.length];
+			setupFrame(center);
+
+			int k = 0;
+			if (cutoffs[0] <= 0) {
+				Arrays.fill(moments, 0);
+				for (int p = rowStart[center]; p < rowStart[center + 1]; ++p) {
+					accumulate(center, columns[p]);
+				}
+				Vector3d ring = solve();
+				while ((k < cutoffs.length) && (cutoffs[k] <= 0)) {
+					curvatures[k++] = ring;
+				}
+				if (k == cutoffs.length) {
+					return curvatures;
+				}
+			}
+
+			double limit = cutoffs[cutoffs.length - 1];
+			Arrays.fill(moments, 0);
+			heap.clear();
+			sizeTouched = 0;
+			relax(center, 0.0, limit);
+
+			while (!heap.isEmpty()) {
+				double d = heap.peekKey();
+				int v = heap.pop();
+				if (settled[v]) continue;
+				settled[v] = true;
+
+				// emit the scales which end before this point
+				while ((k < cutoffs.length) && (d > cutoffs[k])) {
+					curvatures[k++] = solve();
+				}
+				if (v != center) {
+					accumulate(center, v);
+				}
+				for (int p = rowStart[v]; p < rowStart[v + 1]; ++p) {
+					int w = columns[p];
+					if (!settled[w]) {
+						relax(w, d + lengths[p], limit);
+					}
+				}
+			}
+			while (k < cutoffs.length) {
+				curvatures[k++] = solve();
+			}
+
+			for (int i = 0; i < sizeTouched; ++i) {
+				distance[touched[i]] = Double.POSITIVE_INFINITY;
+				settled[touched[i]] = false;
+			}
+			return curvatures;
+		}
+
+		/**
+		 * Sets up the tangent frame eu, ev, en of the center point
+		 */
+		private void setupFrame(int center) {
+			double nx = normals[3 * center];
+			double ny = normals[3 * center + 1];
+			double nz = normals[3 * center + 2];
+			double norm = Math.sqrt(nx * nx + ny * ny + nz * nz);
+			nx /= norm;
+			ny /= norm;
+			nz /= norm;
+
+			// any axis perpendicular to the normal, the curvatures do not
+			// depend on the rotation of the frame around the normal
+			double ax = 0, ay = 0, az = 0;
+			if (Math.abs(nx) <= Math.abs(ny) && Math.abs(nx) <= Math.abs(nz)) {
+				ax = 1;
+			} else if (Math.abs(ny) <= Math.abs(nz)) {
+				ay = 1;
+			} else {
+				az = 1;
+			}
+			double ux = ny * az - nz * ay;
+			double uy = nz * ax - nx * az;
+			double uz = nx * ay - ny * ax;
+			double length = Math.sqrt(ux * ux + uy * uy + uz * uz);
+			ux /= length;
+			uy /= length;
+			uz /= length;
+
+			frame[0] = ux;
+			frame[1] = uy;
+			frame[2] = uz;
+			frame[3] = ny * uz - nz * uy;
+			frame[4] = nz * ux - nx * uz;
+			frame[5] = nx * uy - ny * ux;
+			frame[6] = nx;
+			frame[7] = ny;
+			frame[8] = nz;
+		}
+
+		/**
+		 * Adds the terms of a point to the moment sums of the paraboloid fit
+		 */
+		private void accumulate(int center, int point) {
+			double dx = coordinates[3 * point] - coordinates[3 * center];
+			double dy = coordinates[3 * point + 1] - coordinates[3 * center + 1];
+			double dz = coordinates[3 * point + 2] - coordinates[3 * center + 2];
+			double u = dx * frame[0] + dy * frame[1] + dz * frame[2];
+			double v = dx * frame[3] + dy * frame[4] + dz * frame[5];
+			double h = dx * frame[6] + dy * frame[7] + dz * frame[8];
+
+			double u2 = u * u;
+			double v2 = v * v;
+			moments[0] += u2 * u2;
+			moments[1] += u2 * u * v;
+			moments[2] += u2 * v2;
+			moments[3] += u * v2 * v;
+			moments[4] += v2 * v2;
+			moments[5] += h * u2;
+			moments[6] += h * u * v;
+			moments[7] += h * v2;
+		}
+
+		/**
+		 * Solves the normal equations of the paraboloid from the current sums
+		 * by Cramer's rule
+		 */
+		private Vector3d solve() {
+			double u4 = moments[0], u3v = moments[1], u2v2 = moments[2];
+			double uv3 = moments[3], v4 = moments[4];
+			double[][] a = {
+				{ u4, 2 * u3v, u2v2 },
+				{ u3v, 2 * u2v2, uv3 },
+				{ u2v2, 2 * uv3, v4 }
+			};
+			double[] b = { moments[5], moments[6], moments[7] };
+
+			double det = determinant(a);
+			double[] x = new double[3];
+			for (int c = 0; c < 3; ++c) {
+				double[][] m = { a[0].clone(), a[1].clone(), a[2].clone() };
+				for (int r = 0; r < 3; ++r) {
+					m[r][c] = b[r];
+				}
+				x[c] = (det != 0) ? determinant(m) / det : Double.NaN;
+			}
+			return CanonicalCurvature.determineCurvatures(x[0], x[1], x[2]);
+		}
+
+		private static double determinant(double[][] m) {
+			return m[0][0] * (m[1][1] * m[2][2] - m[1][2] * m[2][1])
+				 - m[0][1] * (m[1][0] * m[2][2] - m[1][2] * m[2][0])
+				 + m[0][2] * (m[1][0] * m[2][1] - m[1][1] * m[2][0]);
+		}
+
+		private void relax(int v, double d, double limit) {
+			if ((d > limit) || (d >= distance[v])) {
+				return;
+			}
+			if (distance[v] == Double.POSITIVE_INFINITY) {
+				if (sizeTouched == touched.length) {
+					touched = Arrays.copyOf(touched, 2 * touched.length);
+				}
+				touched[sizeTouched++] = v;
+			}
+			distance[v] = d;
+			heap.push(d, v);
+		}
+	}
+}
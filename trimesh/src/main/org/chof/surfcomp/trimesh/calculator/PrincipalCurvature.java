@@ -0,0 +1,151 @@
+package org.chof.surfcomp.trimesh.calculator;
+
+import javax.vecmath.Matrix3d;
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.interfaces.IInterpolable;
+
+/**
+ * The principal curvatures and directions at a point of the surface
+ * <p>
+ * The maximal curvature is never smaller than the minimal curvature. The
+ * directions are unit vectors in the tangent plane of the point and
+ * perpendicular to each other. Positive curvatures bend the surface away
+ * from the normal, e.g. a sphere with outward normals has positive
+ * curvatures.</p>
+ * <p>
+ * Principal curvatures are interpolated as curvature tensors
+ * <code>k1 d1 d1^T + k2 d2 d2^T</code>, which are averaged in a common
+ * tangent plane and decomposed again. Thus directions of opposite sign
+ * describe the same curvature and umbilic points do not distort the
+ * directions of their neighbors.</p>
+ *
+ * @author chof
+ */
+public class PrincipalCurvature implements IInterpolable {
+
+	private final double maximal;
+	private final double minimal;
+	private final Vector3d maximalDirection;
+	private final Vector3d minimalDirection;
+
+	public PrincipalCurvature(double maximal, double minimal,
+			Vector3d maximalDirection, Vector3d minimalDirection) {
+		this.maximal = maximal;
+		this.minimal = minimal;
+		this.maximalDirection = new Vector3d(maximalDirection);
+		this.minimalDirection = new Vector3d(minimalDirection);
+	}
+
+	public double getMaximal() {
+		return maximal;
+	}
+
+	public double getMinimal() {
+		return minimal;
+	}
+
+	/**
+	 * @return a copy of the direction of the maximal curvature
+	 */
+	public Vector3d getMaximalDirection() {
+		return new Vector3d(maximalDirection);
+	}
+
+	/**
+	 * @return a copy of the direction of the minimal curvature
+	 */
+	public Vector3d getMinimalDirection() {
+		return new Vector3d(minimalDirection);
+	}
+
+	/**
+	 * @return the mean curvature (k1 + k2) / 2
+	 */
+	public double getMean() {
+		return (maximal + minimal) / 2;
+	}
+
+	/**
+	 * @return the gaussian curvature k1 * k2
+	 */
+	public double getGaussian() {
+		return maximal * minimal;
+	}
+
+	/**
+	 * Averages the curvature tensors of the values in the tangent plane of
+	 * the averaged normals, oriented like the normal of this value
+	 */
+	@Override
+	public Object interpolate(Object[] values, double[] weights, int count) {
+		Vector3d reference = new Vector3d();
+		reference.cross(maximalDirection, minimalDirection);
+
+		Matrix3d tensor = new Matrix3d();
+		Vector3d normal = new Vector3d();
+		Vector3d n = new Vector3d();
+		double total = 0;
+		for (int c = 0; c < count; ++c) {
+			if (values[c] == null) continue;
+			PrincipalCurvature value = (PrincipalCurvature) values[c];
+			n.cross(value.maximalDirection, value.minimalDirection);
+			normal.scaleAdd((n.dot(reference) < 0) ? -weights[c] : weights[c], n, normal);
+			addOuter(tensor, weights[c] * value.maximal, value.maximalDirection);
+			addOuter(tensor, weights[c] * value.minimal, value.minimalDirection);
+			total += weights[c];
+		}
+		tensor.mul(1.0 / total);
+		if (normal.lengthSquared() == 0) {
+			normal.set(reference);
+		}
+		normal.normalize();
+
+		// frame of the tangent plane starting at the own maximal direction
+		Vector3d u = new Vector3d(maximalDirection);
+		u.scaleAdd(-u.dot(normal), normal, u);
+		if (u.lengthSquared() < 1e-12) {
+			u.set(minimalDirection);
+			u.scaleAdd(-u.dot(normal), normal, u);
+		}
+		u.normalize();
+		Vector3d v = new Vector3d();
+		v.cross(normal, u);
+
+		Vector3d tu = new Vector3d(u);
+		tensor.transform(tu);
+		Vector3d tv = new Vector3d(v);
+		tensor.transform(tv);
+		double a = u.dot(tu);
+		double b = 0.5 * (u.dot(tv) + v.dot(tu));
+		double d = v.dot(tv);
+
+		double mean = (a + d) / 2;
+		double radius = Math.sqrt((a - d) * (a - d) / 4 + b * b);
+		double angle = 0.5 * Math.atan2(2 * b, a - d);
+		Vector3d maximal = new Vector3d();
+		maximal.scaleAdd(Math.cos(angle), u, maximal);
+		maximal.scaleAdd(Math.sin(angle), v, maximal);
+		Vector3d minimal = new Vector3d();
+		minimal.cross(normal, maximal);
+		return new PrincipalCurvature(mean + radius, mean - radius, maximal, minimal);
+	}
+
+	private static void addOuter(Matrix3d tensor, double scale, Vector3d d) {
+		tensor.m00 += scale * d.x * d.x;
+		tensor.m01 += scale * d.x * d.y;
+		tensor.m02 += scale * d.x * d.z;
+		tensor.m10 += scale * d.y * d.x;
+		tensor.m11 += scale * d.y * d.y;
+		tensor.m12 += scale * d.y * d.z;
+		tensor.m20 += scale * d.z * d.x;
+		tensor.m21 += scale * d.z * d.y;
+		tensor.m22 += scale * d.z * d.z;
+	}
+
+	@Override
+	public String toString() {
+		return "(" + maximal + ", " + minimal + ") along " + maximalDirection
+				+ ", " + minimalDirection;
+	}
+}
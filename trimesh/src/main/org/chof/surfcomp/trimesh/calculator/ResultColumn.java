@@ -0,0 +1,279 @@
+package org.chof.surfcomp.trimesh.calculator;
+
+import java.lang.reflect.Array;
+import java.nio.DoubleBuffer;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Vector;
+
+import javax.vecmath.Tuple3d;
+import javax.vecmath.Vector3d;
+
+/**
+ * The values of a calculator for all points stored as one read-only column of
+ * doubles
+ * <p>
+ * Numbers take one double per point and are returned as Double, tuples like <code>Vector3d</code> three,
+ * arrays of tuples three per element and {@link PrincipalCurvature} eight.
+ * Values of other types are kept as objects. A column never changes after
+ * construction and may be shared between threads, {@link #getValue(int)}
+ * returns a new object on every call.</p>
+ *
+ * @author chof
+ */
+public class ResultColumn {
+
+	private enum Kind { NUMBER, TUPLE, TUPLE_ARRAY, PRINCIPAL, OBJECT }
+
+	private final int size;
+	private final Kind kind;
+	private final int width;
+	private final Tuple3d prototype;
+	private final BitSet missing = new BitSet();
+	private final double[] data;
+	private final Object[] objects;
+
+	/**
+	 * Stores the values of a calculation
+	 *
+	 * @param values the value of each point, null for points without value
+	 */
+	public ResultColumn(List<?> values) {
+		size = values.size();
+		Object first = null;
+		for (Object value : values) {
+			if (value != null) {
+				first = value;
+				break;
+			}
+		}
+
+		Kind kind = kindOf(first);
+		int width = widthOf(kind, first);
+		if (width < 0) {
+			kind = Kind.OBJECT;
+		}
+		for (int i = 0; (i < size) && (kind != Kind.OBJECT); ++i) {
+			Object value = values.get(i);
+			if ((value != null) && ((kindOf(value) != kind) || (widthOf(kind, value) != width)
+					|| (value.getClass() != first.getClass()))) {
+				kind = Kind.OBJECT;
+			}
+		}
+		this.kind = kind;
+		this.width = (kind == Kind.OBJECT) ? 1 : width;
+
+		if (kind == Kind.TUPLE) {
+			prototype = (Tuple3d) ((Tuple3d) first).clone();
+		} else if (kind == Kind.TUPLE_ARRAY) {
+			prototype = (Tuple3d) ((Tuple3d[]) first)[0].clone();
+		} else {
+			prototype = null;
+		}
+
+		if (kind == Kind.OBJECT) {
+			data = null;
+			objects = values.toArray();
+			for (int i = 0; i < size; ++i) {
+				if (objects[i] == null) {
+					missing.set(i);
+				}
+			}
+		} else {
+			objects = null;
+			data = new double[size * this.width];
+			for (int i = 0; i < size; ++i) {
+				Object value = values.get(i);
+				if (value == null) {
+					missing.set(i);
+				} else {
+					encode(value, i * this.width);
+				}
+			}
+		}
+	}
+
+	private static Kind kindOf(Object value) {
+		if (value instanceof Number) {
+			return Kind.NUMBER;
+		} else if (value instanceof Tuple3d) {
+			return Kind.TUPLE;
+		} else if ((value instanceof Tuple3d[]) && (((Tuple3d[]) value).length > 0)) {
+			return Kind.TUPLE_ARRAY;
+		} else if (value instanceof PrincipalCurvature) {
+			return Kind.PRINCIPAL;
+		} else {
+			return Kind.OBJECT;
+		}
+	}
+
+	private static int widthOf(Kind kind, Object value) {
+		switch (kind) {
+		case NUMBER:
+			return 1;
+		case TUPLE:
+			return 3;
+		case TUPLE_ARRAY:
+			Tuple3d[] tuples = (Tuple3d[]) value;
+			for (Tuple3d t : tuples) {
+				if ((t == null) || (t.getClass() != tuples[0].getClass())) {
+					return -1;
+				}
+			}
+			return 3 * tuples.length;
+		case PRINCIPAL:
+			return 8;
+		default:
+			return 1;
+		}
+	}
+
+	private void encode(Object value, int offset) {
+		switch (kind) {
+		case NUMBER:
+			data[offset] = ((Number) value).doubleValue();
+			break;
+		case TUPLE:
+			put((Tuple3d) value, offset);
+			break;
+		case TUPLE_ARRAY:
+			for (Tuple3d t : (Tuple3d[]) value) {
+				put(t, offset);
+				offset += 3;
+			}
+			break;
+		case PRINCIPAL:
+			PrincipalCurvature c = (PrincipalCurvature) value;
+			data[offset] = c.getMaximal();
+			data[offset + 1] = c.getMinimal();
+			put(c.getMaximalDirection(), offset + 2);
+			put(c.getMinimalDirection(), offset + 5);
+			break;
+		default:
+			throw new IllegalStateException();
+		}
+	}
+
+	private void put(Tuple3d tuple, int offset) {
+		data[offset] = tuple.x;
+		data[offset + 1] = tuple.y;
+		data[offset + 2] = tuple.z;
+	}
+
+	//**************************************************************************
+	// Getters
+	//**************************************************************************
+
+	/**
+	 * @return the number of points
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of doubles per point or 0 if the values are kept as
+	 *         objects
+	 */
+	public int getWidth() {
+		return (data != null) ? width : 0;
+	}
+
+	/**
+	 * @return true if the point has a value
+	 */
+	public boolean hasValue(int point) {
+		return !missing.get(point);
+	}
+
+	/**
+	 * @param point the index of the point
+	 * @param component the component within the doubles of the point
+	 * @return the component of the value of the point, NaN for points
+	 *         without value
+	 */
+	public double get(int point, int component) {
+		if (data == null) {
+			throw new UnsupportedOperationException("The values are kept as objects");
+		}
+		if ((component < 0) || (component >= width)) {
+			throw new IndexOutOfBoundsException("Component " + component
+					+ " of a width of " + width);
+		}
+		return missing.get(point) ? Double.NaN : data[point * width + component];
+	}
+
+	/**
+	 * @return all doubles point by point as read-only buffer, values of
+	 *         points without value are undefined
+	 */
+	public DoubleBuffer getData() {
+		if (data == null) {
+			throw new UnsupportedOperationException("The values are kept as objects");
+		}
+		return DoubleBuffer.wrap(data).asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return a copy of the value of a point in the type of the calculator
+	 *         or null if the point has no value. Values kept as objects are
+	 *         returned as they are.
+	 */
+	public Object getValue(int point) {
+		if (missing.get(point)) {
+			return null;
+		}
+		int offset = point * width;
+		switch (kind) {
+		case NUMBER:
+			return data[offset];
+		case TUPLE:
+			return decodeTuple(offset);
+		case TUPLE_ARRAY:
+			Tuple3d[] tuples = (Tuple3d[]) Array.newInstance(
+					prototype.getClass(), width / 3);
+			for (int k = 0; k < tuples.length; ++k) {
+				tuples[k] = decodeTuple(offset + 3 * k);
+			}
+			return tuples;
+		case PRINCIPAL:
+			return new PrincipalCurvature(data[offset], data[offset + 1],
+					new Vector3d(data[offset + 2], data[offset + 3], data[offset + 4]),
+					new Vector3d(data[offset + 5], data[offset + 6], data[offset + 7]));
+		default:
+			return objects[point];
+		}
+	}
+
+	private Tuple3d decodeTuple(int offset) {
+		Tuple3d tuple = (Tuple3d) prototype.clone();
+		tuple.set(data[offset], data[offset + 1], data[offset + 2]);
+		return tuple;
+	}
+
+	/**
+	 * @return copies of all values as returned by the calculator
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Vector<T> toVector() {
+		Vector<T> result = new Vector<T>(size);
+		for (int i = 0; i < size; ++i) {
+			result.add((T) getValue(i));
+		}
+		return result;
+	}
+
+	/**
+	 * @return the estimated memory taken by the column in bytes
+	 */
+	public long sizeBytes() {
+		long bytes = 64 + size / 8;
+		if (data != null) {
+			bytes += 16 + 8L * data.length;
+		} else {
+			// references and small boxed values
+			bytes += 16 + 48L * size;
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,56 @@
+package org.chof.surfcomp.trimesh.calculator;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.chof.surfcomp.trimesh.domain.Mesh;
+
+/**
+ * Calculates the shape index of Koenderink from the principal curvatures
+ * <p>
+ * The shape index is calculated by:</p>
+ * <p>
+ * index = 2/Pi * atan((k1 + k2) / (k1 - k2)) with k1 &gt;= k2</p>
+ * <p>
+ * It ranges from -1 for a cup over 0 for a saddle to 1 for a cap, planar
+ * points get 0. The principal curvatures are read from the property
+ * <code>PrincipalCurvature</code> of the points, e.g. as stored by
+ * {@link CurvatureTensor}. Points without the property get no value.</p>
+ * 
+ * @author chof
+ */
+public class ShapeIndex extends DefaultCalculator {
+
+	@Override
+	public Object getPropertyDefinition() {
+		return "ShapeIndex";
+	}
+
+	@Override
+	public Class<? extends Object> getPropertyType() {
+		return Double.class;
+	}
+
+	@Override
+	public Collection<Object> getInputProperties() {
+		return Collections.<Object>singletonList("PrincipalCurvature");
+	}
+
+	@Override
+	protected Object[] calculatePoints(Mesh mesh, int[] points) {
+		Object[] result = new Object[points.length];
+		for (int k = 0; k < points.length; ++k) {
+			PrincipalCurvature c = mesh.getPoint(points[k]).getProperty(
+					"PrincipalCurvature", PrincipalCurvature.class);
+			if (c != null) {
+				result[k] = 2 / Math.PI * Math.atan2(
+						c.getMaximal() + c.getMinimal(), c.getMaximal() - c.getMinimal());
+			}
+			if ((k + 1) % PROGRESS_BLOCK == 0) {
+				worked(PROGRESS_BLOCK);
+			}
+		}
+		worked(points.length % PROGRESS_BLOCK);
+		return result;
+	}
+}
@@ -0,0 +1,88 @@
+package org.chof.surfcomp.trimesh.comparison;
+
+/**
+ * The contact interface between two surfaces as found by the
+ * {@link InterfaceDetector}
+ * <p>
+ * The interface points of each surface are the points within the cutoff of
+ * any point of the other surface. The interface triangles are all triangles
+ * with at least one interface corner. The interface area of a surface counts
+ * one third of the area of a triangle for each of its interface corners, i.e.
+ * it is the area of the barycentric cells of the interface points.</p>
+ *
+ * @author chof
+ */
+public class ContactInterface {
+
+	private final int[] pointsA;
+	private final int[] pointsB;
+	private final int[] trianglesA;
+	private final int[] trianglesB;
+	private final double areaA;
+	private final double areaB;
+
+	ContactInterface(int[] pointsA, int[] trianglesA, double areaA,
+			int[] pointsB, int[] trianglesB, double areaB) {
+		this.pointsA = pointsA;
+		this.pointsB = pointsB;
+		this.trianglesA = trianglesA;
+		this.trianglesB = trianglesB;
+		this.areaA = areaA;
+		this.areaB = areaB;
+	}
+
+	/**
+	 * @return true if the surfaces are not in contact
+	 */
+	public boolean isEmpty() {
+		return pointsA.length == 0;
+	}
+
+	/**
+	 * @return the ascending indices of the interface points on surface A
+	 */
+	public int[] getPointsA() {
+		return pointsA;
+	}
+
+	/**
+	 * @return the ascending indices of the interface points on surface B
+	 */
+	public int[] getPointsB() {
+		return pointsB;
+	}
+
+	/**
+	 * @return the ascending indices of the interface triangles on surface A
+	 */
+	public int[] getTrianglesA() {
+		return trianglesA;
+	}
+
+	/**
+	 * @return the ascending indices of the interface triangles on surface B
+	 */
+	public int[] getTrianglesB() {
+		return trianglesB;
+	}
+
+	/**
+	 * @return the interface area on surface A
+	 */
+	public double getAreaA() {
+		return areaA;
+	}
+
+	/**
+	 * @return the interface area on surface B
+	 */
+	public double getAreaB() {
+		return areaB;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("A: %d points %.2f area, B: %d points %.2f area",
+				pointsA.length, areaA, pointsB.length, areaB);
+	}
+}
@@ -0,0 +1,152 @@
+package org.chof.surfcomp.trimesh.comparison;
+
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.Point;
+
+/**
+ * Summary of the distances between the points of one mesh and the surface of
+ * another mesh
+ * <p>
+ * The maximum of the distances is the one-sided Hausdorff distance, the mean
+ * and the root mean square are the usual mean surface distances. Statistics
+ * of both directions are combined by {@link #combine(DistanceStatistics,
+ * DistanceStatistics)} into the symmetric measures.</p>
+ *
+ * @author chof
+ */
+public class DistanceStatistics {
+
+	private final double[] distances;
+	private final int count;
+	private final double maximum;
+	private final int maximumIndex;
+	private final double sum;
+	private final double sumOfSquares;
+
+	/**
+	 * Constructs the statistics of per point distances
+	 * @param distances the distance of each point, kept by reference
+	 */
+	public DistanceStatistics(double[] distances) {
+		this.distances = distances;
+		this.count = distances.length;
+
+		double max = 0;
+		int maxIndex = -1;
+		double s = 0;
+		double s2 = 0;
+		for (int i = 0; i < distances.length; ++i) {
+			double d = distances[i];
+			if (d > max || maxIndex < 0) {
+				max = d;
+				maxIndex = i;
+			}
+			s += d;
+			s2 += d * d;
+		}
+
+		this.maximum = max;
+		this.maximumIndex = maxIndex;
+		this.sum = s;
+		this.sumOfSquares = s2;
+	}
+
+	private DistanceStatistics(int count, double maximum, double sum,
+			double sumOfSquares) {
+		this.distances = null;
+		this.count = count;
+		this.maximum = maximum;
+		this.maximumIndex = -1;
+		this.sum = sum;
+		this.sumOfSquares = sumOfSquares;
+	}
+
+	/**
+	 * Combines the statistics of both directions into symmetric statistics.
+	 * The maximum is the symmetric Hausdorff distance, mean and root mean
+	 * square are taken over the points of both meshes.
+	 * <p>
+	 * The combined statistics do not provide per point distances.</p>
+	 *
+	 * @return the combined statistics
+	 */
+	public static DistanceStatistics combine(DistanceStatistics a,
+			DistanceStatistics b) {
+		return new DistanceStatistics(a.count + b.count, Math.max(a.maximum,
+				b.maximum), a.sum + b.sum, a.sumOfSquares + b.sumOfSquares);
+	}
+
+	//**************************************************************************
+	// Getters
+	//**************************************************************************
+
+	/**
+	 * @return the distance of each point or null for combined statistics
+	 */
+	public double[] getDistances() {
+		return distances;
+	}
+
+	/**
+	 * @return the number of distances
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the maximum distance, i.e. the Hausdorff distance
+	 */
+	public double getHausdorff() {
+		return maximum;
+	}
+
+	/**
+	 * @return the index of the point with the maximum distance or -1 for
+	 *         combined statistics
+	 */
+	public int getHausdorffIndex() {
+		return maximumIndex;
+	}
+
+	/**
+	 * @return the mean distance
+	 */
+	public double getMean() {
+		return (count > 0) ? sum / count : 0;
+	}
+
+	/**
+	 * @return the root mean square distance
+	 */
+	public double getRMS() {
+		return (count > 0) ? Math.sqrt(sumOfSquares / count) : 0;
+	}
+
+	/**
+	 * Stores the distances as Double property of the points of the mesh they
+	 * were measured for
+	 *
+	 * @param mesh the mesh the distances belong to
+	 * @param description the description of the property
+	 */
+	public void storeInPoints(Mesh mesh, Object description) {
+		if (distances == null) {
+			throw new IllegalStateException("Combined statistics do not provide per point distances");
+		}
+		if (mesh.sizePoints() != distances.length) {
+			throw new IllegalArgumentException("The mesh does not match the distances");
+		}
+
+		int i = 0;
+		for (Point p : mesh.getPoints()) {
+			p.setProperty(description, distances[i++]);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("hausdorff=%g mean=%g rms=%g (%d points)",
+				getHausdorff(), getMean(), getRMS(), count);
+	}
+}
@@ -0,0 +1,185 @@
+package org.chof.surfcomp.trimesh.comparison;
+
+import javax.vecmath.Matrix4d;
+
+import org.chof.surfcomp.trimesh.algorithms.PointGridIndex;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.Triangle;
+import org.chof.surfcomp.trimesh.tools.IntList;
+import org.chof.surfcomp.trimesh.tools.Parallel;
+
+/**
+ * Detects the contact interface between two surfaces
+ * <p>
+ * A grid over the points of surface B with the cutoff as cell size is built
+ * once. For each pose of surface A its points are transformed and looked up
+ * in parallel in the grid; every pair within the cutoff marks the point on A
+ * as well as the point on B, so a single pass over A finds the interface on
+ * both surfaces. Poses whose bounding box does not reach surface B are
+ * rejected without any lookup.</p>
+ * <p>
+ * The detector holds no per pose state and can be used for many poses, also
+ * from several threads.</p>
+ *
+ * @author chof
+ */
+public class InterfaceDetector {
+
+	private final double cutoff;
+
+	private final double[] coordinatesA;
+	private final int[] trianglesA;
+	private final double[] areasA;
+
+	private final PointGridIndex gridB;
+	private final int sizeB;
+	private final int[] trianglesB;
+	private final double[] areasB;
+	private final double[] boundsB;
+
+	/**
+	 * Prepares the detection of contacts between two surfaces
+	 *
+	 * @param a the first, moving surface
+	 * @param b the second, fixed surface
+	 * @param cutoff the maximum distance of two points in contact
+	 */
+	public InterfaceDetector(Mesh a, Mesh b, double cutoff) {
+		if (cutoff <= 0) {
+			throw new IllegalArgumentException("The cutoff must be positive");
+		}
+		this.cutoff = cutoff;
+
+		coordinatesA = PointGridIndex.coordinatesOf(a);
+		trianglesA = a.getTriangleIndices();
+		areasA = areasOf(a);
+
+		double[] coordinatesB = PointGridIndex.coordinatesOf(b);
+		gridB = new PointGridIndex(coordinatesB, cutoff);
+		sizeB = b.sizePoints();
+		trianglesB = b.getTriangleIndices();
+		areasB = areasOf(b);
+		boundsB = bounds(coordinatesB);
+	}
+
+	public double getCutoff() {
+		return cutoff;
+	}
+
+	/**
+	 * Detects the interface of the surfaces in their own coordinates
+	 * @return the interface, empty if the surfaces are not in contact
+	 */
+	public ContactInterface detect() {
+		return detect(null);
+	}
+
+	/**
+	 * Detects the interface with surface A moved by a rigid transform
+	 *
+	 * @param pose the transform of the points of surface A or null for none
+	 * @return the interface, empty if the surfaces are not in contact
+	 */
+	public ContactInterface detect(Matrix4d pose) {
+		final double[] points = (pose != null) ? transform(coordinatesA, pose) : coordinatesA;
+		final int sizeA = points.length / 3;
+
+		double[] boundsA = bounds(points);
+		for (int axis = 0; axis < 3; ++axis) {
+			if ((boundsA[axis] - cutoff > boundsB[axis + 3])
+					|| (boundsA[axis + 3] + cutoff < boundsB[axis])) {
+				return new ContactInterface(new int[0], new int[0], 0, new int[0],
+						new int[0], 0);
+			}
+		}
+
+		final byte[] markA = new byte[sizeA];
+		final byte[] markB = new byte[sizeB];
+
+		Parallel.forRange(sizeA, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				IntList found = new IntList();
+				for (int i = from; i < to; ++i) {
+					found.clear();
+					if (gridB.withinRadius(points[3 * i], points[3 * i + 1],
+							points[3 * i + 2], cutoff, -1, found) > 0) {
+						markA[i] = 1;
+						for (int f = 0; f < found.size(); ++f) {
+							markB[found.get(f)] = 1;
+						}
+					}
+				}
+			}
+		});
+
+		IntList triangles = new IntList();
+		double areaA = collectTriangles(markA, trianglesA, areasA, triangles);
+		int[] interfaceTrianglesA = triangles.toArray();
+		triangles.clear();
+		double areaB = collectTriangles(markB, trianglesB, areasB, triangles);
+
+		return new ContactInterface(marked(markA), interfaceTrianglesA, areaA,
+				marked(markB), triangles.toArray(), areaB);
+	}
+
+	//**************************************************************************
+	// Helpers
+	//**************************************************************************
+
+	private static double collectTriangles(byte[] marks, int[] corners,
+			double[] areas, IntList triangles) {
+		double area = 0;
+		for (int t = 0; t < areas.length; ++t) {
+			int count = marks[corners[3 * t]] + marks[corners[3 * t + 1]]
+					+ marks[corners[3 * t + 2]];
+			if (count > 0) {
+				triangles.add(t);
+				area += areas[t] * count / 3.0;
+			}
+		}
+		return area;
+	}
+
+	private static int[] marked(byte[] marks) {
+		IntList indices = new IntList();
+		for (int i = 0; i < marks.length; ++i) {
+			if (marks[i] != 0) {
+				indices.add(i);
+			}
+		}
+		return indices.toArray();
+	}
+
+	private static double[] areasOf(Mesh mesh) {
+		double[] areas = new double[mesh.sizeTriangles()];
+		int t = 0;
+		for (Triangle triangle : mesh.getTriangles()) {
+			areas[t++] = triangle.getArea();
+		}
+		return areas;
+	}
+
+	private static double[] transform(double[] coordinates, Matrix4d m) {
+		double[] result = new double[coordinates.length];
+		for (int i = 0; i < coordinates.length; i += 3) {
+			double x = coordinates[i], y = coordinates[i + 1], z = coordinates[i + 2];
+			result[i] = m.m00 * x + m.m01 * y + m.m02 * z + m.m03;
+			result[i + 1] = m.m10 * x + m.m11 * y + m.m12 * z + m.m13;
+			result[i + 2] = m.m20 * x + m.m21 * y + m.m22 * z + m.m23;
+		}
+		return result;
+	}
+
+	private static double[] bounds(double[] coordinates) {
+		double[] box = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+				Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+				Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		for (int i = 0; i < coordinates.length; ++i) {
+			int axis = i % 3;
+			box[axis] = Math.min(box[axis], coordinates[i]);
+			box[axis + 3] = Math.max(box[axis + 3], coordinates[i]);
+		}
+		return box;
+	}
+}
@@ -0,0 +1,148 @@
+package org.chof.surfcomp.trimesh.comparison;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.chof.surfcomp.trimesh.algorithms.PointGridIndex;
+import org.chof.surfcomp.trimesh.algorithms.TriangleBVH;
+import org.chof.surfcomp.trimesh.algorithms.TriangleHit;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.Point;
+import org.chof.surfcomp.trimesh.interfaces.IPropertyContainer;
+import org.chof.surfcomp.trimesh.tools.Parallel;
+import org.chof.surfcomp.trimesh.tools.ValueInterpolation;
+
+/**
+ * Transfers point properties from a source surface to the points of a target
+ * surface
+ * <p>
+ * With {@link Method#NEAREST_VERTEX} each target point takes the value of the
+ * closest source point. With {@link Method#BARYCENTRIC} the closest point on
+ * the source surface is located and the values of the corners of its triangle
+ * are interpolated with the barycentric weights of the closest point. The
+ * values are combined by {@link ValueInterpolation}, thus only floating
+ * point numbers and tuples are interpolated, integral numbers and other
+ * values are taken from the corner of the largest weight. Corners without
+ * the property are left out.</p>
+ * <p>
+ * The source values are collected once, the target points are processed in
+ * parallel and receive their value directly as property. Target points for
+ * which no value can be determined keep their current property.</p>
+ *
+ * @author chof
+ */
+public class PropertyTransfer {
+
+	/**
+	 * The way the value at a target point is derived from the source
+	 */
+	public enum Method {
+		/** the value of the closest source point */
+		NEAREST_VERTEX,
+		/** the interpolated value at the closest point on the source surface */
+		BARYCENTRIC
+	}
+
+	private final Mesh source;
+	private Method method = Method.BARYCENTRIC;
+
+	/**
+	 * Constructs a transfer from the given source surface
+	 */
+	public PropertyTransfer(Mesh source) {
+		this.source = source;
+	}
+
+	public Method getMethod() {
+		return method;
+	}
+
+	/**
+	 * @param method the method of the transfer, default barycentric
+	 */
+	public void setMethod(Method method) {
+		this.method = method;
+	}
+
+	/**
+	 * Transfers a property keeping its description
+	 * @see #transfer(Mesh, Object, Object)
+	 */
+	public int transfer(Mesh target, Object description) {
+		return transfer(target, description, description);
+	}
+
+	/**
+	 * Transfers a property of the source points to the target points
+	 *
+	 * @param target the surface receiving the values
+	 * @param sourceDescription the description of the property on the source
+	 * @param targetDescription the description the values are stored under on
+	 *        the target
+	 * @return the number of target points which received a value
+	 */
+	public int transfer(Mesh target, Object sourceDescription,
+			final Object targetDescription) {
+		final Object[] values = new Object[source.sizePoints()];
+		int i = 0;
+		for (IPropertyContainer p : source.getPoints()) {
+			values[i++] = p.getProperty(sourceDescription);
+		}
+
+		final Point[] points = target.getPoints().toArray(new Point[target.sizePoints()]);
+		final double[] coordinates = PointGridIndex.coordinatesOf(target);
+		final AtomicInteger transferred = new AtomicInteger();
+
+		if (method == Method.NEAREST_VERTEX) {
+			final PointGridIndex grid = source.getPointGridIndex();
+			Parallel.forRange(points.length, new Parallel.RangeTask() {
+				@Override
+				public void run(int from, int to) {
+					int count = 0;
+					for (int i = from; i < to; ++i) {
+						int nearest = grid.nearest(coordinates[3 * i], coordinates[3 * i + 1],
+								coordinates[3 * i + 2], Double.POSITIVE_INFINITY);
+						if ((nearest >= 0) && (values[nearest] != null)) {
+							points[i].setProperty(targetDescription, values[nearest]);
+							count++;
+						}
+					}
+					transferred.addAndGet(count);
+				}
+			});
+		} else {
+			final TriangleBVH bvh = source.getTriangleBVH();
+			final int[] indices = source.getTriangleIndices();
+			Parallel.forRange(points.length, new Parallel.RangeTask() {
+				@Override
+				public void run(int from, int to) {
+					TriangleHit hit = new TriangleHit();
+					int count = 0;
+					for (int i = from; i < to; ++i) {
+						if (bvh.closestPoint(coordinates[3 * i], coordinates[3 * i + 1],
+								coordinates[3 * i + 2], Double.POSITIVE_INFINITY, hit)) {
+							Object value = interpolate(values, indices, hit);
+							if (value != null) {
+								points[i].setProperty(targetDescription, value);
+								count++;
+							}
+						}
+					}
+					transferred.addAndGet(count);
+				}
+			});
+		}
+
+		return transferred.get();
+	}
+
+	/**
+	 * Interpolates the values of the corners of the hit triangle
+	 * @return the interpolated value or null if no corner has a value
+	 */
+	private static Object interpolate(Object[] values, int[] indices, TriangleHit hit) {
+		int t = 3 * hit.getTriangle();
+		Object[] corners = { values[indices[t]], values[indices[t + 1]], values[indices[t + 2]] };
+		double[] weights = { hit.getWeightA(), hit.getWeightB(), hit.getWeightC() };
+		return ValueInterpolation.interpolate(corners, weights, 3);
+	}
+}
@@ -0,0 +1,80 @@
+package org.chof.surfcomp.trimesh.comparison;
+
+import javax.vecmath.Matrix4d;
+
+/**
+ * Outcome of a rigid registration
+ * <p>
+ * The transform maps the coordinates of the source surface onto the target
+ * surface. The root mean square distance of the accepted correspondences is
+ * recorded for every iteration, measured before the update of the
+ * iteration.</p>
+ *
+ * @author chof
+ */
+public class RegistrationResult {
+
+	private final Matrix4d transform;
+	private final double[] rmsHistory;
+	private final int correspondences;
+	private final boolean converged;
+
+	RegistrationResult(Matrix4d transform, double[] rmsHistory,
+			int correspondences, boolean converged) {
+		this.transform = transform;
+		this.rmsHistory = rmsHistory;
+		this.correspondences = correspondences;
+		this.converged = converged;
+	}
+
+	/**
+	 * @return a copy of the rigid transform from source to target coordinates
+	 */
+	public Matrix4d getTransform() {
+		return new Matrix4d(transform);
+	}
+
+	/**
+	 * @return the number of iterations performed
+	 */
+	public int getIterations() {
+		return rmsHistory.length;
+	}
+
+	/**
+	 * @return the root mean square correspondence distance of each iteration
+	 */
+	public double[] getRMSHistory() {
+		return rmsHistory.clone();
+	}
+
+	/**
+	 * @return the root mean square correspondence distance of the last
+	 *         iteration or NaN if no iteration was performed
+	 */
+	public double getRMS() {
+		return (rmsHistory.length > 0) ? rmsHistory[rmsHistory.length - 1] : Double.NaN;
+	}
+
+	/**
+	 * @return the number of accepted correspondences in the last iteration
+	 */
+	public int getCorrespondences() {
+		return correspondences;
+	}
+
+	/**
+	 * @return true if the change of the error fell below the tolerance before
+	 *         the maximum number of iterations was reached
+	 */
+	public boolean isConverged() {
+		return converged;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("rms=%g after %d iterations (%s, %d correspondences)",
+				getRMS(), getIterations(), converged ? "converged" : "not converged",
+				correspondences);
+	}
+}
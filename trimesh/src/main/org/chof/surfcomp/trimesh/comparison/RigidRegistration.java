@@ -0,0 +1,480 @@
+package org.chof.surfcomp.trimesh.comparison;
+
+import java.util.Arrays;
+
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Quat4d;
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.algorithms.PointGridIndex;
+import org.chof.surfcomp.trimesh.algorithms.TriangleBVH;
+import org.chof.surfcomp.trimesh.algorithms.TriangleHit;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.Point;
+import org.chof.surfcomp.trimesh.tools.Parallel;
+
+/**
+ * Rigid alignment of a source surface onto a target surface by the iterative
+ * closest point algorithm
+ * <p>
+ * Each iteration pairs the transformed source points with points on the
+ * target surface, found in parallel with the {@link TriangleBVH} of the
+ * target. Two ways to find the partner are available:</p>
+ * <ul>
+ * <li>{@link Correspondence#CLOSEST_POINT} takes the closest point on the
+ * target, the default.</li>
+ * <li>{@link Correspondence#NORMAL_SHOOTING} casts a ray along the source
+ * normal ({@link Point#getNormale()}) in both directions and takes the
+ * nearer intersection with the target. Source points whose ray misses the
+ * target have no partner.</li>
+ * </ul>
+ * <p>
+ * Pairs are rejected if they are further apart than the maximum distance or
+ * if the normals of the source point and of the target point, interpolated
+ * over its triangle, enclose a larger angle than the maximum normal angle.
+ * The rigid transform minimizing the squared distances of the accepted pairs
+ * is computed in closed form by Horn's quaternion method.</p>
+ * <p>
+ * For large surfaces a subsample of the source points can be used for the
+ * correspondences; the points are then taken at regular steps over the point
+ * list.</p>
+ *
+ * @author chof
+ */
+public class RigidRegistration {
+
+	/**
+	 * The way a source point finds its partner on the target
+	 */
+	public enum Correspondence {
+		/** the closest point on the target surface */
+		CLOSEST_POINT,
+		/** the intersection of the line along the source normal with the target */
+		NORMAL_SHOOTING
+	}
+
+	/** the start of the rays behind the source point relative to the target size */
+	private static final double RAY_OFFSET = 1e-6;
+
+	private final Mesh source;
+	private final Mesh target;
+
+	private int maxIterations = 50;
+	private double tolerance = 1e-6;
+	private double maxDistance = Double.POSITIVE_INFINITY;
+	private double maxNormalAngle = Math.PI / 2;
+	private int sampleSize = 0;
+	private Correspondence correspondence = Correspondence.CLOSEST_POINT;
+
+	/**
+	 * Constructs the registration of the source onto the target surface
+	 */
+	public RigidRegistration(Mesh source, Mesh target) {
+		this.source = source;
+		this.target = target;
+	}
+
+	//**************************************************************************
+	// Settings
+	//**************************************************************************
+
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	/**
+	 * @param maxIterations the maximum number of iterations, default 50
+	 */
+	public void setMaxIterations(int maxIterations) {
+		if (maxIterations < 1) {
+			throw new IllegalArgumentException("At least one iteration is required");
+		}
+		this.maxIterations = maxIterations;
+	}
+
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	/**
+	 * @param tolerance the change of the root mean square distance between two
+	 *        iterations below which the registration counts as converged,
+	 *        default 1e-6
+	 */
+	public void setTolerance(double tolerance) {
+		this.tolerance = tolerance;
+	}
+
+	public double getMaxDistance() {
+		return maxDistance;
+	}
+
+	/**
+	 * @param maxDistance the maximum distance of a pair of corresponding points,
+	 *        default unlimited
+	 */
+	public void setMaxDistance(double maxDistance) {
+		this.maxDistance = maxDistance;
+	}
+
+	public double getMaxNormalAngle() {
+		return maxNormalAngle;
+	}
+
+	/**
+	 * @param maxNormalAngle the maximum angle in radiant between the normals of
+	 *        a pair of corresponding points, default pi/2
+	 */
+	public void setMaxNormalAngle(double maxNormalAngle) {
+		this.maxNormalAngle = maxNormalAngle;
+	}
+
+	public int getSampleSize() {
+		return sampleSize;
+	}
+
+	/**
+	 * @param sampleSize the number of source points used for the
+	 *        correspondences, values <= 0 use all points (default)
+	 */
+	public void setSampleSize(int sampleSize) {
+		this.sampleSize = sampleSize;
+	}
+
+	public Correspondence getCorrespondence() {
+		return correspondence;
+	}
+
+	/**
+	 * @param correspondence the way source points find their partners,
+	 *        the closest point by default
+	 */
+	public void setCorrespondence(Correspondence correspondence) {
+		if (correspondence == null) {
+			throw new IllegalArgumentException("The correspondence must not be null");
+		}
+		this.correspondence = correspondence;
+	}
+
+	//**************************************************************************
+	// Registration
+	//**************************************************************************
+
+	/**
+	 * Registers the surfaces starting from the identity
+	 * @return the transform and the convergence statistics
+	 */
+	public RegistrationResult register() {
+		Matrix4d identity = new Matrix4d();
+		identity.setIdentity();
+		return register(identity);
+	}
+
+	/**
+	 * Registers the surfaces starting from an initial transform
+	 * @param initial the initial rigid transform of the source
+	 * @return the transform and the convergence statistics
+	 */
+	public RegistrationResult register(Matrix4d initial) {
+		final TriangleBVH bvh = target.getTriangleBVH();
+		if (bvh.size() == 0) {
+			throw new IllegalArgumentException("The target does not contain any triangle");
+		}
+
+		final double[] points = samples(source, true);
+		final double[] normals = samples(source, false);
+		final double[] targetNormals = pointNormals(target);
+		final int[] indices = target.getTriangleIndices();
+		final int size = points.length / 3;
+		final double[] matches = new double[3 * size];
+		final boolean[] accepted = new boolean[size];
+		final double minCos = Math.cos(maxNormalAngle);
+		final boolean shooting = (correspondence == Correspondence.NORMAL_SHOOTING);
+		double[] box = new double[6];
+		bvh.getBounds(box);
+		final double diagonal = Math.sqrt((box[3] - box[0]) * (box[3] - box[0])
+				+ (box[4] - box[1]) * (box[4] - box[1]) + (box[5] - box[2]) * (box[5] - box[2]));
+		final double reach = Math.min(maxDistance, diagonal);
+		final double offset = RAY_OFFSET * diagonal;
+
+		final Matrix4d transform = new Matrix4d(initial);
+		double[] history = new double[maxIterations];
+		int iterations = 0;
+		int count = 0;
+		boolean converged = false;
+
+		while (iterations < maxIterations) {
+			final double[] m = matrix(transform);
+
+			Parallel.forRange(size, new Parallel.RangeTask() {
+				@Override
+				public void run(int from, int to) {
+					TriangleHit hit = new TriangleHit();
+					TriangleHit back = new TriangleHit();
+					double[] location = new double[3];
+					for (int i = from; i < to; ++i) {
+						double px = points[3 * i], py = points[3 * i + 1], pz = points[3 * i + 2];
+						double x = m[0] * px + m[1] * py + m[2] * pz + m[3];
+						double y = m[4] * px + m[5] * py + m[6] * pz + m[7];
+						double z = m[8] * px + m[9] * py + m[10] * pz + m[11];
+
+						boolean found = shooting
+								? shoot(bvh, x, y, z, m, normals, i, reach, offset, hit, back)
+								: bvh.closestPoint(x, y, z, maxDistance, hit);
+						accepted[i] = found
+								&& (normalCos(m, normals, i, hit, indices, targetNormals) >= minCos);
+						if (accepted[i]) {
+							hit.getLocation(location);
+							System.arraycopy(location, 0, matches, 3 * i, 3);
+						}
+					}
+				}
+			});
+
+			count = 0;
+			for (boolean a : accepted) {
+				if (a) count++;
+			}
+			if (count < 3) {
+				break;
+			}
+
+			Matrix4d step = new Matrix4d();
+			double rms = align(transform, points, matches, accepted, count, step);
+			history[iterations++] = rms;
+
+			transform.mul(step, transform);
+			if ((iterations > 1) && (Math.abs(history[iterations - 2] - rms) < tolerance)) {
+				converged = true;
+				break;
+			}
+		}
+
+		return new RegistrationResult(transform, Arrays.copyOf(history, iterations),
+				count, converged);
+	}
+
+	/**
+	 * Computes the rigid transform moving the transformed source points onto
+	 * their matches
+	 *
+	 * @param step receives the transform
+	 * @return the root mean square distance of the pairs before the step
+	 */
+	private double align(Matrix4d transform, double[] points, double[] matches,
+			boolean[] accepted, int count, Matrix4d step) {
+		double[] m = matrix(transform);
+		int size = accepted.length;
+
+		double[] moved = new double[3 * size];
+		double[] cp = new double[3];
+		double[] cq = new double[3];
+		for (int i = 0; i < size; ++i) {
+			if (!accepted[i]) continue;
+			double px = points[3 * i], py = points[3 * i + 1], pz = points[3 * i + 2];
+			for (int r = 0; r < 3; ++r) {
+				moved[3 * i + r] = m[4 * r] * px + m[4 * r + 1] * py + m[4 * r + 2] * pz + m[4 * r + 3];
+				cp[r] += moved[3 * i + r];
+				cq[r] += matches[3 * i + r];
+			}
+		}
+		for (int r = 0; r < 3; ++r) {
+			cp[r] /= count;
+			cq[r] /= count;
+		}
+
+		// cross covariance of the centered pairs
+		double[][] s = new double[3][3];
+		double squares = 0;
+		for (int i = 0; i < size; ++i) {
+			if (!accepted[i]) continue;
+			for (int r = 0; r < 3; ++r) {
+				double a = moved[3 * i + r] - cp[r];
+				double d = moved[3 * i + r] - matches[3 * i + r];
+				squares += d * d;
+				for (int c = 0; c < 3; ++c) {
+					s[r][c] += a * (matches[3 * i + c] - cq[c]);
+				}
+			}
+		}
+
+		double[][] n = {
+			{ s[0][0] + s[1][1] + s[2][2], s[1][2] - s[2][1], s[2][0] - s[0][2], s[0][1] - s[1][0] },
+			{ s[1][2] - s[2][1], s[0][0] - s[1][1] - s[2][2], s[0][1] + s[1][0], s[2][0] + s[0][2] },
+			{ s[2][0] - s[0][2], s[0][1] + s[1][0], -s[0][0] + s[1][1] - s[2][2], s[1][2] + s[2][1] },
+			{ s[0][1] - s[1][0], s[2][0] + s[0][2], s[1][2] + s[2][1], -s[0][0] - s[1][1] + s[2][2] }
+		};
+		double[] q = largestEigenvector(n);
+
+		Quat4d rotation = new Quat4d(q[1], q[2], q[3], q[0]);
+		step.set(rotation, new Vector3d(), 1.0);
+		Vector3d rotated = new Vector3d(cp);
+		step.transform(rotated);
+		step.setTranslation(new Vector3d(cq[0] - rotated.x, cq[1] - rotated.y,
+				cq[2] - rotated.z));
+
+		return Math.sqrt(squares / count);
+	}
+
+	/**
+	 * Computes the eigenvector of the largest eigenvalue of a symmetric 4x4
+	 * matrix by cyclic Jacobi rotations
+	 */
+	private static double[] largestEigenvector(double[][] a) {
+		double[][] v = new double[4][4];
+		for (int i = 0; i < 4; ++i) {
+			v[i][i] = 1;
+		}
+
+		for (int sweep = 0; sweep < 50; ++sweep) {
+			double off = 0;
+			double norm = 0;
+			for (int p = 0; p < 4; ++p) {
+				for (int q = 0; q < 4; ++q) {
+					norm += a[p][q] * a[p][q];
+					if (p != q) off += a[p][q] * a[p][q];
+				}
+			}
+			if (off <= 1e-30 * norm) {
+				break;
+			}
+
+			for (int p = 0; p < 3; ++p) {
+				for (int q = p + 1; q < 4; ++q) {
+					if (a[p][q] == 0) continue;
+					double theta = (a[q][q] - a[p][p]) / (2 * a[p][q]);
+					double t = Math.signum(theta) / (Math.abs(theta) + Math.sqrt(theta * theta + 1));
+					if (theta == 0) t = 1;
+					double c = 1 / Math.sqrt(t * t + 1);
+					double s = t * c;
+
+					for (int k = 0; k < 4; ++k) {
+						double akp = a[k][p], akq = a[k][q];
+						a[k][p] = c * akp - s * akq;
+						a[k][q] = s * akp + c * akq;
+					}
+					for (int k = 0; k < 4; ++k) {
+						double apk = a[p][k], aqk = a[q][k];
+						a[p][k] = c * apk - s * aqk;
+						a[q][k] = s * apk + c * aqk;
+					}
+					for (int k = 0; k < 4; ++k) {
+						double vkp = v[k][p], vkq = v[k][q];
+						v[k][p] = c * vkp - s * vkq;
+						v[k][q] = s * vkp + c * vkq;
+					}
+				}
+			}
+		}
+
+		int best = 0;
+		for (int i = 1; i < 4; ++i) {
+			if (a[i][i] > a[best][best]) best = i;
+		}
+		return new double[] { v[0][best], v[1][best], v[2][best], v[3][best] };
+	}
+
+	//**************************************************************************
+	// Helpers
+	//**************************************************************************
+
+	/**
+	 * Intersects the line along the rotated normal of a source point with the
+	 * target, starting both rays slightly behind the point, so that a target
+	 * through the point is found as well
+	 *
+	 * @param reach the maximum distance of the intersection from the point
+	 * @param hit receives the intersection nearer to the point
+	 * @return true if the line intersects the target within the reach
+	 */
+	private static boolean shoot(TriangleBVH bvh, double x, double y, double z,
+			double[] m, double[] normals, int i, double reach, double offset,
+			TriangleHit hit, TriangleHit back) {
+		double nx = normals[3 * i], ny = normals[3 * i + 1], nz = normals[3 * i + 2];
+		double sx = m[0] * nx + m[1] * ny + m[2] * nz;
+		double sy = m[4] * nx + m[5] * ny + m[6] * nz;
+		double sz = m[8] * nx + m[9] * ny + m[10] * nz;
+		double length = Math.sqrt(sx * sx + sy * sy + sz * sz);
+		if (length == 0) {
+			hit.clear();
+			return false;
+		}
+		sx /= length;
+		sy /= length;
+		sz /= length;
+
+		boolean forward = bvh.intersectRay(x - offset * sx, y - offset * sy,
+				z - offset * sz, sx, sy, sz, reach + offset, hit);
+		boolean backward = bvh.intersectRay(x + offset * sx, y + offset * sy,
+				z + offset * sz, -sx, -sy, -sz, reach + offset, back);
+		if (backward && (!forward || (Math.abs(back.getDistance() - offset)
+				< Math.abs(hit.getDistance() - offset)))) {
+			hit.set(back);
+		}
+		return forward || backward;
+	}
+
+	/**
+	 * @return the cosine of the angle between the rotated source normal and
+	 *         the interpolated target normal at the closest point
+	 */
+	private static double normalCos(double[] m, double[] normals, int i,
+			TriangleHit hit, int[] indices, double[] targetNormals) {
+		double nx = normals[3 * i], ny = normals[3 * i + 1], nz = normals[3 * i + 2];
+		double sx = m[0] * nx + m[1] * ny + m[2] * nz;
+		double sy = m[4] * nx + m[5] * ny + m[6] * nz;
+		double sz = m[8] * nx + m[9] * ny + m[10] * nz;
+
+		int t = 3 * hit.getTriangle();
+		int a = 3 * indices[t], b = 3 * indices[t + 1], c = 3 * indices[t + 2];
+		double wa = hit.getWeightA(), wb = hit.getWeightB(), wc = hit.getWeightC();
+		double tx = wa * targetNormals[a] + wb * targetNormals[b] + wc * targetNormals[c];
+		double ty = wa * targetNormals[a + 1] + wb * targetNormals[b + 1] + wc * targetNormals[c + 1];
+		double tz = wa * targetNormals[a + 2] + wb * targetNormals[b + 2] + wc * targetNormals[c + 2];
+
+		double length = Math.sqrt((sx * sx + sy * sy + sz * sz) * (tx * tx + ty * ty + tz * tz));
+		return (length > 0) ? (sx * tx + sy * ty + sz * tz) / length : 1.0;
+	}
+
+	/**
+	 * Collects the coordinates or the normals of the sampled source points
+	 */
+	private double[] samples(Mesh mesh, boolean coordinates) {
+		double[] all = coordinates ? PointGridIndex.coordinatesOf(mesh) : pointNormals(mesh);
+		int n = mesh.sizePoints();
+		if ((sampleSize <= 0) || (sampleSize >= n)) {
+			return all;
+		}
+
+		double[] sampled = new double[3 * sampleSize];
+		double stride = (double) n / sampleSize;
+		for (int s = 0; s < sampleSize; ++s) {
+			int i = (int) (s * stride);
+			System.arraycopy(all, 3 * i, sampled, 3 * s, 3);
+		}
+		return sampled;
+	}
+
+	private static double[] pointNormals(Mesh mesh) {
+		double[] normals = new double[3 * mesh.sizePoints()];
+		int i = 0;
+		for (Point p : mesh.getPoints()) {
+			Vector3d n = p.getNormale();
+			normals[i++] = n.x;
+			normals[i++] = n.y;
+			normals[i++] = n.z;
+		}
+		return normals;
+	}
+
+	/**
+	 * @return the upper 3x4 part of the transform in row major order
+	 */
+	private static double[] matrix(Matrix4d transform) {
+		return new double[] {
+			transform.m00, transform.m01, transform.m02, transform.m03,
+			transform.m10, transform.m11, transform.m12, transform.m13,
+			transform.m20, transform.m21, transform.m22, transform.m23
+		};
+	}
+}
@@ -0,0 +1,149 @@
+package org.chof.surfcomp.trimesh.comparison;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.chof.surfcomp.trimesh.algorithms.PointGridIndex;
+import org.chof.surfcomp.trimesh.algorithms.TriangleBVH;
+import org.chof.surfcomp.trimesh.algorithms.TriangleHit;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.tools.Parallel;
+
+/**
+ * Distance measures between two surfaces
+ * <p>
+ * The distance of a point to a surface is the euclidean distance to the
+ * closest point on any triangle of the surface. The one-sided measures take
+ * the points of the source mesh and measure against the surface of the target
+ * mesh, the symmetric measures combine both directions.</p>
+ * <p>
+ * The closest points are found with the {@link TriangleBVH} of the measured
+ * against mesh, the points are processed in parallel. For threshold checks
+ * the searches are bounded by the threshold and all work stops as soon as one
+ * point is found beyond it.</p>
+ *
+ * @author chof
+ */
+public class SurfaceDistance {
+
+	private final Mesh source;
+	private final Mesh target;
+
+	/**
+	 * Constructs the comparison of two surfaces
+	 * @param source the mesh whose points are measured
+	 * @param target the mesh whose surface is measured against
+	 */
+	public SurfaceDistance(Mesh source, Mesh target) {
+		this.source = source;
+		this.target = target;
+	}
+
+	/**
+	 * @return the distances of the source points to the target surface
+	 */
+	public DistanceStatistics sourceToTarget() {
+		return new DistanceStatistics(distances(source, target));
+	}
+
+	/**
+	 * @return the distances of the target points to the source surface
+	 */
+	public DistanceStatistics targetToSource() {
+		return new DistanceStatistics(distances(target, source));
+	}
+
+	/**
+	 * @return the symmetric statistics of both directions
+	 */
+	public DistanceStatistics symmetric() {
+		return DistanceStatistics.combine(sourceToTarget(), targetToSource());
+	}
+
+	/**
+	 * Checks whether all source points lie within the given distance of the
+	 * target surface, i.e. the one-sided Hausdorff distance is not larger than
+	 * the threshold
+	 */
+	public boolean isSourceWithin(double threshold) {
+		return within(source, target, threshold);
+	}
+
+	/**
+	 * Checks whether the symmetric Hausdorff distance is not larger than the
+	 * threshold
+	 */
+	public boolean isWithin(double threshold) {
+		return within(source, target, threshold) && within(target, source, threshold);
+	}
+
+	//**************************************************************************
+	// Computation
+	//**************************************************************************
+
+	/**
+	 * Computes the distance of each point of a mesh to the surface of another
+	 * mesh
+	 *
+	 * @param from the mesh whose points are measured
+	 * @param to the mesh whose surface is measured against
+	 * @return the distances indexed like the points of <code>from</code>
+	 */
+	public static double[] distances(Mesh from, Mesh to) {
+		final double[] coordinates = PointGridIndex.coordinatesOf(from);
+		final TriangleBVH bvh = to.getTriangleBVH();
+		final double[] distances = new double[from.sizePoints()];
+
+		if (bvh.size() == 0) {
+			throw new IllegalArgumentException("The mesh does not contain any triangle");
+		}
+
+		Parallel.forRange(distances.length, new Parallel.RangeTask() {
+			@Override
+			public void run(int begin, int end) {
+				TriangleHit hit = new TriangleHit();
+				double bound = Double.POSITIVE_INFINITY;
+				for (int i = begin; i < end; ++i) {
+					double x = coordinates[3 * i];
+					double y = coordinates[3 * i + 1];
+					double z = coordinates[3 * i + 2];
+
+					// neighboring points have similar distances, a bound derived
+					// from the previous point prunes the search early
+					if (i > begin) {
+						double dx = x - coordinates[3 * i - 3];
+						double dy = y - coordinates[3 * i - 2];
+						double dz = z - coordinates[3 * i - 1];
+						bound = distances[i - 1] + Math.sqrt(dx * dx + dy * dy + dz * dz);
+					}
+					if (!bvh.closestPoint(x, y, z, bound, hit)) {
+						bvh.closestPoint(x, y, z, Double.POSITIVE_INFINITY, hit);
+					}
+					distances[i] = hit.getDistance();
+				}
+			}
+		});
+
+		return distances;
+	}
+
+	private static boolean within(Mesh from, Mesh to, final double threshold) {
+		final double[] coordinates = PointGridIndex.coordinatesOf(from);
+		final TriangleBVH bvh = to.getTriangleBVH();
+		final AtomicBoolean exceeded = new AtomicBoolean(false);
+
+		Parallel.forRange(from.sizePoints(), new Parallel.RangeTask() {
+			@Override
+			public void run(int begin, int end) {
+				TriangleHit hit = new TriangleHit();
+				for (int i = begin; (i < end) && !exceeded.get(); ++i) {
+					if (!bvh.closestPoint(coordinates[3 * i], coordinates[3 * i + 1],
+							coordinates[3 * i + 2], threshold, hit)) {
+						exceeded.set(true);
+					}
+				}
+			}
+		});
+
+		return !exceeded.get();
+	}
+}
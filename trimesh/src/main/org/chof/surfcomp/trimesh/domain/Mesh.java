@@ -1,14 +1,26 @@
 package org.chof.surfcomp.trimesh.domain;
 
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.Vector;
 
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.algorithms.EdgeGraph;
+import org.chof.surfcomp.trimesh.algorithms.HeatGeodesics;
+import org.chof.surfcomp.trimesh.algorithms.LaplaceBeltrami;
 import org.chof.surfcomp.trimesh.algorithms.LimitedDepthFirstIterator;
+import org.chof.surfcomp.trimesh.algorithms.PointGridIndex;
+import org.chof.surfcomp.trimesh.algorithms.TriangleBVH;
+import org.chof.surfcomp.trimesh.domain.Triangle.Corner;
 import org.chof.surfcomp.trimesh.exception.FailedPointAddition;
 import org.chof.surfcomp.trimesh.exception.TrianglePointMissing;
 import org.chof.surfcomp.trimesh.interfaces.IPropertyContainer;
+import org.chof.surfcomp.trimesh.metrics.Metrics;
 import org.jgrapht.graph.DefaultDirectedWeightedGraph;
 
 public class Mesh {
@@ -26,6 +38,48 @@ public class Mesh {
 	protected Vector<Point> points;
 	protected Vector<Triangle> triangles;
 	
+	/**
+	 * Cached spatial index over the point coordinates, dropped whenever points
+	 * are added
+	 */
+	private PointGridIndex pointGridIndex = null;
+	
+	/**
+	 * Cached bounding volume hierarchy over the triangles, dropped whenever
+	 * triangles are added
+	 */
+	private TriangleBVH triangleBVH = null;
+	
+	/**
+	 * Lookup of point indices, created on first request and kept up to date
+	 * when points are added
+	 */
+	private HashMap<Point, Integer> pointIndex = null;
+	
+	/**
+	 * Cached corner indices of all triangles, dropped whenever triangles are
+	 * added
+	 */
+	private int[] triangleIndices = null;
+	
+	/**
+	 * Cached cotangent Laplacian, point areas, geodesic distance engine and
+	 * edge graph, dropped whenever points or triangles are added or points 
+	 * are moved
+	 */
+	private LaplaceBeltrami laplaceBeltrami = null;
+	private HeatGeodesics heatGeodesics = null;
+	private EdgeGraph edgeGraph = null;
+	
+	/**
+	 * Modification counter bumped by every change of the mesh, the version of
+	 * the last addition of points or triangles and the version of the last
+	 * move of each point, the latter created on the first move
+	 */
+	private long version = 0;
+	private long structureVersion = 0;
+	private long[] pointVersions = null;
+	
 	/**
 	 * Standard Constructor creating an empty triangular mesh
 	 */
@@ -61,6 +115,47 @@ public class Mesh {
 		return triangles.get(index);
 	}
 	
+	/**
+	 * Retrieves the index of a point in the mesh
+	 * @param point the point
+	 * @return the index of the point or -1 if it is not part of the mesh
+	 */
+	public synchronized int indexOf(Point point) {
+		if (pointIndex == null) {
+			pointIndex = new HashMap<Point, Integer>(points.size() * 2);
+			int i = 0;
+			for (Point p : points) {
+				pointIndex.put(p, i++);
+			}
+		}
+		
+		Integer index = pointIndex.get(point);
+		return (index != null) ? index.intValue() : -1;
+	}
+	
+	/**
+	 * Retrieves the point indices of the corners of all triangles as a flat 
+	 * array containing the indices of corner A, B and C for each triangle.
+	 * <p>
+	 * The array is cached and shared between callers, it must not be 
+	 * modified.</p>
+	 * 
+	 * @return the corner indices of the triangles
+	 */
+	public synchronized int[] getTriangleIndices() {
+		if (triangleIndices == null) {
+			int[] indices = new int[3 * triangles.size()];
+			int i = 0;
+			for (Triangle t : triangles) {
+				indices[i++] = indexOf(t.getCorner(Corner.A));
+				indices[i++] = indexOf(t.getCorner(Corner.B));
+				indices[i++] = indexOf(t.getCorner(Corner.C));
+			}
+			triangleIndices = indices;
+		}
+		return triangleIndices;
+	}
+	
 	public Collection<Point> getPoints() {
 		return points;
 	}
@@ -198,7 +293,15 @@ public class Mesh {
 	}
 
 	public int addPoint(Point point) throws FailedPointAddition {
+		changeStructure();
+		pointGridIndex = null;
+		laplaceBeltrami = null;
+		heatGeodesics = null;
+		edgeGraph = null;
 		if ((points.add(point)) && (mesh.addVertex(point))) {
+			if (pointIndex != null) {
+				pointIndex.put(point, points.size() - 1);
+			}
 			return points.size() - 1;
 		} else {
 			throw new FailedPointAddition("Failed to add a point to the mesh");
@@ -222,19 +325,109 @@ public class Mesh {
 	}
 
 	public int addTriangle(Point a, Point b, Point c) {
+		long start = Metrics.start();
+		changeStructure();
+		triangleBVH = null;
+		triangleIndices = null;
+		laplaceBeltrami = null;
+		heatGeodesics = null;
+		edgeGraph = null;
 		Triangle t = new Triangle(a, b, c);
 		((MeshEdgeFactory) mesh.getEdgeFactory()).setTriangle(t);
 		
-		if (buildEdges(a, b, c)) {
-			triangles.add(t);
-			return triangles.size()-1;
-		}
-		else {
-			return -1;
+		try {
+			if (buildEdges(a, b, c)) {
+				triangles.add(t);
+				return triangles.size()-1;
+			}
+			else {
+				Metrics.count("mesh.triangles.rejected", 1);
+				return -1;
+			}
+		} finally {
+			Metrics.stop("mesh.topology", start);
 		}
 		
 	}
 
+	private synchronized void changeStructure() {
+		structureVersion = ++version;
+		pointVersions = null;
+	}
+
+	/**
+	 * Moves a point to new coordinates and records the move
+	 * 
+	 * @param index the index of the point
+	 * @param coordinates the new coordinates
+	 * @param normale the new normal or null to keep the current one
+	 * @see #markModified(int)
+	 */
+	public void movePoint(int index, Point3d coordinates, Vector3d normale) {
+		Point point = points.get(index);
+		point.setCoordinates(coordinates);
+		if (normale != null) {
+			point.setNormale(normale);
+		}
+		markModified(index);
+	}
+
+	/**
+	 * Records that the coordinates or the normal of a point were changed in
+	 * place. The geometric caches of the mesh, the cached edges, areas and
+	 * normals of the triangles around the point and the weights of its edges
+	 * are dropped and the point is reported by 
+	 * {@link #getModifiedPoints(long)} from now on.
+	 * 
+	 * @param index the index of the point
+	 */
+	public synchronized void markModified(int index) {
+		if (pointVersions == null) {
+			pointVersions = new long[points.size()];
+		}
+		pointVersions[index] = ++version;
+		for (MeshEdge edge : mesh.edgesOf(points.get(index))) {
+			edge.getTriangle().clearGeometry();
+			edge.clearWeight();
+		}
+		pointGridIndex = null;
+		triangleBVH = null;
+		laplaceBeltrami = null;
+		heatGeodesics = null;
+		edgeGraph = null;
+	}
+
+	/**
+	 * @return the modification counter of the mesh, increasing with every 
+	 *         addition of points or triangles and every move of a point
+	 */
+	public synchronized long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Retrieves the points moved after a given version of the mesh
+	 * 
+	 * @param since an earlier result of {@link #getVersion()}
+	 * @return the indices of the moved points as set bits or null if points 
+	 *         or triangles were added since then, in which case all points 
+	 *         have to be considered changed
+	 */
+	public synchronized BitSet getModifiedPoints(long since) {
+		if (since < structureVersion) {
+			return null;
+		}
+		BitSet modified = new BitSet(points.size());
+		if (pointVersions != null) {
+			for (int i = 0; i < pointVersions.length; ++i) {
+				if (pointVersions[i] > since) {
+					modified.set(i);
+				}
+			}
+		}
+		return modified;
+	}
+
 	private boolean buildEdges(Point a, Point b, Point c) {
 		
 		MeshEdge[] edges = {
@@ -266,4 +459,87 @@ public class Mesh {
 			Point startPoint, double cutoff) {
 		return new LimitedDepthFirstIterator<Point, MeshEdge>(mesh, startPoint, cutoff);
 	}
+
+	/**
+	 * Provides a spatial index over the coordinates of the points of the mesh
+	 * <p>
+	 * The index is built on first request and kept until points are added to
+	 * or moved in the mesh. Changing the coordinates of a point directly is 
+	 * not detected, see {@link #markModified(int)}.</p>
+	 * 
+	 * @return the uniform grid index over the points of the mesh
+	 */
+	public synchronized PointGridIndex getPointGridIndex() {
+		if (pointGridIndex == null) {
+			pointGridIndex = new PointGridIndex(this);
+		}
+		return pointGridIndex;
+	}
+
+	/**
+	 * Provides a bounding volume hierarchy over the triangles of the mesh for
+	 * closest point and ray queries
+	 * <p>
+	 * The hierarchy is built on first request and kept until triangles are 
+	 * added to the mesh or points are moved. Changing the coordinates of a 
+	 * point directly is not detected, see {@link #markModified(int)}.</p>
+	 * 
+	 * @return the bounding volume hierarchy over the triangles of the mesh
+	 */
+	public synchronized TriangleBVH getTriangleBVH() {
+		if (triangleBVH == null) {
+			triangleBVH = new TriangleBVH(this);
+		}
+		return triangleBVH;
+	}
+
+	/**
+	 * Provides the discrete Laplace-Beltrami operator of the mesh
+	 * <p>
+	 * The operator is built on first request and kept until points or 
+	 * triangles are added to the mesh or points are moved. Changing the 
+	 * coordinates of a point directly is not detected, see 
+	 * {@link #markModified(int)}.</p>
+	 * 
+	 * @return the cotangent Laplacian and the mixed areas of the points
+	 */
+	public synchronized LaplaceBeltrami getLaplaceBeltrami() {
+		if (laplaceBeltrami == null) {
+			laplaceBeltrami = new LaplaceBeltrami(this);
+		}
+		return laplaceBeltrami;
+	}
+
+	/**
+	 * Provides the heat method engine for geodesic distances on the mesh
+	 * <p>
+	 * The engine holds the factored systems and is built on first request 
+	 * with the default time step. It is kept as long as the 
+	 * Laplace-Beltrami operator.</p>
+	 * 
+	 * @return the geodesic distance engine of the mesh
+	 */
+	public synchronized HeatGeodesics getHeatGeodesics() {
+		if (heatGeodesics == null) {
+			heatGeodesics = new HeatGeodesics(this);
+		}
+		return heatGeodesics;
+	}
+
+	/**
+	 * Provides the edges of the mesh as compact adjacency arrays with the
+	 * edge lengths
+	 * <p>
+	 * The graph is built on first request and kept until points or triangles
+	 * are added to the mesh or points are moved. A graph obtained earlier 
+	 * keeps the edge lengths at the time it was built.</p>
+	 * 
+	 * @return the edge graph of the mesh
+	 */
+	public synchronized EdgeGraph getEdgeGraph() {
+		if (edgeGraph == null) {
+			edgeGraph = new EdgeGraph(this);
+		}
+		return edgeGraph;
+	}
 }
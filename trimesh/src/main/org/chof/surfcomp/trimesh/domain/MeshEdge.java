@@ -95,4 +95,11 @@ public class MeshEdge extends DefaultWeightedEdge{
 		}
 		return weight;
 	}
+
+	/**
+	 * Drops the cached weight after an end point was moved in place
+	 */
+	void clearWeight() {
+		weight = -1.0;
+	}
 }
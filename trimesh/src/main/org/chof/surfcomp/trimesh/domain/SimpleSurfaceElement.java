@@ -5,6 +5,13 @@ import java.util.Map;
 
 import org.chof.surfcomp.trimesh.interfaces.IPropertyContainer;
 
+/**
+ * Base of the surface elements holding a map of properties
+ * <p>
+ * Access to single properties is synchronized on the element, thus 
+ * calculators running concurrently may store their properties at the same
+ * points. The map returned by {@link #getProperties()} is not guarded.</p>
+ */
 public abstract class SimpleSurfaceElement implements IPropertyContainer {
 	
 	protected HashMap<Object, Object> propertyMap = null;
@@ -26,11 +33,11 @@ public abstract class SimpleSurfaceElement implements IPropertyContainer {
 	}
 
 	@Override
-	public void setProperty(Object description, Object property) {
+	public synchronized void setProperty(Object description, Object property) {
 		lazyProperties().put(description, property);
 	}
 
-	private HashMap<Object, Object> lazyProperties() {
+	private synchronized HashMap<Object, Object> lazyProperties() {
 		if (propertyMap == null) {
 			propertyMap = new HashMap<Object, Object>();
 		}
@@ -39,12 +46,12 @@ public abstract class SimpleSurfaceElement implements IPropertyContainer {
 	}
 
 	@Override
-	public void removeProperty(Object description) {
+	public synchronized void removeProperty(Object description) {
 		lazyProperties().remove(description);
 	}
 
 	@Override
-	public <T> T getProperty(Object description) {
+	public synchronized <T> T getProperty(Object description) {
         // can't check the type
         @SuppressWarnings("unchecked")
         T value = (T) lazyProperties().get(description);
@@ -52,7 +59,7 @@ public abstract class SimpleSurfaceElement implements IPropertyContainer {
 	}
 
 	@Override
-	public <T> T getProperty(Object description, Class<T> c) {
+	public synchronized <T> T getProperty(Object description, Class<T> c) {
 		Object property = lazyProperties().get(description);
 		if (c.isInstance(property)) {
 	        @SuppressWarnings("unchecked")
@@ -73,7 +80,7 @@ public abstract class SimpleSurfaceElement implements IPropertyContainer {
 	}
 
 	@Override
-	public void setProperties(Map<Object, Object> properties) {
+	public synchronized void setProperties(Map<Object, Object> properties) {
 		lazyProperties().clear();
 		lazyProperties().putAll(properties);
 	}
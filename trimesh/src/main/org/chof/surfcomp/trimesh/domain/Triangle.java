@@ -190,6 +190,16 @@ public class Triangle extends SimpleSurfaceElement {
 		}
 	}
 	
+	/**
+	 * Drops the cached edges, area and normal after a corner point was moved
+	 * in place, they are recalculated on the next access
+	 */
+	void clearGeometry() {
+		area = null;
+		normale = null;
+		edges.clear();
+	}
+
 	/**
 	 * Retrieves the corner point of the triangle
 	 * @param corner the corner point of the triangle required
@@ -272,9 +282,8 @@ public class Triangle extends SimpleSurfaceElement {
 	 * <p>  
 	 * Once calculated the area is cached but recalculated whenever a new point is assigned.</p>
 	 * <p>
-	 * <b>Note</b>: No recalculation is done if the point changes the position as it is 
-	 * assumed that triangles used by this model are static at least in their internal 
-	 * settings</p>
+	 * <b>Note</b>: Moving a point in place does not update the cache, the move has
+	 * to be recorded by {@link Mesh#markModified(int)} which clears it</p>
 	 * 
 	 * @return the area of the triangle
 	 */
@@ -0,0 +1,77 @@
+package org.chof.surfcomp.trimesh.generator;
+
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+
+/**
+ * Generates an axis aligned ellipsoid around the origin
+ * <p>
+ * The points of a subdivided icosahedron are stretched by the semi-axes
+ * a, b and c. The curvatures follow from the implicit form
+ * <code>x^2/a^2 + y^2/b^2 + z^2/c^2 = 1</code>, the Gaussian curvature is
+ * <code>1 / (a^2 b^2 c^2 (x^2/a^4 + y^2/b^4 + z^2/c^4)^2)</code>.</p>
+ *
+ * @author chof
+ */
+public class Ellipsoid extends SurfaceGenerator {
+
+	private final double a;
+	private final double b;
+	private final double c;
+	private final int frequency;
+
+	/**
+	 * @param a the semi-axis along x
+	 * @param b the semi-axis along y
+	 * @param c the semi-axis along z
+	 * @param frequency the subdivision of the icosahedron, the ellipsoid gets
+	 *        20 frequency^2 triangles
+	 */
+	public Ellipsoid(double a, double b, double c, int frequency) {
+		if (!(a > 0) || !(b > 0) || !(c > 0)) {
+			throw new IllegalArgumentException("The semi-axes must be positive");
+		}
+		this.a = a;
+		this.b = b;
+		this.c = c;
+		if (frequency < 1) {
+			throw new IllegalArgumentException("The frequency must be positive");
+		}
+		this.frequency = frequency;
+	}
+
+	/**
+	 * @return an ellipsoid with at least the given number of triangles
+	 */
+	public static Ellipsoid withFaces(double a, double b, double c, long faces) {
+		return new Ellipsoid(a, b, c, GeodesicGrid.frequencyFor(faces));
+	}
+
+	@Override
+	public <M extends Mesh> M generate(final M mesh) throws TrimeshException {
+		GeodesicGrid grid = new GeodesicGrid(frequency);
+		final int offset = mesh.sizePoints();
+		final double[] hessian = {
+			2 / (a * a), 0, 0,
+			0, 2 / (b * b), 0,
+			0, 0, 2 / (c * c)
+		};
+		grid.points(new GeodesicGrid.PointSink() {
+			@Override
+			public void add(double x, double y, double z) throws TrimeshException {
+				x *= a;
+				y *= b;
+				z *= c;
+				double[] gradient = { hessian[0] * x, hessian[4] * y, hessian[8] * z };
+				Vector3d normal = new Vector3d(gradient);
+				normal.normalize();
+				addPoint(mesh, x, y, z, normal,
+						implicitCurvature(gradient, hessian, true));
+			}
+		});
+		grid.triangles(mesh, offset);
+		return mesh;
+	}
+}
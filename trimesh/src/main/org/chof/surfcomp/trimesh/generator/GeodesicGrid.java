@@ -0,0 +1,175 @@
+package org.chof.surfcomp.trimesh.generator;
+
+import java.util.HashMap;
+
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+
+/**
+ * Subdivision of the faces of an icosahedron into a triangular grid of a
+ * given frequency, projected to the unit sphere
+ * <p>
+ * Frequency f gives 20 f^2 triangles and 10 f^2 + 2 points. The points are
+ * numbered by the corners of the icosahedron first, then the inner points
+ * of its edges and then the inner points of its faces, thus each point can
+ * be generated once without a lookup table.</p>
+ *
+ * @author chof
+ */
+class GeodesicGrid {
+
+	/**
+	 * Receives the unit directions of the points in index order
+	 */
+	interface PointSink {
+		void add(double x, double y, double z) throws TrimeshException;
+	}
+
+	private static final double G = (1 + Math.sqrt(5)) / 2;
+	private static final double[][] CORNERS = {
+		{ -1, G, 0 }, { 1, G, 0 }, { -1, -G, 0 }, { 1, -G, 0 },
+		{ 0, -1, G }, { 0, 1, G }, { 0, -1, -G }, { 0, 1, -G },
+		{ G, 0, -1 }, { G, 0, 1 }, { -G, 0, -1 }, { -G, 0, 1 }
+	};
+	private static final int[] FACES = {
+		0, 11, 5, 0, 5, 1, 0, 1, 7, 0, 7, 10, 0, 10, 11,
+		1, 5, 9, 5, 11, 4, 11, 10, 2, 10, 7, 6, 7, 1, 8,
+		3, 9, 4, 3, 4, 2, 3, 2, 6, 3, 6, 8, 3, 8, 9,
+		4, 9, 5, 2, 4, 11, 6, 2, 10, 8, 6, 7, 9, 8, 1
+	};
+
+	private final int frequency;
+	private final int[] edgeStart = new int[30];
+	private final int[] edgeEnd = new int[30];
+	private final HashMap<Integer, Integer> edges = new HashMap<Integer, Integer>();
+
+	GeodesicGrid(int frequency) {
+		if (frequency < 1) {
+			throw new IllegalArgumentException("The frequency must be positive");
+		}
+		this.frequency = frequency;
+		for (int f = 0; f < FACES.length; f += 3) {
+			for (int c = 0; c < 3; ++c) {
+				int a = FACES[f + c], b = FACES[f + (c + 1) % 3];
+				int key = Math.min(a, b) * 12 + Math.max(a, b);
+				if (!edges.containsKey(key)) {
+					edgeStart[edges.size()] = Math.min(a, b);
+					edgeEnd[edges.size()] = Math.max(a, b);
+					edges.put(key, edges.size());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the smallest frequency giving at least the number of faces
+	 */
+	static int frequencyFor(long faces) {
+		return Math.max(1, (int) Math.ceil(Math.sqrt(faces / 20.0)));
+	}
+
+	int sizePoints() {
+		return 10 * frequency * frequency + 2;
+	}
+
+	/**
+	 * Hands out the unit directions of all points in index order
+	 */
+	void points(PointSink sink) throws TrimeshException {
+		int f = frequency;
+		double[] p = new double[3];
+		for (double[] corner : CORNERS) {
+			blend(corner, 1, corner, 0, corner, 0, p);
+			sink.add(p[0], p[1], p[2]);
+		}
+		for (int e = 0; e < 30; ++e) {
+			double[] a = CORNERS[edgeStart[e]], b = CORNERS[edgeEnd[e]];
+			for (int t = 1; t < f; ++t) {
+				blend(a, f - t, b, t, b, 0, p);
+				sink.add(p[0], p[1], p[2]);
+			}
+		}
+		for (int face = 0; face < 20; ++face) {
+			double[] a = CORNERS[FACES[3 * face]];
+			double[] b = CORNERS[FACES[3 * face + 1]];
+			double[] c = CORNERS[FACES[3 * face + 2]];
+			for (int i = 1; i < f - 1; ++i) {
+				for (int j = 1; i + j < f; ++j) {
+					blend(a, f - i - j, b, i, c, j, p);
+					sink.add(p[0], p[1], p[2]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the triangles to a mesh holding the points in index order
+	 *
+	 * @param offset the index of the first point in the mesh
+	 */
+	void triangles(Mesh mesh, int offset) throws TrimeshException {
+		int f = frequency;
+		for (int face = 0; face < 20; ++face) {
+			for (int i = 0; i < f; ++i) {
+				for (int j = 0; i + j < f; ++j) {
+					mesh.addTriangle(offset + index(face, i, j),
+							offset + index(face, i + 1, j),
+							offset + index(face, i, j + 1));
+					if (i + j < f - 1) {
+						mesh.addTriangle(offset + index(face, i + 1, j),
+								offset + index(face, i + 1, j + 1),
+								offset + index(face, i, j + 1));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the index of the grid point with the weights f - i - j, i and
+	 *         j of the corners a, b and c of a face
+	 */
+	private int index(int face, int i, int j) {
+		int f = frequency;
+		int a = FACES[3 * face], b = FACES[3 * face + 1], c = FACES[3 * face + 2];
+		if ((i == 0) && (j == 0)) {
+			return a;
+		} else if (i == f) {
+			return b;
+		} else if (j == f) {
+			return c;
+		} else if (j == 0) {
+			return edgeIndex(a, b, i);
+		} else if (i == 0) {
+			return edgeIndex(a, c, j);
+		} else if (i + j == f) {
+			return edgeIndex(b, c, j);
+		}
+		int row = (i - 1) * (f - 1) - (i - 1) * i / 2;
+		return 12 + 30 * (f - 1) + face * (f - 1) * (f - 2) / 2 + row + j - 1;
+	}
+
+	/**
+	 * @return the index of the point t steps from corner u towards corner v
+	 */
+	private int edgeIndex(int u, int v, int t) {
+		int e = edges.get(Math.min(u, v) * 12 + Math.max(u, v));
+		if (u > v) {
+			t = frequency - t;
+		}
+		return 12 + e * (frequency - 1) + t - 1;
+	}
+
+	private void blend(double[] a, double wa, double[] b, double wb,
+			double[] c, double wc, double[] p) {
+		double length = 0;
+		for (int k = 0; k < 3; ++k) {
+			p[k] = wa * a[k] + wb * b[k] + wc * c[k];
+			length += p[k] * p[k];
+		}
+		length = Math.sqrt(length);
+		for (int k = 0; k < 3; ++k) {
+			p[k] /= length;
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package org.chof.surfcomp.trimesh.generator;
+
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.calculator.PrincipalCurvature;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+
+/**
+ * Generates a sphere around the origin from a subdivided icosahedron
+ * <p>
+ * Both principal curvatures are 1 / radius everywhere, the Gaussian
+ * curvature is 1 / radius^2.</p>
+ *
+ * @author chof
+ */
+public class Icosphere extends SurfaceGenerator {
+
+	private final double radius;
+	private final int frequency;
+
+	/**
+	 * @param radius the radius of the sphere
+	 * @param frequency the number of segments each edge of the icosahedron is
+	 *        divided into, the sphere gets 20 frequency^2 triangles
+	 */
+	public Icosphere(double radius, int frequency) {
+		if (!(radius > 0)) {
+			throw new IllegalArgumentException("The radius must be positive");
+		}
+		this.radius = radius;
+		if (frequency < 1) {
+			throw new IllegalArgumentException("The frequency must be positive");
+		}
+		this.frequency = frequency;
+	}
+
+	/**
+	 * @return a sphere with at least the given number of triangles
+	 */
+	public static Icosphere withFaces(double radius, long faces) {
+		return new Icosphere(radius, GeodesicGrid.frequencyFor(faces));
+	}
+
+	public double getRadius() {
+		return radius;
+	}
+
+	public int getFrequency() {
+		return frequency;
+	}
+
+	@Override
+	public <M extends Mesh> M generate(final M mesh) throws TrimeshException {
+		GeodesicGrid grid = new GeodesicGrid(frequency);
+		final int offset = mesh.sizePoints();
+		grid.points(new GeodesicGrid.PointSink() {
+			@Override
+			public void add(double x, double y, double z) throws TrimeshException {
+				Vector3d normal = new Vector3d(x, y, z);
+				Vector3d u = perpendicular(normal);
+				Vector3d v = new Vector3d();
+				v.cross(normal, u);
+				PrincipalCurvature curvature = new PrincipalCurvature(
+						1 / radius, 1 / radius, u, v);
+				addPoint(mesh, radius * x, radius * y, radius * z, normal, curvature);
+			}
+		});
+		grid.triangles(mesh, offset);
+		return mesh;
+	}
+}
@@ -0,0 +1,578 @@
+package org.chof.surfcomp.trimesh.generator;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.calculator.PrincipalCurvature;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.tools.IntList;
+import org.chof.surfcomp.trimesh.tools.Parallel;
+
+/**
+ * Generates the surface of a union of spheres, e.g. the atoms of a molecule
+ * <p>
+ * A sharp union has creases along the intersections of the spheres where
+ * the curvature is not defined. The union is therefore blended as the
+ * blobby molecule of Blinn, the iso surface F = 1 of</p>
+ * <p>
+ * <code>F(x) = SUM exp(-B (|x - c_i|^2 / r_i^2 - 1))</code></p>
+ * <p>
+ * A single sphere gives exactly its surface, larger blobbiness values B
+ * approach the sharp union. The gradient and the Hessian of F give the
+ * reference curvatures at any point.</p>
+ * <p>
+ * The surface is extracted by surface nets on a cubic lattice of the given
+ * spacing: each lattice cell crossed by the surface gets one point, which is
+ * projected onto the surface by Newton steps, and each crossed lattice edge
+ * gets two triangles between the points of its four cells. The lattice is
+ * processed plane by plane, thus only two planes of field values are held
+ * at any time. Where two sheets of the surface pass through one cell the
+ * mesh may get a pinched point.</p>
+ *
+ * @author chof
+ */
+public class SphereUnion extends SurfaceGenerator {
+
+	/** field values below this fraction of a sphere's peak are left out */
+	private static final double TAIL = 1e-8;
+
+	private final double[] centers;
+	private final double[] radii;
+	private double blobbiness = 3.0;
+	private double spacing = 0.25;
+
+	/**
+	 * @param centers x, y and z of the center of each sphere
+	 * @param radii the radius of each sphere
+	 */
+	public SphereUnion(double[] centers, double[] radii) {
+		if ((radii.length == 0) || (centers.length != 3 * radii.length)) {
+			throw new IllegalArgumentException("Expected 3 coordinates for each of at least one radius");
+		}
+		for (double r : radii) {
+			if (!(r > 0)) {
+				throw new IllegalArgumentException("The radii must be positive");
+			}
+		}
+		this.centers = centers.clone();
+		this.radii = radii.clone();
+	}
+
+	/**
+	 * Builds a random molecule like cluster of spheres. Each sphere after the
+	 * first is bonded to a random earlier one at a distance of 1.5 and keeps
+	 * a distance of 1.2 to all others if possible. The radii range from 1.4
+	 * to 2.0.
+	 *
+	 * @param atoms the number of spheres
+	 * @param seed the seed of the random numbers, the same seed gives the
+	 *        same spheres
+	 */
+	public static SphereUnion random(int atoms, long seed) {
+		if (atoms < 1) {
+			throw new IllegalArgumentException("At least one atom is needed");
+		}
+		Random random = new Random(seed);
+		double[] centers = new double[3 * atoms];
+		double[] radii = new double[atoms];
+		Buckets buckets = new Buckets(centers, 1.5);
+		radii[0] = 1.4 + 0.6 * random.nextDouble();
+		buckets.add(0);
+
+		double[] candidate = new double[3];
+		IntList near = new IntList();
+		for (int k = 1; k < atoms; ++k) {
+			radii[k] = 1.4 + 0.6 * random.nextDouble();
+			for (int attempt = 0; attempt < 50; ++attempt) {
+				int parent = random.nextInt(k);
+				double dx = random.nextGaussian();
+				double dy = random.nextGaussian();
+				double dz = random.nextGaussian();
+				double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+				candidate[0] = centers[3 * parent] + 1.5 * dx / length;
+				candidate[1] = centers[3 * parent + 1] + 1.5 * dy / length;
+				candidate[2] = centers[3 * parent + 2] + 1.5 * dz / length;
+
+				near.clear();
+				buckets.collect(candidate[0], candidate[1], candidate[2], near);
+				boolean free = true;
+				for (int n = 0; (n < near.size()) && free; ++n) {
+					int other = near.get(n);
+					free = (other == parent)
+						|| (distance2(centers, other, candidate) >= 1.2 * 1.2);
+				}
+				if (free) break;
+			}
+			System.arraycopy(candidate, 0, centers, 3 * k, 3);
+			buckets.add(k);
+		}
+		return new SphereUnion(centers, radii);
+	}
+
+	private static double distance2(double[] centers, int i, double[] p) {
+		double dx = centers[3 * i] - p[0];
+		double dy = centers[3 * i + 1] - p[1];
+		double dz = centers[3 * i + 2] - p[2];
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	//**************************************************************************
+	// Getters and Setters
+	//**************************************************************************
+
+	public int sizeSpheres() {
+		return radii.length;
+	}
+
+	public double getBlobbiness() {
+		return blobbiness;
+	}
+
+	/**
+	 * @param blobbiness the factor B of the blend, default 3
+	 */
+	public void setBlobbiness(double blobbiness) {
+		if (!(blobbiness > 0)) {
+			throw new IllegalArgumentException("The blobbiness must be positive");
+		}
+		this.blobbiness = blobbiness;
+	}
+
+	public double getSpacing() {
+		return spacing;
+	}
+
+	/**
+	 * @param spacing the edge length of the lattice cells, default 0.25. The
+	 *        number of triangles grows with the inverse square.
+	 */
+	public void setSpacing(double spacing) {
+		if (!(spacing > 0)) {
+			throw new IllegalArgumentException("The spacing must be positive");
+		}
+		this.spacing = spacing;
+	}
+
+	/**
+	 * @return the distance from the center beyond which a sphere of the
+	 *         given radius does not contribute to the field
+	 */
+	private double reach(double radius) {
+		return radius * Math.sqrt(1 - Math.log(TAIL) / blobbiness);
+	}
+
+	//**************************************************************************
+	// Field
+	//**************************************************************************
+
+	/**
+	 * Evaluates the blend at a point
+	 *
+	 * @param gradient receives the gradient if not null
+	 * @param hessian receives the Hessian row by row if not null
+	 * @return the value of F, the surface is at 1 and the inside above
+	 */
+	private double evaluate(Buckets buckets, IntList near, double x, double y,
+			double z, double[] gradient, double[] hessian) {
+		if (gradient != null) {
+			Arrays.fill(gradient, 0);
+		}
+		if (hessian != null) {
+			Arrays.fill(hessian, 0);
+		}
+		near.clear();
+		buckets.collect(x, y, z, near);
+
+		double value = 0;
+		double[] d = new double[3];
+		for (int n = 0; n < near.size(); ++n) {
+			int i = near.get(n);
+			d[0] = x - centers[3 * i];
+			d[1] = y - centers[3 * i + 1];
+			d[2] = z - centers[3 * i + 2];
+			double r2 = radii[i] * radii[i];
+			double f = Math.exp(-blobbiness * ((d[0] * d[0] + d[1] * d[1] + d[2] * d[2]) / r2 - 1));
+			value += f;
+
+			double g = -2 * blobbiness * f / r2;
+			if (gradient != null) {
+				for (int a = 0; a < 3; ++a) {
+					gradient[a] += g * d[a];
+				}
+			}
+			if (hessian != null) {
+				double h = 4 * blobbiness * blobbiness * f / (r2 * r2);
+				for (int a = 0; a < 3; ++a) {
+					for (int b = 0; b < 3; ++b) {
+						hessian[3 * a + b] += h * d[a] * d[b];
+					}
+					hessian[4 * a] += g;
+				}
+			}
+		}
+		return value;
+	}
+
+	//**************************************************************************
+	// Surface extraction
+	//**************************************************************************
+
+	@Override
+	public <M extends Mesh> M generate(M mesh) throws TrimeshException {
+		new Extraction(mesh).run();
+		return mesh;
+	}
+
+	/**
+	 * State of one extraction by surface nets
+	 */
+	private class Extraction {
+		private final Mesh mesh;
+		private final Buckets buckets;
+		private final double h = spacing;
+		private final double[] origin = new double[3];
+		private final int nx, ny, nz;
+
+		// the factors exp(-B d^2 / r^2) of each sphere along each axis,
+		// starting at the lattice index in first
+		private final int[][] first;
+		private final double[][][] factors;
+
+		private double[] lower;
+		private double[] upper;
+		private int[] previous;
+		private int[] current;
+
+		Extraction(Mesh mesh) {
+			this.mesh = mesh;
+			int count = radii.length;
+			double maxReach = 0;
+			double[] min = { Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE };
+			double[] max = { -Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE };
+			for (int i = 0; i < count; ++i) {
+				double reach = reach(radii[i]);
+				maxReach = Math.max(maxReach, reach);
+				for (int a = 0; a < 3; ++a) {
+					min[a] = Math.min(min[a], centers[3 * i + a] - reach);
+					max[a] = Math.max(max[a], centers[3 * i + a] + reach);
+				}
+			}
+			buckets = new Buckets(centers, maxReach);
+			for (int i = 0; i < count; ++i) {
+				buckets.add(i);
+			}
+
+			int[] sizes = new int[3];
+			for (int a = 0; a < 3; ++a) {
+				origin[a] = min[a] - h;
+				sizes[a] = (int) Math.ceil((max[a] - min[a]) / h) + 3;
+			}
+			nx = sizes[0];
+			ny = sizes[1];
+			nz = sizes[2];
+
+			first = new int[count][3];
+			factors = new double[count][3][];
+			for (int i = 0; i < count; ++i) {
+				double r2 = radii[i] * radii[i];
+				double reach = reach(radii[i]);
+				for (int a = 0; a < 3; ++a) {
+					double c = centers[3 * i + a];
+					int from = Math.max(0, (int) Math.ceil((c - reach - origin[a]) / h));
+					int to = Math.min(sizes[a] - 1, (int) Math.floor((c + reach - origin[a]) / h));
+					first[i][a] = from;
+					factors[i][a] = new double[Math.max(0, to - from + 1)];
+					for (int l = from; l <= to; ++l) {
+						double d = origin[a] + l * h - c;
+						factors[i][a][l - from] = Math.exp(-blobbiness * d * d / r2);
+					}
+				}
+				// the peak factor exp(B) goes with the z factors
+				double peak = Math.exp(blobbiness);
+				for (int l = 0; l < factors[i][2].length; ++l) {
+					factors[i][2][l] *= peak;
+				}
+			}
+		}
+
+		void run() throws TrimeshException {
+			lower = plane(0);
+			previous = null;
+			for (int k = 0; k + 1 < nz; ++k) {
+				upper = plane(k + 1);
+				current = points(k);
+				if (previous != null) {
+					planeEdges();
+				}
+				verticalEdges();
+				previous = current;
+				lower = upper;
+			}
+		}
+
+		/**
+		 * Sums the field minus one at the lattice points of a plane
+		 */
+		private double[] plane(final int k) {
+			final double[] values = new double[nx * ny];
+			Arrays.fill(values, -1.0);
+			final IntList active = new IntList();
+			for (int i = 0; i < radii.length; ++i) {
+				if ((k >= first[i][2]) && (k < first[i][2] + factors[i][2].length)) {
+					active.add(i);
+				}
+			}
+			Parallel.forRange(ny, 16, new Parallel.RangeTask() {
+				@Override
+				public void run(int from, int to) {
+					for (int j = from; j < to; ++j) {
+						for (int n = 0; n < active.size(); ++n) {
+							int i = active.get(n);
+							int y = j - first[i][1];
+							if ((y < 0) || (y >= factors[i][1].length)) continue;
+							double f = factors[i][2][k - first[i][2]] * factors[i][1][y];
+							if (f < TAIL) continue;
+							double[] fx = factors[i][0];
+							int row = j * nx + first[i][0];
+							for (int x = 0; x < fx.length; ++x) {
+								values[row + x] += f * fx[x];
+							}
+						}
+					}
+				}
+			});
+			return values;
+		}
+
+		/**
+		 * Adds the points of the crossed cells of layer k between the lower
+		 * and the upper plane
+		 *
+		 * @return the index of the point of each cell or -1
+		 */
+		private int[] points(int k) throws TrimeshException {
+			int cx = nx - 1, cy = ny - 1;
+			int[] cells = new int[cx * cy];
+			final IntList crossed = new IntList();
+			for (int i = 0; i < cx; ++i) {
+				for (int j = 0; j < cy; ++j) {
+					int inside = 0;
+					for (int c = 0; c < 8; ++c) {
+						if (corner(i, j, c) > 0) inside++;
+					}
+					if ((inside > 0) && (inside < 8)) {
+						crossed.add(i * cy + j);
+					}
+				}
+			}
+
+			final double z = origin[2] + k * h;
+			final double[] positions = new double[3 * crossed.size()];
+			final Vector3d[] normals = new Vector3d[crossed.size()];
+			final PrincipalCurvature[] curvatures = new PrincipalCurvature[crossed.size()];
+			Parallel.forRange(crossed.size(), 256, new Parallel.RangeTask() {
+				@Override
+				public void run(int from, int to) {
+					IntList near = new IntList();
+					double[] gradient = new double[3];
+					double[] hessian = new double[9];
+					double[] p = new double[3];
+					for (int n = from; n < to; ++n) {
+						int cell = crossed.get(n);
+						average(cell / (ny - 1), cell % (ny - 1), p);
+						p[0] = origin[0] + p[0] * h;
+						p[1] = origin[1] + p[1] * h;
+						p[2] = z + p[2] * h;
+						project(p, near, gradient);
+
+						evaluate(buckets, near, p[0], p[1], p[2], gradient, hessian);
+						Vector3d normal = new Vector3d(-gradient[0], -gradient[1], -gradient[2]);
+						normal.normalize();
+						normals[n] = normal;
+						curvatures[n] = implicitCurvature(gradient, hessian, false);
+						System.arraycopy(p, 0, positions, 3 * n, 3);
+					}
+				}
+			});
+
+			Arrays.fill(cells, -1);
+			for (int n = 0; n < crossed.size(); ++n) {
+				cells[crossed.get(n)] = addPoint(mesh, positions[3 * n],
+						positions[3 * n + 1], positions[3 * n + 2], normals[n], curvatures[n]);
+			}
+			return cells;
+		}
+
+		/**
+		 * @return the field minus one at corner c = 4 dz + 2 dy + dx of a cell
+		 */
+		private double corner(int i, int j, int c) {
+			double[] plane = ((c & 4) == 0) ? lower : upper;
+			return plane[(j + ((c >> 1) & 1)) * nx + i + (c & 1)];
+		}
+
+		/**
+		 * Averages the crossings of the surface with the edges of a cell, in
+		 * lattice units relative to the lower corner
+		 */
+		private void average(int i, int j, double[] p) {
+			p[0] = p[1] = p[2] = 0;
+			int count = 0;
+			for (int c = 0; c < 8; ++c) {
+				for (int axis = 0; axis < 3; ++axis) {
+					int bit = 1 << axis;
+					if ((c & bit) != 0) continue;
+					double v0 = corner(i, j, c);
+					double v1 = corner(i, j, c | bit);
+					if ((v0 > 0) == (v1 > 0)) continue;
+					double t = v0 / (v0 - v1);
+					p[0] += ((c & 1) != 0) ? 1 : ((axis == 0) ? t : 0);
+					p[1] += ((c & 2) != 0) ? 1 : ((axis == 1) ? t : 0);
+					p[2] += ((c & 4) != 0) ? 1 : ((axis == 2) ? t : 0);
+					count++;
+				}
+			}
+			p[0] = p[0] / count + i;
+			p[1] = p[1] / count + j;
+			p[2] /= count;
+		}
+
+		/**
+		 * Moves a point onto the surface by Newton steps along the gradient,
+		 * each step limited to half the spacing
+		 */
+		private void project(double[] p, IntList near, double[] gradient) {
+			for (int iteration = 0; iteration < 10; ++iteration) {
+				double residual = evaluate(buckets, near, p[0], p[1], p[2], gradient, null) - 1;
+				double g2 = gradient[0] * gradient[0] + gradient[1] * gradient[1]
+						+ gradient[2] * gradient[2];
+				if ((g2 == 0) || (Math.abs(residual) < 1e-12)) break;
+				double step = residual / g2;
+				double length = Math.abs(step) * Math.sqrt(g2);
+				if (length > h / 2) {
+					step *= h / 2 / length;
+				}
+				for (int a = 0; a < 3; ++a) {
+					p[a] -= step * gradient[a];
+				}
+			}
+		}
+
+		/**
+		 * Adds the triangles of the crossed edges along x and y in the lower
+		 * plane between the cells of the previous and the current layer
+		 */
+		private void planeEdges() throws TrimeshException {
+			int cy = ny - 1;
+			for (int i = 0; i + 1 < nx; ++i) {
+				for (int j = 1; j + 1 < ny; ++j) {
+					double v0 = lower[j * nx + i], v1 = lower[j * nx + i + 1];
+					if ((v0 > 0) != (v1 > 0)) {
+						quad(previous[i * cy + j - 1], previous[i * cy + j],
+								current[i * cy + j], current[i * cy + j - 1], v0 > 0);
+					}
+				}
+			}
+			for (int i = 1; i + 1 < nx; ++i) {
+				for (int j = 0; j + 1 < ny; ++j) {
+					double v0 = lower[j * nx + i], v1 = lower[(j + 1) * nx + i];
+					if ((v0 > 0) != (v1 > 0)) {
+						quad(previous[(i - 1) * cy + j], current[(i - 1) * cy + j],
+								current[i * cy + j], previous[i * cy + j], v0 > 0);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Adds the triangles of the crossed edges along z between the lower
+		 * and the upper plane
+		 */
+		private void verticalEdges() throws TrimeshException {
+			int cy = ny - 1;
+			for (int i = 1; i + 1 < nx; ++i) {
+				for (int j = 1; j + 1 < ny; ++j) {
+					double v0 = lower[j * nx + i], v1 = upper[j * nx + i];
+					if ((v0 > 0) != (v1 > 0)) {
+						quad(current[(i - 1) * cy + j - 1], current[i * cy + j - 1],
+								current[i * cy + j], current[(i - 1) * cy + j], v0 > 0);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Adds two triangles for the points of the four cells around an edge,
+		 * given counter-clockwise seen from the positive end of the edge
+		 *
+		 * @param outward true if the surface faces the positive end
+		 */
+		private void quad(int a, int b, int c, int d, boolean outward)
+				throws TrimeshException {
+			if (outward) {
+				mesh.addTriangle(a, b, c);
+				mesh.addTriangle(a, c, d);
+			} else {
+				mesh.addTriangle(a, c, b);
+				mesh.addTriangle(a, d, c);
+			}
+		}
+	}
+
+	/**
+	 * Uniform buckets of sphere centers for neighborhood queries
+	 */
+	private static class Buckets {
+		private final double[] centers;
+		private final double size;
+		private final HashMap<Long, IntList> cells = new HashMap<Long, IntList>();
+
+		Buckets(double[] centers, double size) {
+			this.centers = centers;
+			this.size = size;
+		}
+
+		private long key(long x, long y, long z) {
+			return ((x & 0x1fffff) << 42) | ((y & 0x1fffff) << 21) | (z & 0x1fffff);
+		}
+
+		void add(int i) {
+			long key = key(cell(centers[3 * i]), cell(centers[3 * i + 1]),
+					cell(centers[3 * i + 2]));
+			IntList list = cells.get(key);
+			if (list == null) {
+				list = new IntList();
+				cells.put(key, list);
+			}
+			list.add(i);
+		}
+
+		private long cell(double coordinate) {
+			return (long) Math.floor(coordinate / size);
+		}
+
+		/**
+		 * Collects the spheres of the buckets around a point, i.e. all
+		 * spheres within the bucket size and some more
+		 */
+		void collect(double x, double y, double z, IntList out) {
+			long cx = cell(x), cy = cell(y), cz = cell(z);
+			for (long a = cx - 1; a <= cx + 1; ++a) {
+				for (long b = cy - 1; b <= cy + 1; ++b) {
+					for (long c = cz - 1; c <= cz + 1; ++c) {
+						IntList list = cells.get(key(a, b, c));
+						if (list != null) {
+							for (int n = 0; n < list.size(); ++n) {
+								out.add(list.get(n));
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+}
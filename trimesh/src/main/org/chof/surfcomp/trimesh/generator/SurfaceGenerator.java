@@ -0,0 +1,136 @@
+package org.chof.surfcomp.trimesh.generator;
+
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.calculator.PrincipalCurvature;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.Point;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+
+/**
+ * Base class of the generators of synthetic surfaces with known curvature
+ * <p>
+ * The points of a generated mesh lie exactly on the analytic surface and
+ * carry the exact normal. Each point has two reference properties:</p>
+ * <ul>
+ * <li>{@link #PRINCIPAL_CURVATURE} the principal curvatures and directions
+ * as {@link PrincipalCurvature}, positive where the surface bends away from
+ * the outward normal like {@link org.chof.surfcomp.trimesh.calculator.CurvatureTensor}</li>
+ * <li>{@link #GAUSSIAN_CURVATURE} the Gaussian curvature as Double. Note that
+ * {@link org.chof.surfcomp.trimesh.calculator.GaussianCurvature} yields the
+ * angle deficit, i.e. the Gaussian curvature integrated over the area of the
+ * point.</li>
+ * </ul>
+ * <p>
+ * The triangles are oriented counter-clockwise seen from outside. Points and
+ * triangles are added to the mesh as they are generated, thus no copy of
+ * the surface is held besides the mesh itself.</p>
+ *
+ * @author chof
+ */
+public abstract class SurfaceGenerator {
+
+	public static final String PRINCIPAL_CURVATURE = "ReferencePrincipalCurvature";
+	public static final String GAUSSIAN_CURVATURE = "ReferenceGaussianCurvature";
+
+	/**
+	 * Generates the surface into a new mesh
+	 */
+	public Mesh generate() throws TrimeshException {
+		return generate(new Mesh());
+	}
+
+	/**
+	 * Generates the surface into the given mesh
+	 *
+	 * @param mesh an empty mesh
+	 * @return the mesh
+	 */
+	public abstract <M extends Mesh> M generate(M mesh) throws TrimeshException;
+
+	/**
+	 * Adds a point with its reference curvatures to the mesh
+	 *
+	 * @return the index of the point
+	 */
+	protected static int addPoint(Mesh mesh, double x, double y, double z,
+			Vector3d normal, PrincipalCurvature curvature) throws TrimeshException {
+		Point point = new Point(new Point3d(x, y, z), normal);
+		point.setProperty(PRINCIPAL_CURVATURE, curvature);
+		point.setProperty(GAUSSIAN_CURVATURE, curvature.getGaussian());
+		return mesh.addPoint(point);
+	}
+
+	/**
+	 * Determines the curvature of an implicit surface <code>F(x) = c</code>
+	 * from the gradient and the Hessian of F at a point of the surface
+	 *
+	 * @param gradient the gradient of F
+	 * @param hessian the Hessian of F row by row
+	 * @param increasingOutward true if F increases towards the outside
+	 * @return the principal curvatures with respect to the outward normal
+	 */
+	protected static PrincipalCurvature implicitCurvature(double[] gradient,
+			double[] hessian, boolean increasingOutward) {
+		Vector3d normal = new Vector3d(gradient);
+		double length = normal.length();
+		if (!increasingOutward) {
+			normal.negate();
+		}
+		normal.scale(1 / length);
+
+		Vector3d u = perpendicular(normal);
+		Vector3d v = new Vector3d();
+		v.cross(normal, u);
+
+		// the shape operator in the tangent frame u, v
+		double scale = (increasingOutward ? 1 : -1) / length;
+		double uu = scale * quadratic(hessian, u, u);
+		double uv = scale * quadratic(hessian, u, v);
+		double vv = scale * quadratic(hessian, v, v);
+		return principal(uu, uv, vv, u, v);
+	}
+
+	/**
+	 * Decomposes a symmetric 2x2 shape operator given in the frame u, v
+	 */
+	protected static PrincipalCurvature principal(double uu, double uv, double vv,
+			Vector3d u, Vector3d v) {
+		double mean = (uu + vv) / 2;
+		double radius = Math.sqrt((uu - vv) * (uu - vv) / 4 + uv * uv);
+		double angle = Math.atan2(2 * uv, uu - vv) / 2;
+
+		Vector3d maximal = new Vector3d();
+		maximal.scaleAdd(Math.cos(angle), u, maximal);
+		maximal.scaleAdd(Math.sin(angle), v, maximal);
+		Vector3d minimal = new Vector3d();
+		minimal.scaleAdd(-Math.sin(angle), u, minimal);
+		minimal.scaleAdd(Math.cos(angle), v, minimal);
+		return new PrincipalCurvature(mean + radius, mean - radius, maximal, minimal);
+	}
+
+	/**
+	 * @return any unit vector perpendicular to the given unit vector
+	 */
+	protected static Vector3d perpendicular(Vector3d n) {
+		Vector3d axis;
+		if ((Math.abs(n.x) <= Math.abs(n.y)) && (Math.abs(n.x) <= Math.abs(n.z))) {
+			axis = new Vector3d(1, 0, 0);
+		} else if (Math.abs(n.y) <= Math.abs(n.z)) {
+			axis = new Vector3d(0, 1, 0);
+		} else {
+			axis = new Vector3d(0, 0, 1);
+		}
+		Vector3d u = new Vector3d();
+		u.cross(n, axis);
+		u.normalize();
+		return u;
+	}
+
+	private static double quadratic(double[] m, Vector3d a, Vector3d b) {
+		return a.x * (m[0] * b.x + m[1] * b.y + m[2] * b.z)
+			 + a.y * (m[3] * b.x + m[4] * b.y + m[5] * b.z)
+			 + a.z * (m[6] * b.x + m[7] * b.y + m[8] * b.z);
+	}
+}
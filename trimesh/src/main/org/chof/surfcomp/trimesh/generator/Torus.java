@@ -0,0 +1,95 @@
+package org.chof.surfcomp.trimesh.generator;
+
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.calculator.PrincipalCurvature;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+
+/**
+ * Generates a torus around the z axis from a regular grid over the angle u
+ * around the axis and the angle v around the tube
+ * <p>
+ * The curvature around the tube is 1 / r, the curvature along the tube
+ * <code>cos v / (R + r cos v)</code>, which is negative on the inner half.
+ * The torus mixes convex, saddle and, at the top and bottom circles,
+ * parabolic points.</p>
+ *
+ * @author chof
+ */
+public class Torus extends SurfaceGenerator {
+
+	private final double majorRadius;
+	private final double minorRadius;
+	private final int majorSegments;
+	private final int minorSegments;
+
+	/**
+	 * @param majorRadius the distance of the center of the tube from the axis
+	 * @param minorRadius the radius of the tube
+	 * @param majorSegments the number of segments around the axis
+	 * @param minorSegments the number of segments around the tube, the torus
+	 *        gets 2 majorSegments minorSegments triangles
+	 */
+	public Torus(double majorRadius, double minorRadius, int majorSegments,
+			int minorSegments) {
+		if (!(minorRadius > 0) || !(majorRadius > minorRadius)) {
+			throw new IllegalArgumentException("The radii must satisfy 0 < minorRadius < majorRadius");
+		}
+		if ((majorSegments < 3) || (minorSegments < 3)) {
+			throw new IllegalArgumentException("At least 3 segments are needed in each direction");
+		}
+		this.majorRadius = majorRadius;
+		this.minorRadius = minorRadius;
+		this.majorSegments = majorSegments;
+		this.minorSegments = minorSegments;
+	}
+
+	/**
+	 * @return a torus with at least the given number of triangles, the
+	 *         segments are split in the ratio of the radii to keep the
+	 *         triangles close to equilateral
+	 */
+	public static Torus withFaces(double majorRadius, double minorRadius, long faces) {
+		double ratio = minorRadius / majorRadius;
+		int major = Math.max(3, (int) Math.ceil(Math.sqrt(faces / (2 * ratio))));
+		int minor = Math.max(3, (int) Math.ceil(faces / (2.0 * major)));
+		return new Torus(majorRadius, minorRadius, major, minor);
+	}
+
+	@Override
+	public <M extends Mesh> M generate(M mesh) throws TrimeshException {
+		int offset = mesh.sizePoints();
+		for (int i = 0; i < majorSegments; ++i) {
+			double u = 2 * Math.PI * i / majorSegments;
+			double cu = Math.cos(u), su = Math.sin(u);
+			for (int j = 0; j < minorSegments; ++j) {
+				double v = 2 * Math.PI * j / minorSegments;
+				double cv = Math.cos(v), sv = Math.sin(v);
+				double r = majorRadius + minorRadius * cv;
+
+				Vector3d normal = new Vector3d(cv * cu, cv * su, sv);
+				Vector3d along = new Vector3d(-su, cu, 0);
+				Vector3d around = new Vector3d(-sv * cu, -sv * su, cv);
+				// the curvature along the tube never exceeds the one around it
+				PrincipalCurvature curvature = new PrincipalCurvature(
+						1 / minorRadius, cv / r, around, along);
+				addPoint(mesh, r * cu, r * su, minorRadius * sv, normal, curvature);
+			}
+		}
+
+		for (int i = 0; i < majorSegments; ++i) {
+			int i1 = (i + 1) % majorSegments;
+			for (int j = 0; j < minorSegments; ++j) {
+				int j1 = (j + 1) % minorSegments;
+				int a = offset + i * minorSegments + j;
+				int b = offset + i1 * minorSegments + j;
+				int c = offset + i1 * minorSegments + j1;
+				int d = offset + i * minorSegments + j1;
+				mesh.addTriangle(a, b, c);
+				mesh.addTriangle(a, c, d);
+			}
+		}
+		return mesh;
+	}
+}
@@ -0,0 +1,25 @@
+package org.chof.surfcomp.trimesh.interfaces;
+
+/**
+ * A property value which knows how to interpolate values of its own class
+ * <p>
+ * Values with an inner structure, like principal curvatures with their
+ * directions, cannot be blended component by component. They implement this
+ * interface and are then interpolated by
+ * {@link org.chof.surfcomp.trimesh.tools.ValueInterpolation}.</p>
+ *
+ * @author chof
+ */
+public interface IInterpolable {
+
+	/**
+	 * Interpolates the first count values
+	 *
+	 * @param values the values, each either null or of the class of this value
+	 * @param weights the non negative weight of each value, the weights of
+	 *        the non null values have a positive sum
+	 * @param count the number of values to use
+	 * @return the interpolated value of the class of this value
+	 */
+	public Object interpolate(Object[] values, double[] weights, int count);
+}
@@ -0,0 +1,40 @@
+package org.chof.surfcomp.trimesh.interfaces;
+
+/**
+ * Observes the progress of a long running task and asks it to stop
+ * <p>
+ * Readers and calculators report the processed vertices in blocks of a few
+ * hundred and check {@link #isCanceled()} in between. A canceled task stops
+ * with a {@link java.util.concurrent.CancellationException} and leaves its
+ * results incomplete. Parallel tasks report from several threads, thus an
+ * implementation has to be thread safe.</p>
+ *
+ * @author chof
+ */
+public interface IProgressMonitor {
+
+	/**
+	 * Starts a task
+	 *
+	 * @param task the name of the task
+	 * @param total the number of units to process
+	 */
+	public void begin(String task, long total);
+
+	/**
+	 * Reports processed units
+	 *
+	 * @param units the number of units processed since the last report
+	 */
+	public void worked(long units);
+
+	/**
+	 * @return true if the task should stop
+	 */
+	public boolean isCanceled();
+
+	/**
+	 * Ends the current task, also if it failed or was canceled
+	 */
+	public void done();
+}
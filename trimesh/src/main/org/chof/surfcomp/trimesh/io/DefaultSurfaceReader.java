@@ -1,6 +1,9 @@
 package org.chof.surfcomp.trimesh.io;
 
+import java.util.concurrent.CancellationException;
+
 import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.interfaces.IProgressMonitor;
 
 /**
  * Abstract baseclass for surface readers
@@ -22,6 +25,11 @@ public abstract class DefaultSurfaceReader implements ISurfaceReader {
 	 */
 	protected ISurfaceReaderErrorHandler errorHandler = null;
 
+	/**
+	 * The monitor observing the reads, may be null
+	 */
+	protected IProgressMonitor progressMonitor = null;
+
 	@Override
 	public void setReaderMode(Mode mode) {
 		this.mode = mode;
@@ -32,6 +40,27 @@ public abstract class DefaultSurfaceReader implements ISurfaceReader {
 		this.errorHandler = handler;
 	}
 
+	@Override
+	public void setProgressMonitor(IProgressMonitor monitor) {
+		this.progressMonitor = monitor;
+	}
+
+	/**
+	 * Reports read elements to the progress monitor
+	 * 
+	 * @param elements the number of elements read since the last report
+	 * @throws CancellationException if the monitor is canceled
+	 */
+	protected void worked(long elements) {
+		if (progressMonitor != null) {
+			if (progressMonitor.isCanceled()) {
+				throw new CancellationException("Reading of " 
+						+ getFormat().getFormatName() + " was canceled");
+			}
+			progressMonitor.worked(elements);
+		}
+	}
+
 	@Override
 	public void handleError(String message) throws TrimeshException {
         if (this.errorHandler != null) {
@@ -5,6 +5,7 @@ import java.io.Reader;
 
 import org.chof.surfcomp.trimesh.domain.Mesh;
 import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.interfaces.IProgressMonitor;
 
 /**
  * Surface reader interface
@@ -114,4 +115,14 @@ public interface ISurfaceReader extends ISurfaceIO {
      */
     public void handleError(String message, int row, int colStart, int colEnd, Exception exception)
     throws TrimeshException;
+
+    /**
+     * Sets the monitor observing the following reads. The reader reports
+     * the read vertices and faces and throws a 
+     * {@link java.util.concurrent.CancellationException} once the monitor
+     * is canceled.
+     *
+     * @param monitor the monitor or null to read unobserved
+     */
+    public void setProgressMonitor(IProgressMonitor monitor);
 }
@@ -12,23 +12,46 @@ import java.util.Scanner;
 import javax.vecmath.Point3d;
 import javax.vecmath.Vector3d;
 
+import org.chof.surfcomp.trimesh.algorithms.MeshReordering;
+import org.chof.surfcomp.trimesh.algorithms.VertexWelder;
 import org.chof.surfcomp.trimesh.domain.Mesh;
 import org.chof.surfcomp.trimesh.domain.Point;
 import org.chof.surfcomp.trimesh.domain.Triangle;
 import org.chof.surfcomp.trimesh.exception.FailedPointAddition;
-import org.chof.surfcomp.trimesh.exception.TrianglePointMissing;
 import org.chof.surfcomp.trimesh.exception.TrimeshException;
 import org.chof.surfcomp.trimesh.io.formats.IResourceFormat;
 import org.chof.surfcomp.trimesh.io.formats.MSMSFormat;
+import org.chof.surfcomp.trimesh.metrics.ISpan;
+import org.chof.surfcomp.trimesh.metrics.Metrics;
 
 /**
  * Surface file reader for Michael Sanners MSMS mol surface programm
+ * <p>
+ * MSMS writes the vertices in the order of the analytic surface. With
+ * {@link #setReordering(MeshReordering.Method)} the points and triangles
+ * are reordered for locality after reading, the index in the file is kept
+ * as property {@link MeshReordering#ORIGINAL_INDEX}.</p>
+ * <p>
+ * The points on the seams between the patches of the analytic surface may
+ * be written several times. With {@link #setWeldDistance(double)} the copies
+ * are merged by a {@link VertexWelder} before the faces are read, faces
+ * with two corners on the same welded point are skipped.</p>
  *  
  * @author chof
  */
 public class MSMSReader extends SimpleSurfaceReader {
 	
+	/**
+	 * The number of lines read between two reports of progress
+	 */
+	private static final int PROGRESS_BLOCK = 1024;
+
 	private Mesh mesh;
+	private long characters;
+	private MeshReordering.Method reordering = null;
+	private double weldDistance = -1.0;
+	private VertexWelder.Policy weldPolicy = VertexWelder.Policy.FIRST;
+	private VertexWelder welder;
 
 	/**
 	 * Default constructor
@@ -76,6 +99,42 @@ public class MSMSReader extends SimpleSurfaceReader {
 		this(new InputStreamReader(in), mode);
 	}
 
+	/**
+	 * @param reordering the order of the read points or null to keep the
+	 *        order of the file, the default
+	 */
+	public void setReordering(MeshReordering.Method reordering) {
+		this.reordering = reordering;
+	}
+
+	public MeshReordering.Method getReordering() {
+		return reordering;
+	}
+
+	/**
+	 * @param weldDistance the distance up to which read points are merged or
+	 *        a negative value to keep all points, the default
+	 */
+	public void setWeldDistance(double weldDistance) {
+		this.weldDistance = weldDistance;
+	}
+
+	public double getWeldDistance() {
+		return weldDistance;
+	}
+
+	/**
+	 * @param weldPolicy how merged points are derived, the first point by
+	 *        default
+	 */
+	public void setWeldPolicy(VertexWelder.Policy weldPolicy) {
+		this.weldPolicy = weldPolicy;
+	}
+
+	public VertexWelder.Policy getWeldPolicy() {
+		return weldPolicy;
+	}
+
 	@Override
 	public boolean accepts(Class<? extends Mesh> classObject) {
 		return (Mesh.class.equals(classObject)); 
@@ -89,8 +148,14 @@ public class MSMSReader extends SimpleSurfaceReader {
 	@SuppressWarnings("unchecked")
 	@Override
 	public <M extends Mesh> M read(M instance) throws TrimeshException {
+		long start = Metrics.start();
+		ISpan span = Metrics.begin(Metrics.SURFACE_READ);
+		span.set("format", getFormat().getFormatName());
+		characters = 0;
+		boolean reporting = false;
 		try {
-			mesh = instance;
+			mesh = ((reordering != null) || (weldDistance >= 0)) ? new Mesh() : instance;
+			welder = null;
 			
 			Scanner scanner;
 			String line;
@@ -109,7 +174,24 @@ public class MSMSReader extends SimpleSurfaceReader {
 			density = scanner.nextDouble();
 			probeRadius = scanner.nextDouble();
 			
+			if (progressMonitor != null) {
+				progressMonitor.begin("MSMS vertices", nvertices);
+				reporting = true;
+			}
 			readVertices(nvertices);
+			span.set("vertices", nvertices);
+			if (reporting) {
+				progressMonitor.done();
+				reporting = false;
+			}
+
+			if (weldDistance >= 0) {
+				long weld = Metrics.start();
+				welder = new VertexWelder(mesh, weldDistance);
+				mesh = welder.addPoints(mesh, (reordering != null) ? new Mesh() : instance,
+						weldPolicy);
+				Metrics.stop("reader.weld", weld);
+			}
 			
 			line = readWithoutComments();
 			
@@ -124,10 +206,36 @@ public class MSMSReader extends SimpleSurfaceReader {
 				throw new IOException("face and vertices part is not related!");
 			}
 			
-			readFaces(nfaces);
+			if (progressMonitor != null) {
+				progressMonitor.begin("MSMS faces", nfaces);
+				reporting = true;
+			}
+			ISpan topology = Metrics.begin(Metrics.TOPOLOGY_BUILD);
+			topology.set("faces", nfaces);
+			try {
+				readFaces(nfaces);
+			} finally {
+				topology.end();
+			}
+			span.set("faces", nfaces);
 			
+			Metrics.count("reader.vertices", nvertices);
+			Metrics.count("reader.faces", nfaces);
+
+			if (reordering != null) {
+				long reorder = Metrics.start();
+				mesh = new MeshReordering(mesh, reordering).apply(mesh, instance);
+				Metrics.stop("reader.reorder", reorder);
+			}
 		} catch (IOException e) {
 			throw new TrimeshException("Error reading input for surface", e);
+		} finally {
+			if (reporting) {
+				progressMonitor.done();
+			}
+			Metrics.stop("reader.parse", start);
+			span.set("characters", characters);
+			span.end();
 		}
 
 		
@@ -138,6 +246,7 @@ public class MSMSReader extends SimpleSurfaceReader {
 		String line;
 		do {
 			line = input.readLine();
+			characters += line.length() + 1;
 		} while (line.charAt(0) == '#');
 		
 		return line;
@@ -155,9 +264,9 @@ public class MSMSReader extends SimpleSurfaceReader {
 	 * 
 	 * @param nfaces
 	 * @throws IOException
-	 * @throws TrianglePointMissing
+	 * @throws TrimeshException
 	 */
-	private void readFaces(int nfaces) throws IOException, TrianglePointMissing {
+	private void readFaces(int nfaces) throws IOException, TrimeshException {
 		for(int i= 0; i<nfaces;i++) {
 			int a,b,c;
 			int faceType;
@@ -171,11 +280,21 @@ public class MSMSReader extends SimpleSurfaceReader {
 			faceType = new Integer(line.substring(21, 23).trim()).intValue();
 			faceNumber = new Integer(line.substring(24, 30).trim()).intValue();
 			
-			mesh.addTriangle(a, b, c);
-			Triangle t = mesh.getTriangle(i);
-			t.setProperty("faceType", faceType);
-			t.setProperty("faceNumber", faceNumber);
+			int index = (welder != null)
+					? welder.addTriangle(mesh, a, b, c) : mesh.addTriangle(a, b, c);
+			if (index >= 0) {
+				Triangle t = mesh.getTriangle(index);
+				t.setProperty("faceType", faceType);
+				t.setProperty("faceNumber", faceNumber);
+				if (welder != null) {
+					t.setProperty(MeshReordering.ORIGINAL_INDEX, i);
+				}
+			}
+			if ((i + 1) % PROGRESS_BLOCK == 0) {
+				worked(PROGRESS_BLOCK);
+			}
 		}		
+		worked(nfaces % PROGRESS_BLOCK);
 	}
 	/**
 	 * Reads the vertex lines to get the point coordinates and the normale vector
@@ -234,7 +353,11 @@ public class MSMSReader extends SimpleSurfaceReader {
 			point.setProperty("faceType", facetype);
 			
 			mesh.addPoint(point);
+			if ((i + 1) % PROGRESS_BLOCK == 0) {
+				worked(PROGRESS_BLOCK);
+			}
 		}
+		worked(nvertices % PROGRESS_BLOCK);
 	}
 
 }
@@ -0,0 +1,86 @@
+package org.chof.surfcomp.trimesh.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Summary of recorded values with power of two buckets
+ * <p>
+ * Bucket 0 counts the values below 1, bucket b the values from 2^(b-1) to
+ * 2^b - 1. Values are added without locks, thus the statistics read while
+ * values are added may be slightly inconsistent.</p>
+ *
+ * @author chof
+ */
+public class Distribution {
+
+	public static final int BUCKETS = 64;
+
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+	public void add(long value) {
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		long m;
+		while ((value < (m = min.get())) && !min.compareAndSet(m, value)) {
+		}
+		while ((value > (m = max.get())) && !max.compareAndSet(m, value)) {
+		}
+		buckets.incrementAndGet(bucketOf(value));
+	}
+
+	/**
+	 * @return the bucket of a value
+	 */
+	public static int bucketOf(long value) {
+		return (value < 1) ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+	}
+
+	/**
+	 * @return the largest value of a bucket
+	 */
+	public static long upperBound(int bucket) {
+		return (bucket >= BUCKETS - 1) ? Long.MAX_VALUE : (1L << bucket) - 1;
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public long getSum() {
+		return sum.get();
+	}
+
+	/**
+	 * @return the smallest value or 0 if no value was added
+	 */
+	public long getMin() {
+		return (count.get() > 0) ? min.get() : 0L;
+	}
+
+	/**
+	 * @return the largest value or 0 if no value was added
+	 */
+	public long getMax() {
+		return (count.get() > 0) ? max.get() : 0L;
+	}
+
+	/**
+	 * @return the mean value or NaN if no value was added
+	 */
+	public double getMean() {
+		long n = count.get();
+		return (n > 0) ? (double) sum.get() / n : Double.NaN;
+	}
+
+	/**
+	 * @return the number of values in a bucket
+	 */
+	public long getBucketCount(int bucket) {
+		return buckets.get(bucket);
+	}
+}
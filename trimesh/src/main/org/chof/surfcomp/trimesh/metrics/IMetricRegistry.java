@@ -0,0 +1,38 @@
+package org.chof.surfcomp.trimesh.metrics;
+
+/**
+ * Receives the measurements of the instrumented code
+ * <p>
+ * Implementations are called concurrently from the worker threads of the
+ * calculators and must therefore be thread safe. They should return
+ * quickly, the calls happen inside the measured loops.</p>
+ *
+ * @author chof
+ * @see Metrics
+ */
+public interface IMetricRegistry {
+
+	/**
+	 * Records the duration of one run of a phase
+	 *
+	 * @param timer the name of the phase
+	 * @param nanos the duration in nanoseconds
+	 */
+	public void recordTime(String timer, long nanos);
+
+	/**
+	 * Adds to a counter
+	 *
+	 * @param counter the name of the counter
+	 * @param delta the amount to add
+	 */
+	public void increment(String counter, long delta);
+
+	/**
+	 * Records one value of a distribution, e.g. the size of a neighborhood
+	 *
+	 * @param histogram the name of the distribution
+	 * @param value the value
+	 */
+	public void observe(String histogram, long value);
+}
@@ -0,0 +1,31 @@
+package org.chof.surfcomp.trimesh.metrics;
+
+/**
+ * One traced operation, ended on the thread which began it
+ *
+ * @author chof
+ * @see ITracer
+ */
+public interface ISpan {
+
+	/**
+	 * @return false if attributes are not recorded, thus expensive
+	 *         attributes need not be determined
+	 */
+	public boolean isRecording();
+
+	/**
+	 * Sets a text attribute, unknown attributes are ignored
+	 */
+	public void set(String attribute, String value);
+
+	/**
+	 * Sets a numeric attribute, unknown attributes are ignored
+	 */
+	public void set(String attribute, long value);
+
+	/**
+	 * Ends the operation
+	 */
+	public void end();
+}
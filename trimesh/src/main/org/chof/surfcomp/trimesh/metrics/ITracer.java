@@ -0,0 +1,26 @@
+package org.chof.surfcomp.trimesh.metrics;
+
+/**
+ * Receives the begin of traced operations, e.g. to emit them as events of
+ * a profiler
+ * <p>
+ * Unlike the measurements of {@link IMetricRegistry}, which are summed up,
+ * each operation is reported on its own together with its attributes. The
+ * operations are the constants of {@link Metrics}: surface reads, topology
+ * builds and calculations.</p>
+ *
+ * @author chof
+ * @see Metrics#setTracer(ITracer)
+ */
+public interface ITracer {
+
+	/**
+	 * Starts an operation on the calling thread
+	 *
+	 * @param operation the kind of the operation, one of the constants of
+	 *        {@link Metrics}
+	 * @return the span of the operation or null if the operation is not
+	 *         traced
+	 */
+	public ISpan begin(String operation);
+}
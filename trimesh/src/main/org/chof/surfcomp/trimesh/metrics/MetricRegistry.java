@@ -0,0 +1,180 @@
+package org.chof.surfcomp.trimesh.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The default registry keeping all measurements in memory
+ * <p>
+ * Timers and histograms are kept as {@link Distribution}, timers in
+ * nanoseconds. {@link #write(Writer)} writes all values in the text format
+ * of Prometheus, with the dots of the names replaced by underscores and the
+ * prefix <code>trimesh_</code>.</p>
+ *
+ * @author chof
+ */
+public class MetricRegistry implements IMetricRegistry {
+
+	private final ConcurrentMap<String, AtomicLong> counters =
+		new ConcurrentHashMap<String, AtomicLong>();
+	private final ConcurrentMap<String, Distribution> timers =
+		new ConcurrentHashMap<String, Distribution>();
+	private final ConcurrentMap<String, Distribution> histograms =
+		new ConcurrentHashMap<String, Distribution>();
+
+	@Override
+	public void recordTime(String timer, long nanos) {
+		distribution(timers, timer).add(nanos);
+	}
+
+	@Override
+	public void increment(String counter, long delta) {
+		AtomicLong value = counters.get(counter);
+		if (value == null) {
+			AtomicLong created = new AtomicLong();
+			value = counters.putIfAbsent(counter, created);
+			if (value == null) {
+				value = created;
+			}
+		}
+		value.addAndGet(delta);
+	}
+
+	@Override
+	public void observe(String histogram, long value) {
+		distribution(histograms, histogram).add(value);
+	}
+
+	private static Distribution distribution(ConcurrentMap<String, Distribution> map,
+			String name) {
+		Distribution distribution = map.get(name);
+		if (distribution == null) {
+			Distribution created = new Distribution();
+			distribution = map.putIfAbsent(name, created);
+			if (distribution == null) {
+				distribution = created;
+			}
+		}
+		return distribution;
+	}
+
+	//**************************************************************************
+	// Getters
+	//**************************************************************************
+
+	/**
+	 * @return the value of a counter, 0 for unknown counters
+	 */
+	public long getCount(String counter) {
+		AtomicLong value = counters.get(counter);
+		return (value != null) ? value.get() : 0L;
+	}
+
+	/**
+	 * @return the durations of a phase in nanoseconds or null if the phase
+	 *         was never measured
+	 */
+	public Distribution getTimer(String timer) {
+		return timers.get(timer);
+	}
+
+	/**
+	 * @return the values of a histogram or null if no value was recorded
+	 */
+	public Distribution getHistogram(String histogram) {
+		return histograms.get(histogram);
+	}
+
+	public SortedSet<String> getCounterNames() {
+		return Collections.unmodifiableSortedSet(new TreeSet<String>(counters.keySet()));
+	}
+
+	public SortedSet<String> getTimerNames() {
+		return Collections.unmodifiableSortedSet(new TreeSet<String>(timers.keySet()));
+	}
+
+	public SortedSet<String> getHistogramNames() {
+		return Collections.unmodifiableSortedSet(new TreeSet<String>(histograms.keySet()));
+	}
+
+	/**
+	 * Drops all measurements
+	 */
+	public void clear() {
+		counters.clear();
+		timers.clear();
+		histograms.clear();
+	}
+
+	//**************************************************************************
+	// Export
+	//**************************************************************************
+
+	/**
+	 * Writes all measurements in the Prometheus text format. Counters are
+	 * written as counter, timers as summary in seconds and histograms as
+	 * histogram with the power of two buckets up to the largest value.
+	 */
+	public void write(Writer out) throws IOException {
+		for (String name : getCounterNames()) {
+			String metric = exportName(name) + "_total";
+			out.write("# TYPE " + metric + " counter\n");
+			out.write(metric + " " + getCount(name) + "\n");
+		}
+		for (Map.Entry<String, Distribution> entry : sorted(timers).entrySet()) {
+			String metric = exportName(entry.getKey()) + "_seconds";
+			Distribution d = entry.getValue();
+			out.write("# TYPE " + metric + " summary\n");
+			out.write(metric + "_count " + d.getCount() + "\n");
+			out.write(metric + "_sum " + d.getSum() / 1e9 + "\n");
+			out.write(metric + "_max " + d.getMax() / 1e9 + "\n");
+		}
+		for (Map.Entry<String, Distribution> entry : sorted(histograms).entrySet()) {
+			String metric = exportName(entry.getKey());
+			Distribution d = entry.getValue();
+			out.write("# TYPE " + metric + " histogram\n");
+			int last = Distribution.bucketOf(d.getMax());
+			long cumulative = 0;
+			for (int b = 0; b <= last; ++b) {
+				cumulative += d.getBucketCount(b);
+				out.write(metric + "_bucket{le=\"" + Distribution.upperBound(b) + "\"} "
+						+ cumulative + "\n");
+			}
+			out.write(metric + "_bucket{le=\"+Inf\"} " + d.getCount() + "\n");
+			out.write(metric + "_count " + d.getCount() + "\n");
+			out.write(metric + "_sum " + d.getSum() + "\n");
+		}
+	}
+
+	/**
+	 * @return all measurements in the Prometheus text format
+	 * @see #write(Writer)
+	 */
+	public String scrape() {
+		StringWriter out = new StringWriter();
+		try {
+			write(out);
+		} catch (IOException e) {
+			// a StringWriter does not fail
+			throw new IllegalStateException(e);
+		}
+		return out.toString();
+	}
+
+	private static String exportName(String name) {
+		return "trimesh_" + name.replaceAll("[^A-Za-z0-9_]", "_");
+	}
+
+	private static Map<String, Distribution> sorted(Map<String, Distribution> map) {
+		return new TreeMap<String, Distribution>(map);
+	}
+}
@@ -0,0 +1,179 @@
+package org.chof.surfcomp.trimesh.metrics;
+
+/**
+ * Entry point of the instrumentation
+ * <p>
+ * The readers, the mesh and the calculators report the time of their
+ * phases, counters and distributions to the registry installed by
+ * {@link #setRegistry(IMetricRegistry)}. Without a registry, the default,
+ * every call returns after reading one volatile field, thus the
+ * instrumentation may stay in the inner loops.</p>
+ * <p>
+ * A phase is measured by</p>
+ * <pre>
+ * long start = Metrics.start();
+ * ...
+ * Metrics.stop("reader.parse", start);
+ * </pre>
+ * <p>
+ * The names are dot separated, starting with the instrumented part:</p>
+ * <ul>
+ * <li><code>reader.parse</code> timer of reading a surface, with the
+ * counters <code>reader.vertices</code> and <code>reader.faces</code>,
+ * <code>reader.reorder</code> and <code>reader.weld</code> timers of the
+ * optional reordering and welding</li>
+ * <li><code>mesh.topology</code> timer of adding triangles and their edges,
+ * with the counter <code>mesh.triangles.rejected</code> of triangles not
+ * added</li>
+ * <li><code>decimator.decimate</code> timer of the decimation of a mesh,
+ * with the counter <code>decimator.triangles.removed</code></li>
+ * <li><code>welder.weld</code> timer of finding coincident points, with the
+ * counters <code>welder.points.merged</code> and
+ * <code>welder.triangles.degenerate</code></li>
+ * <li><code>calculator.&lt;Class&gt;.&lt;phase&gt;</code> timers of the
+ * calculators with the phases <code>calculate</code>,
+ * <code>neighborhood</code>, <code>fit</code>, <code>solve</code> and
+ * <code>store</code>, the counters <code>points</code>, <code>nan</code>
+ * and <code>solver.failures</code> and the histogram <code>rim</code> of the
+ * neighborhood sizes</li>
+ * </ul>
+ * <p>
+ * Besides, single operations are reported to the {@link ITracer} installed
+ * by {@link #setTracer(ITracer)}:</p>
+ * <ul>
+ * <li>{@link #SURFACE_READ} with the attributes <code>format</code>,
+ * <code>characters</code>, <code>vertices</code> and <code>faces</code></li>
+ * <li>{@link #TOPOLOGY_BUILD} with the attribute <code>faces</code></li>
+ * <li>{@link #CALCULATION} with the attributes <code>calculator</code>,
+ * <code>parameters</code>, <code>points</code>, <code>triangles</code> and
+ * <code>selected</code></li>
+ * </ul>
+ *
+ * @author chof
+ */
+public final class Metrics {
+
+	public static final String SURFACE_READ = "surface.read";
+	public static final String TOPOLOGY_BUILD = "topology.build";
+	public static final String CALCULATION = "calculation";
+
+	private static volatile IMetricRegistry registry = null;
+	private static volatile ITracer tracer = null;
+
+	/**
+	 * The span of operations which are not traced
+	 */
+	private static final ISpan UNTRACED = new ISpan() {
+		@Override
+		public boolean isRecording() {
+			return false;
+		}
+
+		@Override
+		public void set(String attribute, String value) {
+		}
+
+		@Override
+		public void set(String attribute, long value) {
+		}
+
+		@Override
+		public void end() {
+		}
+	};
+
+	private Metrics() {
+	}
+
+	/**
+	 * Installs the registry receiving all measurements
+	 *
+	 * @param registry the registry or null to disable the instrumentation
+	 */
+	public static void setRegistry(IMetricRegistry registry) {
+		Metrics.registry = registry;
+	}
+
+	/**
+	 * @return the installed registry or null
+	 */
+	public static IMetricRegistry getRegistry() {
+		return registry;
+	}
+
+	public static boolean isEnabled() {
+		return registry != null;
+	}
+
+	/**
+	 * Starts the measurement of a phase
+	 *
+	 * @return the start time for {@link #stop(String, long)}, 0 if the
+	 *         instrumentation is disabled
+	 */
+	public static long start() {
+		return (registry != null) ? System.nanoTime() : 0L;
+	}
+
+	/**
+	 * Ends the measurement of a phase, nothing is recorded if the
+	 * instrumentation was disabled at the start
+	 *
+	 * @param timer the name of the phase
+	 * @param start the value returned by {@link #start()}
+	 */
+	public static void stop(String timer, long start) {
+		IMetricRegistry r = registry;
+		if ((r != null) && (start != 0L)) {
+			r.recordTime(timer, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Adds to a counter
+	 */
+	public static void count(String counter, long delta) {
+		IMetricRegistry r = registry;
+		if (r != null) {
+			r.increment(counter, delta);
+		}
+	}
+
+	/**
+	 * Records a value of a distribution
+	 */
+	public static void observe(String histogram, long value) {
+		IMetricRegistry r = registry;
+		if (r != null) {
+			r.observe(histogram, value);
+		}
+	}
+
+	/**
+	 * Installs the tracer receiving single operations
+	 *
+	 * @param tracer the tracer or null to disable the tracing
+	 */
+	public static void setTracer(ITracer tracer) {
+		Metrics.tracer = tracer;
+	}
+
+	/**
+	 * @return the installed tracer or null
+	 */
+	public static ITracer getTracer() {
+		return tracer;
+	}
+
+	/**
+	 * Begins an operation
+	 *
+	 * @param operation the kind of operation
+	 * @return the span of the operation, never null
+	 */
+	public static ISpan begin(String operation) {
+		ITracer t = tracer;
+		ISpan span = (t != null) ? t.begin(operation) : null;
+		return (span != null) ? span : UNTRACED;
+	}
+}
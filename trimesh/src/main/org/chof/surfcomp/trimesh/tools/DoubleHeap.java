@@ -0,0 +1,91 @@
+package org.chof.surfcomp.trimesh.tools;
+
+import java.util.Arrays;
+
+/**
+ * Binary min heap of int elements ordered by double keys
+ * <p>
+ * The heap has no decrease key operation. Shortest path searches simply
+ * push an element again with its smaller key and skip the outdated entries
+ * when they are popped.</p>
+ *
+ * @author chof
+ */
+public class DoubleHeap {
+
+	private double[] keys;
+	private int[] elements;
+	private int size = 0;
+
+	public DoubleHeap() {
+		this(64);
+	}
+
+	public DoubleHeap(int capacity) {
+		keys = new double[Math.max(1, capacity)];
+		elements = new int[Math.max(1, capacity)];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * @return the smallest key, undefined for an empty heap
+	 */
+	public double peekKey() {
+		return keys[0];
+	}
+
+	public void push(double key, int element) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, 2 * keys.length);
+			elements = Arrays.copyOf(elements, 2 * elements.length);
+		}
+		int i = size++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (keys[parent] <= key) break;
+			keys[i] = keys[parent];
+			elements[i] = elements[parent];
+			i = parent;
+		}
+		keys[i] = key;
+		elements[i] = element;
+	}
+
+	/**
+	 * Removes the element with the smallest key
+	 *
+	 * @return the element
+	 */
+	public int pop() {
+		if (size == 0) {
+			throw new IllegalStateException("The heap is empty");
+		}
+		int top = elements[0];
+		double key = keys[--size];
+		int element = elements[size];
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) break;
+			if ((child + 1 < size) && (keys[child + 1] < keys[child])) child++;
+			if (keys[child] >= key) break;
+			keys[i] = keys[child];
+			elements[i] = elements[child];
+			i = child;
+		}
+		keys[i] = key;
+		elements[i] = element;
+		return top;
+	}
+}
@@ -0,0 +1,84 @@
+package org.chof.surfcomp.trimesh.tools;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive int values
+ * <p>
+ * Used by the spatial data structures to collect query results without
+ * boxing every index into an Integer object.</p>
+ *
+ * @author chof
+ */
+public class IntList {
+
+	protected int[] data;
+	protected int size;
+
+	/**
+	 * Standard constructor creating an empty list
+	 */
+	public IntList() {
+		this(16);
+	}
+
+	/**
+	 * Constructs an empty list with the given initial capacity
+	 * @param capacity the initial capacity
+	 */
+	public IntList(int capacity) {
+		data = new int[Math.max(1, capacity)];
+		size = 0;
+	}
+
+	/**
+	 * Appends a value to the end of the list
+	 * @param value the value to add
+	 */
+	public void add(int value) {
+		if (size == data.length) {
+			data = Arrays.copyOf(data, data.length * 2);
+		}
+		data[size++] = value;
+	}
+
+	/**
+	 * @param index the position in the list
+	 * @return the value at the given position
+	 */
+	public int get(int index) {
+		if (index < size) {
+			return data[index];
+		} else {
+			throw new IndexOutOfBoundsException("Index " + index + " >= " + size);
+		}
+	}
+
+	/**
+	 * @return the number of values in the list
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if the list does not contain any value
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all values but keeps the allocated capacity
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * @return a copy of the values as an array of exactly the list's size
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(data, size);
+	}
+}
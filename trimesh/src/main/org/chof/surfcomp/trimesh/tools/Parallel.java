@@ -0,0 +1,201 @@
+package org.chof.surfcomp.trimesh.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Simple fork/join helper for index range loops
+ * <p>
+ * The range <code>[0, size)</code> is cut into blocks which are handed out to
+ * the threads of a shared executor. The calling thread takes part in the
+ * processing, thus nested calls from within a running task never block on
+ * an exhausted pool.</p>
+ * <p>
+ * The first exception thrown by a task stops the handing out of further
+ * blocks and is rethrown in the calling thread.</p>
+ *
+ * @author chof
+ */
+public class Parallel {
+
+	/**
+	 * Body of a parallel loop processing the indices <code>[from, to)</code>
+	 */
+	public static abstract class RangeTask {
+		public abstract void run(int from, int to);
+	}
+
+	/**
+	 * The default number of indices processed as one block
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+	private static ExecutorService executor = null;
+	private static boolean ownsExecutor = false;
+	private static int parallelism = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * @return the shared executor, which is created with daemon threads on
+	 *         first use
+	 */
+	public static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(parallelism,
+					new ThreadFactory() {
+						private final AtomicInteger count = new AtomicInteger();
+
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "trimesh-worker-"
+									+ count.incrementAndGet());
+							t.setDaemon(true);
+							return t;
+						}
+					});
+			ownsExecutor = true;
+		}
+		return executor;
+	}
+
+	/**
+	 * Replaces the shared executor
+	 * <p>
+	 * The default executor created by {@link #getExecutor()} is shut down
+	 * when it is replaced, running loops still finish. An executor provided
+	 * here stays owned by the caller, it is neither shut down when it is
+	 * replaced nor at exit.</p>
+	 *
+	 * @param executor the new executor
+	 * @param parallelism the number of threads the executor is able to run
+	 *        concurrently
+	 */
+	public static synchronized void setExecutor(ExecutorService executor,
+			int parallelism) {
+		if ((executor != null) && (parallelism > 0)) {
+			if (ownsExecutor && (Parallel.executor != executor)) {
+				Parallel.executor.shutdown();
+			}
+			Parallel.executor = executor;
+			Parallel.parallelism = parallelism;
+			ownsExecutor = false;
+		} else {
+			throw new IllegalArgumentException("executor must not be null and parallelism must be positive");
+		}
+	}
+
+	/**
+	 * @return the number of threads available for parallel loops
+	 */
+	public static synchronized int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Runs the task over the range <code>[0, size)</code> with the default
+	 * block size
+	 * @see #forRange(int, int, RangeTask)
+	 */
+	public static void forRange(int size, RangeTask task) {
+		forRange(size, DEFAULT_BLOCK_SIZE, task);
+	}
+
+	/**
+	 * Runs the task over the range <code>[0, size)</code> in blocks of the
+	 * given size
+	 *
+	 * @param size the number of indices to process
+	 * @param blockSize the number of indices processed by one call of the task
+	 * @param task the loop body
+	 */
+	public static void forRange(final int size, final int blockSize,
+			final RangeTask task) {
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("blockSize must be positive");
+		}
+
+		final int blocks = (int) (((long) size + blockSize - 1) / blockSize);
+		int workers = Math.min(getParallelism(), blocks) - 1;
+
+		if (workers <= 0) {
+			if (size > 0) {
+				task.run(0, size);
+			}
+			return;
+		}
+
+		final AtomicInteger nextBlock = new AtomicInteger(0);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		Runnable worker = new Runnable() {
+			@Override
+			public void run() {
+				int block;
+				while ((failure.get() == null)
+						&& ((block = nextBlock.getAndIncrement()) < blocks)) {
+					int from = block * blockSize;
+					try {
+						task.run(from, Math.min(size, from + blockSize));
+					} catch (Throwable t) {
+						failure.compareAndSet(null, t);
+					}
+				}
+			}
+		};
+
+		ExecutorService pool = getExecutor();
+		List<Future<?>> futures = new ArrayList<Future<?>>(workers);
+		try {
+			for (int i = 0; i < workers; ++i) {
+				futures.add(pool.submit(worker));
+			}
+		} catch (RejectedExecutionException e) {
+			// the executor was shut down meanwhile, the caller takes the rest
+		}
+
+		worker.run();
+
+		for (Future<?> f : futures) {
+			// workers which did not start yet are not needed anymore
+			if (!f.cancel(false)) {
+				awaitQuietly(f);
+			}
+		}
+
+		Throwable t = failure.get();
+		if (t instanceof RuntimeException) {
+			throw (RuntimeException) t;
+		} else if (t instanceof Error) {
+			throw (Error) t;
+		} else if (t != null) {
+			throw new RuntimeException(t);
+		}
+	}
+
+	private static void awaitQuietly(Future<?> f) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				f.get();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			} catch (ExecutionException e) {
+				break;
+			} catch (CancellationException e) {
+				break;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
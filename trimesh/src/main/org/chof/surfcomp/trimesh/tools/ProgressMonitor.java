@@ -0,0 +1,84 @@
+package org.chof.surfcomp.trimesh.tools;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.chof.surfcomp.trimesh.interfaces.IProgressMonitor;
+
+/**
+ * A thread safe progress monitor keeping the state of the current task
+ * <p>
+ * {@link #cancel()} may be called from any thread, e.g. by a job scheduler,
+ * and stops the observed task at its next check. A monitor stays canceled
+ * for all later tasks.</p>
+ *
+ * @author chof
+ */
+public class ProgressMonitor implements IProgressMonitor {
+
+	private volatile String task = null;
+	private volatile long total = 0;
+	private volatile boolean running = false;
+	private volatile boolean canceled = false;
+	private final AtomicLong processed = new AtomicLong();
+
+	@Override
+	public void begin(String task, long total) {
+		this.task = task;
+		this.total = total;
+		processed.set(0);
+		running = true;
+	}
+
+	@Override
+	public void worked(long units) {
+		processed.addAndGet(units);
+	}
+
+	@Override
+	public boolean isCanceled() {
+		return canceled;
+	}
+
+	@Override
+	public void done() {
+		running = false;
+	}
+
+	/**
+	 * Asks the observed task to stop
+	 */
+	public void cancel() {
+		canceled = true;
+	}
+
+	//**************************************************************************
+	// Getters
+	//**************************************************************************
+
+	/**
+	 * @return the name of the current or last task
+	 */
+	public String getTask() {
+		return task;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public long getProcessed() {
+		return processed.get();
+	}
+
+	/**
+	 * @return the processed fraction of the current or last task
+	 */
+	public double getFraction() {
+		long t = total;
+		return (t > 0) ? Math.min(1.0, (double) processed.get() / t) : 0.0;
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+}
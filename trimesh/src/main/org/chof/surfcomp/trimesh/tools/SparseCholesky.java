@@ -0,0 +1,431 @@
+package org.chof.surfcomp.trimesh.tools;
+
+import java.util.Arrays;
+
+/**
+ * Cholesky factorization of a sparse symmetric positive definite matrix
+ * <p>
+ * The rows and columns are first renumbered by a nested dissection of the
+ * matrix graph: the graph is split by a level set of a breadth first search
+ * started at a peripheral node and both halves are numbered before the
+ * separator, recursively. For mesh operators this keeps the fill-in of the
+ * factor close to O(n log n).</p>
+ * <p>
+ * The factor L is computed row by row (up-looking) along the elimination tree
+ * and stored column wise with the diagonal entry first in each column. Once
+ * factored, each solve costs one forward and one backward substitution, thus
+ * many right hand sides can be solved cheaply.</p>
+ *
+ * @author chof
+ */
+public class SparseCholesky {
+
+	/**
+	 * subgraphs of at most this size are not dissected any further
+	 */
+	private static final int LEAF_SIZE = 64;
+
+	private final int n;
+	private final int[] permutation;
+	private final int[] columnStart;
+	private final int[] rowIndices;
+	private final double[] factor;
+
+	/**
+	 * Factors the matrix
+	 *
+	 * @param matrix a symmetric positive definite matrix with both triangles
+	 *        stored
+	 * @throws IllegalArgumentException if the matrix is not square or not
+	 *         positive definite
+	 */
+	public SparseCholesky(SparseMatrix matrix) {
+		if (matrix.sizeRows() != matrix.sizeColumns()) {
+			throw new IllegalArgumentException("The matrix must be square");
+		}
+		n = matrix.sizeRows();
+		permutation = nestedDissection(matrix);
+
+		// upper triangle of the permuted matrix, column k holds rows <= k
+		int[][] upper = permutedUpper(matrix);
+		int[] start = upper[0];
+		int[] rows = upper[1];
+		double[] values = matrix.getValues();
+		int[] source = upper[2];
+
+		int[] parent = eliminationTree(start, rows);
+
+		// symbolic factorization: count the entries of each column of L
+		int[] counts = new int[n];
+		int[] stack = new int[n];
+		int[] flag = new int[n];
+		Arrays.fill(flag, -1);
+		for (int k = 0; k < n; ++k) {
+			counts[k]++;
+			int top = reach(k, start, rows, parent, stack, flag);
+			for (int t = top; t < n; ++t) {
+				counts[stack[t]]++;
+			}
+		}
+
+		columnStart = new int[n + 1];
+		for (int k = 0; k < n; ++k) {
+			long end = (long) columnStart[k] + counts[k];
+			if (end > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("The factor of the matrix is too large");
+			}
+			columnStart[k + 1] = (int) end;
+		}
+		rowIndices = new int[columnStart[n]];
+		factor = new double[columnStart[n]];
+
+		// numeric factorization row by row
+		int[] next = Arrays.copyOf(columnStart, n);
+		double[] x = new double[n];
+		Arrays.fill(flag, -1);
+		for (int k = 0; k < n; ++k) {
+			int top = reach(k, start, rows, parent, stack, flag);
+			x[k] = 0;
+			for (int p = start[k]; p < start[k + 1]; ++p) {
+				x[rows[p]] += values[source[p]];
+			}
+			double d = x[k];
+			x[k] = 0;
+
+			for (; top < n; ++top) {
+				int i = stack[top];
+				double lki = x[i] / factor[columnStart[i]];
+				x[i] = 0;
+				for (int p = columnStart[i] + 1; p < next[i]; ++p) {
+					x[rowIndices[p]] -= factor[p] * lki;
+				}
+				d -= lki * lki;
+				int p = next[i]++;
+				rowIndices[p] = k;
+				factor[p] = lki;
+			}
+
+			if (!(d > 0)) {
+				throw new IllegalArgumentException("The matrix is not positive definite");
+			}
+			int p = next[k]++;
+			rowIndices[p] = k;
+			factor[p] = Math.sqrt(d);
+		}
+	}
+
+	/**
+	 * @return the size of the matrix
+	 */
+	public int size() {
+		return n;
+	}
+
+	/**
+	 * @return the number of entries of the factor
+	 */
+	public int sizeFactor() {
+		return factor.length;
+	}
+
+	/**
+	 * Solves <code>A x = b</code>
+	 *
+	 * @param b the right hand side
+	 * @return the solution x
+	 */
+	public double[] solve(double[] b) {
+		if (b.length != n) {
+			throw new IllegalArgumentException("The right hand side does not match the matrix size");
+		}
+
+		double[] y = new double[n];
+		for (int i = 0; i < n; ++i) {
+			y[i] = b[permutation[i]];
+		}
+
+		// forward substitution L y = b
+		for (int j = 0; j < n; ++j) {
+			y[j] /= factor[columnStart[j]];
+			double yj = y[j];
+			for (int p = columnStart[j] + 1; p < columnStart[j + 1]; ++p) {
+				y[rowIndices[p]] -= factor[p] * yj;
+			}
+		}
+
+		// backward substitution L^T x = y
+		for (int j = n - 1; j >= 0; --j) {
+			double sum = y[j];
+			for (int p = columnStart[j] + 1; p < columnStart[j + 1]; ++p) {
+				sum -= factor[p] * y[rowIndices[p]];
+			}
+			y[j] = sum / factor[columnStart[j]];
+		}
+
+		double[] x = new double[n];
+		for (int i = 0; i < n; ++i) {
+			x[permutation[i]] = y[i];
+		}
+		return x;
+	}
+
+	//**************************************************************************
+	// Symbolic analysis
+	//**************************************************************************
+
+	/**
+	 * Collects the upper triangle of the permuted matrix column by column
+	 *
+	 * @return column starts, row indices and the position of each entry in
+	 *         the value array of the matrix
+	 */
+	private int[][] permutedUpper(SparseMatrix matrix) {
+		int[] rowStart = matrix.getRowStart();
+		int[] columns = matrix.getColumns();
+		int[] inverse = new int[n];
+		for (int i = 0; i < n; ++i) {
+			inverse[permutation[i]] = i;
+		}
+
+		// row r of the symmetric matrix is column r, keep the entries above
+		// the diagonal in the new numbering
+		int[] start = new int[n + 1];
+		for (int k = 0; k < n; ++k) {
+			int row = permutation[k];
+			for (int p = rowStart[row]; p < rowStart[row + 1]; ++p) {
+				if (inverse[columns[p]] <= k) start[k + 1]++;
+			}
+		}
+		for (int k = 0; k < n; ++k) {
+			start[k + 1] += start[k];
+		}
+
+		int[] rows = new int[start[n]];
+		int[] source = new int[start[n]];
+		for (int k = 0; k < n; ++k) {
+			int row = permutation[k];
+			int q = start[k];
+			for (int p = rowStart[row]; p < rowStart[row + 1]; ++p) {
+				int i = inverse[columns[p]];
+				if (i <= k) {
+					rows[q] = i;
+					source[q++] = p;
+				}
+			}
+		}
+		return new int[][] { start, rows, source };
+	}
+
+	/**
+	 * Computes the elimination tree of the factor
+	 */
+	private int[] eliminationTree(int[] start, int[] rows) {
+		int[] parent = new int[n];
+		int[] ancestor = new int[n];
+		for (int k = 0; k < n; ++k) {
+			parent[k] = -1;
+			ancestor[k] = -1;
+			for (int p = start[k]; p < start[k + 1]; ++p) {
+				int i = rows[p];
+				while ((i != -1) && (i < k)) {
+					int inext = ancestor[i];
+					ancestor[i] = k;
+					if (inext == -1) {
+						parent[i] = k;
+					}
+					i = inext;
+				}
+			}
+		}
+		return parent;
+	}
+
+	/**
+	 * Finds the non zero pattern of row k of L by walking up the elimination
+	 * tree from each entry of column k of the upper triangle
+	 *
+	 * @param stack receives the columns in topological order at
+	 *        <code>stack[top..n-1]</code>
+	 * @param flag work array, a node is visited for row k if its flag is k
+	 * @return top
+	 */
+	private int reach(int k, int[] start, int[] rows, int[] parent, int[] stack,
+			int[] flag) {
+		int top = n;
+		flag[k] = k;
+		for (int p = start[k]; p < start[k + 1]; ++p) {
+			int i = rows[p];
+			int length = 0;
+			for (; flag[i] != k; i = parent[i]) {
+				stack[length++] = i;
+				flag[i] = k;
+			}
+			while (length > 0) {
+				stack[--top] = stack[--length];
+			}
+		}
+		return top;
+	}
+
+	//**************************************************************************
+	// Ordering
+	//**************************************************************************
+
+	/**
+	 * Computes a nested dissection ordering of the matrix graph
+	 *
+	 * @return the old index of each new index
+	 */
+	static int[] nestedDissection(SparseMatrix matrix) {
+		int n = matrix.sizeRows();
+		Dissection dissection = new Dissection(matrix.getRowStart(), matrix.getColumns(), n);
+
+		int[] all = new int[n];
+		for (int i = 0; i < n; ++i) {
+			all[i] = i;
+		}
+		dissection.dissect(all, n);
+		return dissection.order;
+	}
+
+	/**
+	 * State of the recursive nested dissection
+	 */
+	private static class Dissection {
+		private final int[] rowStart;
+		private final int[] columns;
+		private final int[] part;
+		private final int[] level;
+		private final int[] order;
+		private int numbered = 0;
+		private int parts = 0;
+
+		Dissection(int[] rowStart, int[] columns, int n) {
+			this.rowStart = rowStart;
+			this.columns = columns;
+			this.part = new int[n];
+			this.level = new int[n];
+			this.order = new int[n];
+			Arrays.fill(level, -1);
+		}
+
+		/**
+		 * Numbers the nodes of a subgraph, separators last
+		 */
+		void dissect(int[] nodes, int count) {
+			if (count <= LEAF_SIZE) {
+				System.arraycopy(nodes, 0, order, numbered, count);
+				numbered += count;
+				return;
+			}
+
+			int label = ++parts;
+			for (int i = 0; i < count; ++i) {
+				part[nodes[i]] = label;
+			}
+
+			IntList queue = new IntList(count);
+			int root = peripheral(nodes[0], label, queue);
+			breadthFirst(root, label, queue);
+
+			if (queue.size() < count) {
+				// the subgraph is not connected, number the components apart
+				int[] component = queue.toArray();
+				int[] rest = new int[count - component.length];
+				int r = 0;
+				for (int i = 0; i < count; ++i) {
+					if (level[nodes[i]] < 0) rest[r++] = nodes[i];
+				}
+				clearLevels(queue);
+				dissect(component, component.length);
+				dissect(rest, rest.length);
+				return;
+			}
+
+			// separate at the level which halves the subgraph
+			int middle = level[queue.get(count / 2)];
+			int[] low = new int[count];
+			int[] high = new int[count];
+			int[] separator = new int[count];
+			int nl = 0, nh = 0, ns = 0;
+			for (int q = 0; q < count; ++q) {
+				int v = queue.get(q);
+				if (level[v] < middle) {
+					low[nl++] = v;
+				} else if (level[v] > middle) {
+					high[nh++] = v;
+				} else if (touches(v, label, middle + 1)) {
+					separator[ns++] = v;
+				} else {
+					low[nl++] = v;
+				}
+			}
+			clearLevels(queue);
+
+			if ((nl == 0) || (nh == 0)) {
+				// no useful separator, e.g. a complete subgraph
+				System.arraycopy(nodes, 0, order, numbered, count);
+				numbered += count;
+				return;
+			}
+
+			dissect(low, nl);
+			dissect(high, nh);
+			System.arraycopy(separator, 0, order, numbered, ns);
+			numbered += ns;
+		}
+
+		private boolean touches(int v, int label, int targetLevel) {
+			for (int p = rowStart[v]; p < rowStart[v + 1]; ++p) {
+				int w = columns[p];
+				if ((part[w] == label) && (level[w] == targetLevel)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Finds a node of large eccentricity by repeated breadth first
+		 * searches
+		 */
+		private int peripheral(int seed, int label, IntList queue) {
+			int node = seed;
+			int eccentricity = -1;
+			while (true) {
+				breadthFirst(node, label, queue);
+				int depth = level[queue.get(queue.size() - 1)];
+				int candidate = queue.get(queue.size() - 1);
+				clearLevels(queue);
+
+				if (depth <= eccentricity) {
+					return node;
+				}
+				eccentricity = depth;
+				node = candidate;
+			}
+		}
+
+		private void breadthFirst(int root, int label, IntList queue) {
+			queue.clear();
+			queue.add(root);
+			level[root] = 0;
+			for (int head = 0; head < queue.size(); ++head) {
+				int current = queue.get(head);
+				for (int p = rowStart[current]; p < rowStart[current + 1]; ++p) {
+					int next = columns[p];
+					if ((part[next] == label) && (level[next] < 0)) {
+						level[next] = level[current] + 1;
+						queue.add(next);
+					}
+				}
+			}
+		}
+
+		private void clearLevels(IntList queue) {
+			for (int q = 0; q < queue.size(); ++q) {
+				level[queue.get(q)] = -1;
+			}
+		}
+	}
+}
@@ -0,0 +1,260 @@
+package org.chof.surfcomp.trimesh.tools;
+
+import java.util.Arrays;
+
+/**
+ * Sparse matrix in compressed sparse row form
+ * <p>
+ * The non zero entries of row r are stored at the positions
+ * <code>rowStart[r] .. rowStart[r+1]</code> of the <code>columns</code> and
+ * <code>values</code> arrays, ordered by column. The matrix is immutable apart
+ * from the values, which can be changed in place through
+ * {@link #getValues()}.</p>
+ *
+ * @author chof
+ */
+public class SparseMatrix {
+
+	private final int rows;
+	private final int cols;
+	private final int[] rowStart;
+	private final int[] columns;
+	private final double[] values;
+
+	/**
+	 * Constructs a matrix from its compressed sparse row arrays, which are kept
+	 * by reference
+	 *
+	 * @param rows number of rows
+	 * @param cols number of columns
+	 * @param rowStart start of each row, rows + 1 entries
+	 * @param columns column of each entry, ascending within each row
+	 * @param values value of each entry
+	 */
+	public SparseMatrix(int rows, int cols, int[] rowStart, int[] columns,
+			double[] values) {
+		if ((rowStart.length != rows + 1) || (columns.length < rowStart[rows])
+				|| (values.length < rowStart[rows])) {
+			throw new IllegalArgumentException("The arrays do not match the matrix size");
+		}
+		this.rows = rows;
+		this.cols = cols;
+		this.rowStart = rowStart;
+		this.columns = columns;
+		this.values = values;
+	}
+
+	/**
+	 * Assembles a matrix from entries given as triplets. Entries with the same
+	 * row and column are summed up.
+	 *
+	 * @param rows number of rows
+	 * @param cols number of columns
+	 * @param entryRows the row of each entry
+	 * @param entryColumns the column of each entry
+	 * @param entryValues the value of each entry
+	 * @param count the number of entries
+	 * @return the assembled matrix
+	 */
+	public static SparseMatrix fromTriplets(int rows, int cols,
+			int[] entryRows, final int[] entryColumns, final double[] entryValues,
+			int count) {
+		// bucket the entries by row
+		final int[] start = new int[rows + 1];
+		for (int e = 0; e < count; ++e) {
+			int r = entryRows[e];
+			if ((r < 0) || (r >= rows) || (entryColumns[e] < 0) || (entryColumns[e] >= cols)) {
+				throw new IndexOutOfBoundsException("Entry (" + r + ", "
+						+ entryColumns[e] + ") outside of the matrix");
+			}
+			start[r + 1]++;
+		}
+		for (int r = 0; r < rows; ++r) {
+			start[r + 1] += start[r];
+		}
+		final int[] order = new int[count];
+		int[] fill = Arrays.copyOf(start, rows);
+		for (int e = 0; e < count; ++e) {
+			order[fill[entryRows[e]]++] = e;
+		}
+
+		// sort and merge each row
+		final int[] merged = new int[rows];
+		final int[] sortedColumns = new int[count];
+		final double[] sortedValues = new double[count];
+		Parallel.forRange(rows, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				long[] keys = new long[16];
+				for (int r = from; r < to; ++r) {
+					int begin = start[r];
+					int length = start[r + 1] - begin;
+					if (keys.length < length) {
+						keys = new long[Math.max(length, 2 * keys.length)];
+					}
+					for (int k = 0; k < length; ++k) {
+						int e = order[begin + k];
+						keys[k] = ((long) entryColumns[e] << 32) | e;
+					}
+					Arrays.sort(keys, 0, length);
+
+					int n = 0;
+					for (int k = 0; k < length; ++k) {
+						int column = (int) (keys[k] >>> 32);
+						double value = entryValues[(int) keys[k]];
+						if ((n > 0) && (sortedColumns[begin + n - 1] == column)) {
+							sortedValues[begin + n - 1] += value;
+						} else {
+							sortedColumns[begin + n] = column;
+							sortedValues[begin + n] = value;
+							n++;
+						}
+					}
+					merged[r] = n;
+				}
+			}
+		});
+
+		// compact the merged rows
+		int[] rowStart = new int[rows + 1];
+		for (int r = 0; r < rows; ++r) {
+			rowStart[r + 1] = rowStart[r] + merged[r];
+		}
+		int[] columns = new int[rowStart[rows]];
+		double[] values = new double[rowStart[rows]];
+		for (int r = 0; r < rows; ++r) {
+			System.arraycopy(sortedColumns, start[r], columns, rowStart[r], merged[r]);
+			System.arraycopy(sortedValues, start[r], values, rowStart[r], merged[r]);
+		}
+
+		return new SparseMatrix(rows, cols, rowStart, columns, values);
+	}
+
+	//**************************************************************************
+	// Getters
+	//**************************************************************************
+
+	public int sizeRows() {
+		return rows;
+	}
+
+	public int sizeColumns() {
+		return cols;
+	}
+
+	/**
+	 * @return the number of stored entries
+	 */
+	public int sizeNonZeros() {
+		return rowStart[rows];
+	}
+
+	/**
+	 * @return the value at row r and column c, zero if no entry is stored
+	 */
+	public double get(int r, int c) {
+		int position = find(r, c);
+		return (position >= 0) ? values[position] : 0.0;
+	}
+
+	/**
+	 * @return the position of the entry (r, c) in the value array or -1 if no
+	 *         entry is stored
+	 */
+	public int find(int r, int c) {
+		int position = Arrays.binarySearch(columns, rowStart[r], rowStart[r + 1], c);
+		return (position >= 0) ? position : -1;
+	}
+
+	public int[] getRowStart() {
+		return rowStart;
+	}
+
+	public int[] getColumns() {
+		return columns;
+	}
+
+	public double[] getValues() {
+		return values;
+	}
+
+	//**************************************************************************
+	// Operations
+	//**************************************************************************
+
+	/**
+	 * @return the product of the matrix with the vector x
+	 */
+	public double[] multiply(double[] x) {
+		double[] y = new double[rows];
+		multiply(x, y);
+		return y;
+	}
+
+	/**
+	 * Computes the product of the matrix with the vector x into y, the rows
+	 * are processed in parallel
+	 */
+	public void multiply(final double[] x, final double[] y) {
+		if ((x.length < cols) || (y.length < rows)) {
+			throw new IllegalArgumentException("The vectors do not match the matrix size");
+		}
+		Parallel.forRange(rows, 4096, new Parallel.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				for (int r = from; r < to; ++r) {
+					double sum = 0;
+					for (int k = rowStart[r]; k < rowStart[r + 1]; ++k) {
+						sum += values[k] * x[columns[k]];
+					}
+					y[r] = sum;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Computes the linear combination <code>a * this + b * other</code> of two
+	 * matrices of the same size
+	 *
+	 * @return the new matrix
+	 */
+	public SparseMatrix combine(double a, SparseMatrix other, double b) {
+		if ((rows != other.rows) || (cols != other.cols)) {
+			throw new IllegalArgumentException("The matrices differ in size");
+		}
+		int count = sizeNonZeros() + other.sizeNonZeros();
+		int[] r = new int[count];
+		int[] c = new int[count];
+		double[] v = new double[count];
+		int n = 0;
+		SparseMatrix[] matrices = { this, other };
+		double[] scales = { a, b };
+		for (int i = 0; i < 2; ++i) {
+			SparseMatrix m = matrices[i];
+			double scale = scales[i];
+			for (int row = 0; row < rows; ++row) {
+				for (int k = m.rowStart[row]; k < m.rowStart[row + 1]; ++k) {
+					r[n] = row;
+					c[n] = m.columns[k];
+					v[n++] = scale * m.values[k];
+				}
+			}
+		}
+		return fromTriplets(rows, cols, r, c, v, n);
+	}
+
+	/**
+	 * Constructs a square diagonal matrix
+	 */
+	public static SparseMatrix diagonal(double[] diagonal) {
+		int n = diagonal.length;
+		int[] rowStart = new int[n + 1];
+		int[] columns = new int[n];
+		for (int i = 0; i < n; ++i) {
+			rowStart[i + 1] = i + 1;
+			columns[i] = i;
+		}
+		return new SparseMatrix(n, n, rowStart, columns, diagonal.clone());
+	}
+}
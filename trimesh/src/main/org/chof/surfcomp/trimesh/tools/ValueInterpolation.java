@@ -0,0 +1,108 @@
+package org.chof.surfcomp.trimesh.tools;
+
+import java.util.Arrays;
+
+import javax.vecmath.Tuple3d;
+
+import org.chof.surfcomp.trimesh.interfaces.IInterpolable;
+
+/**
+ * Weighted interpolation of property values
+ * <p>
+ * Doubles and floats are interpolated to a value of the same class, tuples
+ * like <code>Vector3d</code> to a tuple of the same class and arrays of
+ * tuples element by element. Values implementing {@link IInterpolable}
+ * interpolate themselves. Integral numbers
+ * like the indices and types MSMS assigns to the points keep their class
+ * and are not blended, values of any other type, or a mix of types, cannot
+ * be interpolated either. In these cases the value with the largest weight
+ * is taken instead. Missing values (null) are left out and
+ * the weights of the remaining values are normalized.</p>
+ *
+ * @author chof
+ */
+public class ValueInterpolation {
+
+	/**
+	 * Interpolates the first count values
+	 *
+	 * @param values the values, null entries are ignored
+	 * @param weights the non negative weight of each value
+	 * @param count the number of values to use
+	 * @return the interpolated value or null if all values are null
+	 */
+	public static Object interpolate(Object[] values, double[] weights, int count) {
+		int largest = -1;
+		double total = 0;
+		for (int c = 0; c < count; ++c) {
+			if (values[c] == null) continue;
+			total += weights[c];
+			if ((largest < 0) || (weights[c] > weights[largest])) {
+				largest = c;
+			}
+		}
+		if (largest < 0) {
+			return null;
+		}
+		if (total <= 0) {
+			return values[largest];
+		}
+
+		Object pick = values[largest];
+		if (isIntegral(pick)) {
+			return pick;
+		} else if (pick instanceof Number) {
+			double sum = 0;
+			for (int c = 0; c < count; ++c) {
+				if (values[c] instanceof Number) {
+					sum += weights[c] * ((Number) values[c]).doubleValue();
+				} else if (values[c] != null) {
+					return pick;
+				}
+			}
+			return (pick instanceof Float) ? Float.valueOf((float) (sum / total)) : sum / total;
+		} else if (pick instanceof Tuple3d) {
+			Tuple3d sum = (Tuple3d) ((Tuple3d) pick).clone();
+			sum.set(0, 0, 0);
+			for (int c = 0; c < count; ++c) {
+				if ((values[c] instanceof Tuple3d) && (values[c].getClass() == pick.getClass())) {
+					sum.scaleAdd(weights[c] / total, (Tuple3d) values[c], sum);
+				} else if (values[c] != null) {
+					return pick;
+				}
+			}
+			return sum;
+		} else if (pick instanceof Tuple3d[]) {
+			int length = ((Tuple3d[]) pick).length;
+			for (int c = 0; c < count; ++c) {
+				if ((values[c] != null) && ((values[c].getClass() != pick.getClass())
+						|| (((Tuple3d[]) values[c]).length != length))) {
+					return pick;
+				}
+			}
+			Tuple3d[] result = Arrays.copyOf((Tuple3d[]) pick, length);
+			Object[] elements = new Object[count];
+			for (int e = 0; e < length; ++e) {
+				for (int c = 0; c < count; ++c) {
+					elements[c] = (values[c] != null) ? ((Tuple3d[]) values[c])[e] : null;
+				}
+				result[e] = (Tuple3d) interpolate(elements, weights, count);
+			}
+			return result;
+		} else if (pick instanceof IInterpolable) {
+			for (int c = 0; c < count; ++c) {
+				if ((values[c] != null) && (values[c].getClass() != pick.getClass())) {
+					return pick;
+				}
+			}
+			return ((IInterpolable) pick).interpolate(values, weights, count);
+		} else {
+			return pick;
+		}
+	}
+
+	private static boolean isIntegral(Object value) {
+		return (value instanceof Integer) || (value instanceof Long)
+				|| (value instanceof Short) || (value instanceof Byte);
+	}
+}
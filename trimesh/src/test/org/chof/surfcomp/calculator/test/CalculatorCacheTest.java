@@ -0,0 +1,133 @@
+package org.chof.surfcomp.calculator.test;
+
+import static org.junit.Assert.*;
+
+import java.nio.DoubleBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.Vector;
+
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.algorithms.test.TestSurfaces;
+import org.chof.surfcomp.trimesh.calculator.CalculatorCache;
+import org.chof.surfcomp.trimesh.calculator.CurvatureTensor;
+import org.chof.surfcomp.trimesh.calculator.MeanCurvature;
+import org.chof.surfcomp.trimesh.calculator.MultiScaleCanonicalCurvature;
+import org.chof.surfcomp.trimesh.calculator.PrincipalCurvature;
+import org.chof.surfcomp.trimesh.calculator.ResultColumn;
+import org.chof.surfcomp.trimesh.calculator.ShapeIndex;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.junit.Test;
+
+public class CalculatorCacheTest {
+
+	@Test
+	public void testHits() throws TrimeshException {
+		Mesh mesh = TestSurfaces.icosphere(2.0, 3);
+		CalculatorCache cache = new CalculatorCache(1 << 20);
+
+		MeanCurvature calculator = new MeanCurvature();
+		ResultColumn first = cache.calculate(calculator, mesh);
+		assertSame(first, cache.calculate(new MeanCurvature(), mesh));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, first.getWidth());
+		assertEquals(mesh.sizePoints(), first.size());
+		assertEquals(0.5, first.get(0, 0), 0.02);
+
+		// storing the properties does not change the values
+		calculator.setParameter("StoreProperty", false);
+		assertSame(first, cache.calculate(calculator, mesh));
+
+		// another parameter, another mesh version
+		calculator.setParameter("SampleSpacing", 1.0);
+		assertNotSame(first, cache.calculate(calculator, mesh));
+		calculator.setParameter("SampleSpacing", 0.0);
+		mesh.movePoint(0, new Point3d(mesh.getPoint(0).getCoordinates()), null);
+		assertNotSame(first, cache.calculate(calculator, mesh));
+		assertEquals(3, cache.size());
+
+		DoubleBuffer data = first.getData();
+		try {
+			data.put(0, 1.0);
+			fail("The column must be read-only");
+		} catch (ReadOnlyBufferException e) {
+		}
+	}
+
+	@Test
+	public void testEviction() throws TrimeshException {
+		Mesh mesh = TestSurfaces.icosphere(1.0, 3);
+		ResultColumn column = new CalculatorCache(1 << 20).calculate(new MeanCurvature(), mesh);
+
+		CalculatorCache cache = new CalculatorCache(2 * column.sizeBytes() + 1);
+		MeanCurvature calculator = new MeanCurvature();
+		ResultColumn a = cache.calculate(calculator, mesh);
+		calculator.setParameter("SampleSpacing", 0.5);
+		cache.calculate(calculator, mesh);
+		calculator.setParameter("SampleSpacing", 0.0);
+		assertSame(a, cache.calculate(calculator, mesh));
+
+		// the spacing 0.5 is the least recently used
+		calculator.setParameter("SampleSpacing", 0.7);
+		cache.calculate(calculator, mesh);
+		assertEquals(2, cache.size());
+		assertTrue(cache.sizeBytes() <= cache.getCapacity());
+		calculator.setParameter("SampleSpacing", 0.0);
+		assertSame(a, cache.calculate(calculator, mesh));
+	}
+
+	@Test
+	public void testColumns() throws TrimeshException {
+		Mesh mesh = TestSurfaces.icosphere(2.0, 2);
+
+		CurvatureTensor tensor = new CurvatureTensor();
+		Vector<PrincipalCurvature> expected = tensor.calculate(mesh);
+		ResultColumn column = new ResultColumn(expected);
+		assertEquals(8, column.getWidth());
+		PrincipalCurvature value = (PrincipalCurvature) column.getValue(3);
+		assertEquals(expected.get(3).getMaximal(), value.getMaximal(), 0);
+		assertEquals(expected.get(3).getMinimalDirection(), value.getMinimalDirection());
+
+		MultiScaleCanonicalCurvature multi = new MultiScaleCanonicalCurvature();
+		Vector<Vector3d[]> scales = multi.calculate(mesh);
+		column = new ResultColumn(scales);
+		assertEquals(12, column.getWidth());
+		Vector3d[] copy = (Vector3d[]) column.getValue(5);
+		assertArrayEquals(scales.get(5), copy);
+		copy[0].x = 100;
+		assertEquals(scales.get(5)[0], ((Vector3d[]) column.getValue(5))[0]);
+
+		Vector<Object> mixed = new Vector<Object>();
+		mixed.add("a");
+		mixed.add(null);
+		column = new ResultColumn(mixed);
+		assertEquals(0, column.getWidth());
+		assertEquals("a", column.getValue(0));
+		assertFalse(column.hasValue(1));
+	}
+
+	@Test
+	public void testInputs() throws TrimeshException {
+		Mesh mesh = TestSurfaces.icosphere(2.0, 3);
+		CalculatorCache cache = new CalculatorCache(1 << 20);
+		CurvatureTensor tensor = new CurvatureTensor();
+		tensor.calculate(mesh);
+
+		ShapeIndex calculator = new ShapeIndex();
+		ResultColumn first = cache.calculate(calculator, mesh);
+
+		// the input recalculated with other parameters leaves the mesh
+		// version as it is, the result must not be served from the cache
+		tensor.setParameter("SampleSpacing", 1.0);
+		tensor.calculate(mesh);
+		ResultColumn second = cache.calculate(calculator, mesh);
+		assertNotSame(first, second);
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		assertEquals(first.size(), second.size());
+	}
+}
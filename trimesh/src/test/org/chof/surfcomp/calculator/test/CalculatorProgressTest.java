@@ -0,0 +1,81 @@
+package org.chof.surfcomp.calculator.test;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CancellationException;
+
+import org.chof.surfcomp.trimesh.algorithms.test.TestSurfaces;
+import org.chof.surfcomp.trimesh.calculator.CurvatureTensor;
+import org.chof.surfcomp.trimesh.calculator.DefaultCalculator;
+import org.chof.surfcomp.trimesh.calculator.GaussianCurvature;
+import org.chof.surfcomp.trimesh.calculator.MeanCurvature;
+import org.chof.surfcomp.trimesh.calculator.MultiScaleCanonicalCurvature;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.tools.ProgressMonitor;
+import org.junit.Test;
+
+public class CalculatorProgressTest {
+
+	@Test
+	public void testProgress() throws TrimeshException {
+		Mesh mesh = TestSurfaces.icosphere(1.0, 4);
+		DefaultCalculator[] calculators = { new CurvatureTensor(), new GaussianCurvature(),
+				new MeanCurvature(), new MultiScaleCanonicalCurvature() };
+		for (DefaultCalculator calculator : calculators) {
+			ProgressMonitor monitor = new ProgressMonitor();
+			calculator.setProgressMonitor(monitor);
+			calculator.calculate(mesh);
+			assertEquals(calculator.getPropertyDefinition(), monitor.getTask());
+			assertEquals(mesh.sizePoints(), monitor.getTotal());
+			assertEquals(mesh.sizePoints(), monitor.getProcessed());
+			assertEquals(1.0, monitor.getFraction(), 0);
+			assertFalse(monitor.isRunning());
+		}
+
+		ProgressMonitor monitor = new ProgressMonitor();
+		GaussianCurvature calculator = new GaussianCurvature();
+		calculator.setProgressMonitor(monitor);
+		calculator.calculate(mesh, new int[] { 1, 2, 3 });
+		assertEquals(3, monitor.getProcessed());
+
+		calculator.setProgressMonitor(null);
+		calculator.calculate(mesh);
+		assertEquals(3, monitor.getProcessed());
+	}
+
+	@Test
+	public void testCancel() throws TrimeshException {
+		Mesh mesh = TestSurfaces.icosphere(1.0, 4);
+		ProgressMonitor monitor = new ProgressMonitor() {
+			@Override
+			public void worked(long units) {
+				super.worked(units);
+				if (getProcessed() > 0) {
+					cancel();
+				}
+			}
+		};
+		GaussianCurvature calculator = new GaussianCurvature();
+		calculator.setProgressMonitor(monitor);
+		try {
+			calculator.calculate(mesh);
+			fail("The calculation was not canceled");
+		} catch (CancellationException e) {
+			// expected at the report of the second block
+		}
+		assertEquals(256, monitor.getProcessed());
+		assertFalse(monitor.isRunning());
+		assertNull(mesh.getPoint(0).getProperty("GaussianCurvature"));
+
+		// a canceled monitor stops the next calculation before it starts
+		CurvatureTensor tensor = new CurvatureTensor();
+		tensor.setProgressMonitor(monitor);
+		try {
+			tensor.calculate(mesh);
+			fail("The calculation was not canceled");
+		} catch (CancellationException e) {
+			// expected
+		}
+	}
+}
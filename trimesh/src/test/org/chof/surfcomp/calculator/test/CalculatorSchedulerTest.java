@@ -0,0 +1,162 @@
+package org.chof.surfcomp.calculator.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.chof.surfcomp.trimesh.algorithms.test.TestSurfaces;
+import org.chof.surfcomp.trimesh.calculator.CalculatorScheduler;
+import org.chof.surfcomp.trimesh.calculator.CurvatureTensor;
+import org.chof.surfcomp.trimesh.calculator.DefaultCalculator;
+import org.chof.surfcomp.trimesh.calculator.ICalculator;
+import org.chof.surfcomp.trimesh.calculator.MeanCurvature;
+import org.chof.surfcomp.trimesh.calculator.ShapeIndex;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.junit.Test;
+
+public class CalculatorSchedulerTest {
+
+	/**
+	 * Calculator of a constant reading the given inputs and counting its runs
+	 */
+	private static class Constant extends DefaultCalculator {
+		private final String property;
+		private final List<Object> inputs;
+		final AtomicInteger runs = new AtomicInteger();
+		CountDownLatch rendezvous = null;
+
+		Constant(String property, Object... inputs) {
+			this.property = property;
+			this.inputs = Arrays.asList(inputs);
+		}
+
+		@Override
+		public Object getPropertyDefinition() {
+			return property;
+		}
+
+		@Override
+		public Class<? extends Object> getPropertyType() {
+			return Double.class;
+		}
+
+		@Override
+		public Collection<Object> getInputProperties() {
+			return inputs;
+		}
+
+		@Override
+		protected Object[] calculatePoints(Mesh mesh, int[] points) {
+			runs.incrementAndGet();
+			if (rendezvous != null) {
+				rendezvous.countDown();
+				try {
+					if (!rendezvous.await(10, TimeUnit.SECONDS)) {
+						throw new IllegalStateException("No concurrent calculator");
+					}
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+			for (Object input : inputs) {
+				if (mesh.getPoint(0).getProperty(input) == null) {
+					throw new IllegalStateException("Missing input " + input);
+				}
+			}
+			Object[] result = new Object[points.length];
+			Arrays.fill(result, 1.0);
+			return result;
+		}
+	}
+
+	@Test
+	public void testShapeIndex() throws TrimeshException {
+		Mesh mesh = TestSurfaces.icosphere(2.0, 3);
+
+		CalculatorScheduler scheduler = new CalculatorScheduler();
+		scheduler.register(new ShapeIndex());
+		scheduler.register(new CurvatureTensor());
+		scheduler.register(new MeanCurvature());
+
+		List<ICalculator> plan = scheduler.plan("ShapeIndex");
+		assertEquals(2, plan.size());
+		assertTrue(plan.get(0) instanceof CurvatureTensor);
+
+		Map<Object, Vector<?>> results = scheduler.calculate(mesh, "ShapeIndex", "MeanCurvature");
+		assertEquals(3, results.size());
+		for (Object index : results.get("ShapeIndex")) {
+			// a sphere is a cap everywhere
+			assertEquals(1.0, (Double) index, 0.01);
+		}
+	}
+
+	@Test
+	public void testSharedIntermediate() throws TrimeshException {
+		Mesh mesh = TestSurfaces.icosphere(1.0, 1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Constant base = new Constant("Base");
+			Constant left = new Constant("Left", "Base");
+			Constant right = new Constant("Right", "Base");
+			Constant top = new Constant("Top", "Left", "Right", "Given");
+			mesh.getPoint(0).setProperty("Given", 0.0);
+
+			// left and right only pass if they run at the same time
+			CountDownLatch rendezvous = new CountDownLatch(2);
+			left.rendezvous = rendezvous;
+			right.rendezvous = rendezvous;
+
+			CalculatorScheduler scheduler = new CalculatorScheduler(executor);
+			scheduler.register(top);
+			scheduler.register(left);
+			scheduler.register(right);
+			scheduler.register(base);
+
+			Map<Object, Vector<?>> results = scheduler.calculate(mesh, "Top", "Left");
+			assertEquals(4, results.size());
+			assertEquals(1, base.runs.get());
+			assertEquals(1, left.runs.get());
+			assertEquals(1, top.runs.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCycle() {
+		CalculatorScheduler scheduler = new CalculatorScheduler();
+		scheduler.register(new Constant("A", "B"));
+		scheduler.register(new Constant("B", "A"));
+		scheduler.plan("A");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknown() {
+		new CalculatorScheduler().plan("Unknown");
+	}
+
+	@Test
+	public void testFailure() throws TrimeshException {
+		Mesh mesh = TestSurfaces.icosphere(1.0, 1);
+		CalculatorScheduler scheduler = new CalculatorScheduler();
+		scheduler.register(new Constant("A", "Missing"));
+		try {
+			scheduler.calculate(mesh, "A");
+			fail("The missing input must fail the calculation");
+		} catch (TrimeshException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		assertEquals(Collections.emptyList(), new ShapeIndex().calculate(new Mesh()));
+	}
+}
@@ -7,6 +7,9 @@ import java.util.HashMap;
 import java.util.Set;
 import java.util.Vector;
 
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
 import org.chof.surfcomp.trimesh.calculator.CanonicalCurvature;
 import org.chof.surfcomp.trimesh.domain.Mesh;
 import org.chof.surfcomp.trimesh.domain.Point;
@@ -82,4 +85,30 @@ public class CanonicalCurvatureTest extends IOTestCase{
 			   curvature.get(4), 1e-9);
 	}
 
+	@Test
+	public void testRecalculate() throws TrimeshException, IOException {
+		Mesh mesh = loadTestSurface();
+		CanonicalCurvature calculator = new CanonicalCurvature();
+		calculator.setParameter("CutOff", 2.0);
+		calculator.calculate(mesh);
+
+		// the rim of a point reaches one edge beyond the cutoff, thus the
+		// moves also change points beyond the cutoff of the moved points
+		for (int i = 0; i < mesh.sizePoints(); i += 97) {
+			Point3d moved = new Point3d(mesh.getPoint(i).getNormale());
+			moved.scaleAdd(0.3, mesh.getPoint(i).getCoordinates());
+			mesh.movePoint(i, moved, null);
+		}
+		Vector<Vector3d> incremental = calculator.recalculate(mesh);
+
+		CanonicalCurvature fresh = new CanonicalCurvature();
+		fresh.setParameter("CutOff", 2.0);
+		fresh.setParameter("StoreProperty", false);
+		Vector<Vector3d> full = fresh.calculate(mesh);
+		for (int i = 0; i < mesh.sizePoints(); ++i) {
+			assertEquals(full.get(i).x, incremental.get(i).x, 1e-12);
+			assertEquals(full.get(i).y, incremental.get(i).y, 1e-12);
+			assertEquals(full.get(i).z, incremental.get(i).z, 1e-12);
+		}
+	}
 }
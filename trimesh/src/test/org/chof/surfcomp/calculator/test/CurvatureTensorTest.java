@@ -0,0 +1,163 @@
+package org.chof.surfcomp.calculator.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Vector;
+
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.algorithms.test.TestSurfaces;
+import org.chof.surfcomp.trimesh.calculator.CurvatureTensor;
+import org.chof.surfcomp.trimesh.calculator.PrincipalCurvature;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.io.MSMSReader;
+import org.chof.surfcomp.trimesh.io.test.IOTestCase;
+import org.chof.surfcomp.trimesh.tools.ValueInterpolation;
+import org.junit.Test;
+
+public class CurvatureTensorTest extends IOTestCase {
+
+	@Test
+	public void testSphere() throws TrimeshException {
+		Mesh mesh = TestSurfaces.icosphere(2.0, 4);
+
+		CurvatureTensor calculator = new CurvatureTensor();
+		Vector<PrincipalCurvature> curvatures = calculator.calculate(mesh);
+		assertEquals(mesh.sizePoints(), curvatures.size());
+		for (int i = 0; i < mesh.sizePoints(); ++i) {
+			PrincipalCurvature c = curvatures.get(i);
+			assertEquals(0.5, c.getMaximal(), 0.01);
+			assertEquals(0.5, c.getMinimal(), 0.01);
+			assertTrue(c.getMaximal() >= c.getMinimal());
+			assertSame(c, mesh.getPoint(i).getProperty("PrincipalCurvature"));
+		}
+	}
+
+	@Test
+	public void testCylinder() throws TrimeshException {
+		double radius = 3.0;
+		Mesh mesh = TestSurfaces.cylinder(radius, 6.0, 64, 20);
+
+		CurvatureTensor calculator = new CurvatureTensor();
+		Vector<PrincipalCurvature> curvatures = calculator.calculate(mesh);
+		for (int i = 2 * 64; i < 18 * 64; ++i) {
+			PrincipalCurvature c = curvatures.get(i);
+			assertEquals(1 / radius, c.getMaximal(), 0.01);
+			assertEquals(0.0, c.getMinimal(), 0.01);
+
+			// the minimal curvature runs along the axis
+			Vector3d axis = c.getMinimalDirection();
+			assertEquals(1.0, Math.abs(axis.z), 0.01);
+			assertEquals(0.0, c.getMaximalDirection().dot(axis), 1e-9);
+			assertEquals(0.0, c.getMaximalDirection().dot(mesh.getPoint(i).getNormale()), 1e-9);
+		}
+	}
+
+	@Test
+	public void testSampledCylinder() throws TrimeshException {
+		double radius = 3.0;
+		Mesh mesh = TestSurfaces.cylinder(radius, 6.0, 64, 20);
+
+		CurvatureTensor calculator = new CurvatureTensor();
+		calculator.setParameter("SampleSpacing", 1.0);
+		Vector<PrincipalCurvature> curvatures = calculator.calculate(mesh);
+		for (int i = 3 * 64; i < 17 * 64; ++i) {
+			PrincipalCurvature c = curvatures.get(i);
+			assertEquals(1 / radius, c.getMaximal(), 0.02);
+			assertEquals(0.0, c.getMinimal(), 0.02);
+
+			// the interpolated directions stay an orthonormal frame
+			Vector3d axis = c.getMinimalDirection();
+			assertEquals(1.0, axis.length(), 1e-9);
+			assertEquals(1.0, c.getMaximalDirection().length(), 1e-9);
+			assertEquals(0.0, c.getMaximalDirection().dot(axis), 1e-9);
+			assertEquals(1.0, Math.abs(axis.z), 0.02);
+		}
+	}
+
+	@Test
+	public void testInterpolation() {
+		// the same tensor described by directions of opposite sign
+		PrincipalCurvature a = new PrincipalCurvature(1.0, 0.0,
+				new Vector3d(1, 0, 0), new Vector3d(0, 1, 0));
+		PrincipalCurvature b = new PrincipalCurvature(1.0, 0.0,
+				new Vector3d(-1, 0, 0), new Vector3d(0, -1, 0));
+		PrincipalCurvature c = new PrincipalCurvature(0.5, 0.0,
+				new Vector3d(0, 1, 0), new Vector3d(-1, 0, 0));
+
+		PrincipalCurvature same = (PrincipalCurvature) ValueInterpolation.interpolate(
+				new Object[] { a, b }, new double[] { 1, 1 }, 2);
+		assertEquals(1.0, same.getMaximal(), 1e-12);
+		assertEquals(0.0, same.getMinimal(), 1e-12);
+		assertEquals(1.0, Math.abs(same.getMaximalDirection().x), 1e-12);
+
+		// the averaged tensor diag(0.75, 0.25) in the plane of both
+		PrincipalCurvature mixed = (PrincipalCurvature) ValueInterpolation.interpolate(
+				new Object[] { a, c }, new double[] { 3, 1 }, 2);
+		assertEquals(0.75, mixed.getMaximal(), 1e-12);
+		assertEquals(0.125, mixed.getMinimal(), 1e-12);
+		assertEquals(1.0, Math.abs(mixed.getMaximalDirection().x), 1e-12);
+		assertEquals(1.0, Math.abs(mixed.getMinimalDirection().y), 1e-12);
+	}
+
+	@Test
+	public void testStructure() throws TrimeshException, IOException {
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		Mesh mesh = reader.read(new Mesh());
+		reader.close();
+
+		CurvatureTensor calculator = new CurvatureTensor();
+		calculator.setParameter("StoreProperty", false);
+		Vector<PrincipalCurvature> curvatures = calculator.calculate(mesh);
+		assertNull(mesh.getPoint(0).getProperty("PrincipalCurvature"));
+
+		int convex = 0;
+		for (PrincipalCurvature c : curvatures) {
+			assertFalse(Double.isNaN(c.getMaximal()));
+			assertFalse(Double.isNaN(c.getMinimal()));
+			assertTrue(c.getMaximal() >= c.getMinimal());
+			if (c.getMean() > 0) convex++;
+		}
+		assertTrue(convex > 0 && convex < curvatures.size());
+	}
+
+	@Test
+	public void testSelection() throws TrimeshException, IOException {
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		Mesh mesh = reader.read(new Mesh());
+		reader.close();
+
+		CurvatureTensor calculator = new CurvatureTensor();
+		calculator.setParameter("StoreProperty", false);
+		Vector<PrincipalCurvature> full = calculator.calculate(mesh);
+
+		calculator.setParameter("StoreProperty", true);
+		int[] points = { 17, 3, 400, 1000 };
+		Vector<PrincipalCurvature> selected = calculator.calculate(mesh, points);
+		assertEquals(points.length, selected.size());
+		for (int k = 0; k < points.length; ++k) {
+			assertEquals(full.get(points[k]).getMaximal(), selected.get(k).getMaximal(), 1e-12);
+			assertEquals(full.get(points[k]).getMinimal(), selected.get(k).getMinimal(), 1e-12);
+			assertSame(selected.get(k), mesh.getPoint(points[k]).getProperty("PrincipalCurvature"));
+		}
+		assertNull(mesh.getPoint(0).getProperty("PrincipalCurvature"));
+
+		BitSet set = new BitSet();
+		set.set(3);
+		set.set(400);
+		Vector<PrincipalCurvature> bits = calculator.calculate(mesh, set);
+		assertEquals(2, bits.size());
+		assertEquals(full.get(400).getMean(), bits.get(1).getMean(), 1e-12);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testSelectionOutside() throws TrimeshException {
+		Mesh mesh = TestSurfaces.icosphere(1.0, 1);
+		new CurvatureTensor().calculate(mesh, new int[] { mesh.sizePoints() });
+	}
+}
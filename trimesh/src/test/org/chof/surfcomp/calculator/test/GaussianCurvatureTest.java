@@ -5,8 +5,12 @@ import static org.junit.Assert.*;
 import java.io.IOException;
 import java.util.Vector;
 
+import javax.vecmath.Point3d;
+
+import org.chof.surfcomp.trimesh.algorithms.test.TestSurfaces;
 import org.chof.surfcomp.trimesh.calculator.GaussianCurvature;
 import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.Point;
 import org.chof.surfcomp.trimesh.exception.TrimeshException;
 import org.chof.surfcomp.trimesh.io.MSMSReader;
 import org.chof.surfcomp.trimesh.io.test.IOTestCase;
@@ -45,4 +49,34 @@ public class GaussianCurvatureTest extends IOTestCase{
 			   curvature.get(4), 1e-9);
 	}
 
+	@Test
+	public void testRecalculate() throws TrimeshException {
+		Mesh mesh = TestSurfaces.icosphere(2.0, 3);
+		GaussianCurvature calculator = new GaussianCurvature();
+		calculator.calculate(mesh);
+
+		Point3d moved = new Point3d(mesh.getPoint(0).getCoordinates());
+		moved.scale(1.3);
+		mesh.movePoint(0, moved, null);
+		Vector<Double> incremental = calculator.recalculate(mesh);
+
+		// the triangles and edges of a mesh built from the moved coordinates
+		// carry no cached geometry of the old position
+		Mesh fresh = new Mesh();
+		for (int i = 0; i < mesh.sizePoints(); ++i) {
+			fresh.addPoint(new Point(mesh.getPoint(i)));
+		}
+		int[] corners = mesh.getTriangleIndices();
+		for (int t = 0; t < corners.length; t += 3) {
+			fresh.addTriangle(corners[t], corners[t + 1], corners[t + 2]);
+		}
+		Vector<Double> expected = new GaussianCurvature().calculate(fresh);
+		Vector<Double> full = new GaussianCurvature().calculate(mesh);
+
+		for (int i = 0; i < mesh.sizePoints(); ++i) {
+			assertEquals(expected.get(i), incremental.get(i), 1e-12);
+			assertEquals(expected.get(i), full.get(i), 1e-12);
+		}
+		assertTrue(expected.get(0) > 2 * expected.get(100));
+	}
 }
@@ -0,0 +1,129 @@
+package org.chof.surfcomp.calculator.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Vector;
+
+import javax.vecmath.Point3d;
+
+import org.chof.surfcomp.trimesh.algorithms.VertexSampler;
+import org.chof.surfcomp.trimesh.algorithms.test.TestSurfaces;
+import org.chof.surfcomp.trimesh.calculator.MeanCurvature;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.io.MSMSReader;
+import org.chof.surfcomp.trimesh.io.test.IOTestCase;
+import org.junit.Test;
+
+public class MeanCurvatureTest extends IOTestCase {
+
+	@Test
+	public void testSphere() throws TrimeshException {
+		Mesh mesh = TestSurfaces.icosphere(2.0, 4);
+
+		MeanCurvature calculator = new MeanCurvature();
+		Vector<Double> curvature = calculator.calculate(mesh);
+		assertEquals(mesh.sizePoints(), curvature.size());
+		for (int i = 0; i < mesh.sizePoints(); ++i) {
+			assertEquals(0.5, curvature.get(i), 0.01);
+			assertEquals(curvature.get(i), 
+					mesh.getPoint(i).getProperty("MeanCurvature", Double.class), 0);
+		}
+	}
+
+	@Test
+	public void testMeanVector() throws TrimeshException, IOException {
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		Mesh mesh = reader.read(new Mesh());
+		reader.close();
+
+		MeanCurvature calculator = new MeanCurvature();
+		calculator.setParameter("StoreProperty", false);
+		Vector<Double> curvature = calculator.calculate(mesh);
+
+		assertNull(mesh.getPoint(4).getProperty("MeanCurvature"));
+		int convex = 0;
+		for (double h : curvature) {
+			assertFalse(Double.isNaN(h));
+			if (h > 0) convex++;
+		}
+		// the probe leaves both convex and concave patches
+		assertTrue(convex > 0 && convex < curvature.size());
+	}
+
+	@Test
+	public void testSampled() throws TrimeshException, IOException {
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		Mesh mesh = reader.read(new Mesh());
+		reader.close();
+
+		MeanCurvature calculator = new MeanCurvature();
+		Vector<Double> full = calculator.calculate(mesh);
+
+		calculator.setParameter("SampleSpacing", 1.0);
+		calculator.setParameter("SamplingMethod", VertexSampler.Method.FARTHEST_POINT);
+		Vector<Double> sampled = calculator.calculate(mesh);
+		assertEquals(full.size(), sampled.size());
+
+		double error = 0;
+		double scale = 0;
+		for (int i = 0; i < full.size(); ++i) {
+			error += Math.abs(full.get(i) - sampled.get(i));
+			scale += Math.abs(full.get(i));
+			assertEquals(sampled.get(i), 
+					mesh.getPoint(i).getProperty("MeanCurvature", Double.class), 0);
+		}
+		assertTrue(error < scale);
+	}
+
+	@Test
+	public void testSelection() throws TrimeshException {
+		Mesh mesh = TestSurfaces.icosphere(2.0, 3);
+
+		MeanCurvature calculator = new MeanCurvature();
+		Vector<Double> curvature = calculator.calculate(mesh, new int[] { 5, 7 });
+		assertEquals(2, curvature.size());
+		assertEquals(0.5, curvature.get(0), 0.02);
+		assertEquals(curvature.get(1), 
+				mesh.getPoint(7).getProperty("MeanCurvature", Double.class), 0);
+		assertNull(mesh.getPoint(6).getProperty("MeanCurvature"));
+		assertSame(mesh.getEdgeGraph(), mesh.getEdgeGraph());
+	}
+
+	@Test
+	public void testRecalculate() throws TrimeshException {
+		Mesh mesh = TestSurfaces.icosphere(2.0, 4);
+		MeanCurvature calculator = new MeanCurvature();
+		calculator.calculate(mesh);
+
+		// a bump at point 0 only changes it and its direct neighbors
+		Point3d bumped = new Point3d(mesh.getPoint(0).getCoordinates());
+		bumped.scale(1.1);
+		mesh.movePoint(0, bumped, null);
+		mesh.getPoint(100).setProperty("MeanCurvature", -1.0);
+
+		Vector<Double> incremental = calculator.recalculate(mesh);
+		assertEquals(-1.0, incremental.get(100), 0);
+
+		BitSet region = new BitSet();
+		region.set(0);
+		region = mesh.getEdgeGraph().dilate(region, 0);
+		Vector<Double> full = new MeanCurvature().calculate(mesh);
+		for (int i = 0; i < mesh.sizePoints(); ++i) {
+			if (i != 100) {
+				assertEquals(full.get(i), incremental.get(i), 1e-12);
+			}
+		}
+		assertTrue(Math.abs(full.get(0) - 0.5) > 0.05);
+		assertEquals(6, region.cardinality());
+		assertFalse(region.get(100));
+
+		// nothing moved since, all values are taken from the properties
+		mesh.getPoint(0).setProperty("MeanCurvature", 7.0);
+		assertEquals(7.0, calculator.<Double>recalculate(mesh).get(0), 0);
+	}
+}
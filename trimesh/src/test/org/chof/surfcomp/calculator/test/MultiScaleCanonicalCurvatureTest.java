@@ -0,0 +1,102 @@
+package org.chof.surfcomp.calculator.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Vector;
+
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.algorithms.test.TestSurfaces;
+import org.chof.surfcomp.trimesh.calculator.MultiScaleCanonicalCurvature;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.io.MSMSReader;
+import org.chof.surfcomp.trimesh.io.test.IOTestCase;
+import org.junit.Test;
+
+public class MultiScaleCanonicalCurvatureTest extends IOTestCase {
+
+	@Test
+	public void testSphere() throws TrimeshException {
+		double radius = 4.0;
+		Mesh mesh = TestSurfaces.icosphere(radius, 4);
+
+		MultiScaleCanonicalCurvature calculator = new MultiScaleCanonicalCurvature();
+		calculator.setParameter("CutOffs", new Double[] { 2.0, -1.0, 1.0 });
+		assertArrayEquals(new double[] { -1.0, 1.0, 2.0 }, calculator.getCutOffs(), 0);
+
+		Vector<Vector3d[]> curvatures = calculator.calculate(mesh);
+		assertEquals(mesh.sizePoints(), curvatures.size());
+		for (int i = 0; i < mesh.sizePoints(); ++i) {
+			Vector3d[] scales = curvatures.get(i);
+			assertEquals(3, scales.length);
+			for (Vector3d c : scales) {
+				// the surface bends away from the outward normal
+				assertEquals(-1 / radius, c.x, 0.02);
+				assertEquals(-1 / radius, c.y, 0.02);
+			}
+			assertSame(scales, mesh.getPoint(i).getProperty("MultiScaleCanonicalCurvature"));
+		}
+	}
+
+	@Test
+	public void testSampled() throws TrimeshException, IOException {
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		Mesh mesh = reader.read(new Mesh());
+		reader.close();
+
+		MultiScaleCanonicalCurvature calculator = new MultiScaleCanonicalCurvature();
+		calculator.setParameter("CutOffs", new Double[] { 3.0, 5.0 });
+		Vector<Vector3d[]> full = calculator.calculate(mesh);
+
+		calculator.setParameter("SampleSpacing", 1.0);
+		Vector<Vector3d[]> sampled = calculator.calculate(mesh);
+		assertEquals(full.size(), sampled.size());
+
+		double error = 0;
+		double scale = 0;
+		HashSet<Double> distinct = new HashSet<Double>();
+		for (int i = 0; i < full.size(); ++i) {
+			Vector3d[] value = sampled.get(i);
+			assertEquals(2, value.length);
+			assertSame(value, mesh.getPoint(i).getProperty("MultiScaleCanonicalCurvature"));
+			for (int k = 0; k < value.length; ++k) {
+				error += Math.abs(full.get(i)[k].x - value[k].x);
+				scale += Math.abs(full.get(i)[k].x);
+			}
+			distinct.add(value[1].x);
+		}
+		assertTrue(error < scale);
+		// interpolated between the samples rather than copied from the nearest
+		assertTrue(distinct.size() > full.size() / 2);
+	}
+
+	@Test
+	public void testIncremental() throws TrimeshException, IOException {
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		Mesh mesh = reader.read(new Mesh());
+		reader.close();
+
+		MultiScaleCanonicalCurvature calculator = new MultiScaleCanonicalCurvature();
+		calculator.setParameter("StoreProperty", false);
+		Vector<Vector3d[]> all = calculator.calculate(mesh);
+		assertNull(mesh.getPoint(0).getProperty("MultiScaleCanonicalCurvature"));
+
+		// each scale of the sweep matches a separate run with that cutoff only
+		double[] cutoffs = calculator.getCutOffs();
+		for (int k = 0; k < cutoffs.length; ++k) {
+			calculator.setParameter("CutOffs", new Double[] { cutoffs[k] });
+			Vector<Vector3d[]> single = calculator.calculate(mesh);
+			for (int i = 0; i < mesh.sizePoints(); i += 7) {
+				Vector3d expected = single.get(i)[0];
+				Vector3d actual = all.get(i)[k];
+				assertEquals(expected.x, actual.x, 1e-9 * (1 + Math.abs(expected.x)));
+				assertEquals(expected.y, actual.y, 1e-9 * (1 + Math.abs(expected.y)));
+			}
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package org.chof.surfcomp.trimesh.algorithms.test;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({ PointGridIndexTest.class,
+	            TriangleBVHTest.class,
+	            SignedDistanceFieldTest.class,
+	            VoxelizerTest.class,
+	            LaplaceBeltramiTest.class,
+	            HeatGeodesicsTest.class,
+	            VertexSamplerTest.class,
+	            MeshReorderingTest.class,
+	            QuadricDecimatorTest.class,
+	            VertexWelderTest.class })
+public class AlgorithmTests {
+
+}
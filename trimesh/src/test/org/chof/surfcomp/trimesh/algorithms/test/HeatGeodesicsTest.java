@@ -0,0 +1,79 @@
+package org.chof.surfcomp.trimesh.algorithms.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import javax.vecmath.Point3d;
+
+import org.chof.surfcomp.trimesh.algorithms.HeatGeodesics;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.io.MSMSReader;
+import org.chof.surfcomp.trimesh.io.test.IOTestCase;
+import org.junit.Test;
+
+public class HeatGeodesicsTest extends IOTestCase {
+
+	@Test
+	public void testSphere() throws TrimeshException {
+		double radius = 3.0;
+		Mesh mesh = TestSurfaces.icosphere(radius, 4);
+		HeatGeodesics geodesics = mesh.getHeatGeodesics();
+		assertSame(geodesics, mesh.getHeatGeodesics());
+
+		for (int source : new int[] { 0, 100, 2000 }) {
+			double[] distances = geodesics.distances(source);
+			Point3d s = mesh.getPoint(source).getCoordinates();
+			assertEquals(0.0, distances[source], 0);
+
+			double error = 0;
+			for (int i = 0; i < mesh.sizePoints(); ++i) {
+				Point3d p = mesh.getPoint(i).getCoordinates();
+				double cosine = Math.max(-1, Math.min(1, (s.x * p.x + s.y * p.y + s.z * p.z)
+						/ (radius * radius)));
+				double expected = radius * Math.acos(cosine);
+				error = Math.max(error, Math.abs(distances[i] - expected));
+			}
+			assertTrue("max error " + error, error < 0.05 * Math.PI * radius);
+		}
+	}
+
+	@Test
+	public void testSources() throws TrimeshException {
+		Mesh mesh = TestSurfaces.icosphere(1.0, 3);
+		HeatGeodesics geodesics = new HeatGeodesics(mesh);
+		double[] a = geodesics.distances(5);
+		double[] b = geodesics.distances(77);
+		double[] both = geodesics.distances(5, 77);
+		for (int i = 0; i < both.length; ++i) {
+			assertEquals(Math.min(a[i], b[i]), both[i], 0.05 * Math.PI);
+		}
+	}
+
+	@Test
+	public void testStructure() throws TrimeshException, IOException {
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		Mesh mesh = reader.read(new Mesh());
+		reader.close();
+
+		HeatGeodesics geodesics = new HeatGeodesics(mesh);
+		double[] distances = geodesics.distances(0);
+		assertEquals(mesh.sizePoints(), distances.length);
+		assertEquals(0.0, distances[0], 0);
+
+		// the distance along the surface is never below the straight distance
+		Point3d s = mesh.getPoint(0).getCoordinates();
+		int finite = 0;
+		for (int i = 0; i < distances.length; ++i) {
+			assertFalse(Double.isNaN(distances[i]));
+			if (!Double.isInfinite(distances[i])) {
+				finite++;
+				double straight = s.distance(mesh.getPoint(i).getCoordinates());
+				assertTrue(distances[i] > 0.8 * straight - 0.5);
+			}
+		}
+		assertTrue(finite > distances.length / 2);
+	}
+}
@@ -0,0 +1,87 @@
+package org.chof.surfcomp.trimesh.algorithms.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.chof.surfcomp.trimesh.algorithms.LaplaceBeltrami;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.Triangle;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.io.MSMSReader;
+import org.chof.surfcomp.trimesh.io.test.IOTestCase;
+import org.chof.surfcomp.trimesh.tools.SparseMatrix;
+import org.junit.Test;
+
+public class LaplaceBeltramiTest extends IOTestCase {
+
+	@Test
+	public void testSphere() throws TrimeshException {
+		double radius = 2.0;
+		Mesh mesh = TestSurfaces.icosphere(radius, 4);
+		LaplaceBeltrami operator = mesh.getLaplaceBeltrami();
+		assertSame(operator, mesh.getLaplaceBeltrami());
+
+		double total = 0;
+		for (double a : operator.getAreas()) {
+			total += a;
+		}
+		assertEquals(4 * Math.PI * radius * radius, total, 0.1);
+
+		// the Laplacian of the coordinates is -2 H n with H = 1 / radius
+		double[][] coordinates = new double[3][mesh.sizePoints()];
+		for (int i = 0; i < mesh.sizePoints(); ++i) {
+			coordinates[0][i] = mesh.getPoint(i).getCoordinates().x;
+			coordinates[1][i] = mesh.getPoint(i).getCoordinates().y;
+			coordinates[2][i] = mesh.getPoint(i).getCoordinates().z;
+		}
+		for (int axis = 0; axis < 3; ++axis) {
+			double[] k = operator.apply(coordinates[axis]);
+			for (int i = 0; i < k.length; ++i) {
+				assertEquals(-2 * coordinates[axis][i] / (radius * radius), k[i], 0.02);
+			}
+		}
+	}
+
+	@Test
+	public void testStructure() throws TrimeshException, IOException {
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		Mesh mesh = reader.read(new Mesh());
+		reader.close();
+
+		LaplaceBeltrami operator = new LaplaceBeltrami(mesh);
+		SparseMatrix l = operator.getLaplacian();
+		assertEquals(mesh.sizePoints(), l.sizeRows());
+
+		int[] rowStart = l.getRowStart();
+		int[] columns = l.getColumns();
+		double[] values = l.getValues();
+		for (int r = 0; r < l.sizeRows(); ++r) {
+			double sum = 0;
+			for (int k = rowStart[r]; k < rowStart[r + 1]; ++k) {
+				sum += values[k];
+				assertEquals(values[k], l.get(columns[k], r), 1e-12);
+			}
+			assertEquals(0.0, sum, 1e-9);
+		}
+
+		double area = 0;
+		for (Triangle t : mesh.getTriangles()) {
+			area += t.getArea();
+		}
+		double total = 0;
+		for (double a : operator.getAreas()) {
+			assertTrue(a >= 0);
+			total += a;
+		}
+		assertEquals(area, total, 1e-6 * area);
+
+		double[] ones = new double[mesh.sizePoints()];
+		Arrays.fill(ones, 1.0);
+		for (double v : operator.apply(ones)) {
+			assertEquals(0.0, v, 1e-9);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package org.chof.surfcomp.trimesh.algorithms.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Vector;
+
+import org.chof.surfcomp.trimesh.algorithms.MeshReordering;
+import org.chof.surfcomp.trimesh.algorithms.MeshReordering.Method;
+import org.chof.surfcomp.trimesh.calculator.GaussianCurvature;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.Point;
+import org.chof.surfcomp.trimesh.domain.Triangle;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.io.MSMSReader;
+import org.chof.surfcomp.trimesh.io.test.IOTestCase;
+import org.junit.Test;
+
+public class MeshReorderingTest extends IOTestCase {
+
+	@Test
+	public void testPermutation() throws TrimeshException, IOException {
+		Mesh original = read(null);
+		for (Method method : Method.values()) {
+			MeshReordering reordering = new MeshReordering(original, method);
+			Mesh mesh = reordering.apply(original, new Mesh());
+			assertEquals(original.sizePoints(), mesh.sizePoints());
+			assertEquals(original.sizeTriangles(), mesh.sizeTriangles());
+
+			int[] order = reordering.getOrder();
+			boolean[] seen = new boolean[order.length];
+			for (int k = 0; k < mesh.sizePoints(); ++k) {
+				Point p = mesh.getPoint(k);
+				int i = p.getProperty(MeshReordering.ORIGINAL_INDEX, Integer.class);
+				assertEquals(order[k], i);
+				assertEquals(k, reordering.getInverse()[i]);
+				assertFalse(seen[i]);
+				seen[i] = true;
+				Point q = original.getPoint(i);
+				assertEquals(q.getCoordinates(), p.getCoordinates());
+				assertEquals(q.getProperty("faceNumber", Integer.class),
+						p.getProperty("faceNumber", Integer.class));
+			}
+
+			int[] corners = original.getTriangleIndices();
+			int[] reordered = mesh.getTriangleIndices();
+			for (int t = 0; t < mesh.sizeTriangles(); ++t) {
+				Triangle triangle = mesh.getTriangle(t);
+				int s = triangle.getProperty(MeshReordering.ORIGINAL_INDEX, Integer.class);
+				for (int c = 0; c < 3; ++c) {
+					assertEquals(corners[3 * s + c], order[reordered[3 * t + c]]);
+				}
+				assertEquals(original.getTriangle(s).getProperty("faceType", Integer.class),
+						triangle.getProperty("faceType", Integer.class));
+			}
+		}
+	}
+
+	@Test
+	public void testLocality() throws TrimeshException, IOException {
+		Mesh original = read(null);
+		double span = meanEdgeSpan(original);
+		for (Method method : Method.values()) {
+			Mesh mesh = new MeshReordering(original, method).apply(original, new Mesh());
+			assertTrue(method.toString(), meanEdgeSpan(mesh) < span / 4);
+		}
+	}
+
+	@Test
+	public void testReader() throws TrimeshException, IOException {
+		Mesh original = read(null);
+		Mesh mesh = read(Method.REVERSE_CUTHILL_MCKEE);
+		assertEquals(original.sizePoints(), mesh.sizePoints());
+
+		Vector<Double> expected = new GaussianCurvature().calculate(original);
+		Vector<Double> actual = new GaussianCurvature().calculate(mesh);
+		for (int k = 0; k < mesh.sizePoints(); ++k) {
+			int i = mesh.getPoint(k).getProperty(MeshReordering.ORIGINAL_INDEX, Integer.class);
+			assertEquals(expected.get(i), actual.get(k), 1e-12);
+		}
+	}
+
+	private Mesh read(Method reordering) throws TrimeshException, IOException {
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		reader.setReordering(reordering);
+		Mesh mesh = reader.read(new Mesh());
+		reader.close();
+		return mesh;
+	}
+
+	/**
+	 * @return the mean difference of the indices of the ends of the edges
+	 */
+	private static double meanEdgeSpan(Mesh mesh) {
+		int[] corners = mesh.getTriangleIndices();
+		double sum = 0;
+		for (int t = 0; t < corners.length; t += 3) {
+			for (int c = 0; c < 3; ++c) {
+				sum += Math.abs(corners[t + c] - corners[t + (c + 1) % 3]);
+			}
+		}
+		return sum / corners.length;
+	}
+}
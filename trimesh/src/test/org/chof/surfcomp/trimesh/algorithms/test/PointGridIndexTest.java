@@ -0,0 +1,164 @@
+package org.chof.surfcomp.trimesh.algorithms.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.vecmath.Point3d;
+
+import org.chof.surfcomp.trimesh.algorithms.PointGridIndex;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.io.MSMSReader;
+import org.chof.surfcomp.trimesh.io.test.IOTestCase;
+import org.junit.Test;
+
+public class PointGridIndexTest extends IOTestCase {
+
+	@Test
+	public void testRadiusQuery() {
+		double[] coordinates = randomPoints(2000, 42);
+		PointGridIndex index = new PointGridIndex(coordinates);
+		assertEquals(2000, index.size());
+
+		Random random = new Random(7);
+		for (int q = 0; q < 50; ++q) {
+			double x = random.nextDouble() * 12 - 1;
+			double y = random.nextDouble() * 12 - 1;
+			double z = random.nextDouble() * 12 - 1;
+			double r = random.nextDouble() * 3;
+
+			int[] actual = index.withinRadius(x, y, z, r);
+			Arrays.sort(actual);
+			assertArrayEquals(bruteForceRadius(coordinates, x, y, z, r), actual);
+		}
+	}
+
+	@Test
+	public void testNearest() {
+		double[] coordinates = randomPoints(1500, 3);
+		PointGridIndex index = new PointGridIndex(coordinates);
+
+		Random random = new Random(11);
+		for (int q = 0; q < 50; ++q) {
+			// include query positions far outside the bounding box
+			double x = random.nextDouble() * 40 - 15;
+			double y = random.nextDouble() * 40 - 15;
+			double z = random.nextDouble() * 40 - 15;
+
+			int[] expected = bruteForceNearest(coordinates, x, y, z, 5, -1);
+			assertArrayEquals(expected, index.nearest(x, y, z, 5, -1));
+			assertEquals(expected[0], index.nearest(new Point3d(x, y, z)));
+		}
+	}
+
+	@Test
+	public void testNearestWithinDistance() {
+		double[] coordinates = { 0, 0, 0, 1, 0, 0, 5, 5, 5 };
+		PointGridIndex index = new PointGridIndex(coordinates);
+
+		assertEquals(1, index.nearest(1.2, 0, 0, 0.5));
+		assertEquals(-1, index.nearest(3, 3, 3, 0.5));
+		assertTrue(index.anyWithinRadius(4.5, 5, 5, 0.5));
+		assertFalse(index.anyWithinRadius(4.5, 5, 5, 0.4));
+	}
+
+	@Test
+	public void testBatchQueries() {
+		double[] coordinates = randomPoints(3000, 5);
+		PointGridIndex index = new PointGridIndex(coordinates, 0.7);
+
+		int[][] neighborhoods = index.withinRadiusOfAll(0.8);
+		int[][] nearest = index.nearestOfAll(3);
+
+		for (int i = 0; i < 3000; i += 37) {
+			double x = coordinates[3 * i];
+			double y = coordinates[3 * i + 1];
+			double z = coordinates[3 * i + 2];
+
+			int[] expected = bruteForceRadius(coordinates, x, y, z, 0.8);
+			int[] withoutSelf = new int[expected.length - 1];
+			int k = 0;
+			for (int e : expected) {
+				if (e != i) withoutSelf[k++] = e;
+			}
+			int[] actual = neighborhoods[i].clone();
+			Arrays.sort(actual);
+			assertArrayEquals(withoutSelf, actual);
+
+			assertArrayEquals(bruteForceNearest(coordinates, x, y, z, 3, i), nearest[i]);
+		}
+	}
+
+	@Test
+	public void testMeshIndex() throws TrimeshException, IOException {
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		Mesh mesh = reader.read(new Mesh());
+		reader.close();
+
+		PointGridIndex index = mesh.getPointGridIndex();
+		assertSame(index, mesh.getPointGridIndex());
+		assertEquals(mesh.sizePoints(), index.size());
+
+		Point3d p = mesh.getPoint(2472).getCoordinates();
+		assertEquals(2472, index.nearest(p));
+
+		int[] actual = index.withinRadius(p, 2.0);
+		Arrays.sort(actual);
+		assertArrayEquals(bruteForceRadius(PointGridIndex.coordinatesOf(mesh),
+				p.x, p.y, p.z, 2.0), actual);
+	}
+
+	private double[] randomPoints(int n, long seed) {
+		Random random = new Random(seed);
+		double[] coordinates = new double[3 * n];
+		for (int i = 0; i < coordinates.length; ++i) {
+			coordinates[i] = random.nextDouble() * 10;
+		}
+		return coordinates;
+	}
+
+	private int[] bruteForceRadius(double[] c, double x, double y, double z, double r) {
+		int count = 0;
+		int[] result = new int[c.length / 3];
+		for (int i = 0; i < c.length / 3; ++i) {
+			if (distance2(c, i, x, y, z) <= r * r) {
+				result[count++] = i;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	private int[] bruteForceNearest(final double[] c, final double x, final double y,
+			final double z, int k, int exclude) {
+		Integer[] order = new Integer[c.length / 3];
+		for (int i = 0; i < order.length; ++i) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new java.util.Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(distance2(c, a, x, y, z), distance2(c, b, x, y, z));
+			}
+		});
+
+		int[] result = new int[k];
+		int count = 0;
+		for (int i = 0; (i < order.length) && (count < k); ++i) {
+			if (order[i] != exclude) {
+				result[count++] = order[i];
+			}
+		}
+		return result;
+	}
+
+	private double distance2(double[] c, int i, double x, double y, double z) {
+		double dx = c[3 * i] - x;
+		double dy = c[3 * i + 1] - y;
+		double dz = c[3 * i + 2] - z;
+		return dx * dx + dy * dy + dz * dz;
+	}
+}
@@ -0,0 +1,113 @@
+package org.chof.surfcomp.trimesh.algorithms.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.algorithms.MeshReordering;
+import org.chof.surfcomp.trimesh.algorithms.QuadricDecimator;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.Point;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.io.MSMSReader;
+import org.chof.surfcomp.trimesh.io.test.IOTestCase;
+import org.junit.Test;
+
+public class QuadricDecimatorTest extends IOTestCase {
+
+	@Test
+	public void testSphere() throws TrimeshException {
+		Mesh sphere = TestSurfaces.icosphere(10.0, 4);
+		QuadricDecimator decimator = new QuadricDecimator(sphere);
+		decimator.setTargetTriangles(500);
+		int remaining = decimator.decimate();
+		assertTrue(remaining <= 501);
+		assertTrue(remaining >= 400);
+
+		Mesh mesh = decimator.apply(sphere, new Mesh());
+		assertEquals(remaining, mesh.sizeTriangles());
+		assertEquals(decimator.getPoints().length, mesh.sizePoints());
+		// still a closed sphere, with 3/2 edges per triangle
+		assertClosed(mesh.getTriangleIndices());
+		assertEquals(4, 2 * mesh.sizePoints() - mesh.sizeTriangles());
+		for (Point p : mesh.getPoints()) {
+			assertEquals(10.0, new Vector3d(p.getCoordinates()).length(), 0.5);
+			assertTrue(p.getNormale().dot(new Vector3d(p.getCoordinates())) > 0);
+		}
+	}
+
+	@Test
+	public void testMaxError() throws TrimeshException {
+		Mesh tube = TestSurfaces.cylinder(5.0, 10.0, 32, 40);
+		QuadricDecimator decimator = new QuadricDecimator(tube);
+		decimator.setMaxError(1e-6);
+		int remaining = decimator.decimate();
+		// the rings along the straight lines collapse without error
+		assertTrue(remaining < tube.sizeTriangles() / 4);
+		assertTrue(decimator.getError() <= 1e-6);
+
+		double[] coordinates = decimator.getCoordinates();
+		for (int k = 0; k < coordinates.length; k += 3) {
+			double r = Math.hypot(coordinates[k], coordinates[k + 1]);
+			assertEquals(5.0, r, 1e-6);
+			double z = coordinates[k + 2];
+			assertTrue(z > -1e-6 && z < 10.0 + 1e-6);
+		}
+		Mesh mesh = decimator.apply(tube, new Mesh());
+		assertEquals(remaining, mesh.sizeTriangles());
+	}
+
+	@Test
+	public void testProperties() throws TrimeshException, IOException {
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		Mesh source = reader.read(new Mesh());
+		reader.close();
+
+		QuadricDecimator decimator = new QuadricDecimator(source);
+		decimator.setTargetTriangles(source.sizeTriangles() / 10);
+		int remaining = decimator.decimate();
+		assertTrue(remaining <= source.sizeTriangles() / 10 + 1);
+
+		Mesh mesh = decimator.apply(source, new Mesh());
+		assertEquals(remaining, mesh.sizeTriangles());
+		int[] representatives = decimator.getRepresentatives();
+		for (int k = 0; k < mesh.sizePoints(); ++k) {
+			Point p = mesh.getPoint(k);
+			int i = p.getProperty(MeshReordering.ORIGINAL_INDEX, Integer.class);
+			assertEquals(k, representatives[i]);
+			assertEquals(source.getPoint(i).getProperty("faceNumber", Integer.class),
+					p.getProperty("faceNumber", Integer.class));
+			assertEquals(source.getPoint(i).getProperty("atomName", String.class),
+					p.getProperty("atomName", String.class));
+		}
+		for (int r : representatives) {
+			assertTrue((r >= 0) && (r < mesh.sizePoints()));
+		}
+		for (int t = 0; t < mesh.sizeTriangles(); ++t) {
+			int s = mesh.getTriangle(t).getProperty(MeshReordering.ORIGINAL_INDEX, Integer.class);
+			assertEquals(source.getTriangle(s).getProperty("faceType", Integer.class),
+					mesh.getTriangle(t).getProperty("faceType", Integer.class));
+		}
+	}
+
+	/**
+	 * Asserts that each directed edge appears once and its reverse as well
+	 */
+	private static void assertClosed(int[] corners) {
+		HashMap<Long, Integer> edges = new HashMap<Long, Integer>();
+		for (int t = 0; t < corners.length; t += 3) {
+			for (int c = 0; c < 3; ++c) {
+				long key = ((long) corners[t + c] << 32) | corners[t + (c + 1) % 3];
+				assertNull(edges.put(key, t));
+			}
+		}
+		for (long key : edges.keySet()) {
+			long reverse = ((key & 0xffffffffL) << 32) | (key >>> 32);
+			assertTrue(edges.containsKey(reverse));
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package org.chof.surfcomp.trimesh.algorithms.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import javax.vecmath.Point3d;
+
+import org.chof.surfcomp.trimesh.algorithms.SignedDistanceField;
+import org.chof.surfcomp.trimesh.algorithms.TriangleBVH;
+import org.chof.surfcomp.trimesh.algorithms.TriangleHit;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.io.MSMSReader;
+import org.chof.surfcomp.trimesh.io.test.IOTestCase;
+import org.junit.Test;
+
+public class SignedDistanceFieldTest extends IOTestCase {
+
+	@Test
+	public void testSignedDistances() throws TrimeshException, IOException {
+		Mesh mesh = loadTestSurface();
+		TriangleBVH bvh = mesh.getTriangleBVH();
+
+		SignedDistanceField field = SignedDistanceField.enclosing(mesh, 1.5, 3.0);
+		field.compute(mesh);
+
+		double[] p = new double[3];
+		TriangleHit hit = new TriangleHit();
+		int inside = 0;
+
+		for (int k = 0; k < field.getSizeZ(); k += 2) {
+			for (int j = 0; j < field.getSizeY(); j += 2) {
+				for (int i = 0; i < field.getSizeX(); i += 2) {
+					field.getGridPoint(i, j, k, p);
+					float value = field.get(i, j, k);
+
+					bvh.closestPoint(p[0], p[1], p[2], Double.POSITIVE_INFINITY, hit);
+					assertEquals(hit.getDistance(), Math.abs(value), 1e-4);
+
+					if (Math.abs(value) > 0.05) {
+						boolean expectInside = crossings(bvh, p) % 2 == 1;
+						assertEquals(expectInside, value < 0);
+						if (expectInside) inside++;
+					}
+				}
+			}
+		}
+
+		assertTrue(inside > 0);
+		assertTrue(field.get(0, 0, 0) > 0);
+	}
+
+	@Test
+	public void testGridFile() throws TrimeshException, IOException {
+		Mesh mesh = loadTestSurface();
+		SignedDistanceField field = SignedDistanceField.enclosing(mesh, 3.0, 2.0);
+		field.compute(mesh);
+
+		File file = File.createTempFile("trimesh", ".sdf");
+		file.deleteOnExit();
+		field.write(file);
+
+		SignedDistanceField mapped = SignedDistanceField.open(file);
+		assertNull(mapped.getValues());
+		assertEquals(field.getSizeX(), mapped.getSizeX());
+		assertEquals(field.getSizeY(), mapped.getSizeY());
+		assertEquals(field.getSizeZ(), mapped.getSizeZ());
+		assertEquals(field.getSpacing(), mapped.getSpacing(), 0);
+		assertEquals(field.getOrigin(), mapped.getOrigin());
+
+		for (int k = 0; k < field.getSizeZ(); ++k) {
+			for (int j = 0; j < field.getSizeY(); ++j) {
+				for (int i = 0; i < field.getSizeX(); ++i) {
+					assertEquals(field.get(i, j, k), mapped.get(i, j, k), 0);
+				}
+			}
+		}
+
+		File direct = File.createTempFile("trimesh", ".sdf");
+		direct.deleteOnExit();
+		SignedDistanceField computed = SignedDistanceField.create(direct,
+				field.getOrigin(), field.getSpacing(), field.getSizeX(),
+				field.getSizeY(), field.getSizeZ());
+		computed.compute(mesh);
+		computed.flush();
+		assertEquals(field.get(3, 4, 5), SignedDistanceField.open(direct).get(3, 4, 5), 0);
+	}
+
+	/**
+	 * counts the surface crossings of a slightly tilted ray along x starting
+	 * at the position
+	 */
+	private int crossings(TriangleBVH bvh, double[] p) {
+		double[] direction = { 1, 0.0137, 0.0071 };
+		double[] origin = p.clone();
+		TriangleHit hit = new TriangleHit();
+		int count = 0;
+
+		while (bvh.intersectRay(origin[0], origin[1], origin[2],
+				direction[0], direction[1], direction[2], Double.POSITIVE_INFINITY, hit)) {
+			count++;
+			hit.getLocation(origin);
+			for (int axis = 0; axis < 3; ++axis) {
+				origin[axis] += 1e-7 * direction[axis];
+			}
+		}
+		return count;
+	}
+
+	@Test
+	public void testCorruptHeader() throws IOException {
+		File file = File.createTempFile("sdf", ".grid");
+		file.deleteOnExit();
+		SignedDistanceField.create(file, new Point3d(), 1.0, 2, 2, 3).flush();
+
+		// negative dimensions with the product of the valid ones
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.seek(4);
+		raf.writeInt(Integer.reverseBytes(-2));
+		raf.writeInt(Integer.reverseBytes(-2));
+		raf.close();
+		try {
+			SignedDistanceField.open(file);
+			fail("The header is corrupt");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testGridFileTooLarge() throws IOException {
+		File file = File.createTempFile("sdf", ".grid");
+		file.delete();
+		try {
+			// 1024^3 floats need 4 GB, more than a single mapping holds
+			SignedDistanceField.create(file, new Point3d(), 1.0, 1024, 1024, 1024);
+			fail("The grid exceeds 2 GB");
+		} catch (IllegalArgumentException e) {
+			// expected before the file is created
+		}
+		assertFalse(file.exists());
+	}
+
+	private Mesh loadTestSurface() throws TrimeshException, IOException {
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		Mesh mesh = reader.read(new Mesh());
+		reader.close();
+		return mesh;
+	}
+}
@@ -0,0 +1,112 @@
+package org.chof.surfcomp.trimesh.algorithms.test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.Point;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+
+/**
+ * Analytic test surfaces with known curvature
+ */
+public class TestSurfaces {
+
+	/**
+	 * Builds a sphere around the origin by subdividing an icosahedron, the
+	 * triangles are oriented counter-clockwise seen from outside
+	 */
+	public static Mesh icosphere(double radius, int subdivisions) throws TrimeshException {
+		double g = (1 + Math.sqrt(5)) / 2;
+		double[][] vertices = {
+			{ -1, g, 0 }, { 1, g, 0 }, { -1, -g, 0 }, { 1, -g, 0 },
+			{ 0, -1, g }, { 0, 1, g }, { 0, -1, -g }, { 0, 1, -g },
+			{ g, 0, -1 }, { g, 0, 1 }, { -g, 0, -1 }, { -g, 0, 1 }
+		};
+		int[] faces = {
+			0, 11, 5, 0, 5, 1, 0, 1, 7, 0, 7, 10, 0, 10, 11,
+			1, 5, 9, 5, 11, 4, 11, 10, 2, 10, 7, 6, 7, 1, 8,
+			3, 9, 4, 3, 4, 2, 3, 2, 6, 3, 6, 8, 3, 8, 9,
+			4, 9, 5, 2, 4, 11, 6, 2, 10, 8, 6, 7, 9, 8, 1
+		};
+
+		List<double[]> points = new ArrayList<double[]>();
+		for (double[] v : vertices) {
+			points.add(v);
+		}
+
+		for (int s = 0; s < subdivisions; ++s) {
+			HashMap<Long, Integer> middle = new HashMap<Long, Integer>();
+			int[] refined = new int[4 * faces.length];
+			int n = 0;
+			for (int f = 0; f < faces.length; f += 3) {
+				int a = faces[f], b = faces[f + 1], c = faces[f + 2];
+				int ab = middle(points, middle, a, b);
+				int bc = middle(points, middle, b, c);
+				int ca = middle(points, middle, c, a);
+				int[] children = { a, ab, ca, b, bc, ab, c, ca, bc, ab, bc, ca };
+				for (int child : children) {
+					refined[n++] = child;
+				}
+			}
+			faces = refined;
+		}
+
+		Mesh mesh = new Mesh();
+		for (double[] v : points) {
+			Vector3d normal = new Vector3d(v);
+			normal.normalize();
+			Point3d position = new Point3d(normal);
+			position.scale(radius);
+			mesh.addPoint(new Point(position, normal));
+		}
+		for (int f = 0; f < faces.length; f += 3) {
+			mesh.addTriangle(faces[f], faces[f + 1], faces[f + 2]);
+		}
+		return mesh;
+	}
+
+	/**
+	 * Builds an open tube around the z axis from z = 0 to the given height,
+	 * the triangles are oriented counter-clockwise seen from outside
+	 */
+	public static Mesh cylinder(double radius, double height, int segments,
+			int rings) throws TrimeshException {
+		Mesh mesh = new Mesh();
+		for (int r = 0; r <= rings; ++r) {
+			for (int s = 0; s < segments; ++s) {
+				double angle = 2 * Math.PI * s / segments;
+				Vector3d normal = new Vector3d(Math.cos(angle), Math.sin(angle), 0);
+				Point3d position = new Point3d(radius * normal.x, radius * normal.y,
+						height * r / rings);
+				mesh.addPoint(new Point(position, normal));
+			}
+		}
+		for (int r = 0; r < rings; ++r) {
+			for (int s = 0; s < segments; ++s) {
+				int a = r * segments + s;
+				int b = r * segments + (s + 1) % segments;
+				mesh.addTriangle(a, b, b + segments);
+				mesh.addTriangle(a, b + segments, a + segments);
+			}
+		}
+		return mesh;
+	}
+
+	private static int middle(List<double[]> points,
+			HashMap<Long, Integer> middle, int a, int b) {
+		long key = ((long) Math.min(a, b) << 32) | Math.max(a, b);
+		Integer index = middle.get(key);
+		if (index == null) {
+			double[] p = points.get(a), q = points.get(b);
+			index = points.size();
+			points.add(new double[] { (p[0] + q[0]) / 2, (p[1] + q[1]) / 2, (p[2] + q[2]) / 2 });
+			middle.put(key, index);
+		}
+		return index;
+	}
+}
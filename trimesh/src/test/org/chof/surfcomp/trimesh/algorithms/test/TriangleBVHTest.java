@@ -0,0 +1,136 @@
+package org.chof.surfcomp.trimesh.algorithms.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.algorithms.TriangleBVH;
+import org.chof.surfcomp.trimesh.algorithms.TriangleHit;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.io.MSMSReader;
+import org.chof.surfcomp.trimesh.io.test.IOTestCase;
+import org.junit.Test;
+
+public class TriangleBVHTest extends IOTestCase {
+
+	@Test
+	public void testSingleTriangle() {
+		TriangleBVH bvh = new TriangleBVH(new double[] { 0, 0, 0, 1, 0, 0, 0, 1, 0 });
+
+		TriangleHit hit = bvh.intersectRay(new Point3d(0.2, 0.2, 1), new Vector3d(0, 0, -1));
+		assertTrue(hit.isHit());
+		assertEquals(0, hit.getTriangle());
+		assertEquals(1.0, hit.getDistance(), 1e-12);
+		assertEquals(0.6, hit.getWeightA(), 1e-12);
+		assertEquals(0.2, hit.getWeightB(), 1e-12);
+		assertEquals(0.2, hit.getWeightC(), 1e-12);
+
+		assertFalse(bvh.intersectRay(new Point3d(0.2, 0.2, 1), new Vector3d(0, 0, 1)).isHit());
+		assertFalse(bvh.intersectsRay(new Point3d(0.2, 0.2, 1), new Vector3d(0, 0, -1), 0.5));
+
+		hit = bvh.closestPoint(new Point3d(2, 2, 1));
+		assertEquals(Math.sqrt(1.5 * 1.5 * 2 + 1), hit.getDistance(), 1e-12);
+		assertEquals(0.5, hit.getWeightB(), 1e-12);
+		assertEquals(0.5, hit.getWeightC(), 1e-12);
+
+		assertFalse(bvh.closestPoint(2, 2, 1, 1.0, new TriangleHit()));
+	}
+
+	@Test
+	public void testClosestPoint() throws TrimeshException, IOException {
+		Mesh mesh = loadTestSurface();
+		TriangleBVH bvh = mesh.getTriangleBVH();
+		assertSame(bvh, mesh.getTriangleBVH());
+		assertEquals(mesh.sizeTriangles(), bvh.size());
+
+		TriangleBVH[] single = singleTriangles(mesh);
+		double[] box = new double[6];
+		bvh.getBounds(box);
+
+		Random random = new Random(13);
+		double[] queries = new double[3 * 40];
+		for (int i = 0; i < queries.length; ++i) {
+			int axis = i % 3;
+			queries[i] = box[axis] - 3 + random.nextDouble() * (box[axis + 3] - box[axis] + 6);
+		}
+
+		TriangleHit[] hits = bvh.closestPoints(queries, Double.POSITIVE_INFINITY);
+		for (int q = 0; q < hits.length; ++q) {
+			double best = Double.POSITIVE_INFINITY;
+			for (TriangleBVH t : single) {
+				best = Math.min(best, t.closestPoint(new Point3d(queries[3 * q],
+						queries[3 * q + 1], queries[3 * q + 2])).getDistance());
+			}
+			assertEquals(best, hits[q].getDistance(), 1e-9);
+			assertEquals(1.0, hits[q].getWeightA() + hits[q].getWeightB()
+					+ hits[q].getWeightC(), 1e-9);
+		}
+	}
+
+	@Test
+	public void testRays() throws TrimeshException, IOException {
+		Mesh mesh = loadTestSurface();
+		TriangleBVH bvh = mesh.getTriangleBVH();
+		TriangleBVH[] single = singleTriangles(mesh);
+
+		double[] box = new double[6];
+		bvh.getBounds(box);
+		Point3d center = new Point3d((box[0] + box[3]) / 2, (box[1] + box[4]) / 2,
+				(box[2] + box[5]) / 2);
+
+		Random random = new Random(17);
+		double[] origins = new double[3 * 30];
+		double[] directions = new double[3 * 30];
+		for (int r = 0; r < 30; ++r) {
+			origins[3 * r] = center.x;
+			origins[3 * r + 1] = center.y;
+			origins[3 * r + 2] = center.z;
+			directions[3 * r] = random.nextGaussian();
+			directions[3 * r + 1] = random.nextGaussian();
+			directions[3 * r + 2] = random.nextGaussian();
+		}
+
+		TriangleHit[] hits = bvh.intersectRays(origins, directions);
+		boolean[] any = bvh.intersectsRays(origins, directions, Double.POSITIVE_INFINITY);
+
+		for (int r = 0; r < 30; ++r) {
+			Vector3d direction = new Vector3d(directions[3 * r], directions[3 * r + 1],
+					directions[3 * r + 2]);
+			double best = Double.POSITIVE_INFINITY;
+			for (TriangleBVH t : single) {
+				TriangleHit hit = t.intersectRay(center, direction);
+				if (hit.isHit()) {
+					best = Math.min(best, hit.getDistance());
+				}
+			}
+			assertEquals(best != Double.POSITIVE_INFINITY, hits[r].isHit());
+			assertEquals(hits[r].isHit(), any[r]);
+			if (hits[r].isHit()) {
+				assertEquals(best, hits[r].getDistance(), 1e-9);
+			}
+		}
+	}
+
+	private TriangleBVH[] singleTriangles(Mesh mesh) {
+		double[] coordinates = TriangleBVH.coordinatesOf(mesh);
+		TriangleBVH[] single = new TriangleBVH[mesh.sizeTriangles()];
+		for (int t = 0; t < single.length; ++t) {
+			single[t] = new TriangleBVH(Arrays.copyOfRange(coordinates, 9 * t, 9 * t + 9));
+		}
+		return single;
+	}
+
+	private Mesh loadTestSurface() throws TrimeshException, IOException {
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		Mesh mesh = reader.read(new Mesh());
+		reader.close();
+		return mesh;
+	}
+}
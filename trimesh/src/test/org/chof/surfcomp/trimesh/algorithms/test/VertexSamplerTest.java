@@ -0,0 +1,73 @@
+package org.chof.surfcomp.trimesh.algorithms.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.chof.surfcomp.trimesh.algorithms.VertexSampler;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.io.MSMSReader;
+import org.chof.surfcomp.trimesh.io.test.IOTestCase;
+import org.junit.Test;
+
+public class VertexSamplerTest extends IOTestCase {
+
+	@Test
+	public void testSphere() throws TrimeshException {
+		Mesh mesh = TestSurfaces.icosphere(2.0, 4);
+		double spacing = 0.5;
+
+		for (VertexSampler.Method method : VertexSampler.Method.values()) {
+			VertexSampler sampler = new VertexSampler(mesh);
+			int[] samples = sampler.sample(method, spacing);
+			assertTrue(samples.length > 4 * Math.PI * 4 / (Math.PI * spacing * spacing * 4));
+			assertTrue(samples.length < mesh.sizePoints() / 5);
+
+			double[] distances = sampler.getDistances();
+			int[] nearest = sampler.getNearestSamples();
+			for (int k = 0; k < samples.length; ++k) {
+				assertEquals(0.0, distances[samples[k]], 0);
+				assertEquals(k, nearest[samples[k]]);
+			}
+			for (int i = 0; i < mesh.sizePoints(); ++i) {
+				assertTrue(distances[i] <= spacing);
+				double straight = mesh.getPoint(i).getCoordinates().distance(
+						mesh.getPoint(samples[nearest[i]]).getCoordinates());
+				// paths along the edges zig-zag somewhat around the geodesic
+				assertTrue(straight <= distances[i] + 1e-9);
+				assertTrue(distances[i] <= 1.3 * straight + 1e-9);
+			}
+
+			// a smooth field is reproduced within its change over the spacing
+			Object[] heights = new Object[samples.length];
+			for (int k = 0; k < samples.length; ++k) {
+				heights[k] = mesh.getPoint(samples[k]).getCoordinates().z;
+			}
+			Object[] values = sampler.interpolate(heights);
+			for (int i = 0; i < mesh.sizePoints(); ++i) {
+				assertEquals(mesh.getPoint(i).getCoordinates().z, (Double) values[i], spacing);
+			}
+		}
+	}
+
+	@Test
+	public void testStructure() throws TrimeshException, IOException {
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		Mesh mesh = reader.read(new Mesh());
+		reader.close();
+
+		VertexSampler sampler = new VertexSampler(mesh);
+		int[] samples = sampler.sample(VertexSampler.Method.POISSON_DISK, 1.5);
+		Object[] labels = new Object[samples.length];
+		for (int k = 0; k < samples.length; ++k) {
+			labels[k] = "sample " + k;
+		}
+		Object[] values = sampler.interpolate(labels);
+		for (int i = 0; i < mesh.sizePoints(); ++i) {
+			assertTrue(sampler.getDistances()[i] <= 1.5);
+			assertNotNull(values[i]);
+		}
+	}
+}
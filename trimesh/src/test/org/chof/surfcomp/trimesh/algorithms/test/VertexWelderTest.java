@@ -0,0 +1,86 @@
+package org.chof.surfcomp.trimesh.algorithms.test;
+
+import static org.junit.Assert.*;
+
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.algorithms.MeshReordering;
+import org.chof.surfcomp.trimesh.algorithms.VertexWelder;
+import org.chof.surfcomp.trimesh.algorithms.VertexWelder.Policy;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.Point;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.junit.Test;
+
+public class VertexWelderTest {
+
+	@Test
+	public void testTriangleSoup() throws TrimeshException {
+		Mesh sphere = TestSurfaces.icosphere(10.0, 3);
+		int[] corners = sphere.getTriangleIndices();
+
+		// every triangle with its own copies of the corners
+		Mesh soup = new Mesh();
+		for (int k = 0; k < corners.length; ++k) {
+			soup.addPoint(new Point(sphere.getPoint(corners[k])));
+		}
+		for (int t = 0; t < sphere.sizeTriangles(); ++t) {
+			soup.addTriangle(3 * t, 3 * t + 1, 3 * t + 2);
+		}
+
+		VertexWelder welder = new VertexWelder(soup, 1e-9);
+		assertEquals(corners.length - sphere.sizePoints(), welder.sizeMerged());
+		Mesh mesh = welder.apply(soup, new Mesh(), Policy.FIRST);
+		assertEquals(sphere.sizePoints(), mesh.sizePoints());
+		assertEquals(sphere.sizeTriangles(), mesh.sizeTriangles());
+		assertEquals(sphere.sizeEdges(), mesh.sizeEdges());
+
+		int[] representatives = welder.getRepresentatives();
+		for (int k = 0; k < corners.length; ++k) {
+			Point p = mesh.getPoint(representatives[k]);
+			assertEquals(sphere.getPoint(corners[k]).getCoordinates(), p.getCoordinates());
+			int first = p.getProperty(MeshReordering.ORIGINAL_INDEX, Integer.class);
+			assertTrue(first <= k);
+			assertEquals(representatives[k], representatives[first]);
+		}
+	}
+
+	@Test
+	public void testPolicy() throws TrimeshException {
+		Mesh source = new Mesh();
+		source.addPoint(point(0.0, 0.0, 1.0));
+		source.addPoint(point(1.0, 0.0, 2.0));
+		source.addPoint(point(0.0, 1.0, 3.0));
+		source.addPoint(point(1.002, 0.0, 4.0));
+		source.addPoint(point(1.0, 1.0, 5.0));
+		source.getPoint(3).setProperty("name", "second");
+		source.getPoint(1).setProperty("name", "first");
+		source.addTriangle(0, 1, 2);
+		source.addTriangle(2, 3, 4);
+		// degenerate after welding
+		source.addTriangle(1, 3, 4);
+
+		VertexWelder welder = new VertexWelder(source, 0.01);
+		assertArrayEquals(new int[] { 0, 1, 2, 1, 3 }, welder.getRepresentatives());
+
+		Mesh first = welder.apply(source, new Mesh(), Policy.FIRST);
+		assertEquals(4, first.sizePoints());
+		assertEquals(2, first.sizeTriangles());
+		assertEquals(1.0, first.getPoint(1).getCoordinates().x, 0.0);
+		assertEquals(2.0, first.getPoint(1).getProperty("value", Double.class), 0.0);
+
+		Mesh average = welder.apply(source, new Mesh(), Policy.AVERAGE);
+		assertEquals(1.001, average.getPoint(1).getCoordinates().x, 1e-12);
+		assertEquals(3.0, average.getPoint(1).getProperty("value", Double.class), 1e-12);
+		assertEquals("first", average.getPoint(1).getProperty("name"));
+		assertEquals(1.0, average.getPoint(0).getProperty("value", Double.class), 0.0);
+		assertArrayEquals(new int[] { 0, 1, 2, 2, 1, 3 }, average.getTriangleIndices());
+	}
+
+	private static Point point(double x, double y, double value) {
+		Point p = new Point(new Point3d(x, y, 0), new Vector3d(0, 0, 1));
+		p.setProperty("value", value);
+		return p;
+	}
+}
@@ -0,0 +1,131 @@
+package org.chof.surfcomp.trimesh.algorithms.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import javax.vecmath.Point3d;
+
+import org.chof.surfcomp.trimesh.algorithms.BitGrid;
+import org.chof.surfcomp.trimesh.algorithms.SignedDistanceField;
+import org.chof.surfcomp.trimesh.algorithms.Voxelizer;
+import org.chof.surfcomp.trimesh.algorithms.Voxelizer.Mode;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.io.MSMSReader;
+import org.chof.surfcomp.trimesh.io.test.IOTestCase;
+import org.junit.Test;
+
+public class VoxelizerTest extends IOTestCase {
+
+	@Test
+	public void testCube() {
+		// the cube [0, 1]^3 hits voxel centers exactly on its faces and edges
+		Voxelizer voxelizer = new Voxelizer(cube(0, 1));
+		BitGrid grid = voxelizer.voxelize(0.125, Mode.SOLID);
+
+		assertEquals(0.0, grid.getOrigin().x + 0.125, 1e-12);
+		long inside = 0;
+		double[] p = new double[3];
+		for (int k = 0; k < grid.getSizeZ(); ++k) {
+			for (int j = 0; j < grid.getSizeY(); ++j) {
+				for (int i = 0; i < grid.getSizeX(); ++i) {
+					grid.getCenter(i, j, k, p);
+					if (grid.get(i, j, k)) {
+						inside++;
+						for (int axis = 0; axis < 3; ++axis) {
+							assertTrue(p[axis] > -1e-9 && p[axis] < 1 + 1e-9);
+						}
+					}
+				}
+			}
+		}
+		assertEquals(inside, grid.cardinality());
+		// one of the two boundary layers per axis is owned by the cube
+		assertEquals(8 * 8 * 8, inside);
+		assertEquals(1.0, grid.getVolume(), 1e-12);
+	}
+
+	@Test
+	public void testBitRanges() {
+		BitGrid grid = new BitGrid(new Point3d(), 1, 150, 2, 2);
+		assertEquals(3, grid.getWordsPerRow());
+		grid.setRange(10, 140, 1, 1);
+		grid.set(0, 0, 0);
+		assertEquals(131, grid.cardinality());
+		assertTrue(grid.get(63, 1, 1) && grid.get(64, 1, 1) && grid.get(139, 1, 1));
+		assertFalse(grid.get(9, 1, 1) || grid.get(140, 1, 1) || grid.get(10, 0, 1));
+		grid.clear(0, 0, 0);
+		grid.setRange(-5, 500, 0, 0);
+		assertEquals(280, grid.cardinality());
+	}
+
+	@Test
+	public void testSurfaceAgainstDistanceField() throws TrimeshException, IOException {
+		Mesh mesh = loadTestSurface();
+		double spacing = 0.7;
+		Voxelizer voxelizer = new Voxelizer(mesh);
+		BitGrid solid = voxelizer.voxelize(spacing, Mode.SOLID);
+		BitGrid surface = voxelizer.voxelize(spacing, Mode.SURFACE);
+
+		SignedDistanceField field = new SignedDistanceField(solid.getOrigin(), spacing,
+				solid.getSizeX(), solid.getSizeY(), solid.getSizeZ());
+		field.compute(mesh);
+
+		int inside = 0;
+		for (int k = 0; k < solid.getSizeZ(); ++k) {
+			for (int j = 0; j < solid.getSizeY(); ++j) {
+				for (int i = 0; i < solid.getSizeX(); ++i) {
+					float value = field.get(i, j, k);
+					if (Math.abs(value) > 1e-4) {
+						assertEquals(value < 0, solid.get(i, j, k));
+					}
+					if (solid.get(i, j, k)) inside++;
+
+					// every voxel whose center is within half a voxel is touched
+					if (Math.abs(value) <= spacing / 2) {
+						assertTrue(surface.get(i, j, k));
+					}
+					// no voxel beyond the half diagonal can be touched
+					if (Math.abs(value) > spacing * Math.sqrt(3) / 2 + 1e-6) {
+						assertFalse(surface.get(i, j, k));
+					}
+				}
+			}
+		}
+		assertTrue(inside > 0);
+	}
+
+	/**
+	 * the 12 triangles of an axis aligned cube with outward normals
+	 */
+	private double[] cube(double min, double max) {
+		double[][] c = new double[8][];
+		for (int i = 0; i < 8; ++i) {
+			c[i] = new double[] { (i & 1) == 0 ? min : max, (i & 2) == 0 ? min : max,
+					(i & 4) == 0 ? min : max };
+		}
+		int[] faces = { 0, 2, 3, 1, 4, 5, 7, 6, 0, 1, 5, 4, 2, 6, 7, 3, 0, 4, 6, 2,
+				1, 3, 7, 5 };
+		double[] coordinates = new double[12 * 9];
+		int n = 0;
+		for (int f = 0; f < 6; ++f) {
+			int[] quad = { faces[4 * f], faces[4 * f + 1], faces[4 * f + 2], faces[4 * f + 3] };
+			int[] corners = { quad[0], quad[1], quad[2], quad[0], quad[2], quad[3] };
+			for (int corner : corners) {
+				for (int axis = 0; axis < 3; ++axis) {
+					coordinates[n++] = c[corner][axis];
+				}
+			}
+		}
+		return coordinates;
+	}
+
+	private Mesh loadTestSurface() throws TrimeshException, IOException {
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		Mesh mesh = reader.read(new Mesh());
+		reader.close();
+		return mesh;
+	}
+}
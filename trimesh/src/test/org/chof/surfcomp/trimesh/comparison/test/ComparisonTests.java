@@ -0,0 +1,14 @@
+package org.chof.surfcomp.trimesh.comparison.test;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({ SurfaceDistanceTest.class,
+	            RigidRegistrationTest.class,
+	            InterfaceDetectorTest.class,
+	            PropertyTransferTest.class })
+public class ComparisonTests {
+
+}
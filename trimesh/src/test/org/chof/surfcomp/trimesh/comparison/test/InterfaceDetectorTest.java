@@ -0,0 +1,115 @@
+package org.chof.surfcomp.trimesh.comparison.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.comparison.ContactInterface;
+import org.chof.surfcomp.trimesh.comparison.InterfaceDetector;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.Point;
+import org.chof.surfcomp.trimesh.domain.Triangle;
+import org.chof.surfcomp.trimesh.domain.Triangle.Corner;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.io.MSMSReader;
+import org.chof.surfcomp.trimesh.io.test.IOTestCase;
+import org.junit.Test;
+
+public class InterfaceDetectorTest extends IOTestCase {
+
+	private static final double CUTOFF = 1.5;
+	private static final double SHIFT = 24.0;
+
+	@Test
+	public void testAgainstAllPairs() throws TrimeshException, IOException {
+		Mesh a = loadTestSurface();
+		Mesh b = loadTestSurface();
+		for (Point p : b.getPoints()) {
+			p.getCoordinates().x += SHIFT;
+		}
+
+		ContactInterface contact = new InterfaceDetector(a, b, CUTOFF).detect();
+		assertFalse(contact.isEmpty());
+
+		boolean[] inA = new boolean[a.sizePoints()];
+		boolean[] inB = new boolean[b.sizePoints()];
+		for (int i = 0; i < a.sizePoints(); ++i) {
+			Point3d p = a.getPoint(i).getCoordinates();
+			for (int j = 0; j < b.sizePoints(); ++j) {
+				if (p.distance(b.getPoint(j).getCoordinates()) <= CUTOFF) {
+					inA[i] = inB[j] = true;
+				}
+			}
+		}
+
+		assertArrayEquals(indices(inA), contact.getPointsA());
+		assertArrayEquals(indices(inB), contact.getPointsB());
+
+		double area = 0;
+		int triangles = 0;
+		for (Triangle t : a.getTriangles()) {
+			int count = 0;
+			for (Corner corner : Corner.values()) {
+				if (inA[a.indexOf(t.getCorner(corner))]) count++;
+			}
+			if (count > 0) triangles++;
+			area += t.getArea() * count / 3;
+		}
+		assertEquals(triangles, contact.getTrianglesA().length);
+		assertEquals(area, contact.getAreaA(), 1e-9);
+		assertTrue(contact.getAreaB() > 0);
+	}
+
+	@Test
+	public void testPoses() throws TrimeshException, IOException {
+		Mesh a = loadTestSurface();
+		Mesh b = loadTestSurface();
+		Mesh shifted = loadTestSurface();
+		for (Point p : shifted.getPoints()) {
+			p.getCoordinates().x -= SHIFT;
+		}
+
+		InterfaceDetector detector = new InterfaceDetector(a, b, CUTOFF);
+		Matrix4d pose = new Matrix4d();
+		pose.setIdentity();
+		pose.setTranslation(new Vector3d(-SHIFT, 0, 0));
+
+		ContactInterface moved = detector.detect(pose);
+		ContactInterface expected = new InterfaceDetector(shifted, b, CUTOFF).detect();
+		assertArrayEquals(expected.getPointsA(), moved.getPointsA());
+		assertArrayEquals(expected.getPointsB(), moved.getPointsB());
+		assertArrayEquals(expected.getTrianglesB(), moved.getTrianglesB());
+		assertEquals(expected.getAreaA(), moved.getAreaA(), 1e-9);
+
+		pose.setTranslation(new Vector3d(100, 0, 0));
+		ContactInterface apart = detector.detect(pose);
+		assertTrue(apart.isEmpty());
+		assertEquals(0, apart.getPointsB().length);
+		assertEquals(0.0, apart.getAreaB(), 0);
+	}
+
+	private int[] indices(boolean[] marks) {
+		int count = 0;
+		for (boolean m : marks) {
+			if (m) count++;
+		}
+		int[] result = new int[count];
+		int n = 0;
+		for (int i = 0; i < marks.length; ++i) {
+			if (marks[i]) result[n++] = i;
+		}
+		return result;
+	}
+
+	private Mesh loadTestSurface() throws TrimeshException, IOException {
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		Mesh mesh = reader.read(new Mesh());
+		reader.close();
+		return mesh;
+	}
+}
@@ -0,0 +1,132 @@
+package org.chof.surfcomp.trimesh.comparison.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.algorithms.TriangleHit;
+import org.chof.surfcomp.trimesh.comparison.PropertyTransfer;
+import org.chof.surfcomp.trimesh.comparison.PropertyTransfer.Method;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.Point;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.io.MSMSReader;
+import org.chof.surfcomp.trimesh.io.test.IOTestCase;
+import org.junit.Test;
+
+public class PropertyTransferTest extends IOTestCase {
+
+	@Test
+	public void testBarycentric() throws TrimeshException, IOException {
+		Mesh source = loadSource();
+		Mesh target = loadShiftedTarget();
+
+		PropertyTransfer transfer = new PropertyTransfer(source);
+		assertEquals(Method.BARYCENTRIC, transfer.getMethod());
+		assertEquals(target.sizePoints(), transfer.transfer(target, "X", "TX"));
+		assertEquals(target.sizePoints(), transfer.transfer(target, "Position"));
+		assertEquals(target.sizePoints(), transfer.transfer(target, "Name"));
+
+		TriangleHit hit = new TriangleHit();
+		double[] location = new double[3];
+		for (Point p : target.getPoints()) {
+			Point3d c = p.getCoordinates();
+			source.getTriangleBVH().closestPoint(c.x, c.y, c.z, Double.POSITIVE_INFINITY, hit);
+			hit.getLocation(location);
+
+			// linear functions are reproduced exactly
+			assertEquals(location[0], p.getProperty("TX", Double.class), 1e-9);
+			Vector3d position = p.getProperty("Position", Vector3d.class);
+			assertEquals(location[1], position.y, 1e-9);
+			assertEquals(location[2], position.z, 1e-9);
+			assertNotNull(p.getProperty("Name", String.class));
+		}
+	}
+
+	@Test
+	public void testIntegerProperty() throws TrimeshException, IOException {
+		Mesh source = loadSource();
+		Mesh target = loadShiftedTarget();
+		for (Point p : target.getPoints()) {
+			p.removeProperty("sphereIndex");
+		}
+
+		PropertyTransfer transfer = new PropertyTransfer(source);
+		assertEquals(target.sizePoints(), transfer.transfer(target, "sphereIndex"));
+
+		int[] corners = source.getTriangleIndices();
+		TriangleHit hit = new TriangleHit();
+		for (Point p : target.getPoints()) {
+			Point3d c = p.getCoordinates();
+			source.getTriangleBVH().closestPoint(c.x, c.y, c.z, Double.POSITIVE_INFINITY, hit);
+			double[] weights = { hit.getWeightA(), hit.getWeightB(), hit.getWeightC() };
+			int largest = 0;
+			for (int k = 1; k < 3; ++k) {
+				if (weights[k] > weights[largest]) largest = k;
+			}
+
+			// integral values are taken from the closest corner, not blended
+			Point corner = source.getPoint(corners[3 * hit.getTriangle() + largest]);
+			assertEquals(corner.getProperty("sphereIndex", Integer.class),
+					p.getProperty("sphereIndex", Integer.class));
+		}
+	}
+
+	@Test
+	public void testNearestVertex() throws TrimeshException, IOException {
+		Mesh source = loadSource();
+		Mesh target = loadShiftedTarget();
+
+		PropertyTransfer transfer = new PropertyTransfer(source);
+		transfer.setMethod(Method.NEAREST_VERTEX);
+		assertEquals(target.sizePoints(), transfer.transfer(target, "Name"));
+
+		for (int i = 0; i < target.sizePoints(); i += 31) {
+			Point3d c = target.getPoint(i).getCoordinates();
+			int nearest = 0;
+			for (int j = 1; j < source.sizePoints(); ++j) {
+				if (c.distance(source.getPoint(j).getCoordinates())
+						< c.distance(source.getPoint(nearest).getCoordinates())) {
+					nearest = j;
+				}
+			}
+			// compare distances, the surface contains duplicate points
+			String name = target.getPoint(i).getProperty("Name");
+			Point3d chosen = source.getPoint(Integer.parseInt(name.substring(1))).getCoordinates();
+			assertEquals(c.distance(source.getPoint(nearest).getCoordinates()),
+					c.distance(chosen), 1e-12);
+		}
+
+		assertEquals(0, transfer.transfer(target, "Missing"));
+	}
+
+	private Mesh loadSource() throws TrimeshException, IOException {
+		Mesh mesh = loadTestSurface();
+		int i = 0;
+		for (Point p : mesh.getPoints()) {
+			p.setProperty("X", p.getCoordinates().x);
+			p.setProperty("Position", new Vector3d(p.getCoordinates()));
+			p.setProperty("Name", "p" + i++);
+		}
+		return mesh;
+	}
+
+	private Mesh loadShiftedTarget() throws TrimeshException, IOException {
+		Mesh mesh = loadTestSurface();
+		for (Point p : mesh.getPoints()) {
+			p.getCoordinates().add(new Vector3d(0.1, -0.05, 0.07));
+		}
+		return mesh;
+	}
+
+	private Mesh loadTestSurface() throws TrimeshException, IOException {
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		Mesh mesh = reader.read(new Mesh());
+		reader.close();
+		return mesh;
+	}
+}
@@ -0,0 +1,132 @@
+package org.chof.surfcomp.trimesh.comparison.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import javax.vecmath.AxisAngle4d;
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.comparison.RegistrationResult;
+import org.chof.surfcomp.trimesh.comparison.RigidRegistration;
+import org.chof.surfcomp.trimesh.comparison.RigidRegistration.Correspondence;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.Point;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.io.MSMSReader;
+import org.chof.surfcomp.trimesh.io.test.IOTestCase;
+import org.junit.Test;
+
+public class RigidRegistrationTest extends IOTestCase {
+
+	@Test
+	public void testRecoverTransform() throws TrimeshException, IOException {
+		Mesh target = loadTestSurface();
+		Mesh source = loadTestSurface();
+		Matrix4d motion = motion();
+		for (Point p : source.getPoints()) {
+			motion.transform(p.getCoordinates());
+			motion.transform(p.getNormale());
+		}
+
+		RigidRegistration registration = new RigidRegistration(source, target);
+		registration.setMaxNormalAngle(Math.PI / 3);
+		RegistrationResult result = registration.register();
+
+		assertTrue(result.isConverged());
+		assertEquals(source.sizePoints(), result.getCorrespondences());
+		assertTrue(result.getRMS() < 1e-3);
+		double[] history = result.getRMSHistory();
+		assertTrue(history[history.length - 1] < history[0]);
+
+		assertMovesBack(result.getTransform(), source, target, 1e-3);
+	}
+
+	@Test
+	public void testNormalShooting() throws TrimeshException, IOException {
+		Mesh target = loadTestSurface();
+		Mesh source = loadTestSurface();
+		Matrix4d motion = motion();
+		for (Point p : source.getPoints()) {
+			motion.transform(p.getCoordinates());
+			motion.transform(p.getNormale());
+		}
+
+		RigidRegistration registration = new RigidRegistration(source, target);
+		registration.setCorrespondence(Correspondence.NORMAL_SHOOTING);
+		registration.setMaxNormalAngle(Math.PI / 3);
+		registration.setMaxDistance(3.0);
+		registration.setMaxIterations(200);
+		RegistrationResult result = registration.register();
+
+		assertTrue(result.isConverged());
+		assertTrue(result.getRMS() < 1e-3);
+		assertMovesBack(result.getTransform(), source, target, 1e-2);
+	}
+
+	@Test
+	public void testSubsampled() throws TrimeshException, IOException {
+		Mesh target = loadTestSurface();
+		Mesh source = loadTestSurface();
+		Matrix4d motion = motion();
+		for (Point p : source.getPoints()) {
+			motion.transform(p.getCoordinates());
+			motion.transform(p.getNormale());
+		}
+
+		RigidRegistration registration = new RigidRegistration(source, target);
+		registration.setSampleSize(400);
+		registration.setMaxIterations(200);
+		RegistrationResult result = registration.register();
+
+		assertTrue(result.getCorrespondences() <= 400);
+		assertMovesBack(result.getTransform(), source, target, 1e-2);
+	}
+
+	@Test
+	public void testMaxDistanceRejectsAll() throws TrimeshException, IOException {
+		Mesh target = loadTestSurface();
+		Mesh source = loadTestSurface();
+		Matrix4d shift = new Matrix4d();
+		shift.setIdentity();
+		shift.setTranslation(new Vector3d(100, 0, 0));
+
+		RigidRegistration registration = new RigidRegistration(source, target);
+		registration.setMaxDistance(1.0);
+		RegistrationResult result = registration.register(shift);
+
+		assertFalse(result.isConverged());
+		assertEquals(0, result.getIterations());
+		assertEquals(shift, result.getTransform());
+	}
+
+	/**
+	 * a rotation of 10 degrees about a tilted axis through the origin followed
+	 * by a small shift
+	 */
+	private Matrix4d motion() {
+		Matrix4d motion = new Matrix4d();
+		motion.set(new AxisAngle4d(new Vector3d(0.3, 1, 0.2), Math.toRadians(10)));
+		motion.setTranslation(new Vector3d(0.8, -0.4, 0.5));
+		return motion;
+	}
+
+	private void assertMovesBack(Matrix4d transform, Mesh moved, Mesh original,
+			double tolerance) {
+		for (int i = 0; i < moved.sizePoints(); i += 7) {
+			Point3d p = new Point3d(moved.getPoint(i).getCoordinates());
+			transform.transform(p);
+			assertTrue(p.distance(original.getPoint(i).getCoordinates()) < tolerance);
+		}
+	}
+
+	private Mesh loadTestSurface() throws TrimeshException, IOException {
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		Mesh mesh = reader.read(new Mesh());
+		reader.close();
+		return mesh;
+	}
+}
@@ -0,0 +1,95 @@
+package org.chof.surfcomp.trimesh.comparison.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.vecmath.Point3d;
+
+import org.chof.surfcomp.trimesh.algorithms.TriangleBVH;
+import org.chof.surfcomp.trimesh.comparison.DistanceStatistics;
+import org.chof.surfcomp.trimesh.comparison.SurfaceDistance;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.Point;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.io.MSMSReader;
+import org.chof.surfcomp.trimesh.io.test.IOTestCase;
+import org.junit.Test;
+
+public class SurfaceDistanceTest extends IOTestCase {
+
+	@Test
+	public void testIdenticalSurfaces() throws TrimeshException, IOException {
+		Mesh mesh = loadTestSurface();
+		SurfaceDistance distance = new SurfaceDistance(mesh, mesh);
+
+		DistanceStatistics statistics = distance.sourceToTarget();
+		assertEquals(mesh.sizePoints(), statistics.getCount());
+		assertEquals(0.0, statistics.getHausdorff(), 1e-12);
+		assertEquals(0.0, statistics.getRMS(), 1e-12);
+		assertTrue(distance.isWithin(0.0));
+	}
+
+	@Test
+	public void testShiftedSurface() throws TrimeshException, IOException {
+		Mesh source = loadTestSurface();
+		Mesh target = loadTestSurface();
+		for (Point p : target.getPoints()) {
+			p.getCoordinates().x += 0.5;
+		}
+
+		SurfaceDistance distance = new SurfaceDistance(source, target);
+		DistanceStatistics forward = distance.sourceToTarget();
+		DistanceStatistics backward = distance.targetToSource();
+
+		// compare a sample of the points against all triangles
+		double[] coordinates = TriangleBVH.coordinatesOf(target);
+		TriangleBVH[] single = new TriangleBVH[target.sizeTriangles()];
+		for (int t = 0; t < single.length; ++t) {
+			single[t] = new TriangleBVH(Arrays.copyOfRange(coordinates, 9 * t, 9 * t + 9));
+		}
+		for (int i = 0; i < source.sizePoints(); i += 97) {
+			Point3d p = source.getPoint(i).getCoordinates();
+			double best = Double.POSITIVE_INFINITY;
+			for (TriangleBVH t : single) {
+				best = Math.min(best, t.closestPoint(p).getDistance());
+			}
+			assertEquals(best, forward.getDistances()[i], 1e-9);
+		}
+
+		assertTrue(forward.getHausdorff() <= 0.5 + 1e-9);
+		assertTrue(forward.getMean() > 0);
+		assertTrue(forward.getRMS() >= forward.getMean());
+		double max = 0;
+		for (double d : forward.getDistances()) {
+			max = Math.max(max, d);
+		}
+		assertEquals(max, forward.getHausdorff(), 0);
+		assertEquals(max, forward.getDistances()[forward.getHausdorffIndex()], 0);
+
+		DistanceStatistics symmetric = distance.symmetric();
+		assertEquals(Math.max(forward.getHausdorff(), backward.getHausdorff()),
+				symmetric.getHausdorff(), 0);
+		assertEquals((forward.getMean() + backward.getMean()) / 2, symmetric.getMean(), 1e-12);
+		assertNull(symmetric.getDistances());
+
+		double hausdorff = symmetric.getHausdorff();
+		assertTrue(distance.isWithin(hausdorff));
+		assertFalse(distance.isWithin(hausdorff * 0.99));
+		assertTrue(distance.isSourceWithin(forward.getHausdorff()));
+		assertFalse(distance.isSourceWithin(forward.getHausdorff() * 0.99));
+
+		forward.storeInPoints(source, "SurfaceDistance");
+		assertEquals(forward.getDistances()[5],
+				source.getPoint(5).getProperty("SurfaceDistance", Double.class), 0);
+	}
+
+	private Mesh loadTestSurface() throws TrimeshException, IOException {
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		Mesh mesh = reader.read(new Mesh());
+		reader.close();
+		return mesh;
+	}
+}
@@ -2,6 +2,7 @@ package org.chof.surfcomp.trimesh.domain.test;
 
 import static org.junit.Assert.*;
 
+import java.util.BitSet;
 import java.util.Set;
 import java.util.Vector;
 
@@ -96,6 +97,33 @@ public class MeshTest {
 		
 	}
 	
+	@Test
+	public void testModifiedPoints() throws FailedPointAddition, TrianglePointMissing {
+		Mesh mesh = new Mesh();
+		mesh.addPoint(makePoint(0, 0, 0));
+		mesh.addPoint(makePoint(1, 0, 0));
+		mesh.addPoint(makePoint(0, 1, 0));
+		mesh.addTriangle(0, 1, 2);
+
+		long version = mesh.getVersion();
+		assertTrue(mesh.getModifiedPoints(version).isEmpty());
+		assertNull(mesh.getModifiedPoints(version - 1));
+
+		Object graph = mesh.getEdgeGraph();
+		mesh.movePoint(1, new Point3d(2, 0, 0), null);
+		assertTrue(mesh.getVersion() > version);
+		assertEquals(2.0, mesh.getPoint(1).getCoordinates().x, 0);
+		assertNotSame(graph, mesh.getEdgeGraph());
+
+		BitSet modified = mesh.getModifiedPoints(version);
+		assertEquals(1, modified.cardinality());
+		assertTrue(modified.get(1));
+		assertTrue(mesh.getModifiedPoints(mesh.getVersion()).isEmpty());
+
+		mesh.addPoint(makePoint(0, 0, 1));
+		assertNull(mesh.getModifiedPoints(version + 1));
+	}
+	
 	@Test
 	public void testNeighborhood() throws FailedPointAddition, TrianglePointMissing {
 		Mesh mesh = makeTestMesh();
@@ -0,0 +1,11 @@
+package org.chof.surfcomp.trimesh.generator.test;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({ SurfaceGeneratorTest.class })
+public class GeneratorTests {
+
+}
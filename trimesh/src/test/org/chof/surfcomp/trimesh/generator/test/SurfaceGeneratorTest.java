@@ -0,0 +1,171 @@
+package org.chof.surfcomp.trimesh.generator.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Vector;
+
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.chof.surfcomp.trimesh.calculator.CurvatureTensor;
+import org.chof.surfcomp.trimesh.calculator.PrincipalCurvature;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.domain.Point;
+import org.chof.surfcomp.trimesh.domain.Triangle;
+import org.chof.surfcomp.trimesh.domain.Triangle.Corner;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.generator.Ellipsoid;
+import org.chof.surfcomp.trimesh.generator.Icosphere;
+import org.chof.surfcomp.trimesh.generator.SphereUnion;
+import org.chof.surfcomp.trimesh.generator.SurfaceGenerator;
+import org.chof.surfcomp.trimesh.generator.Torus;
+import org.junit.Test;
+
+public class SurfaceGeneratorTest {
+
+	@Test
+	public void testIcosphere() throws TrimeshException {
+		Mesh mesh = new Icosphere(2.0, 5).generate();
+		assertEquals(20 * 25, mesh.sizeTriangles());
+		assertEquals(10 * 25 + 2, mesh.sizePoints());
+		for (Point p : mesh.getPoints()) {
+			assertEquals(2.0, p.getCoordinates().distance(new Point3d()), 1e-12);
+			PrincipalCurvature c = reference(p);
+			assertEquals(0.5, c.getMaximal(), 1e-12);
+			assertEquals(0.5, c.getMinimal(), 1e-12);
+			assertEquals(0.25, (Double) p.getProperty(SurfaceGenerator.GAUSSIAN_CURVATURE), 1e-12);
+		}
+		assertOutward(mesh, new Point3d());
+
+		assertEquals(8, Icosphere.withFaces(1.0, 1000).getFrequency());
+	}
+
+	@Test
+	public void testEllipsoid() throws TrimeshException {
+		double a = 3, b = 2, c = 1;
+		Mesh mesh = new Ellipsoid(a, b, c, 8).generate();
+		assertEquals(20 * 64, mesh.sizeTriangles());
+		assertOutward(mesh, new Point3d());
+
+		for (Point p : mesh.getPoints()) {
+			Point3d x = p.getCoordinates();
+			assertEquals(1.0, x.x * x.x / (a * a) + x.y * x.y / (b * b) + x.z * x.z / (c * c), 1e-12);
+
+			// K = 1 / (a b c)^2 (x^2/a^4 + y^2/b^4 + z^2/c^4)^-2
+			double s = x.x * x.x / (a * a * a * a) + x.y * x.y / (b * b * b * b)
+					+ x.z * x.z / (c * c * c * c);
+			double gaussian = 1 / (a * a * b * b * c * c * s * s);
+			PrincipalCurvature k = reference(p);
+			assertEquals(gaussian, k.getGaussian(), 1e-9);
+			assertTrue(k.getMinimal() > 0);
+			assertEquals(0.0, k.getMaximalDirection().dot(p.getNormale()), 1e-12);
+		}
+	}
+
+	@Test
+	public void testTorus() throws TrimeshException {
+		double major = 3, minor = 1;
+		Mesh mesh = new Torus(major, minor, 96, 32).generate();
+		assertEquals(2 * 96 * 32, mesh.sizeTriangles());
+		assertEquals(96 * 32, mesh.sizePoints());
+
+		int saddles = 0;
+		for (Point p : mesh.getPoints()) {
+			Point3d x = p.getCoordinates();
+			double ring = Math.sqrt(x.x * x.x + x.y * x.y);
+			PrincipalCurvature c = reference(p);
+			assertEquals(1 / minor, c.getMaximal(), 1e-12);
+			assertEquals((ring - major) / (minor * ring), c.getMinimal(), 1e-12);
+			if (c.getGaussian() < 0) saddles++;
+		}
+		assertTrue(saddles > 0 && saddles < mesh.sizePoints());
+
+		// outward is away from the tube axis
+		for (Triangle t : mesh.getTriangles()) {
+			Point3d center = centroid(t);
+			double ring = Math.sqrt(center.x * center.x + center.y * center.y);
+			Vector3d away = new Vector3d(center.x - major * center.x / ring,
+					center.y - major * center.y / ring, center.z);
+			assertTrue(t.getNormale().dot(away) > 0);
+		}
+	}
+
+	@Test
+	public void testEstimatedCurvature() throws TrimeshException {
+		Mesh mesh = new Torus(3, 1, 192, 64).generate();
+		CurvatureTensor calculator = new CurvatureTensor();
+		calculator.setParameter("StoreProperty", false);
+		Vector<PrincipalCurvature> estimated = calculator.calculate(mesh);
+		for (int i = 0; i < mesh.sizePoints(); ++i) {
+			PrincipalCurvature c = reference(mesh.getPoint(i));
+			assertEquals(c.getMaximal(), estimated.get(i).getMaximal(), 0.05);
+			assertEquals(c.getMinimal(), estimated.get(i).getMinimal(), 0.05);
+		}
+	}
+
+	@Test
+	public void testSingleSphere() throws TrimeshException {
+		SphereUnion union = new SphereUnion(new double[] { 1, 2, 3 }, new double[] { 1.5 });
+		union.setSpacing(0.2);
+		Mesh mesh = union.generate();
+		assertTrue(mesh.sizeTriangles() > 500);
+
+		Point3d center = new Point3d(1, 2, 3);
+		for (Point p : mesh.getPoints()) {
+			assertEquals(1.5, p.getCoordinates().distance(center), 1e-9);
+			PrincipalCurvature c = reference(p);
+			assertEquals(1 / 1.5, c.getMaximal(), 1e-9);
+			assertEquals(1 / 1.5, c.getMinimal(), 1e-9);
+		}
+		assertOutward(mesh, center);
+	}
+
+	@Test
+	public void testRandomMolecule() throws TrimeshException {
+		SphereUnion union = SphereUnion.random(12, 42);
+		union.setSpacing(0.3);
+		Mesh first = union.generate();
+		SphereUnion again = SphereUnion.random(12, 42);
+		again.setSpacing(0.3);
+		Mesh second = again.generate();
+		assertEquals(12, union.sizeSpheres());
+		assertEquals(first.sizePoints(), second.sizePoints());
+		assertEquals(first.sizeTriangles(), second.sizeTriangles());
+
+		// the blend bends inwards between the spheres
+		int saddles = 0;
+		for (Point p : first.getPoints()) {
+			PrincipalCurvature c = reference(p);
+			assertFalse(Double.isNaN(c.getMaximal()));
+			assertTrue(c.getMaximal() >= c.getMinimal());
+			if (c.getMinimal() < 0) saddles++;
+		}
+		assertTrue(saddles > 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidRadius() {
+		new SphereUnion(new double[] { 0, 0, 0 }, new double[] { 0 });
+	}
+
+	private static PrincipalCurvature reference(Point p) {
+		return (PrincipalCurvature) p.getProperty(SurfaceGenerator.PRINCIPAL_CURVATURE);
+	}
+
+	private static Point3d centroid(Triangle t) {
+		Point3d center = new Point3d();
+		for (Corner corner : Corner.values()) {
+			center.add(t.getCorner(corner).getCoordinates());
+		}
+		center.scale(1.0 / 3);
+		return center;
+	}
+
+	private static void assertOutward(Mesh mesh, Point3d inside) {
+		for (Triangle t : mesh.getTriangles()) {
+			Vector3d away = new Vector3d(centroid(t));
+			away.sub(inside);
+			assertTrue(t.getNormale().dot(away) > 0);
+		}
+	}
+}
@@ -3,17 +3,107 @@ package org.chof.surfcomp.trimesh.io.test;
 import static org.junit.Assert.*;
 
 import java.io.IOException;
+import java.util.concurrent.CancellationException;
 
+import org.chof.surfcomp.trimesh.algorithms.MeshReordering;
 import org.chof.surfcomp.trimesh.domain.Mesh;
 import org.chof.surfcomp.trimesh.domain.Point;
 import org.chof.surfcomp.trimesh.domain.Triangle;
 import org.chof.surfcomp.trimesh.domain.Triangle.Corner;
 import org.chof.surfcomp.trimesh.exception.TrimeshException;
 import org.chof.surfcomp.trimesh.io.MSMSReader;
+import org.chof.surfcomp.trimesh.tools.ProgressMonitor;
 import org.junit.Test;
 
 public class MSMSReaderTest extends IOTestCase{
 
+	@Test
+	public void testProgress() throws TrimeshException, IOException {
+		final int[] calls = new int[2];
+		ProgressMonitor monitor = new ProgressMonitor() {
+			@Override
+			public void begin(String task, long total) {
+				// every task is ended before the next one begins
+				assertEquals(calls[0], calls[1]);
+				calls[0]++;
+				super.begin(task, total);
+			}
+
+			@Override
+			public void done() {
+				calls[1]++;
+				super.done();
+			}
+		};
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		reader.setProgressMonitor(monitor);
+		reader.read(new Mesh());
+		reader.close();
+
+		assertEquals("MSMS faces", monitor.getTask());
+		assertEquals(4944, monitor.getTotal());
+		assertEquals(4944, monitor.getProcessed());
+		assertFalse(monitor.isRunning());
+		assertEquals(2, calls[0]);
+		assertEquals(2, calls[1]);
+	}
+
+	@Test
+	public void testCancel() throws TrimeshException, IOException {
+		ProgressMonitor monitor = new ProgressMonitor() {
+			@Override
+			public void worked(long units) {
+				super.worked(units);
+				cancel();
+			}
+		};
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		reader.setProgressMonitor(monitor);
+		Mesh mesh = new Mesh();
+		try {
+			reader.read(mesh);
+			fail("The read was not canceled");
+		} catch (CancellationException e) {
+			// expected after the second block of vertices
+		}
+		reader.close();
+		assertEquals(2048, mesh.sizePoints());
+		assertFalse(monitor.isRunning());
+	}
+
+	@Test
+	public void testWeld() throws TrimeshException, IOException {
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		Mesh original = reader.read(new Mesh());
+		reader.close();
+
+		for (MeshReordering.Method reordering : new MeshReordering.Method[] {
+				null, MeshReordering.Method.HILBERT }) {
+			reader = new MSMSReader();
+			reader.setReader(loadTestFile("data/msms/1crn.msms"));
+			reader.setWeldDistance(1e-3);
+			reader.setReordering(reordering);
+			Mesh mesh = reader.read(new Mesh());
+			reader.close();
+
+			// two points are written twice, four faces collapse
+			assertEquals(2472, mesh.sizePoints());
+			assertEquals(4940, mesh.sizeTriangles());
+			for (Point point : mesh.getPoints()) {
+				int i = point.getProperty(MeshReordering.ORIGINAL_INDEX, Integer.class);
+				assertEquals(original.getPoint(i).getCoordinates(), point.getCoordinates());
+			}
+			for (Triangle t : mesh.getTriangles()) {
+				int i = t.getProperty(MeshReordering.ORIGINAL_INDEX, Integer.class);
+				assertEquals(original.getTriangle(i).getProperty("faceNumber", Integer.class),
+						t.getProperty("faceNumber", Integer.class));
+			}
+		}
+	}
+
 	@Test
 	public void test() throws TrimeshException, IOException {
 		MSMSReader reader = new MSMSReader();
@@ -0,0 +1,189 @@
+package org.chof.surfcomp.trimesh.metrics.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import org.chof.surfcomp.trimesh.algorithms.test.TestSurfaces;
+import org.chof.surfcomp.trimesh.calculator.CurvatureTensor;
+import org.chof.surfcomp.trimesh.calculator.MeanCurvature;
+import org.chof.surfcomp.trimesh.domain.Mesh;
+import org.chof.surfcomp.trimesh.exception.TrimeshException;
+import org.chof.surfcomp.trimesh.io.MSMSReader;
+import org.chof.surfcomp.trimesh.io.test.IOTestCase;
+import org.chof.surfcomp.trimesh.metrics.Distribution;
+import org.chof.surfcomp.trimesh.metrics.ISpan;
+import org.chof.surfcomp.trimesh.metrics.ITracer;
+import org.chof.surfcomp.trimesh.metrics.MetricRegistry;
+import org.chof.surfcomp.trimesh.metrics.Metrics;
+import org.chof.surfcomp.trimesh.tools.ProgressMonitor;
+import org.junit.After;
+import org.junit.Test;
+
+public class MetricRegistryTest extends IOTestCase {
+
+	@After
+	public void disable() {
+		Metrics.setRegistry(null);
+		Metrics.setTracer(null);
+	}
+
+	@Test
+	public void testDistribution() {
+		Distribution d = new Distribution();
+		assertEquals(0, d.getMax());
+		assertTrue(Double.isNaN(d.getMean()));
+		for (long v : new long[] { 0, 1, 5, 6, 100 }) {
+			d.add(v);
+		}
+		assertEquals(5, d.getCount());
+		assertEquals(112, d.getSum());
+		assertEquals(0, d.getMin());
+		assertEquals(100, d.getMax());
+		assertEquals(1, d.getBucketCount(0));
+		assertEquals(1, d.getBucketCount(1));
+		assertEquals(2, d.getBucketCount(3));
+		assertEquals(1, d.getBucketCount(7));
+		assertEquals(7, Distribution.upperBound(3));
+		assertEquals(Long.MAX_VALUE, Distribution.upperBound(Distribution.BUCKETS - 1));
+	}
+
+	@Test
+	public void testDisabled() throws TrimeshException {
+		assertFalse(Metrics.isEnabled());
+		assertEquals(0L, Metrics.start());
+
+		MetricRegistry registry = new MetricRegistry();
+		long start = Metrics.start();
+		Metrics.setRegistry(registry);
+		Metrics.stop("phase", start);
+		assertNull(registry.getTimer("phase"));
+	}
+
+	@Test
+	public void testReader() throws TrimeshException, IOException {
+		MetricRegistry registry = new MetricRegistry();
+		Metrics.setRegistry(registry);
+
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		Mesh mesh = reader.read(new Mesh());
+		reader.close();
+
+		assertEquals(mesh.sizePoints(), registry.getCount("reader.vertices"));
+		assertEquals(mesh.sizeTriangles() + registry.getCount("mesh.triangles.rejected"),
+				registry.getCount("reader.faces"));
+		assertEquals(1, registry.getTimer("reader.parse").getCount());
+		assertEquals(registry.getCount("reader.faces"),
+				registry.getTimer("mesh.topology").getCount());
+		assertTrue(registry.getTimer("reader.parse").getSum()
+				>= registry.getTimer("mesh.topology").getSum());
+	}
+
+	@Test
+	public void testCalculators() throws TrimeshException {
+		Mesh mesh = TestSurfaces.icosphere(1.0, 2);
+		MetricRegistry registry = new MetricRegistry();
+		Metrics.setRegistry(registry);
+
+		new CurvatureTensor().calculate(mesh);
+		new MeanCurvature().calculate(mesh, new int[] { 0, 1, 2 });
+
+		String prefix = "calculator.CurvatureTensor.";
+		assertEquals(mesh.sizePoints(), registry.getCount(prefix + "points"));
+		assertEquals(0, registry.getCount(prefix + "nan"));
+		for (String phase : new String[] { "calculate", "neighborhood", "fit", "solve", "store" }) {
+			assertEquals(phase, 1, registry.getTimer(prefix + phase).getCount());
+		}
+		assertEquals(3, registry.getCount("calculator.MeanCurvature.points"));
+	}
+
+	@Test
+	public void testTracer() throws TrimeshException, IOException {
+		final List<String> trace = new ArrayList<String>();
+		Metrics.setTracer(new ITracer() {
+			@Override
+			public ISpan begin(final String operation) {
+				if (Metrics.TOPOLOGY_BUILD.equals(operation)) {
+					return null;
+				}
+				trace.add("begin " + operation);
+				return new ISpan() {
+					@Override
+					public boolean isRecording() {
+						return true;
+					}
+
+					@Override
+					public void set(String attribute, String value) {
+						trace.add(attribute + "=" + value);
+					}
+
+					@Override
+					public void set(String attribute, long value) {
+						trace.add(attribute + "=" + value);
+					}
+
+					@Override
+					public void end() {
+						trace.add("end " + operation);
+					}
+				};
+			}
+		});
+
+		MSMSReader reader = new MSMSReader();
+		reader.setReader(loadTestFile("data/msms/1crn.msms"));
+		Mesh mesh = reader.read(new Mesh());
+		reader.close();
+		assertEquals("begin " + Metrics.SURFACE_READ, trace.get(0));
+		assertTrue(trace.contains("vertices=" + mesh.sizePoints()));
+		assertEquals("end " + Metrics.SURFACE_READ, trace.get(trace.size() - 1));
+
+		trace.clear();
+		MeanCurvature calculator = new MeanCurvature();
+		calculator.calculate(mesh, new int[] { 5, 7 });
+		assertEquals("begin " + Metrics.CALCULATION, trace.get(0));
+		assertTrue(trace.contains("calculator=" + MeanCurvature.class.getName()));
+		assertTrue(trace.contains("selected=2"));
+		assertTrue(trace.contains("triangles=" + mesh.sizeTriangles()));
+		assertEquals("end " + Metrics.CALCULATION, trace.get(trace.size() - 1));
+
+		// a canceled calculation ends its span as well
+		trace.clear();
+		ProgressMonitor monitor = new ProgressMonitor();
+		monitor.cancel();
+		calculator.setProgressMonitor(monitor);
+		try {
+			calculator.calculate(mesh);
+			fail("The calculation was not canceled");
+		} catch (CancellationException e) {
+		}
+		assertEquals("begin " + Metrics.CALCULATION, trace.get(0));
+		assertEquals("end " + Metrics.CALCULATION, trace.get(trace.size() - 1));
+	}
+
+	@Test
+	public void testScrape() {
+		MetricRegistry registry = new MetricRegistry();
+		registry.increment("reader.faces", 3);
+		registry.increment("reader.faces", 4);
+		registry.recordTime("reader.parse", 2000000000L);
+		registry.observe("calculator.CanonicalCurvature.rim", 6);
+		registry.observe("calculator.CanonicalCurvature.rim", 2);
+
+		String text = registry.scrape();
+		assertTrue(text.contains("# TYPE trimesh_reader_faces_total counter\ntrimesh_reader_faces_total 7\n"));
+		assertTrue(text.contains("trimesh_reader_parse_seconds_count 1\n"));
+		assertTrue(text.contains("trimesh_reader_parse_seconds_sum 2.0\n"));
+		assertTrue(text.contains("trimesh_calculator_CanonicalCurvature_rim_bucket{le=\"3\"} 1\n"));
+		assertTrue(text.contains("trimesh_calculator_CanonicalCurvature_rim_bucket{le=\"7\"} 2\n"));
+		assertTrue(text.contains("trimesh_calculator_CanonicalCurvature_rim_bucket{le=\"+Inf\"} 2\n"));
+
+		registry.clear();
+		assertEquals("", registry.scrape());
+	}
+}
@@ -0,0 +1,11 @@
+package org.chof.surfcomp.trimesh.metrics.test;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({ MetricRegistryTest.class })
+public class MetricsTests {
+
+}
@@ -1,14 +1,20 @@
 package org.chof.surfcomp.trimesh.test;
 
+import org.chof.surfcomp.trimesh.algorithms.test.AlgorithmTests;
+import org.chof.surfcomp.trimesh.comparison.test.ComparisonTests;
 import org.chof.surfcomp.trimesh.domain.test.DomainTests;
+import org.chof.surfcomp.trimesh.generator.test.GeneratorTests;
 import org.chof.surfcomp.trimesh.io.test.IOTests;
+import org.chof.surfcomp.trimesh.metrics.test.MetricsTests;
 import org.chof.surfcomp.trimesh.tools.test.ToolTests;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({DomainTests.class, IOTests.class, ToolTests.class})
+@SuiteClasses({DomainTests.class, IOTests.class, ToolTests.class, AlgorithmTests.class,
+	ComparisonTests.class, GeneratorTests.class,
+	MetricsTests.class})
 public class TrimeshTests {
 
 }
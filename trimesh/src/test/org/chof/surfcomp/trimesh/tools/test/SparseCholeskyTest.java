@@ -0,0 +1,87 @@
+package org.chof.surfcomp.trimesh.tools.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.chof.surfcomp.trimesh.tools.SparseCholesky;
+import org.chof.surfcomp.trimesh.tools.SparseMatrix;
+import org.junit.Test;
+
+public class SparseCholeskyTest {
+
+	/**
+	 * Builds the graph Laplacian of a square grid plus the identity
+	 */
+	private SparseMatrix grid(int size) {
+		int n = size * size;
+		int count = 9 * n;
+		int[] rows = new int[count];
+		int[] columns = new int[count];
+		double[] values = new double[count];
+		int e = 0;
+		for (int j = 0; j < size; ++j) {
+			for (int i = 0; i < size; ++i) {
+				int v = j * size + i;
+				rows[e] = v;
+				columns[e] = v;
+				values[e++] = 1.0;
+				if (i + 1 < size) {
+					e = edge(rows, columns, values, e, v, v + 1);
+				}
+				if (j + 1 < size) {
+					e = edge(rows, columns, values, e, v, v + size);
+				}
+			}
+		}
+		return SparseMatrix.fromTriplets(n, n, rows, columns, values, e);
+	}
+
+	private int edge(int[] rows, int[] columns, double[] values, int e, int a, int b) {
+		int[][] entries = { { a, b, -1 }, { b, a, -1 }, { a, a, 1 }, { b, b, 1 } };
+		for (int[] entry : entries) {
+			rows[e] = entry[0];
+			columns[e] = entry[1];
+			values[e++] = entry[2];
+		}
+		return e;
+	}
+
+	@Test
+	public void testSolve() {
+		SparseMatrix m = grid(60);
+		SparseCholesky cholesky = new SparseCholesky(m);
+		assertEquals(3600, cholesky.size());
+		assertTrue(cholesky.sizeFactor() < 3600 * 60);
+
+		Random random = new Random(7);
+		for (int k = 0; k < 3; ++k) {
+			double[] x = new double[m.sizeRows()];
+			for (int i = 0; i < x.length; ++i) {
+				x[i] = random.nextGaussian();
+			}
+			double[] solution = cholesky.solve(m.multiply(x));
+			for (int i = 0; i < x.length; ++i) {
+				assertEquals(x[i], solution[i], 1e-8);
+			}
+		}
+	}
+
+	@Test
+	public void testSmall() {
+		int[] rows = { 0, 0, 1, 1, 1, 2, 2 };
+		int[] columns = { 0, 1, 0, 1, 2, 1, 2 };
+		double[] values = { 4, 2, 2, 5, 1, 1, 3 };
+		SparseMatrix m = SparseMatrix.fromTriplets(3, 3, rows, columns, values, 7);
+		double[] x = new SparseCholesky(m).solve(new double[] { 6, 8, 4 });
+		assertArrayEquals(new double[] { 1, 1, 1 }, x, 1e-12);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIndefinite() {
+		int[] rows = { 0, 0, 1, 1 };
+		int[] columns = { 0, 1, 0, 1 };
+		double[] values = { 1, 2, 2, 1 };
+		new SparseCholesky(SparseMatrix.fromTriplets(2, 2, rows, columns, values, 4));
+	}
+}
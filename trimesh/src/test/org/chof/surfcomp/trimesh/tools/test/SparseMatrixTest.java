@@ -0,0 +1,66 @@
+package org.chof.surfcomp.trimesh.tools.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.chof.surfcomp.trimesh.tools.SparseMatrix;
+import org.junit.Test;
+
+public class SparseMatrixTest {
+
+	@Test
+	public void testTriplets() {
+		int[] rows = { 2, 0, 1, 0, 2, 0 };
+		int[] columns = { 1, 3, 0, 0, 1, 3 };
+		double[] values = { 1.5, 2.0, -1.0, 4.0, 0.5, 1.0 };
+		SparseMatrix m = SparseMatrix.fromTriplets(3, 4, rows, columns, values, 6);
+
+		assertEquals(4, m.sizeNonZeros());
+		assertEquals(4.0, m.get(0, 0), 0);
+		assertEquals(3.0, m.get(0, 3), 0);
+		assertEquals(-1.0, m.get(1, 0), 0);
+		assertEquals(2.0, m.get(2, 1), 0);
+		assertEquals(0.0, m.get(1, 1), 0);
+		assertEquals(-1, m.find(2, 3));
+		assertArrayEquals(new int[] { 0, 2, 3, 4 }, m.getRowStart());
+		assertArrayEquals(new int[] { 0, 3, 0, 1 }, m.getColumns());
+
+		assertArrayEquals(new double[] { 4 + 12, -1, 4 },
+				m.multiply(new double[] { 1, 2, 3, 4 }), 0);
+	}
+
+	@Test
+	public void testAgainstDense() {
+		Random random = new Random(3);
+		int n = 3000;
+		double[][] dense = new double[n][n];
+		int count = 20000;
+		int[] rows = new int[count];
+		int[] columns = new int[count];
+		double[] values = new double[count];
+		for (int e = 0; e < count; ++e) {
+			rows[e] = random.nextInt(n);
+			columns[e] = random.nextInt(n);
+			values[e] = random.nextGaussian();
+			dense[rows[e]][columns[e]] += values[e];
+		}
+		SparseMatrix m = SparseMatrix.fromTriplets(n, n, rows, columns, values, count);
+
+		double[] x = new double[n];
+		for (int i = 0; i < n; ++i) {
+			x[i] = random.nextDouble();
+		}
+		double[] y = m.multiply(x);
+		SparseMatrix combined = m.combine(2.0, SparseMatrix.diagonal(x), -1.0);
+		double[] z = combined.multiply(x);
+		for (int r = 0; r < n; ++r) {
+			double expected = 0;
+			for (int c = 0; c < n; ++c) {
+				expected += dense[r][c] * x[c];
+			}
+			assertEquals(expected, y[r], 1e-9);
+			assertEquals(2 * expected - x[r] * x[r], z[r], 1e-9);
+		}
+	}
+}
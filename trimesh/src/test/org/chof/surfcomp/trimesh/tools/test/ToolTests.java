@@ -5,7 +5,9 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ TrigomFunctionTest.class })
+@SuiteClasses({ TrigomFunctionTest.class,
+	            SparseMatrixTest.class,
+	            SparseCholeskyTest.class })
 public class ToolTests {
 
 }